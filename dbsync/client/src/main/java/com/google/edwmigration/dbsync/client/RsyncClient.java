@@ -2,17 +2,18 @@ package com.google.edwmigration.dbsync.client;
 
 import com.google.common.io.ByteSink;
 import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.ChecksumFile;
 import com.google.edwmigration.dbsync.common.InstructionGenerator;
+import com.google.edwmigration.dbsync.common.InstructionStream;
 import com.google.edwmigration.dbsync.common.storage.LocalStorage;
 import com.google.edwmigration.dbsync.proto.Checksum;
 import com.google.edwmigration.dbsync.server.CloudRunServerAPI;
 import com.google.edwmigration.dbsync.server.GCSTarget;
+import com.google.edwmigration.dbsync.server.RsyncServerAPI;
 import com.google.edwmigration.dbsync.server.RsyncTarget;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import org.apache.commons.lang3.NotImplementedException;
@@ -53,41 +54,33 @@ public class RsyncClient {
     }
   }
 
-  private void putRsync(ByteSource source, CloudRunServerAPI server, RsyncTarget target)
+  /** Syncs the source to the target, which is served by the given server. */
+  public void putRsync(ByteSource source, RsyncServerAPI server, RsyncTarget target)
       throws IOException, ExecutionException, InterruptedException {
 
     // generate target checksum
     server.generate();
 
-    // read checksum from gcs
-    List<Checksum> targetChecksums = new ArrayList<>();
-    ByteSource checksumSource = target.getChecksumByteSource();
-    try (InputStream checksumStream = checksumSource.openBufferedStream()) {
-      Checksum checksum;
-      while ((checksum = Checksum.parseDelimitedFrom(checksumStream)) != null) {
-        targetChecksums.add(checksum);
-      }
-    }
+    sendInstructions(source, target);
+
+    // Reconstruct on the server
+    server.reconstruct();
+
+    // TODO delete the jobs from cloudrun
+  }
+
+  /** Writes the instructions to turn the target into the source, given its checksums. */
+  void sendInstructions(ByteSource source, RsyncTarget target) throws IOException {
+    // read checksum from the target
+    List<Checksum> targetChecksums = ChecksumFile.read(target.getChecksumByteSource());
 
     // Invoke InstructionGenerator
     InstructionGenerator generator = new InstructionGenerator(CHECKSUM_BLOCK_SIZE);
     ByteSink instructionSink = target.getInstructionsByteSink();
-    try (OutputStream instructionStream = instructionSink.openBufferedStream()) {
-      generator.generate(
-          instruction -> {
-            try {
-              instruction.writeDelimitedTo(instructionStream);
-            } catch (IOException e) {
-              throw new RuntimeException("Failed to write instructions", e);
-            }
-          },
-          source,
-          targetChecksums);
+    try (OutputStream instructionStream = instructionSink.openBufferedStream();
+        InstructionStream.Writer writer =
+            new InstructionStream.Writer(instructionStream, InstructionStream.Codec.LZ4)) {
+      generator.generate(writer, source, targetChecksums);
     }
-
-    // Reconstruct on GCS
-    server.reconstruct();
-
-    // TODO delete the jobs from cloudrun
   }
 }
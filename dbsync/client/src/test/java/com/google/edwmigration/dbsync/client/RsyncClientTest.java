@@ -0,0 +1,61 @@
+package com.google.edwmigration.dbsync.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.storage.LocalStorage;
+import com.google.edwmigration.dbsync.server.LocalServerAPI;
+import com.google.edwmigration.dbsync.server.LocalTarget;
+import com.google.edwmigration.dbsync.test.RsyncTestRunner;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RsyncClientTest {
+
+  private static final int SIZE = 1024 * 1024;
+
+  /** Syncs the source data to a target file with the target data, and returns the target. */
+  private static LocalTarget sync(File dir, byte[] targetData, byte[] sourceData)
+      throws Exception {
+    File targetFile = new File(dir, "target");
+    File sourceFile = new File(dir, "source");
+    File stagingDir = new File(dir, "staging");
+    assertTrue(stagingDir.mkdir());
+    Files.write(targetFile.toPath(), targetData);
+    Files.write(sourceFile.toPath(), sourceData);
+
+    LocalTarget target = new LocalTarget(targetFile, stagingDir);
+    ByteSource source = new LocalStorage().newByteSource(sourceFile);
+    new RsyncClient().putRsync(source, new LocalServerAPI(target), target);
+
+    assertArrayEquals(sourceData, Files.readAllBytes(target.getStagedFile().toPath()));
+    return target;
+  }
+
+  @Test
+  public void testPutRsync(@TempDir File dir) throws Exception {
+    byte[] targetData = RsyncTestRunner.newRandomData(SIZE).read();
+    byte[] sourceData = Arrays.copyOf(targetData, SIZE + 1000);
+    // Change the middle, and append to the end.
+    System.arraycopy(RsyncTestRunner.newRandomData(1000).read(), 0, sourceData, SIZE / 2, 1000);
+    System.arraycopy(RsyncTestRunner.newRandomData(1000).read(), 0, sourceData, SIZE, 1000);
+
+    LocalTarget target = sync(dir, targetData, sourceData);
+
+    // Only the changed blocks are sent as literals.
+    long instructionBytes = target.getInstructionFile().length();
+    assertTrue(instructionBytes < SIZE / 100, instructionBytes + " instruction bytes");
+  }
+
+  @Test
+  public void testPutRsync_newSource(@TempDir File dir) throws Exception {
+    byte[] targetData = RsyncTestRunner.newRandomData(SIZE).read();
+    byte[] sourceData = RsyncTestRunner.newRandomData(SIZE / 2).read();
+
+    sync(dir, targetData, sourceData);
+  }
+}
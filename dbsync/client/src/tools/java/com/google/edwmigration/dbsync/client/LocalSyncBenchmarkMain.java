@@ -0,0 +1,191 @@
+package com.google.edwmigration.dbsync.client;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
+import com.google.edwmigration.dbsync.common.DefaultArguments;
+import com.google.edwmigration.dbsync.common.storage.LocalStorage;
+import com.google.edwmigration.dbsync.server.LocalServerAPI;
+import com.google.edwmigration.dbsync.server.LocalTarget;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import joptsimple.OptionSpec;
+
+/**
+ * Syncs generated files through an in-process server, and reports the bytes transferred and the
+ * throughput of each phase, so that the checksum, delta and reconstruct stages can be measured
+ * without GCS or Cloud Run.
+ */
+public class LocalSyncBenchmarkMain {
+
+  private static final int SHUFFLE_CHUNK_SIZE = 1024 * 1024;
+
+  /** How the source differs from the target. */
+  public enum Case {
+    /** The source is the target with 10% appended. */
+    APPEND,
+    /** The source is the target with 1% overwritten in the middle. */
+    MUTATE_MIDDLE,
+    /** The source is the target with its 1 MiB chunks reordered. */
+    SHUFFLE
+  }
+
+  private static class Arguments extends DefaultArguments {
+
+    private final OptionSpec<Integer> sizeOptionSpec =
+        parser
+            .accepts("size_mb", "Specifies the size of the target file in MiB")
+            .withRequiredArg()
+            .ofType(Integer.class)
+            .defaultsTo(64);
+
+    private final OptionSpec<Case> caseOptionSpec =
+        parser
+            .accepts("case", "Specifies a case to run; all cases run by default")
+            .withRequiredArg()
+            .ofType(Case.class);
+
+    private final OptionSpec<File> workDirOptionSpec =
+        parser
+            .accepts("work_dir", "Specifies the directory for the generated files")
+            .withRequiredArg()
+            .ofType(File.class);
+
+    private final OptionSpec<Long> seedOptionSpec =
+        parser
+            .accepts("seed", "Specifies the seed of the generated data")
+            .withRequiredArg()
+            .ofType(Long.class)
+            .defaultsTo(42L);
+
+    public Arguments(String[] args) {
+      super(args);
+    }
+
+    public int getSize() {
+      return getOptions().valueOf(sizeOptionSpec) * 1024 * 1024;
+    }
+
+    public List<Case> getCases() {
+      List<Case> cases = getOptions().valuesOf(caseOptionSpec);
+      return cases.isEmpty() ? Arrays.asList(Case.values()) : cases;
+    }
+
+    public File getWorkDir() {
+      File workDir = getOptions().valueOf(workDirOptionSpec);
+      return workDir != null ? workDir : Files.createTempDir();
+    }
+
+    public long getSeed() {
+      return getOptions().valueOf(seedOptionSpec);
+    }
+  }
+
+  private static byte[] newRandomData(Random random, int size) {
+    byte[] data = new byte[size];
+    random.nextBytes(data);
+    return data;
+  }
+
+  private static byte[] newSource(Case c, byte[] target, Random random) {
+    switch (c) {
+      case APPEND:
+        {
+          byte[] tail = newRandomData(random, target.length / 10);
+          byte[] source = Arrays.copyOf(target, target.length + tail.length);
+          System.arraycopy(tail, 0, source, target.length, tail.length);
+          return source;
+        }
+      case MUTATE_MIDDLE:
+        {
+          byte[] source = target.clone();
+          byte[] mutation = newRandomData(random, target.length / 100);
+          System.arraycopy(mutation, 0, source, target.length / 2, mutation.length);
+          return source;
+        }
+      case SHUFFLE:
+        {
+          List<Integer> chunks = new ArrayList<>();
+          for (int offset = 0; offset < target.length; offset += SHUFFLE_CHUNK_SIZE) {
+            chunks.add(offset);
+          }
+          Collections.shuffle(chunks, random);
+          byte[] source = new byte[target.length];
+          int position = 0;
+          for (int offset : chunks) {
+            int length = Math.min(SHUFFLE_CHUNK_SIZE, target.length - offset);
+            System.arraycopy(target, offset, source, position, length);
+            position += length;
+          }
+          return source;
+        }
+      default:
+        throw new IllegalArgumentException("Unknown case " + c);
+    }
+  }
+
+  private static String formatPhase(long bytes, Stopwatch stopwatch) {
+    double seconds = stopwatch.elapsed(TimeUnit.NANOSECONDS) / 1e9;
+    return String.format("%8.3fs %8.1fMB/s", seconds, bytes / 1e6 / seconds);
+  }
+
+  private static void run(Case c, int size, File workDir, Random random) throws Exception {
+    File caseDir = new File(workDir, c.name().toLowerCase());
+    File stagingDir = new File(caseDir, "staging");
+    if (!stagingDir.mkdirs() && !stagingDir.isDirectory()) {
+      throw new IOException("Failed to create " + stagingDir);
+    }
+    byte[] targetData = newRandomData(random, size);
+    File targetFile = new File(caseDir, "target");
+    Files.write(targetData, targetFile);
+    File sourceFile = new File(caseDir, "source");
+    Files.write(newSource(c, targetData, random), sourceFile);
+
+    LocalTarget target = new LocalTarget(targetFile, stagingDir);
+    LocalServerAPI server = new LocalServerAPI(target);
+    RsyncClient client = new RsyncClient();
+    ByteSource source = new LocalStorage().newByteSource(sourceFile);
+
+    Stopwatch checksumTime = Stopwatch.createStarted();
+    server.generate();
+    checksumTime.stop();
+    Stopwatch deltaTime = Stopwatch.createStarted();
+    client.sendInstructions(source, target);
+    deltaTime.stop();
+    Stopwatch reconstructTime = Stopwatch.createStarted();
+    server.reconstruct();
+    reconstructTime.stop();
+
+    if (!Files.equal(sourceFile, target.getStagedFile())) {
+      throw new IllegalStateException("Reconstructed file differs from the source in " + c);
+    }
+    long checksumBytes = target.getChecksumFile().length();
+    long instructionBytes = target.getInstructionFile().length();
+    long transferred = checksumBytes + instructionBytes;
+    System.out.printf(
+        "%-14s source %,14d  checksums %,12d  instructions %,14d  transferred %6.2f%%%n",
+        c, sourceFile.length(), checksumBytes, instructionBytes, 100.0 * transferred / size);
+    System.out.printf(
+        "%-14s checksum %s  delta %s  reconstruct %s%n",
+        "",
+        formatPhase(targetFile.length(), checksumTime),
+        formatPhase(sourceFile.length(), deltaTime),
+        formatPhase(sourceFile.length(), reconstructTime));
+  }
+
+  public static void main(String[] args) throws Exception {
+    Arguments arguments = new Arguments(args);
+    File workDir = arguments.getWorkDir();
+    Random random = new Random(arguments.getSeed());
+    System.out.printf("Syncing %,d byte files in %s%n", arguments.getSize(), workDir);
+    for (Case c : arguments.getCases()) {
+      run(c, arguments.getSize(), workDir, random);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.google.edwmigration.dbsync.jmh;
+
+import com.google.common.io.ByteStreams;
+import com.google.edwmigration.dbsync.jdbc.AvroEncoder;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Encodes a table of an embedded H2 database with a mix of the common column types. */
+@State(Scope.Benchmark)
+@Fork(value = 2)
+@Warmup(iterations = 2, time = AvroEncoderBenchmark.MS, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 4, time = AvroEncoderBenchmark.MS, timeUnit = TimeUnit.MILLISECONDS)
+public class AvroEncoderBenchmark {
+  public static final int MS = 1000;
+  private static final int N = 64 * 1024;
+
+  private final AvroEncoder encoder = new AvroEncoder();
+  private Connection connection;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1");
+    connection = dataSource.getConnection();
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("drop all objects");
+      statement.execute(
+          "create table t (c_int int not null, c_bigint bigint, c_double double precision,"
+              + " c_decimal decimal(18, 4), c_varchar varchar(64), c_varbinary varbinary(16),"
+              + " c_date date, c_timestamp timestamp)");
+    }
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            "insert into t values (?, ?, ?, ?, ?, ?, DATEADD(DAY, ?, DATE '2000-01-01'),"
+                + " DATEADD(SECOND, ?, TIMESTAMP '2000-01-01 00:00:00'))")) {
+      for (int i = 0; i < N; i++) {
+        statement.setInt(1, i);
+        statement.setObject(2, i % 10 == 0 ? null : (long) i * i);
+        statement.setDouble(3, i / 7d);
+        statement.setBigDecimal(4, BigDecimal.valueOf(i * 31L, 4));
+        statement.setString(5, "value-" + i);
+        statement.setBytes(6, new byte[] {(byte) i, (byte) (i >> 8)});
+        statement.setInt(7, i % 3650);
+        statement.setInt(8, i);
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  @Benchmark
+  public void testEncode() throws Exception {
+    try (Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("select * from t order by c_int")) {
+      encoder.encodeTo(ByteStreams.nullOutputStream(), rs);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.google.edwmigration.dbsync.jmh;
+
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.ChecksumFile;
+import com.google.edwmigration.dbsync.common.ChecksumGenerator;
+import com.google.edwmigration.dbsync.proto.Checksum;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Compares loading the checksums of a file from the fixed-size and delimited formats. */
+@State(Scope.Benchmark)
+@Fork(value = 2)
+@Warmup(iterations = 2, time = ChecksumFileBenchmark.MS, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 4, time = ChecksumFileBenchmark.MS, timeUnit = TimeUnit.MILLISECONDS)
+public class ChecksumFileBenchmark {
+  public static final int MS = 1000;
+  private static final int BLOCK_SIZE = 64;
+  private static final int BLOCK_COUNT = 256 * 1024;
+
+  private ByteSource fixed;
+  private ByteSource delimited;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    byte[] data = new byte[BLOCK_SIZE * BLOCK_COUNT];
+    ThreadLocalRandom.current().nextBytes(data);
+    List<Checksum> checksums = new ArrayList<>();
+    new ChecksumGenerator(BLOCK_SIZE).generate(checksums::add, ByteSource.wrap(data));
+
+    ByteArrayOutputStream fixedOut = new ByteArrayOutputStream();
+    ChecksumFile.Writer writer = new ChecksumFile.Writer(fixedOut, BLOCK_SIZE);
+    ByteArrayOutputStream delimitedOut = new ByteArrayOutputStream();
+    for (Checksum checksum : checksums) {
+      writer.accept(checksum);
+      checksum.writeDelimitedTo(delimitedOut);
+    }
+    fixed = ByteSource.wrap(fixedOut.toByteArray());
+    delimited = ByteSource.wrap(delimitedOut.toByteArray());
+  }
+
+  @Benchmark
+  public void testReadFixed(Blackhole bh) throws Exception {
+    bh.consume(ChecksumFile.read(fixed));
+  }
+
+  @Benchmark
+  public void testReadDelimited(Blackhole bh) throws Exception {
+    bh.consume(ChecksumFile.read(delimited));
+  }
+}
@@ -0,0 +1,194 @@
+package com.google.edwmigration.dbsync.common;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.edwmigration.dbsync.common.ChecksumGenerator.ChecksumConsumer;
+import com.google.edwmigration.dbsync.proto.Checksum;
+import com.google.protobuf.ByteString;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.checkerframework.checker.index.qual.NonNegative;
+
+/**
+ * Reads and writes files of checksums.
+ *
+ * <p>A checksum file is a fixed-size header, followed by one fixed-size record per block:
+ *
+ * <pre>
+ * header: magic (4 bytes) | version (int) | block size (int) | strong hash id (int)
+ * record: weak checksum (int) | block length (int) | strong checksum (32 bytes)
+ * </pre>
+ *
+ * <p>All integers are big-endian. The offset of a block is its record index times the block size,
+ * so only the last block may be shorter. As every record has the same size, a file can be mapped
+ * and its records parsed in parallel.
+ *
+ * <p>The first byte of the magic can't start a varint-delimited {@link Checksum}, so the files of
+ * {@link Checksum#writeDelimitedTo(OutputStream)} written before this format are still read.
+ */
+public class ChecksumFile {
+
+  private static final byte[] MAGIC = {(byte) 0x89, 'D', 'S', 'C'};
+  private static final int VERSION = 1;
+  /** The id of {@link RollingChecksumImpl#STRONG_HASH_FUNCTION}. */
+  private static final int STRONG_HASH_SHA256 = 1;
+
+  private static final int STRONG_HASH_LENGTH = 32;
+  static final int HEADER_LENGTH = MAGIC.length + 3 * Integer.BYTES;
+  static final int RECORD_LENGTH = 2 * Integer.BYTES + STRONG_HASH_LENGTH;
+
+  /** Below this, parsing in parallel costs more than it saves. */
+  private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+  private ChecksumFile() {}
+
+  /** Writes the checksums of consecutive blocks, as they are generated. */
+  public static class Writer implements ChecksumConsumer<IOException> {
+
+    private final DataOutputStream out;
+    private final @NonNegative int blockSize;
+    private long blockCount;
+
+    /** Writes the header; the stream is not closed by this writer. */
+    public Writer(OutputStream out, @NonNegative int blockSize) throws IOException {
+      Preconditions.checkArgument(blockSize > 0, "Block size must be positive: %s", blockSize);
+      this.out = new DataOutputStream(out);
+      this.blockSize = blockSize;
+      this.out.write(MAGIC);
+      this.out.writeInt(VERSION);
+      this.out.writeInt(blockSize);
+      this.out.writeInt(STRONG_HASH_SHA256);
+    }
+
+    @Override
+    public void accept(Checksum checksum) throws IOException {
+      Preconditions.checkArgument(
+          checksum.getBlockOffset() == blockCount * blockSize,
+          "Expected the block at offset %s, not %s.",
+          blockCount * blockSize,
+          checksum.getBlockOffset());
+      Preconditions.checkArgument(
+          checksum.getBlockLength() <= blockSize,
+          "Block length %s is larger than the block size %s.",
+          checksum.getBlockLength(),
+          blockSize);
+      Preconditions.checkArgument(
+          checksum.getStrongChecksum().size() == STRONG_HASH_LENGTH,
+          "Expected a strong checksum of %s bytes, not %s.",
+          STRONG_HASH_LENGTH,
+          checksum.getStrongChecksum().size());
+      out.writeInt(checksum.getWeakChecksum());
+      out.writeInt(checksum.getBlockLength());
+      checksum.getStrongChecksum().writeTo(out);
+      blockCount++;
+    }
+  }
+
+  public static List<Checksum> read(ByteSource source) throws IOException {
+    try (InputStream in = source.openBufferedStream()) {
+      return read(in);
+    }
+  }
+
+  /** Reads the remainder of the given stream, in either format. */
+  public static List<Checksum> read(InputStream in) throws IOException {
+    byte[] magic = new byte[MAGIC.length];
+    int length = ByteStreams.read(in, magic, 0, magic.length);
+    if (length == magic.length && Arrays.equals(magic, MAGIC)) {
+      ByteBuffer buffer = ByteBuffer.wrap(ByteStreams.toByteArray(in));
+      return parse(buffer);
+    }
+    return readDelimited(new SequenceInputStream(new ByteArrayInputStream(magic, 0, length), in));
+  }
+
+  /**
+   * Reads the file, from the given offset, in either format. A file in the fixed-size format is
+   * mapped rather than read.
+   */
+  public static List<Checksum> read(Path path, @NonNegative long offset) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size() - offset;
+      if (size >= HEADER_LENGTH) {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (Arrays.equals(magic, MAGIC)) {
+          return parse(buffer);
+        }
+      }
+      channel.position(offset);
+      return read(new BufferedInputStream(Channels.newInputStream(channel)));
+    }
+  }
+
+  private static List<Checksum> readDelimited(InputStream in) throws IOException {
+    List<Checksum> checksums = new ArrayList<>();
+    Checksum checksum;
+    while ((checksum = Checksum.parseDelimitedFrom(in)) != null) {
+      checksums.add(checksum);
+    }
+    return checksums;
+  }
+
+  /** Parses the header after the magic, and the records, from the position of the buffer. */
+  private static List<Checksum> parse(ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() < HEADER_LENGTH - MAGIC.length) {
+      throw new IOException("Truncated checksum file header.");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported checksum file version " + version);
+    }
+    int blockSize = buffer.getInt();
+    if (blockSize <= 0) {
+      throw new IOException("Bad block size " + blockSize);
+    }
+    int strongHash = buffer.getInt();
+    if (strongHash != STRONG_HASH_SHA256) {
+      throw new IOException("Unsupported strong hash " + strongHash);
+    }
+    if (buffer.remaining() % RECORD_LENGTH != 0) {
+      throw new IOException(
+          "Truncated checksum file: " + buffer.remaining() + " bytes of records.");
+    }
+    int count = buffer.remaining() / RECORD_LENGTH;
+    int base = buffer.position();
+    Checksum[] checksums = new Checksum[count];
+    IntStream indices = IntStream.range(0, count);
+    if (count >= PARALLEL_THRESHOLD) {
+      indices = indices.parallel();
+    }
+    // Absolute reads don't move the buffer, so the records can be parsed concurrently.
+    indices.forEach(i -> checksums[i] = parseRecord(buffer, base, blockSize, i));
+    return Arrays.asList(checksums);
+  }
+
+  private static Checksum parseRecord(ByteBuffer buffer, int base, int blockSize, int index) {
+    int position = base + index * RECORD_LENGTH;
+    byte[] strongChecksum = new byte[STRONG_HASH_LENGTH];
+    for (int i = 0; i < strongChecksum.length; i++) {
+      strongChecksum[i] = buffer.get(position + 2 * Integer.BYTES + i);
+    }
+    return Checksum.newBuilder()
+        .setBlockOffset((long) index * blockSize)
+        .setBlockLength(buffer.getInt(position + Integer.BYTES))
+        .setWeakChecksum(buffer.getInt(position))
+        .setStrongChecksum(ByteString.copyFrom(strongChecksum))
+        .build();
+  }
+}
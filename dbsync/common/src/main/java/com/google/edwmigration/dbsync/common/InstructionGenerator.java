@@ -17,6 +17,12 @@ import org.checkerframework.checker.index.qual.NonNegative;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Generates the instructions which turn the data of some checksums into the given data.
+ *
+ * <p>Copies of consecutive blocks are merged into one instruction, so an unchanged run of a file
+ * costs one instruction rather than one per block.
+ */
 public class InstructionGenerator {
 
   @SuppressWarnings("unused")
@@ -36,6 +42,38 @@ public class InstructionGenerator {
         .build();
   }
 
+  /** A copy which is held back, so that it can be merged with a copy of the next block. */
+  private static class PendingCopy {
+
+    private long offset;
+    private long length;
+
+    private void flush(InstructionConsumer<? extends IOException> out) throws IOException {
+      if (length == 0) {
+        return;
+      }
+      out.accept(
+          Instruction.newBuilder()
+              .setBlockLocation(
+                  BlockLocation.newBuilder().setBlockOffset(offset).setBlockLength((int) length))
+              .build());
+      length = 0;
+    }
+
+    private void add(InstructionConsumer<? extends IOException> out, Checksum c)
+        throws IOException {
+      if (length > 0
+          && offset + length == c.getBlockOffset()
+          && length + c.getBlockLength() <= Integer.MAX_VALUE) {
+        length += c.getBlockLength();
+        return;
+      }
+      flush(out);
+      offset = c.getBlockOffset();
+      length = c.getBlockLength();
+    }
+  }
+
   public void generate(
       InstructionConsumer<? extends IOException> out,
       ByteSource in,
@@ -59,6 +97,7 @@ public class InstructionGenerator {
 
     // int lastBlockSize = checksums.get(checksums.size() - 1).getBlockLength();
     RollingChecksumImpl rollingChecksum = new RollingChecksumImpl(blockSize);
+    PendingCopy pendingCopy = new PendingCopy();
     try (InputStream i = in.openBufferedStream()) {
       STREAM:
       for (; ; ) {
@@ -82,17 +121,11 @@ public class InstructionGenerator {
                   if (DEBUG) {
                     logger.debug("Emitting pre-match literal");
                   }
+                  pendingCopy.flush(out);
                   out.accept(newLiteralInstruction(literalBuffer, literalBufferLength));
                   literalBufferLength = 0;
                 }
-                Instruction insn =
-                    Instruction.newBuilder()
-                        .setBlockLocation(
-                            BlockLocation.newBuilder()
-                                .setBlockOffset(c.getBlockOffset())
-                                .setBlockLength(c.getBlockLength()))
-                        .build();
-                out.accept(insn);
+                pendingCopy.add(out, c);
                 continue STREAM;
               }
             }
@@ -106,6 +139,7 @@ public class InstructionGenerator {
             if (DEBUG) {
               logger.debug("Emitting overflow literal");
             }
+            pendingCopy.flush(out);
             out.accept(newLiteralInstruction(literalBuffer, literalBufferLength));
             literalBufferLength = 0;
           }
@@ -113,6 +147,7 @@ public class InstructionGenerator {
         }
       }
 
+      pendingCopy.flush(out);
       // We know that lastSentOffset is less than one block from the end,
       // because if it were more than one block, we would have emitted an overflow literal above.
       if (literalBufferLength > 0) {
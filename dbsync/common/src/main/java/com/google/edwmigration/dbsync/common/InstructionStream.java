@@ -0,0 +1,293 @@
+package com.google.edwmigration.dbsync.common;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.google.edwmigration.dbsync.common.InstructionGenerator.InstructionConsumer;
+import com.google.edwmigration.dbsync.proto.Instruction;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.MalformedInputException;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.zstd.ZstdCompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads and writes streams of instructions.
+ *
+ * <p>A stream is a header, followed by frames of varint-delimited instructions, each of which may
+ * be compressed:
+ *
+ * <pre>
+ * header: magic (4 bytes) | version (int) | codec id (int)
+ * frame:  uncompressed length (int) | compressed length (int) | payload
+ * </pre>
+ *
+ * <p>A frame with an uncompressed length of zero ends the stream, so a truncated stream is
+ * detected. The codec is chosen by the writer and announced in the header, so a reader decodes
+ * any stream. Batching many instructions into a frame means that a long run of copies or literal
+ * data compresses as a whole.
+ *
+ * <p>The first four bytes of a stream of {@link Instruction#writeDelimitedTo(OutputStream)}, as
+ * written before this format, never match the magic: its third byte would have to be the tag of
+ * an instruction field. Such streams are still read.
+ */
+public class InstructionStream {
+
+  private static final byte[] MAGIC = {(byte) 0x89, 'D', 'S', 'I'};
+  private static final int VERSION = 1;
+
+  public static final int DEFAULT_FRAME_SIZE = 256 * 1024;
+  /** A sanity limit, so that a corrupt length doesn't allocate gigabytes. */
+  private static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The compression of the frames. LZ4 is fast enough not to slow down the generator; zstd
+   * compresses literal data better, at a higher CPU cost. Both are pure Java.
+   */
+  public enum Codec {
+    NONE(0),
+    LZ4(1),
+    ZSTD(2);
+
+    private final int id;
+
+    Codec(int id) {
+      this.id = id;
+    }
+
+    private @Nullable Compressor newCompressor() {
+      switch (this) {
+        case LZ4:
+          return new Lz4Compressor();
+        case ZSTD:
+          return new ZstdCompressor();
+        default:
+          return null;
+      }
+    }
+
+    private @Nullable Decompressor newDecompressor() {
+      switch (this) {
+        case LZ4:
+          return new Lz4Decompressor();
+        case ZSTD:
+          return new ZstdDecompressor();
+        default:
+          return null;
+      }
+    }
+
+    private static Codec forId(int id) throws IOException {
+      for (Codec codec : values()) {
+        if (codec.id == id) {
+          return codec;
+        }
+      }
+      throw new IOException("Unsupported instruction codec " + id);
+    }
+  }
+
+  private InstructionStream() {}
+
+  /** Batches instructions into frames; {@link #close()} writes the last frame. */
+  public static class Writer implements InstructionConsumer<IOException>, AutoCloseable {
+
+    private final DataOutputStream out;
+    private final @Nullable Compressor compressor;
+    private byte[] frame;
+    private CodedOutputStream frameOut;
+    private byte[] compressed = new byte[0];
+    private boolean closed;
+
+    /** Writes the header; the stream is flushed, but not closed, by {@link #close()}. */
+    public Writer(OutputStream out, Codec codec, int frameSize) throws IOException {
+      Preconditions.checkArgument(
+          frameSize > 0 && frameSize <= MAX_FRAME_SIZE, "Bad frame size %s", frameSize);
+      this.out = new DataOutputStream(out);
+      this.compressor = codec.newCompressor();
+      this.frame = new byte[frameSize];
+      this.frameOut = CodedOutputStream.newInstance(frame);
+      this.out.write(MAGIC);
+      this.out.writeInt(VERSION);
+      this.out.writeInt(codec.id);
+    }
+
+    public Writer(OutputStream out, Codec codec) throws IOException {
+      this(out, codec, DEFAULT_FRAME_SIZE);
+    }
+
+    @Override
+    public void accept(Instruction instruction) throws IOException {
+      Preconditions.checkState(!closed, "Writer is closed.");
+      int size = instruction.getSerializedSize();
+      int delimitedSize = CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+      if (delimitedSize > frameOut.spaceLeft()) {
+        writeFrame();
+        if (delimitedSize > frame.length) {
+          // Only an instruction larger than a frame gets a frame of its own size.
+          frame = new byte[delimitedSize];
+          frameOut = CodedOutputStream.newInstance(frame);
+        }
+      }
+      frameOut.writeUInt32NoTag(size);
+      instruction.writeTo(frameOut);
+    }
+
+    private void writeFrame() throws IOException {
+      int length = frameOut.getTotalBytesWritten();
+      if (length == 0) {
+        return;
+      }
+      if (compressor != null) {
+        int maxLength = compressor.maxCompressedLength(length);
+        if (compressed.length < maxLength) {
+          compressed = new byte[maxLength];
+        }
+        int compressedLength = compressor.compress(frame, 0, length, compressed, 0, maxLength);
+        out.writeInt(length);
+        out.writeInt(compressedLength);
+        out.write(compressed, 0, compressedLength);
+      } else {
+        out.writeInt(length);
+        out.writeInt(length);
+        out.write(frame, 0, length);
+      }
+      frameOut = CodedOutputStream.newInstance(frame);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      writeFrame();
+      out.writeInt(0);
+      out.writeInt(0);
+      out.flush();
+    }
+  }
+
+  /** Decodes instructions a frame at a time, in either format. */
+  public static class Reader {
+
+    private final DataInputStream in;
+    private final @Nullable Codec codec;
+    private @Nullable Decompressor decompressor;
+    private byte[] frame = new byte[0];
+    private byte[] compressed = new byte[0];
+    private @Nullable CodedInputStream frameIn;
+    private boolean finished;
+
+    /** Reads the header; the stream is not closed by this reader. */
+    public Reader(InputStream in) throws IOException {
+      byte[] magic = new byte[MAGIC.length];
+      int length = ByteStreams.read(in, magic, 0, magic.length);
+      if (length == magic.length && Arrays.equals(magic, MAGIC)) {
+        this.in = new DataInputStream(in);
+        int version = this.in.readInt();
+        if (version != VERSION) {
+          throw new IOException("Unsupported instruction stream version " + version);
+        }
+        this.codec = Codec.forId(this.in.readInt());
+        this.decompressor = codec.newDecompressor();
+      } else {
+        this.in =
+            new DataInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(magic, 0, length), in));
+        this.codec = null;
+      }
+    }
+
+    /** Returns the codec of the stream, or null for a stream of delimited instructions. */
+    public @Nullable Codec getCodec() {
+      return codec;
+    }
+
+    /** Returns the next instruction, or null at the end of the stream. */
+    public @Nullable Instruction next() throws IOException {
+      if (codec == null) {
+        return Instruction.parseDelimitedFrom(in);
+      }
+      while (frameIn == null || frameIn.isAtEnd()) {
+        if (finished || !readFrame()) {
+          return null;
+        }
+      }
+      int size = frameIn.readUInt32();
+      int limit = frameIn.pushLimit(size);
+      Instruction instruction = Instruction.parseFrom(frameIn);
+      frameIn.popLimit(limit);
+      return instruction;
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int length) {
+      return buffer.length < length ? new byte[length] : buffer;
+    }
+
+    /** Returns false at the end of the stream. */
+    private boolean readFrame() throws IOException {
+      int length;
+      int compressedLength;
+      try {
+        length = in.readInt();
+        compressedLength = in.readInt();
+      } catch (EOFException e) {
+        throw new EOFException("Truncated instruction stream.");
+      }
+      if (length == 0) {
+        finished = true;
+        return false;
+      }
+      if (length < 0 || length > MAX_FRAME_SIZE || compressedLength < 0) {
+        throw new IOException("Bad instruction frame length " + length);
+      }
+      frame = ensureCapacity(frame, length);
+      if (decompressor != null) {
+        compressed = ensureCapacity(compressed, compressedLength);
+        in.readFully(compressed, 0, compressedLength);
+        int decompressedLength;
+        try {
+          decompressedLength =
+              decompressor.decompress(compressed, 0, compressedLength, frame, 0, length);
+        } catch (MalformedInputException e) {
+          throw new IOException("Corrupt instruction frame.", e);
+        }
+        if (decompressedLength != length) {
+          throw new IOException(
+              "Instruction frame decompressed to " + decompressedLength + " != " + length);
+        }
+      } else {
+        if (compressedLength != length) {
+          throw new IOException("Bad uncompressed instruction frame length " + compressedLength);
+        }
+        in.readFully(frame, 0, length);
+      }
+      frameIn = CodedInputStream.newInstance(frame, 0, length);
+      return true;
+    }
+  }
+
+  /** Passes all the instructions of the stream to the given consumer. */
+  public static <X extends Exception> void read(InputStream in, InstructionConsumer<X> out)
+      throws IOException, X {
+    Reader reader = new Reader(in);
+    Instruction instruction;
+    while ((instruction = reader.next()) != null) {
+      out.accept(instruction);
+    }
+  }
+}
@@ -11,8 +11,9 @@ public class LocalStorage {
     return new File(uri);
   }
 
+  /** Returns a source which reads the file through memory mappings. */
   public ByteSource newByteSource(File file) {
-    return Files.asByteSource(file);
+    return new MappedFileByteSource(file.toPath());
   }
 
   public ByteSource newByteSource(URI uri) {
@@ -0,0 +1,263 @@
+package com.google.edwmigration.dbsync.common.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A local file which is scanned through memory mappings, rather than through a chain of buffered
+ * stream copies, so that checksum generation and the rolling scan read the page cache directly.
+ *
+ * <p>A mapping is limited to 2 GiB, so a stream maps a window of the file at a time, and remaps
+ * as it moves through the file. A mapping is only released when it is garbage collected, so only
+ * the sequential scan of the whole file is mapped: a slice, such as the block copied by an
+ * instruction, is read with positioned reads of the file. A file truncated while it is read fails
+ * the read with an {@link IOException}.
+ */
+public class MappedFileByteSource extends AbstractRemoteByteSource {
+
+  // 1 GiB
+  public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private final Path path;
+  private final int windowSize;
+
+  public MappedFileByteSource(Path path) {
+    this(path, null, DEFAULT_WINDOW_SIZE);
+  }
+
+  @VisibleForTesting
+  MappedFileByteSource(Path path, int windowSize) {
+    this(path, null, windowSize);
+  }
+
+  private MappedFileByteSource(Path path, @Nullable Slice slice, int windowSize) {
+    super(slice);
+    Preconditions.checkArgument(windowSize > 0, "Bad window size %s", windowSize);
+    this.path = path;
+    this.windowSize = windowSize;
+  }
+
+  @Override
+  protected ByteSource slice(Slice slice) {
+    return new MappedFileByteSource(path, slice, windowSize);
+  }
+
+  @Override
+  public Optional<Long> sizeIfKnown() {
+    if (getSlice() != null) {
+      return super.sizeIfKnown();
+    }
+    File file = path.toFile();
+    return file.isFile() ? Optional.of(file.length()) : Optional.absent();
+  }
+
+  @Override
+  public InputStream openStream() throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      Slice slice = getSlice();
+      if (slice == null) {
+        return new MappedInputStream(channel, size, windowSize);
+      }
+      long start = Math.min(slice.getOffset(), size);
+      long end = start + Math.min(slice.getLength(), size - start);
+      return new ChannelInputStream(channel, start, end);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** The scan of the whole file reads mapped memory, so it is not wrapped in another buffer. */
+  @Override
+  public InputStream openBufferedStream() throws IOException {
+    return getSlice() == null ? openStream() : super.openBufferedStream();
+  }
+
+  @Override
+  protected MoreObjects.ToStringHelper toStringHelper(MoreObjects.ToStringHelper helper) {
+    return super.toStringHelper(helper).add("path", path);
+  }
+
+  private static EOFException newTruncatedException(long position) {
+    return new EOFException("File truncated while reading at position " + position);
+  }
+
+  /** Reads [0, end) of the channel, a window at a time; the stream owns the channel. */
+  private static final class MappedInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private final int windowSize;
+    // The position in the file of the end of the current window.
+    private long windowEnd;
+    private ByteBuffer window = EMPTY;
+
+    private MappedInputStream(FileChannel channel, long end, int windowSize) {
+      this.channel = channel;
+      this.end = end;
+      this.windowSize = windowSize;
+    }
+
+    /** Maps the next window, and returns false at the end of the range. */
+    private boolean nextWindow() throws IOException {
+      if (windowEnd >= end) {
+        return false;
+      }
+      long length = Math.min(windowSize, end - windowEnd);
+      // Mapping past the end of the file would extend the mapping with pages which fault on read.
+      if (channel.size() < windowEnd + length) {
+        throw newTruncatedException(windowEnd);
+      }
+      window = channel.map(MapMode.READ_ONLY, windowEnd, length);
+      windowEnd += length;
+      if (windowEnd >= end) {
+        // A mapping remains valid after its channel is closed.
+        channel.close();
+      }
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      while (!window.hasRemaining()) {
+        if (!nextWindow()) {
+          return -1;
+        }
+      }
+      try {
+        return window.get() & 0xFF;
+      } catch (InternalError e) {
+        throw newFaultException(e);
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      Preconditions.checkPositionIndexes(off, off + len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      while (!window.hasRemaining()) {
+        if (!nextWindow()) {
+          return -1;
+        }
+      }
+      int length = Math.min(len, window.remaining());
+      try {
+        window.get(b, off, length);
+      } catch (InternalError e) {
+        throw newFaultException(e);
+      }
+      return length;
+    }
+
+    /**
+     * The JVM reports a fault reading a mapping, as when the file was truncated after the window
+     * was mapped, as an {@link InternalError}.
+     */
+    private IOException newFaultException(InternalError e) {
+      return new IOException(
+          "Failed to read mapped file at position " + (windowEnd - window.remaining()), e);
+    }
+
+    @Override
+    public long skip(long n) {
+      if (n <= 0) {
+        return 0;
+      }
+      if (n <= window.remaining()) {
+        window.position(window.position() + (int) n);
+        return n;
+      }
+      // Skip past the current window; the next read maps a window at the new position.
+      long position = windowEnd - window.remaining();
+      long skipped = Math.min(n, end - position);
+      windowEnd = position + skipped;
+      window = EMPTY;
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return window.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+      window = EMPTY;
+      windowEnd = end;
+      channel.close();
+    }
+  }
+
+  /** Reads [start, end) of the channel with positioned reads; the stream owns the channel. */
+  private static final class ChannelInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    private ChannelInputStream(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.end = end;
+      this.position = start;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      Preconditions.checkPositionIndexes(off, off + len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      if (position >= end) {
+        return -1;
+      }
+      int length = (int) Math.min(len, end - position);
+      int read = channel.read(ByteBuffer.wrap(b, off, length), position);
+      if (read < 0) {
+        throw newTruncatedException(position);
+      }
+      position += read;
+      return read;
+    }
+
+    @Override
+    public long skip(long n) {
+      if (n <= 0) {
+        return 0;
+      }
+      long skipped = Math.min(n, end - position);
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+      position = end;
+      channel.close();
+    }
+  }
+}
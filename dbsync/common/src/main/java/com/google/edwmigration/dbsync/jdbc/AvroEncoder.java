@@ -1,24 +1,29 @@
 package com.google.edwmigration.dbsync.jdbc;
 
 import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
+import java.sql.Date;
 import java.sql.JDBCType;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.OffsetDateTime;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
+import org.apache.avro.LogicalTypes;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
-import org.apache.avro.SchemaBuilder.BaseTypeBuilder;
 import org.apache.avro.SchemaBuilder.FieldAssembler;
 import org.apache.avro.SchemaBuilder.FieldBuilder;
-import org.apache.avro.SchemaBuilder.NullDefault;
-import org.apache.avro.SchemaBuilder.UnionAccumulator;
 import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.Encoder;
@@ -63,8 +68,19 @@ public class AvroEncoder implements JdbcEncoder {
         throws SQLException, IOException;
   }
 
+  /**
+   * A transfer reads the column with the narrowest ResultSet getter for its type and writes the
+   * value straight to the block encoder. A nullable column is written as a union of null and the
+   * value type, so the getter must run first, and {@link #writeBranch} then consults wasNull().
+   */
   private abstract static class AbstractTransfer implements Transfer {
 
+    private final boolean nullable;
+
+    protected AbstractTransfer(boolean nullable) {
+      this.nullable = nullable;
+    }
+
     public FieldBuilder<Schema> defineBase(
         FieldAssembler<Schema> builder, ResultSetMetaData md, int columnIndex)
         throws SQLException, IOException {
@@ -79,60 +95,288 @@ public class AvroEncoder implements JdbcEncoder {
           .prop("jdbcClass", md.getColumnClassName(columnIndex + 1));
     }
 
-    public BaseTypeBuilder<UnionAccumulator<NullDefault<Schema>>> defineNullable(
-        FieldBuilder<Schema> builder, ResultSetMetaData md, int columnIndex)
+    /** Returns the schema of the non-null values of this column. */
+    protected abstract Schema defineValue(ResultSetMetaData md, int columnIndex)
+        throws SQLException;
+
+    @Override
+    public void define(FieldAssembler<Schema> builder, ResultSetMetaData md, int columnIndex)
         throws SQLException, IOException {
-      return builder.type().unionOf().nullBuilder().endNull().and();
+      FieldBuilder<Schema> base = defineBase(builder, md, columnIndex);
+      Schema value = defineValue(md, columnIndex);
+      if (nullable) {
+        base.type(Schema.createUnion(Schema.create(Schema.Type.NULL), value)).withDefault(null);
+      } else {
+        base.type(value).noDefault();
+      }
+    }
+
+    /**
+     * Writes the union branch of a nullable column for the value which was just read.
+     *
+     * @return true if the value follows, false if it was null.
+     */
+    protected boolean writeBranch(Encoder out, ResultSet rs) throws SQLException, IOException {
+      if (!nullable) {
+        return true;
+      }
+      if (rs.wasNull()) {
+        out.writeIndex(0);
+        out.writeNull();
+        return false;
+      }
+      out.writeIndex(1);
+      return true;
     }
 
     @Override
     public String toString() {
-      return getClass().getSimpleName();
+      return getClass().getSimpleName() + (nullable ? "(nullable)" : "");
     }
   }
 
-  private static class LongTransfer extends AbstractTransfer {
+  private static class BooleanTransfer extends AbstractTransfer {
 
-    public static final LongTransfer INSTANCE = new LongTransfer();
+    public BooleanTransfer(boolean nullable) {
+      super(nullable);
+    }
 
     @Override
-    public void define(FieldAssembler<Schema> builder, ResultSetMetaData md, int columnIndex)
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return Schema.create(Schema.Type.BOOLEAN);
+    }
+
+    @Override
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
         throws SQLException, IOException {
-      FieldBuilder<Schema> base = defineBase(builder, md, columnIndex);
-      base.type().longType().noDefault();
+      boolean value = rs.getBoolean(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        out.writeBoolean(value);
+      }
+    }
+  }
+
+  private static class LongTransfer extends AbstractTransfer {
+
+    public LongTransfer(boolean nullable) {
+      super(nullable);
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return Schema.create(Schema.Type.LONG);
     }
 
     @Override
     public void transfer(Encoder out, ResultSet rs, int columnIndex)
         throws SQLException, IOException {
       long value = rs.getLong(columnIndex + 1);
-      out.writeLong(value);
+      if (writeBranch(out, rs)) {
+        out.writeLong(value);
+      }
     }
   }
 
-  private static class NullableLongTransfer extends AbstractTransfer {
+  private static class FloatTransfer extends AbstractTransfer {
+
+    public FloatTransfer(boolean nullable) {
+      super(nullable);
+    }
 
-    public static final NullableLongTransfer INSTANCE = new NullableLongTransfer();
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return Schema.create(Schema.Type.FLOAT);
+    }
 
     @Override
-    public void define(FieldAssembler<Schema> builder, ResultSetMetaData md, int columnIndex)
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
         throws SQLException, IOException {
-      FieldBuilder<Schema> base = defineBase(builder, md, columnIndex);
-      BaseTypeBuilder<UnionAccumulator<NullDefault<Schema>>> union =
-          defineNullable(base, md, columnIndex);
-      union.longType().endUnion().nullDefault();
+      float value = rs.getFloat(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        out.writeFloat(value);
+      }
+    }
+  }
+
+  private static class DoubleTransfer extends AbstractTransfer {
+
+    public DoubleTransfer(boolean nullable) {
+      super(nullable);
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return Schema.create(Schema.Type.DOUBLE);
     }
 
     @Override
     public void transfer(Encoder out, ResultSet rs, int columnIndex)
         throws SQLException, IOException {
-      long value = rs.getLong(columnIndex + 1);
-      if (rs.wasNull()) {
-        out.writeIndex(0);
-        out.writeNull();
-      } else {
-        out.writeIndex(1);
-        out.writeLong(value);
+      double value = rs.getDouble(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        out.writeDouble(value);
+      }
+    }
+  }
+
+  /** Writes the unscaled value of a DECIMAL column as a two's-complement big-endian integer. */
+  private static class DecimalTransfer extends AbstractTransfer {
+
+    private final int precision;
+    private final int scale;
+
+    public DecimalTransfer(boolean nullable, int precision, int scale) {
+      super(nullable);
+      this.precision = precision;
+      this.scale = scale;
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return LogicalTypes.decimal(precision, scale).addToSchema(Schema.create(Schema.Type.BYTES));
+    }
+
+    @Override
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
+        throws SQLException, IOException {
+      BigDecimal value = rs.getBigDecimal(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        // Fails rather than silently rounding if the driver returns more digits than declared.
+        BigDecimal scaled = value.setScale(scale, RoundingMode.UNNECESSARY);
+        out.writeBytes(scaled.unscaledValue().toByteArray());
+      }
+    }
+  }
+
+  private static class StringTransfer extends AbstractTransfer {
+
+    public StringTransfer(boolean nullable) {
+      super(nullable);
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return Schema.create(Schema.Type.STRING);
+    }
+
+    @Override
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
+        throws SQLException, IOException {
+      String value = rs.getString(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        out.writeString(value);
+      }
+    }
+  }
+
+  private static class BytesTransfer extends AbstractTransfer {
+
+    public BytesTransfer(boolean nullable) {
+      super(nullable);
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return Schema.create(Schema.Type.BYTES);
+    }
+
+    @Override
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
+        throws SQLException, IOException {
+      byte[] value = rs.getBytes(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        out.writeBytes(value);
+      }
+    }
+  }
+
+  /** Writes the number of days since the epoch, independent of the JVM time zone. */
+  private static class DateTransfer extends AbstractTransfer {
+
+    public DateTransfer(boolean nullable) {
+      super(nullable);
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT));
+    }
+
+    @Override
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
+        throws SQLException, IOException {
+      Date value = rs.getDate(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        out.writeInt(JdbcTemporals.toEpochDay(value));
+      }
+    }
+  }
+
+  /** Writes the number of milliseconds since midnight. */
+  private static class TimeTransfer extends AbstractTransfer {
+
+    public TimeTransfer(boolean nullable) {
+      super(nullable);
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return LogicalTypes.timeMillis().addToSchema(Schema.create(Schema.Type.INT));
+    }
+
+    @Override
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
+        throws SQLException, IOException {
+      Time value = rs.getTime(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        out.writeInt(JdbcTemporals.toMillisOfDay(value));
+      }
+    }
+  }
+
+  /**
+   * Writes a TIMESTAMP as the wall-clock microseconds since the epoch, so the encoding does not
+   * depend on the JVM time zone.
+   */
+  private static class TimestampTransfer extends AbstractTransfer {
+
+    public TimestampTransfer(boolean nullable) {
+      super(nullable);
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return LogicalTypes.localTimestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+    }
+
+    @Override
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
+        throws SQLException, IOException {
+      Timestamp value = rs.getTimestamp(columnIndex + 1);
+      if (writeBranch(out, rs)) {
+        out.writeLong(JdbcTemporals.toLocalMicros(value));
+      }
+    }
+  }
+
+  /** Writes a TIMESTAMP WITH TIME ZONE as the microseconds since the epoch. */
+  private static class OffsetTimestampTransfer extends AbstractTransfer {
+
+    public OffsetTimestampTransfer(boolean nullable) {
+      super(nullable);
+    }
+
+    @Override
+    protected Schema defineValue(ResultSetMetaData md, int columnIndex) {
+      return LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+    }
+
+    @Override
+    public void transfer(Encoder out, ResultSet rs, int columnIndex)
+        throws SQLException, IOException {
+      OffsetDateTime value = rs.getObject(columnIndex + 1, OffsetDateTime.class);
+      if (writeBranch(out, rs)) {
+        out.writeLong(JdbcTemporals.toMicros(value));
       }
     }
   }
@@ -142,14 +386,65 @@ public class AvroEncoder implements JdbcEncoder {
     Transfer[] transfers = new Transfer[columnCount];
     for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
       int columnType = md.getColumnType(columnIndex + 1);
-      boolean columnNullable = md.isNullable(columnIndex + 1) == ResultSetMetaData.columnNullable;
+      // columnNullableUnknown is treated as nullable; a null in a non-null column can't be written.
+      boolean columnNullable = md.isNullable(columnIndex + 1) != ResultSetMetaData.columnNoNulls;
       switch (columnType) {
+        case Types.BIT:
+        case Types.BOOLEAN:
+          transfers[columnIndex] = new BooleanTransfer(columnNullable);
+          break;
         case Types.TINYINT:
         case Types.SMALLINT:
         case Types.INTEGER:
         case Types.BIGINT:
-          transfers[columnIndex] =
-              columnNullable ? NullableLongTransfer.INSTANCE : LongTransfer.INSTANCE;
+          transfers[columnIndex] = new LongTransfer(columnNullable);
+          break;
+        case Types.REAL:
+          transfers[columnIndex] = new FloatTransfer(columnNullable);
+          break;
+        case Types.FLOAT:
+        case Types.DOUBLE:
+          transfers[columnIndex] = new DoubleTransfer(columnNullable);
+          break;
+        case Types.DECIMAL:
+        case Types.NUMERIC:
+          int precision = md.getPrecision(columnIndex + 1);
+          int scale = md.getScale(columnIndex + 1);
+          // e.g. an Oracle NUMBER without precision has no fixed scale to encode.
+          if (precision > 0 && scale >= 0 && scale <= precision) {
+            transfers[columnIndex] = new DecimalTransfer(columnNullable, precision, scale);
+          } else {
+            transfers[columnIndex] = new StringTransfer(columnNullable);
+          }
+          break;
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+        case Types.LONGNVARCHAR:
+        case Types.CLOB:
+        case Types.NCLOB:
+        case Types.TIME_WITH_TIMEZONE:
+          transfers[columnIndex] = new StringTransfer(columnNullable);
+          break;
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+        case Types.BLOB:
+          transfers[columnIndex] = new BytesTransfer(columnNullable);
+          break;
+        case Types.DATE:
+          transfers[columnIndex] = new DateTransfer(columnNullable);
+          break;
+        case Types.TIME:
+          transfers[columnIndex] = new TimeTransfer(columnNullable);
+          break;
+        case Types.TIMESTAMP:
+          transfers[columnIndex] = new TimestampTransfer(columnNullable);
+          break;
+        case Types.TIMESTAMP_WITH_TIMEZONE:
+          transfers[columnIndex] = new OffsetTimestampTransfer(columnNullable);
           break;
         default:
           throw new IllegalArgumentException(
@@ -161,8 +456,8 @@ public class AvroEncoder implements JdbcEncoder {
 
   private static class BinaryBuffer extends NonCopyingByteArrayOutputStream {
 
-    public BinaryBuffer() {
-      super((int) (DataFileConstants.DEFAULT_SYNC_INTERVAL * 1.25));
+    public BinaryBuffer(int blockBytes) {
+      super((int) (blockBytes * 1.25));
     }
 
     public byte[] getData() {
@@ -170,6 +465,31 @@ public class AvroEncoder implements JdbcEncoder {
     }
   }
 
+  private final int blockRows;
+  private final int blockBytes;
+
+  /** Creates an encoder which closes each block once it exceeds the default sync interval. */
+  public AvroEncoder() {
+    this(Integer.MAX_VALUE, DataFileConstants.DEFAULT_SYNC_INTERVAL);
+  }
+
+  /**
+   * Creates an encoder which closes each block after {@code blockRows} rows, or once it exceeds
+   * {@code blockBytes}, whichever comes first.
+   *
+   * <p>Block boundaries only depend on the rows before them, so an unchanged prefix of a table
+   * encodes to byte-identical blocks, and rsync only has to transfer the blocks after the first
+   * change. A fixed row count also realigns the blocks after an in-place update, which a byte
+   * budget alone does not when the update changes the size of a row.
+   */
+  public AvroEncoder(int blockRows, int blockBytes) {
+    Preconditions.checkArgument(blockRows > 0, "Block row count must be positive: %s", blockRows);
+    Preconditions.checkArgument(
+        blockBytes > 0, "Block byte budget must be positive: %s", blockBytes);
+    this.blockRows = blockRows;
+    this.blockBytes = blockBytes;
+  }
+
   private void open(BinaryEncoder fileEncoder, Schema schema) throws IOException {
     Map<String, byte[]> meta = new TreeMap<>();
     if (DEBUG) {
@@ -220,7 +540,7 @@ public class AvroEncoder implements JdbcEncoder {
     BinaryEncoder fileEncoder = EncoderFactory.get().directBinaryEncoder(out, null);
     open(fileEncoder, schema);
 
-    BinaryBuffer blockBuffer = new BinaryBuffer();
+    BinaryBuffer blockBuffer = new BinaryBuffer(blockBytes);
     BinaryEncoder blockEncoder = EncoderFactory.get().directBinaryEncoder(blockBuffer, null);
     int blockRecordCount = 0;
 
@@ -233,7 +553,7 @@ public class AvroEncoder implements JdbcEncoder {
       }
       blockRecordCount++;
 
-      if (blockBuffer.size() > DataFileConstants.DEFAULT_SYNC_INTERVAL) {
+      if (blockRecordCount >= blockRows || blockBuffer.size() > blockBytes) {
         flush(fileEncoder, blockBuffer, blockRecordCount);
         blockRecordCount = 0;
       }
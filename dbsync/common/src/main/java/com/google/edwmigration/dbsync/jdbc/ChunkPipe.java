@@ -0,0 +1,251 @@
+package com.google.edwmigration.dbsync.jdbc;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A single-producer, single-consumer pipe which hands over filled chunks.
+ *
+ * <p>Unlike a PipedInputStream, the writer fills a whole chunk before passing it to the reader
+ * through a bounded queue, so the threads only synchronize once per chunk, and the reader returns
+ * drained chunks to the writer for reuse. At most {@code capacity} filled chunks are queued, plus
+ * the one being written and the one being read.
+ *
+ * <p>A writer failure is passed to the reader by {@link #fail(Throwable)}, and is thrown by the
+ * next read which needs a chunk, even if filled chunks are still queued. Closing the reader makes
+ * subsequent writes fail.
+ */
+class ChunkPipe {
+
+  private static final class Chunk {
+
+    private final byte[] data;
+    private int length;
+
+    private Chunk(int size) {
+      this.data = new byte[size];
+    }
+  }
+
+  private static final Chunk END = new Chunk(0);
+
+  private final int chunkSize;
+  private final BlockingQueue<Chunk> filled;
+  private final BlockingQueue<Chunk> free;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private volatile boolean readerClosed;
+
+  private final OutputStream output = new Output();
+  private final InputStream input = new Input();
+
+  public ChunkPipe(int capacity, int chunkSize) {
+    Preconditions.checkArgument(capacity > 0, "Capacity must be positive: %s", capacity);
+    Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive: %s", chunkSize);
+    this.chunkSize = chunkSize;
+    this.filled = new ArrayBlockingQueue<>(capacity);
+    this.free = new ArrayBlockingQueue<>(capacity + 2);
+  }
+
+  /** Returns the stream written by the producer thread. */
+  public OutputStream getOutputStream() {
+    return output;
+  }
+
+  /** Returns the stream read by the consumer thread. */
+  public InputStream getInputStream() {
+    return input;
+  }
+
+  /** Called by the producer to abort the pipe; the reader throws the failure. */
+  public void fail(Throwable t) {
+    if (failure.compareAndSet(null, t)) {
+      // Wakes up the reader, which checks the failure before reading any queued chunk.
+      filled.clear();
+      filled.offer(END);
+    }
+  }
+
+  /** Returns the failure passed to {@link #fail(Throwable)}, if any. */
+  public Throwable getFailure() {
+    return failure.get();
+  }
+
+  private class Output extends OutputStream {
+
+    private Chunk current;
+    private boolean closed;
+
+    private void ensureOpen() throws IOException {
+      if (closed) {
+        throw new IOException("Pipe writer is closed.");
+      }
+      ensureReaderOpen();
+    }
+
+    private void ensureReaderOpen() throws IOException {
+      if (readerClosed) {
+        throw new IOException("Pipe reader is closed.");
+      }
+    }
+
+    private Chunk current() {
+      if (current == null) {
+        current = free.poll();
+        if (current == null) {
+          current = new Chunk(chunkSize);
+        }
+        current.length = 0;
+      }
+      return current;
+    }
+
+    /**
+     * Queues a chunk. The reader state is checked before every chunk, as a write may span many
+     * chunks, and closing the reader only makes room for the one a blocked put is waiting with.
+     */
+    private void put(Chunk chunk) throws IOException {
+      ensureReaderOpen();
+      try {
+        filled.put(chunk);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while writing to the pipe.");
+      }
+    }
+
+    private void publish() throws IOException {
+      if (current != null && current.length > 0) {
+        Chunk chunk = current;
+        current = null;
+        put(chunk);
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      ensureOpen();
+      Chunk chunk = current();
+      chunk.data[chunk.length++] = (byte) b;
+      if (chunk.length == chunk.data.length) {
+        publish();
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      ensureOpen();
+      while (len > 0) {
+        Chunk chunk = current();
+        int count = Math.min(len, chunk.data.length - chunk.length);
+        System.arraycopy(b, off, chunk.data, chunk.length, count);
+        chunk.length += count;
+        off += count;
+        len -= count;
+        if (chunk.length == chunk.data.length) {
+          publish();
+        }
+      }
+    }
+
+    /** Passes a partially filled chunk to the reader. */
+    @Override
+    public void flush() throws IOException {
+      ensureOpen();
+      publish();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (!readerClosed) {
+        publish();
+        put(END);
+      }
+    }
+  }
+
+  private class Input extends InputStream {
+
+    private Chunk current;
+    private int position;
+
+    private void checkFailure() throws IOException {
+      Throwable t = failure.get();
+      if (t != null) {
+        throw new IOException("Pipe writer failed.", t);
+      }
+    }
+
+    /** Returns false at the end of the stream. */
+    private boolean ensureData() throws IOException {
+      while (current == null || position == current.length) {
+        if (current == END) {
+          checkFailure();
+          return false;
+        }
+        if (current != null) {
+          free.offer(current);
+          current = null;
+        }
+        checkFailure();
+        if (readerClosed) {
+          throw new IOException("Pipe reader is closed.");
+        }
+        try {
+          current = filled.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while reading from the pipe.");
+        }
+        position = 0;
+      }
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!ensureData()) {
+        return -1;
+      }
+      return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      Preconditions.checkPositionIndexes(off, off + len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      if (!ensureData()) {
+        return -1;
+      }
+      int count = Math.min(len, current.length - position);
+      System.arraycopy(current.data, position, b, off, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      Chunk chunk = current;
+      return chunk == null ? 0 : chunk.length - position;
+    }
+
+    @Override
+    public void close() {
+      readerClosed = true;
+      current = null;
+      // Unblocks a writer waiting for space; its next write fails.
+      filled.clear();
+    }
+  }
+}
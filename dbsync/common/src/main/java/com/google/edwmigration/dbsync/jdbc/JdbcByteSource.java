@@ -1,44 +1,69 @@
 package com.google.edwmigration.dbsync.jdbc;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.io.ByteSource;
+import com.google.common.math.IntMath;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.math.RoundingMode;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
 import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class JdbcByteSource extends ByteSource {
-  @SuppressWarnings("unused")
   private static final Logger logger = LoggerFactory.getLogger(JdbcByteSource.class);
 
+  /** The default number of bytes buffered between the encoder and the reader. */
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
   private class JdbcThread extends Thread {
-    private final OutputStream out;
-    private final AtomicReference<Throwable> throwable = new AtomicReference<>();
+    private final ChunkPipe pipe;
+    private volatile Statement statement;
+    private volatile boolean finished;
 
-    public JdbcThread(OutputStream out) {
-      this.out = out;
+    public JdbcThread(ChunkPipe pipe) {
+      this.pipe = pipe;
       setDaemon(true);
     }
 
     @Override
     public void run() {
-      try (OutputStream out = this.out;
-          Connection connection = source.getConnection();
-          Statement statement = connection.createStatement();
-          ResultSet rs = statement.executeQuery(query)) {
-        encoder.encodeTo(out, rs);
-      } catch (IOException | SQLException | RuntimeException e) {
-        throwable.set(e);
+      try (Connection connection = source.getConnection();
+          Statement statement = connection.createStatement()) {
+        this.statement = statement;
+        OutputStream out = pipe.getOutputStream();
+        try (ResultSet rs = statement.executeQuery(query)) {
+          encoder.encodeTo(out, rs);
+        }
+        // Only a complete encoding ends the stream; a failure is passed on by fail() instead.
+        out.close();
+      } catch (Throwable t) {
+        // Any failure, including an Error, must reach the reader, which would otherwise block.
+        pipe.fail(t);
+      } finally {
+        finished = true;
+      }
+    }
+
+    /** Cancels the query if the reader closes the stream before the encoder has finished. */
+    public void cancel() {
+      Statement statement = this.statement;
+      if (statement != null && !finished) {
+        try {
+          statement.cancel();
+        } catch (SQLException | RuntimeException e) {
+          logger.debug("Failed to cancel query: {}", e.toString());
+        }
       }
     }
   }
@@ -46,23 +71,37 @@ public class JdbcByteSource extends ByteSource {
   private final JdbcEncoder encoder;
   private final DataSource source;
   private final String query;
+  private final int bufferSize;
 
   public JdbcByteSource(JdbcEncoder encoder, DataSource source, String query) {
+    this(encoder, source, query, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param bufferSize the number of bytes the encoder may run ahead of the reader, rounded up to a
+   *     whole number of chunks.
+   */
+  public JdbcByteSource(JdbcEncoder encoder, DataSource source, String query, int bufferSize) {
+    Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive: %s", bufferSize);
     this.encoder = Objects.requireNonNull(encoder);
     this.source = Objects.requireNonNull(source);
     this.query = Objects.requireNonNull(query);
+    this.bufferSize = bufferSize;
   }
 
   @Override
   public InputStream openStream() throws IOException {
-    PipedOutputStream out = new PipedOutputStream();
-    JdbcThread thread = new JdbcThread(out);
-    PipedInputStream in =
-        new PipedInputStream(out, 1024 * 1024) {
+    int capacity = IntMath.divide(bufferSize, CHUNK_SIZE, RoundingMode.CEILING);
+    ChunkPipe pipe = new ChunkPipe(capacity, CHUNK_SIZE);
+    JdbcThread thread = new JdbcThread(pipe);
+    InputStream in =
+        new FilterInputStream(pipe.getInputStream()) {
           @Override
           public void close() throws IOException {
+            // A failure after this point may be caused by the cancellation, and is not reported.
+            Throwable t = pipe.getFailure();
             super.close();
-            Throwable t = thread.throwable.get();
+            thread.cancel();
             if (t != null) {
               Throwables.throwIfInstanceOf(t, IOException.class);
               throw new IOException(t);
@@ -71,7 +110,7 @@ public class JdbcByteSource extends ByteSource {
 
           @Override
           public String toString() {
-            return "PipedInputStream(" + query + ")";
+            return "JdbcInputStream(" + query + ")";
           }
         };
     thread.start();
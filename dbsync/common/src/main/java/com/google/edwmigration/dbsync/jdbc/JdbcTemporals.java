@@ -0,0 +1,46 @@
+package com.google.edwmigration.dbsync.jdbc;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Converts JDBC temporal values to the integer representations used by the columnar encoders.
+ *
+ * <p>Values without a time zone are converted through their wall-clock fields, so the encoded bytes
+ * do not depend on the time zone of the JVM.
+ */
+final class JdbcTemporals {
+
+  private JdbcTemporals() {}
+
+  /** Returns the number of days since 1970-01-01. */
+  public static int toEpochDay(Date value) {
+    return Math.toIntExact(value.toLocalDate().toEpochDay());
+  }
+
+  /** Returns the number of milliseconds since midnight. */
+  public static int toMillisOfDay(Time value) {
+    // Time.toLocalTime() drops the milliseconds.
+    int millis = value.toLocalTime().toSecondOfDay() * 1000;
+    return millis + (int) Math.floorMod(value.getTime(), 1000L);
+  }
+
+  /** Returns the wall-clock microseconds since 1970-01-01T00:00. */
+  public static long toLocalMicros(Timestamp value) {
+    LocalDateTime dateTime = value.toLocalDateTime();
+    return toMicros(dateTime.toEpochSecond(ZoneOffset.UTC), dateTime.getNano());
+  }
+
+  /** Returns the microseconds since the epoch. */
+  public static long toMicros(OffsetDateTime value) {
+    return toMicros(value.toEpochSecond(), value.getNano());
+  }
+
+  private static long toMicros(long epochSecond, int nanos) {
+    return Math.addExact(Math.multiplyExact(epochSecond, 1_000_000L), nanos / 1000);
+  }
+}
@@ -1,15 +1,727 @@
 package com.google.edwmigration.dbsync.jdbc;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.primitives.Ints;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.JDBCType;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.apache.parquet.bytes.BytesInput;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnWriteStore;
+import org.apache.parquet.column.ColumnWriter;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.column.page.DictionaryPage;
+import org.apache.parquet.column.page.PageWriteStore;
+import org.apache.parquet.column.page.PageWriter;
+import org.apache.parquet.column.statistics.SizeStatistics;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.format.ColumnChunk;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.CompressionCodec;
+import org.apache.parquet.format.ConvertedType;
+import org.apache.parquet.format.DataPageHeader;
+import org.apache.parquet.format.DataPageHeaderV2;
+import org.apache.parquet.format.DateType;
+import org.apache.parquet.format.DecimalType;
+import org.apache.parquet.format.DictionaryPageHeader;
+import org.apache.parquet.format.FieldRepetitionType;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.LogicalType;
+import org.apache.parquet.format.MicroSeconds;
+import org.apache.parquet.format.MilliSeconds;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageType;
+import org.apache.parquet.format.RowGroup;
+import org.apache.parquet.format.SchemaElement;
+import org.apache.parquet.format.StringType;
+import org.apache.parquet.format.TimeType;
+import org.apache.parquet.format.TimeUnit;
+import org.apache.parquet.format.TimestampType;
+import org.apache.parquet.format.Util;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type.Repetition;
 
+/**
+ * Encodes a ResultSet as a Parquet file.
+ *
+ * <p>The Parquet writers in parquet-hadoop need a Hadoop Configuration and FileSystem, so this
+ * drives the column writers of parquet-column directly and writes the page headers and the footer
+ * with the Thrift structures of parquet-format. Pages use dictionary and RLE encoding and are not
+ * compressed, which leaves compression to the transport and keeps unchanged pages byte-identical.
+ *
+ * <p>Each row group is buffered in memory until it has {@code rowGroupRows} rows or exceeds {@code
+ * rowGroupBytes}, and is then written to the stream, so memory is bounded by one row group. Row
+ * group and page boundaries only depend on the rows before them, so an unchanged prefix of a table
+ * encodes to byte-identical row groups.
+ */
 public class ParquetEncoder implements JdbcEncoder {
 
+  public static final int DEFAULT_ROW_GROUP_BYTES = 16 * 1024 * 1024;
+
+  private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+  private static final CharMatcher PARQUET_ILLEGAL_CHARS =
+      CharMatcher.inRange('a', 'z')
+          .or(CharMatcher.inRange('A', 'Z'))
+          .or(CharMatcher.inRange('0', '9'))
+          .negate()
+          .precomputed();
+
+  private static String legalize(String in) {
+    return PARQUET_ILLEGAL_CHARS.collapseFrom(in, '_');
+  }
+
+  /** Suffixes a name already in use, e.g. by a label which legalizes like an earlier one. */
+  private static String uniqueName(String name, Set<String> names) {
+    String unique = name;
+    for (int suffix = 2; !names.add(unique); suffix++) {
+      unique = name + "_" + suffix;
+    }
+    return unique;
+  }
+
+  private interface ValueTransfer {
+
+    /**
+     * Reads a column from the current row and writes it, or a null if the column is null.
+     *
+     * @param definitionLevel the definition level of a non-null value.
+     */
+    public void transfer(ColumnWriter out, ResultSet rs, int columnIndex, int definitionLevel)
+        throws SQLException;
+  }
+
+  private static class Column {
+
+    private final String name;
+    private final boolean nullable;
+    private final PrimitiveTypeName type;
+    private final Consumer<SchemaElement> annotator;
+    private final ValueTransfer transfer;
+
+    public Column(
+        String name,
+        boolean nullable,
+        PrimitiveTypeName type,
+        Consumer<SchemaElement> annotator,
+        ValueTransfer transfer) {
+      this.name = name;
+      this.nullable = nullable;
+      this.type = type;
+      this.annotator = annotator;
+      this.transfer = transfer;
+    }
+
+    public SchemaElement toSchemaElement() {
+      SchemaElement element = new SchemaElement(name);
+      element.setType(toFormat(type));
+      element.setRepetition_type(
+          nullable ? FieldRepetitionType.OPTIONAL : FieldRepetitionType.REQUIRED);
+      annotator.accept(element);
+      return element;
+    }
+
+    @Override
+    public String toString() {
+      return name + ":" + type + (nullable ? "(nullable)" : "");
+    }
+  }
+
+  private static final Consumer<SchemaElement> NO_ANNOTATION = element -> {};
+
+  private static final Consumer<SchemaElement> STRING =
+      element -> {
+        element.setConverted_type(ConvertedType.UTF8);
+        element.setLogicalType(LogicalType.STRING(new StringType()));
+      };
+
+  private static final Consumer<SchemaElement> DATE =
+      element -> {
+        element.setConverted_type(ConvertedType.DATE);
+        element.setLogicalType(LogicalType.DATE(new DateType()));
+      };
+
+  // The converted types TIME_MILLIS and TIMESTAMP_MICROS imply UTC, so local values have none.
+  private static final Consumer<SchemaElement> LOCAL_TIME_MILLIS =
+      element ->
+          element.setLogicalType(
+              LogicalType.TIME(new TimeType(false, TimeUnit.MILLIS(new MilliSeconds()))));
+
+  private static final Consumer<SchemaElement> LOCAL_TIMESTAMP_MICROS =
+      element ->
+          element.setLogicalType(
+              LogicalType.TIMESTAMP(new TimestampType(false, TimeUnit.MICROS(new MicroSeconds()))));
+
+  private static final Consumer<SchemaElement> TIMESTAMP_MICROS =
+      element -> {
+        element.setConverted_type(ConvertedType.TIMESTAMP_MICROS);
+        element.setLogicalType(
+            LogicalType.TIMESTAMP(new TimestampType(true, TimeUnit.MICROS(new MicroSeconds()))));
+      };
+
+  private static Consumer<SchemaElement> decimal(int precision, int scale) {
+    return element -> {
+      element.setConverted_type(ConvertedType.DECIMAL);
+      element.setPrecision(precision);
+      element.setScale(scale);
+      element.setLogicalType(LogicalType.DECIMAL(new DecimalType(scale, precision)));
+    };
+  }
+
+  /**
+   * Writes a null, which is only legal in an optional column. The column writers would otherwise
+   * accept it, and write a required column with a missing value.
+   */
+  private static void writeNull(
+      ColumnWriter out, ResultSet rs, int columnIndex, int definitionLevel) throws SQLException {
+    if (definitionLevel == 0) {
+      throw new SQLException(
+          "Null value in non-nullable column " + rs.getMetaData().getColumnLabel(columnIndex));
+    }
+    out.writeNull(0, 0);
+  }
+
+  private static final ValueTransfer BOOLEAN_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        boolean value = rs.getBoolean(columnIndex);
+        if (rs.wasNull()) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(value, 0, definitionLevel);
+      };
+
+  private static final ValueTransfer INT_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        int value = rs.getInt(columnIndex);
+        if (rs.wasNull()) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(value, 0, definitionLevel);
+      };
+
+  private static final ValueTransfer LONG_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        long value = rs.getLong(columnIndex);
+        if (rs.wasNull()) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(value, 0, definitionLevel);
+      };
+
+  private static final ValueTransfer FLOAT_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        float value = rs.getFloat(columnIndex);
+        if (rs.wasNull()) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(value, 0, definitionLevel);
+      };
+
+  private static final ValueTransfer DOUBLE_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        double value = rs.getDouble(columnIndex);
+        if (rs.wasNull()) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(value, 0, definitionLevel);
+      };
+
+  private static final ValueTransfer STRING_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        String value = rs.getString(columnIndex);
+        if (value == null) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(Binary.fromString(value), 0, definitionLevel);
+      };
+
+  private static final ValueTransfer BYTES_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        byte[] value = rs.getBytes(columnIndex);
+        if (value == null) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(Binary.fromConstantByteArray(value), 0, definitionLevel);
+      };
+
+  private static final ValueTransfer DATE_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        Date value = rs.getDate(columnIndex);
+        if (value == null) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(JdbcTemporals.toEpochDay(value), 0, definitionLevel);
+      };
+
+  private static final ValueTransfer TIME_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        Time value = rs.getTime(columnIndex);
+        if (value == null) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(JdbcTemporals.toMillisOfDay(value), 0, definitionLevel);
+      };
+
+  private static final ValueTransfer TIMESTAMP_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        Timestamp value = rs.getTimestamp(columnIndex);
+        if (value == null) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(JdbcTemporals.toLocalMicros(value), 0, definitionLevel);
+      };
+
+  private static final ValueTransfer OFFSET_TIMESTAMP_TRANSFER =
+      (out, rs, columnIndex, definitionLevel) -> {
+        OffsetDateTime value = rs.getObject(columnIndex, OffsetDateTime.class);
+        if (value == null) writeNull(out, rs, columnIndex, definitionLevel);
+        else out.write(JdbcTemporals.toMicros(value), 0, definitionLevel);
+      };
+
+  /** Writes the unscaled value of a DECIMAL in the narrowest physical type for its precision. */
+  private static ValueTransfer decimalTransfer(PrimitiveTypeName type, int scale) {
+    return (out, rs, columnIndex, definitionLevel) -> {
+      BigDecimal value = rs.getBigDecimal(columnIndex);
+      if (value == null) {
+        writeNull(out, rs, columnIndex, definitionLevel);
+        return;
+      }
+      // Fails rather than silently rounding if the driver returns more digits than declared.
+      BigDecimal scaled = value.setScale(scale, RoundingMode.UNNECESSARY);
+      switch (type) {
+        case INT32:
+          out.write(scaled.unscaledValue().intValueExact(), 0, definitionLevel);
+          break;
+        case INT64:
+          out.write(scaled.unscaledValue().longValueExact(), 0, definitionLevel);
+          break;
+        default:
+          out.write(
+              Binary.fromConstantByteArray(scaled.unscaledValue().toByteArray()),
+              0,
+              definitionLevel);
+          break;
+      }
+    };
+  }
+
+  private static Column newColumn(ResultSetMetaData md, int columnIndex, String name)
+      throws SQLException {
+    int columnType = md.getColumnType(columnIndex + 1);
+    // columnNullableUnknown is treated as nullable; a null in a non-null column can't be written.
+    boolean nullable = md.isNullable(columnIndex + 1) != ResultSetMetaData.columnNoNulls;
+    switch (columnType) {
+      case Types.BIT:
+      case Types.BOOLEAN:
+        return new Column(
+            name, nullable, PrimitiveTypeName.BOOLEAN, NO_ANNOTATION, BOOLEAN_TRANSFER);
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+        return new Column(name, nullable, PrimitiveTypeName.INT32, NO_ANNOTATION, INT_TRANSFER);
+      case Types.BIGINT:
+        return new Column(name, nullable, PrimitiveTypeName.INT64, NO_ANNOTATION, LONG_TRANSFER);
+      case Types.REAL:
+        return new Column(name, nullable, PrimitiveTypeName.FLOAT, NO_ANNOTATION, FLOAT_TRANSFER);
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return new Column(
+            name, nullable, PrimitiveTypeName.DOUBLE, NO_ANNOTATION, DOUBLE_TRANSFER);
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        int precision = md.getPrecision(columnIndex + 1);
+        int scale = md.getScale(columnIndex + 1);
+        // e.g. an Oracle NUMBER without precision has no fixed scale to encode.
+        if (precision <= 0 || scale < 0 || scale > precision) {
+          return new Column(name, nullable, PrimitiveTypeName.BINARY, STRING, STRING_TRANSFER);
+        }
+        PrimitiveTypeName decimalType =
+            precision <= 9
+                ? PrimitiveTypeName.INT32
+                : precision <= 18 ? PrimitiveTypeName.INT64 : PrimitiveTypeName.BINARY;
+        return new Column(
+            name,
+            nullable,
+            decimalType,
+            decimal(precision, scale),
+            decimalTransfer(decimalType, scale));
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+      case Types.CLOB:
+      case Types.NCLOB:
+      case Types.TIME_WITH_TIMEZONE:
+        return new Column(name, nullable, PrimitiveTypeName.BINARY, STRING, STRING_TRANSFER);
+      case Types.BINARY:
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+      case Types.BLOB:
+        return new Column(
+            name, nullable, PrimitiveTypeName.BINARY, NO_ANNOTATION, BYTES_TRANSFER);
+      case Types.DATE:
+        return new Column(name, nullable, PrimitiveTypeName.INT32, DATE, DATE_TRANSFER);
+      case Types.TIME:
+        return new Column(
+            name, nullable, PrimitiveTypeName.INT32, LOCAL_TIME_MILLIS, TIME_TRANSFER);
+      case Types.TIMESTAMP:
+        return new Column(
+            name, nullable, PrimitiveTypeName.INT64, LOCAL_TIMESTAMP_MICROS, TIMESTAMP_TRANSFER);
+      case Types.TIMESTAMP_WITH_TIMEZONE:
+        return new Column(
+            name, nullable, PrimitiveTypeName.INT64, TIMESTAMP_MICROS, OFFSET_TIMESTAMP_TRANSFER);
+      default:
+        throw new IllegalArgumentException(
+            "Unsupported transfer type " + JDBCType.valueOf(columnType));
+    }
+  }
+
+  private static org.apache.parquet.format.Type toFormat(PrimitiveTypeName type) {
+    switch (type) {
+      case BINARY:
+        return org.apache.parquet.format.Type.BYTE_ARRAY;
+      default:
+        return org.apache.parquet.format.Type.valueOf(type.name());
+    }
+  }
+
+  private static org.apache.parquet.format.Encoding toFormat(Encoding encoding) {
+    return org.apache.parquet.format.Encoding.valueOf(encoding.name());
+  }
+
+  /** Buffers the pages of one column of the current row group. */
+  private static class ColumnChunkWriter implements PageWriter {
+
+    private final ColumnDescriptor descriptor;
+    private final ByteArrayOutputStream dictionaryPage = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream dataPages = new ByteArrayOutputStream();
+    private final Set<Encoding> encodings = EnumSet.noneOf(Encoding.class);
+    private long valueCount;
+
+    public ColumnChunkWriter(ColumnDescriptor descriptor) {
+      this.descriptor = descriptor;
+    }
+
+    private void writeDataPage(
+        BytesInput bytesInput,
+        int valueCount,
+        Encoding rlEncoding,
+        Encoding dlEncoding,
+        Encoding valuesEncoding)
+        throws IOException {
+      int size = Math.toIntExact(bytesInput.size());
+      PageHeader header = new PageHeader(PageType.DATA_PAGE, size, size);
+      header.setData_page_header(
+          new DataPageHeader(
+              valueCount, toFormat(valuesEncoding), toFormat(dlEncoding), toFormat(rlEncoding)));
+      Util.writePageHeader(header, dataPages);
+      bytesInput.writeAllTo(dataPages);
+      this.valueCount += valueCount;
+      encodings.add(rlEncoding);
+      encodings.add(dlEncoding);
+      encodings.add(valuesEncoding);
+    }
+
+    @Deprecated
+    public void writePage(
+        BytesInput bytesInput,
+        int valueCount,
+        Statistics<?> statistics,
+        Encoding rlEncoding,
+        Encoding dlEncoding,
+        Encoding valuesEncoding)
+        throws IOException {
+      writeDataPage(bytesInput, valueCount, rlEncoding, dlEncoding, valuesEncoding);
+    }
+
+    @Override
+    public void writePage(
+        BytesInput bytesInput,
+        int valueCount,
+        int rowCount,
+        Statistics<?> statistics,
+        Encoding rlEncoding,
+        Encoding dlEncoding,
+        Encoding valuesEncoding)
+        throws IOException {
+      writeDataPage(bytesInput, valueCount, rlEncoding, dlEncoding, valuesEncoding);
+    }
+
+    @Override
+    public void writePage(
+        BytesInput bytesInput,
+        int valueCount,
+        int rowCount,
+        Statistics<?> statistics,
+        SizeStatistics sizeStatistics,
+        Encoding rlEncoding,
+        Encoding dlEncoding,
+        Encoding valuesEncoding)
+        throws IOException {
+      writeDataPage(bytesInput, valueCount, rlEncoding, dlEncoding, valuesEncoding);
+    }
+
+    @Override
+    public void writePageV2(
+        int rowCount,
+        int nullCount,
+        int valueCount,
+        BytesInput repetitionLevels,
+        BytesInput definitionLevels,
+        Encoding dataEncoding,
+        BytesInput data,
+        Statistics<?> statistics)
+        throws IOException {
+      writeDataPageV2(
+          rowCount, nullCount, valueCount, repetitionLevels, definitionLevels, dataEncoding, data);
+    }
+
+    @Override
+    public void writePageV2(
+        int rowCount,
+        int nullCount,
+        int valueCount,
+        BytesInput repetitionLevels,
+        BytesInput definitionLevels,
+        Encoding dataEncoding,
+        BytesInput data,
+        Statistics<?> statistics,
+        SizeStatistics sizeStatistics)
+        throws IOException {
+      writeDataPageV2(
+          rowCount, nullCount, valueCount, repetitionLevels, definitionLevels, dataEncoding, data);
+    }
+
+    private void writeDataPageV2(
+        int rowCount,
+        int nullCount,
+        int valueCount,
+        BytesInput repetitionLevels,
+        BytesInput definitionLevels,
+        Encoding dataEncoding,
+        BytesInput data)
+        throws IOException {
+      int size = Math.toIntExact(repetitionLevels.size() + definitionLevels.size() + data.size());
+      PageHeader header = new PageHeader(PageType.DATA_PAGE_V2, size, size);
+      header.setData_page_header_v2(
+          new DataPageHeaderV2(
+                  valueCount,
+                  nullCount,
+                  rowCount,
+                  toFormat(dataEncoding),
+                  Math.toIntExact(definitionLevels.size()),
+                  Math.toIntExact(repetitionLevels.size()))
+              .setIs_compressed(false));
+      Util.writePageHeader(header, dataPages);
+      repetitionLevels.writeAllTo(dataPages);
+      definitionLevels.writeAllTo(dataPages);
+      data.writeAllTo(dataPages);
+      this.valueCount += valueCount;
+      // The levels of a version 2 page are always run length encoded.
+      encodings.add(Encoding.RLE);
+      encodings.add(dataEncoding);
+    }
+
+    @Override
+    public void writeDictionaryPage(DictionaryPage page) throws IOException {
+      Preconditions.checkState(
+          dictionaryPage.size() == 0, "Second dictionary page for %s", descriptor);
+      int size = Math.toIntExact(page.getBytes().size());
+      PageHeader header = new PageHeader(PageType.DICTIONARY_PAGE, size, size);
+      header.setDictionary_page_header(
+          new DictionaryPageHeader(page.getDictionarySize(), toFormat(page.getEncoding())));
+      Util.writePageHeader(header, dictionaryPage);
+      page.getBytes().writeAllTo(dictionaryPage);
+      encodings.add(page.getEncoding());
+    }
+
+    @Override
+    public long getMemSize() {
+      return dictionaryPage.size() + dataPages.size();
+    }
+
+    @Override
+    public long allocatedSize() {
+      return getMemSize();
+    }
+
+    @Override
+    public String memUsageString(String prefix) {
+      return prefix + " " + descriptor + " " + getMemSize() + " bytes";
+    }
+
+    /** Writes the dictionary page, if any, followed by the data pages. */
+    public ColumnChunk writeTo(CountingOutputStream out) throws IOException {
+      long start = out.getCount();
+      dictionaryPage.writeTo(out);
+      long dataPageOffset = out.getCount();
+      dataPages.writeTo(out);
+      long size = out.getCount() - start;
+
+      List<org.apache.parquet.format.Encoding> formatEncodings = new ArrayList<>();
+      for (Encoding encoding : encodings) {
+        formatEncodings.add(toFormat(encoding));
+      }
+      ColumnMetaData metaData =
+          new ColumnMetaData(
+              toFormat(descriptor.getPrimitiveType().getPrimitiveTypeName()),
+              formatEncodings,
+              Arrays.asList(descriptor.getPath()),
+              CompressionCodec.UNCOMPRESSED,
+              valueCount,
+              size,
+              size,
+              dataPageOffset);
+      if (dictionaryPage.size() > 0) {
+        metaData.setDictionary_page_offset(start);
+      }
+      ColumnChunk chunk = new ColumnChunk(start);
+      chunk.setMeta_data(metaData);
+      return chunk;
+    }
+  }
+
+  /** Buffers one row group in the column writers and, once they are flushed, in the pages. */
+  private class RowGroupWriter implements PageWriteStore {
+
+    private final Map<ColumnDescriptor, ColumnChunkWriter> chunks = new LinkedHashMap<>();
+    private final ColumnWriteStore store;
+    private final ColumnWriter[] writers;
+    private long rowCount;
+
+    public RowGroupWriter(MessageType schema) {
+      for (ColumnDescriptor descriptor : schema.getColumns()) {
+        chunks.put(descriptor, new ColumnChunkWriter(descriptor));
+      }
+      this.store = properties.newColumnWriteStore(schema, this);
+      this.writers =
+          schema.getColumns().stream().map(store::getColumnWriter).toArray(ColumnWriter[]::new);
+    }
+
+    @Override
+    public PageWriter getPageWriter(ColumnDescriptor path) {
+      return chunks.get(path);
+    }
+
+    public void endRecord() {
+      store.endRecord();
+      rowCount++;
+    }
+
+    public boolean isFull() {
+      return rowCount >= rowGroupRows || store.getBufferedSize() > rowGroupBytes;
+    }
+
+    public RowGroup writeTo(CountingOutputStream out) throws IOException {
+      store.flush();
+      store.close();
+      long start = out.getCount();
+      List<ColumnChunk> columnChunks = new ArrayList<>(chunks.size());
+      for (ColumnChunkWriter chunk : chunks.values()) {
+        columnChunks.add(chunk.writeTo(out));
+      }
+      long size = out.getCount() - start;
+      RowGroup rowGroup = new RowGroup(columnChunks, size, rowCount);
+      rowGroup.setFile_offset(start);
+      rowGroup.setTotal_compressed_size(size);
+      return rowGroup;
+    }
+  }
+
+  private final int rowGroupRows;
+  private final int rowGroupBytes;
+  private final ParquetProperties properties;
+
+  /** Creates an encoder which closes each row group once it exceeds the default byte budget. */
+  public ParquetEncoder() {
+    this(Integer.MAX_VALUE, DEFAULT_ROW_GROUP_BYTES);
+  }
+
+  /**
+   * Creates an encoder which closes each row group after {@code rowGroupRows} rows, or once it
+   * exceeds {@code rowGroupBytes}, whichever comes first.
+   */
+  public ParquetEncoder(int rowGroupRows, int rowGroupBytes) {
+    this(rowGroupRows, rowGroupBytes, ParquetProperties.WriterVersion.PARQUET_1_0);
+  }
+
+  /** Version 2 data pages are only written in tests, as not every reader supports them. */
+  @VisibleForTesting
+  ParquetEncoder(
+      int rowGroupRows, int rowGroupBytes, ParquetProperties.WriterVersion writerVersion) {
+    Preconditions.checkArgument(
+        rowGroupRows > 0, "Row group row count must be positive: %s", rowGroupRows);
+    Preconditions.checkArgument(
+        rowGroupBytes > 0, "Row group byte budget must be positive: %s", rowGroupBytes);
+    this.rowGroupRows = rowGroupRows;
+    this.rowGroupBytes = rowGroupBytes;
+    this.properties =
+        ParquetProperties.builder()
+            .withWriterVersion(writerVersion)
+            .withDictionaryEncoding(true)
+            .build();
+  }
+
   @Override
-  public void encodeTo(OutputStream outputStream, ResultSet resultSet) {
-    // The implementation of this method is left as an exercise to the reader
-    // who has more fortitude for dealing with the eccentricities of the Parquet APIs,
-    // which depend on FAR too much of the Hadoop stack, something which I told them
-    // was a mistake when they first started, but it took them about 10 years to solidly regret.
+  public void encodeTo(OutputStream outputStream, ResultSet rs) throws IOException, SQLException {
+    ResultSetMetaData md = rs.getMetaData();
+    Column[] columns = new Column[md.getColumnCount()];
+    org.apache.parquet.schema.Types.MessageTypeBuilder schemaBuilder =
+        org.apache.parquet.schema.Types.buildMessage();
+    List<SchemaElement> schemaElements = new ArrayList<>(columns.length + 1);
+    schemaElements.add(new SchemaElement("schema").setNum_children(columns.length));
+    Set<String> names = new HashSet<>();
+    for (int i = 0; i < columns.length; i++) {
+      String name = uniqueName(legalize(md.getColumnLabel(i + 1)), names);
+      Column column = columns[i] = newColumn(md, i, name);
+      schemaBuilder.addField(
+          org.apache.parquet.schema.Types.primitive(
+                  column.type, column.nullable ? Repetition.OPTIONAL : Repetition.REQUIRED)
+              .named(column.name));
+      schemaElements.add(column.toSchemaElement());
+    }
+    MessageType schema = schemaBuilder.named("schema");
+
+    CountingOutputStream out = new CountingOutputStream(outputStream);
+    out.write(MAGIC);
+    List<RowGroup> rowGroups = new ArrayList<>();
+    long rowCount = 0;
+    RowGroupWriter rowGroup = null;
+    while (rs.next()) {
+      if (rowGroup == null) {
+        rowGroup = new RowGroupWriter(schema);
+      }
+      for (int i = 0; i < columns.length; i++) {
+        Column column = columns[i];
+        column.transfer.transfer(rowGroup.writers[i], rs, i + 1, column.nullable ? 1 : 0);
+      }
+      rowGroup.endRecord();
+      rowCount++;
+
+      if (rowGroup.isFull()) {
+        rowGroups.add(rowGroup.writeTo(out));
+        rowGroup = null;
+      }
+    }
+    if (rowGroup != null) {
+      rowGroups.add(rowGroup.writeTo(out));
+    }
+
+    long footerOffset = out.getCount();
+    Util.writeFileMetaData(new FileMetaData(1, schemaElements, rowCount, rowGroups), out);
+    int footerLength = Math.toIntExact(out.getCount() - footerOffset);
+    // The footer length is little-endian.
+    out.write(Ints.toByteArray(Integer.reverseBytes(footerLength)));
+    out.write(MAGIC);
+    out.flush();
   }
 }
@@ -0,0 +1,108 @@
+package com.google.edwmigration.dbsync.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.proto.Checksum;
+import com.google.edwmigration.dbsync.test.RsyncTestRunner;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ChecksumFileTest {
+
+  private static final int BLOCK_SIZE = 1025;
+
+  private static List<Checksum> generate(int dataSize, int blockSize) throws IOException {
+    ByteSource data = RsyncTestRunner.newRandomData(dataSize);
+    List<Checksum> checksums = new ArrayList<>();
+    new ChecksumGenerator(blockSize).generate(checksums::add, data);
+    return checksums;
+  }
+
+  private static byte[] write(List<Checksum> checksums, int blockSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ChecksumFile.Writer writer = new ChecksumFile.Writer(out, blockSize);
+    for (Checksum checksum : checksums) {
+      writer.accept(checksum);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    // The last block is short.
+    List<Checksum> checksums = generate(40 * BLOCK_SIZE + 7, BLOCK_SIZE);
+
+    byte[] file = write(checksums, BLOCK_SIZE);
+
+    assertEquals(
+        ChecksumFile.HEADER_LENGTH + checksums.size() * ChecksumFile.RECORD_LENGTH, file.length);
+    assertEquals(checksums, ChecksumFile.read(ByteSource.wrap(file)));
+  }
+
+  @Test
+  public void testRoundTrip_empty() throws Exception {
+    byte[] file = write(new ArrayList<>(), BLOCK_SIZE);
+
+    assertEquals(ChecksumFile.HEADER_LENGTH, file.length);
+    assertEquals(new ArrayList<>(), ChecksumFile.read(ByteSource.wrap(file)));
+  }
+
+  @Test
+  public void testRead_parallel(@TempDir Path dir) throws Exception {
+    // Enough records to be parsed in parallel.
+    List<Checksum> checksums = generate(100_000 * 16, 16);
+    byte[] header = "md5\n".getBytes(StandardCharsets.UTF_8);
+    Path path = dir.resolve("checksums");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(header);
+    out.write(write(checksums, 16));
+    Files.write(path, out.toByteArray());
+
+    assertEquals(checksums, ChecksumFile.read(path, header.length));
+  }
+
+  @Test
+  public void testRead_delimited(@TempDir Path dir) throws Exception {
+    List<Checksum> checksums = generate(10 * BLOCK_SIZE + 1, BLOCK_SIZE);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (Checksum checksum : checksums) {
+      checksum.writeDelimitedTo(out);
+    }
+    byte[] file = out.toByteArray();
+    Path path = dir.resolve("checksums");
+    Files.write(path, file);
+
+    assertEquals(checksums, ChecksumFile.read(new ByteArrayInputStream(file)));
+    assertEquals(checksums, ChecksumFile.read(path, 0));
+    assertEquals(new ArrayList<>(), ChecksumFile.read(ByteSource.empty()));
+  }
+
+  @Test
+  public void testRead_truncated() throws Exception {
+    byte[] file = write(generate(3 * BLOCK_SIZE, BLOCK_SIZE), BLOCK_SIZE);
+
+    assertThrows(
+        IOException.class,
+        () -> ChecksumFile.read(ByteSource.wrap(Arrays.copyOf(file, file.length - 1))));
+  }
+
+  @Test
+  public void testWriter_rejectsNonConsecutiveBlocks() throws Exception {
+    List<Checksum> checksums = generate(3 * BLOCK_SIZE, BLOCK_SIZE);
+    ChecksumFile.Writer writer = new ChecksumFile.Writer(new ByteArrayOutputStream(), BLOCK_SIZE);
+
+    writer.accept(checksums.get(0));
+    assertThrows(IllegalArgumentException.class, () -> writer.accept(checksums.get(2)));
+  }
+}
@@ -1,7 +1,11 @@
 package com.google.edwmigration.dbsync.common;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.proto.BlockLocation;
 import com.google.edwmigration.dbsync.proto.Checksum;
+import com.google.edwmigration.dbsync.proto.Instruction;
 import com.google.edwmigration.dbsync.test.RsyncTestRunner;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,4 +35,28 @@ public class InstructionGeneratorTest {
     InstructionGenerator matcher = new InstructionGenerator(generator.getBlockSize());
     matcher.generate(i -> logger.info(String.valueOf(i)), ByteSource.wrap(dstData), checksums);
   }
+
+  @Test
+  public void testConsecutiveCopiesAreMerged() throws Exception {
+    ByteSource srcData = RsyncTestRunner.newRandomData(64 * 1025);
+    ChecksumGenerator generator = new ChecksumGenerator(1025);
+    List<Checksum> checksums = new ArrayList<>();
+    generator.generate(checksums::add, srcData);
+
+    // A literal between two unchanged runs.
+    byte[] dstData = srcData.read();
+    dstData[30000]++;
+    InstructionGenerator matcher = new InstructionGenerator(generator.getBlockSize());
+    List<Instruction> instructions = new ArrayList<>();
+    matcher.generate(instructions::add, ByteSource.wrap(dstData), checksums);
+
+    assertEquals(3, instructions.size(), String.valueOf(instructions));
+    BlockLocation head = instructions.get(0).getBlockLocation();
+    assertEquals(0, head.getBlockOffset());
+    assertEquals(29 * 1025, head.getBlockLength());
+    assertEquals(1025, instructions.get(1).getData().size());
+    BlockLocation tail = instructions.get(2).getBlockLocation();
+    assertEquals(30 * 1025, tail.getBlockOffset());
+    assertEquals(34 * 1025, tail.getBlockLength());
+  }
 }
@@ -0,0 +1,138 @@
+package com.google.edwmigration.dbsync.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.InstructionStream.Codec;
+import com.google.edwmigration.dbsync.proto.Checksum;
+import com.google.edwmigration.dbsync.proto.Instruction;
+import com.google.edwmigration.dbsync.test.RsyncTestRunner;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class InstructionStreamTest {
+
+  private static final int BLOCK_SIZE = 1025;
+
+  private final ByteSource serverData = RsyncTestRunner.newRandomData(200 * BLOCK_SIZE + 17);
+
+  /** Returns the instructions to turn the server data into a client copy with some changes. */
+  private List<Instruction> newInstructions(byte[] clientData) throws IOException {
+    List<Checksum> checksums = new ArrayList<>();
+    new ChecksumGenerator(BLOCK_SIZE).generate(checksums::add, serverData);
+    List<Instruction> instructions = new ArrayList<>();
+    new InstructionGenerator(BLOCK_SIZE)
+        .generate(instructions::add, ByteSource.wrap(clientData), checksums);
+    return instructions;
+  }
+
+  private byte[] newClientData() throws IOException {
+    byte[] clientData = serverData.read();
+    for (int i = 0; i < 20; i++) {
+      clientData[ThreadLocalRandom.current().nextInt(clientData.length)]++;
+    }
+    return clientData;
+  }
+
+  private static byte[] write(List<Instruction> instructions, Codec codec, int frameSize)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InstructionStream.Writer writer = new InstructionStream.Writer(out, codec, frameSize)) {
+      for (Instruction instruction : instructions) {
+        writer.accept(instruction);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static List<Instruction> read(byte[] stream) throws IOException {
+    List<Instruction> instructions = new ArrayList<>();
+    InstructionStream.read(new ByteArrayInputStream(stream), instructions::add);
+    return instructions;
+  }
+
+  private byte[] reconstruct(byte[] stream) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InstructionReceiver receiver = new InstructionReceiver(out, serverData)) {
+      InstructionStream.read(new ByteArrayInputStream(stream), receiver::receive);
+    }
+    return out.toByteArray();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Codec.class)
+  public void testRoundTrip(Codec codec) throws Exception {
+    byte[] clientData = newClientData();
+    List<Instruction> instructions = newInstructions(clientData);
+
+    // A small frame size, so that there are many frames, and some literals span a frame.
+    byte[] stream = write(instructions, codec, 2000);
+
+    assertEquals(instructions, read(stream));
+    assertArrayEquals(clientData, reconstruct(stream));
+  }
+
+  @ParameterizedTest
+  @EnumSource(
+      value = Codec.class,
+      names = {"LZ4", "ZSTD"})
+  public void testCompressesLiterals(Codec codec) throws Exception {
+    // Compressible, and not in the server data.
+    byte[] clientData = new byte[100 * BLOCK_SIZE];
+    Arrays.fill(clientData, (byte) 'x');
+    List<Instruction> instructions = newInstructions(clientData);
+
+    byte[] raw = write(instructions, Codec.NONE, InstructionStream.DEFAULT_FRAME_SIZE);
+    byte[] compressed = write(instructions, codec, InstructionStream.DEFAULT_FRAME_SIZE);
+
+    assertTrue(compressed.length * 10 < raw.length, compressed.length + " vs " + raw.length);
+    assertArrayEquals(clientData, reconstruct(compressed));
+  }
+
+  @Test
+  public void testRead_delimited() throws Exception {
+    byte[] clientData = newClientData();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (Instruction instruction : newInstructions(clientData)) {
+      instruction.writeDelimitedTo(out);
+    }
+
+    InstructionStream.Reader reader =
+        new InstructionStream.Reader(new ByteArrayInputStream(out.toByteArray()));
+    assertNull(reader.getCodec());
+    assertArrayEquals(clientData, reconstruct(out.toByteArray()));
+  }
+
+  @Test
+  public void testRead_truncated() throws Exception {
+    byte[] stream = write(newInstructions(newClientData()), Codec.LZ4, 2000);
+
+    assertThrows(IOException.class, () -> read(Arrays.copyOf(stream, stream.length - 8)));
+  }
+
+  @ParameterizedTest
+  @EnumSource(
+      value = Codec.class,
+      names = {"LZ4", "ZSTD"})
+  public void testRead_corruptFrame(Codec codec) throws Exception {
+    byte[] stream = write(newInstructions(newClientData()), codec, 2000);
+    // The payload of the first frame follows the header and the two lengths of the frame.
+    for (int i = 20; i < 40; i++) {
+      stream[i] = (byte) 0xFF;
+    }
+
+    assertThrows(IOException.class, () -> read(stream));
+  }
+}
@@ -0,0 +1,147 @@
+package com.google.edwmigration.dbsync.common.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.edwmigration.dbsync.common.ChecksumGenerator;
+import com.google.edwmigration.dbsync.common.InstructionGenerator;
+import com.google.edwmigration.dbsync.proto.Checksum;
+import com.google.edwmigration.dbsync.proto.Instruction;
+import com.google.edwmigration.dbsync.test.RsyncTestRunner;
+import java.io.EOFException;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedFileByteSourceTest {
+
+  // Small and odd, so that blocks and reads straddle the windows.
+  private static final int WINDOW_SIZE = 4093;
+  private static final int BLOCK_SIZE = 1025;
+
+  private static Path write(File dir, byte[] data) throws Exception {
+    Path path = new File(dir, "data").toPath();
+    Files.write(path, data);
+    return path;
+  }
+
+  private static void truncate(Path path, long size) throws Exception {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(size);
+    }
+  }
+
+  @Test
+  public void testRead(@TempDir File dir) throws Exception {
+    byte[] data = RsyncTestRunner.newRandomData(10 * WINDOW_SIZE + 17).read();
+    ByteSource source = new MappedFileByteSource(write(dir, data), WINDOW_SIZE);
+
+    assertEquals(data.length, source.size());
+    assertArrayEquals(data, source.read());
+    assertArrayEquals(Arrays.copyOfRange(data, 5000, 15000), source.slice(5000, 10000).read());
+    assertArrayEquals(
+        Arrays.copyOfRange(data, data.length - 10, data.length),
+        source.slice(data.length - 10, 100).read());
+    assertArrayEquals(new byte[0], source.slice(data.length + 1, 100).read());
+  }
+
+  @Test
+  public void testRead_byteAtATimeAndSkip(@TempDir File dir) throws Exception {
+    byte[] data = RsyncTestRunner.newRandomData(3 * WINDOW_SIZE).read();
+    ByteSource source = new MappedFileByteSource(write(dir, data), WINDOW_SIZE);
+
+    try (InputStream in = source.openStream()) {
+      for (int i = 0; i < WINDOW_SIZE + 3; i++) {
+        assertEquals(data[i] & 0xFF, in.read());
+      }
+      // Skip within the window, then past it.
+      assertEquals(10, in.skip(10));
+      assertEquals(data[WINDOW_SIZE + 13] & 0xFF, in.read());
+      ByteStreams.skipFully(in, WINDOW_SIZE);
+      assertEquals(data[2 * WINDOW_SIZE + 14] & 0xFF, in.read());
+      assertEquals(data.length - 2 * WINDOW_SIZE - 15, in.skip(Long.MAX_VALUE));
+      assertEquals(-1, in.read());
+    }
+  }
+
+  @Test
+  public void testRead_truncatedWhileScanning(@TempDir File dir) throws Exception {
+    byte[] data = RsyncTestRunner.newRandomData(3 * WINDOW_SIZE).read();
+    Path path = write(dir, data);
+    ByteSource source = new MappedFileByteSource(path, WINDOW_SIZE);
+
+    try (InputStream in = source.openStream()) {
+      ByteStreams.readFully(in, new byte[WINDOW_SIZE]);
+      truncate(path, WINDOW_SIZE + 10);
+      assertThrows(EOFException.class, () -> ByteStreams.exhaust(in));
+    }
+  }
+
+  @Test
+  public void testReadSlice_truncatedWhileReading(@TempDir File dir) throws Exception {
+    byte[] data = RsyncTestRunner.newRandomData(3 * WINDOW_SIZE).read();
+    Path path = write(dir, data);
+    ByteSource source = new MappedFileByteSource(path, WINDOW_SIZE).slice(100, 2 * WINDOW_SIZE);
+
+    try (InputStream in = source.openBufferedStream()) {
+      truncate(path, 50);
+      assertThrows(EOFException.class, () -> ByteStreams.exhaust(in));
+    }
+  }
+
+  @Test
+  public void testGenerate(@TempDir File dir) throws Exception {
+    byte[] data = RsyncTestRunner.newRandomData(20 * BLOCK_SIZE + 7).read();
+    ByteSource source = new MappedFileByteSource(write(dir, data), WINDOW_SIZE);
+
+    ChecksumGenerator checksumGenerator = new ChecksumGenerator(BLOCK_SIZE);
+    List<Checksum> expectedChecksums = new ArrayList<>();
+    checksumGenerator.generate(expectedChecksums::add, ByteSource.wrap(data));
+    List<Checksum> checksums = new ArrayList<>();
+    checksumGenerator.generate(checksums::add, source);
+    assertEquals(expectedChecksums, checksums);
+
+    // The source has a block's worth of bytes inserted, so the scan rolls across the windows.
+    byte[] newData = new byte[data.length + BLOCK_SIZE];
+    System.arraycopy(data, 0, newData, 0, 3 * BLOCK_SIZE + 1);
+    System.arraycopy(
+        data, 3 * BLOCK_SIZE + 1, newData, 4 * BLOCK_SIZE + 1, data.length - 3 * BLOCK_SIZE - 1);
+    Path newPath = new File(dir, "new").toPath();
+    Files.write(newPath, newData);
+
+    InstructionGenerator instructionGenerator = new InstructionGenerator(BLOCK_SIZE);
+    List<Instruction> expectedInstructions = new ArrayList<>();
+    instructionGenerator.generate(
+        expectedInstructions::add, ByteSource.wrap(newData), expectedChecksums);
+    List<Instruction> instructions = new ArrayList<>();
+    instructionGenerator.generate(
+        instructions::add, new MappedFileByteSource(newPath, WINDOW_SIZE), checksums);
+    assertEquals(expectedInstructions, instructions);
+  }
+
+  @Test
+  public void testRsync(@TempDir File dir) throws Exception {
+    byte[] serverData = RsyncTestRunner.newRandomData(1024 * 1024).read();
+    byte[] clientData = Arrays.copyOf(serverData, serverData.length + 3);
+    File serverFile = new File(dir, "server");
+    File clientFile = new File(dir, "client");
+    Files.write(serverFile.toPath(), serverData);
+    Files.write(clientFile.toPath(), clientData);
+
+    LocalStorage storage = new LocalStorage();
+    new RsyncTestRunner(
+            "mapped", storage.newByteSource(serverFile), storage.newByteSource(clientFile))
+        .run();
+  }
+}
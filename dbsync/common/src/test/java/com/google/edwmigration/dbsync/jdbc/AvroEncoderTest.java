@@ -0,0 +1,131 @@
+package com.google.edwmigration.dbsync.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+public class AvroEncoderTest {
+
+  private static final String URI = "jdbc:h2:mem:avro;DB_CLOSE_DELAY=-1";
+
+  private final DataSource ds = new SimpleDriverDataSource(new org.h2.Driver(), URI);
+  private final JdbcTemplate template = new JdbcTemplate(ds);
+
+  @BeforeEach
+  public void setUp() {
+    template.execute("drop all objects");
+  }
+
+  @Test
+  public void testAllTypes() throws Exception {
+    template.execute(
+        "create table t ("
+            + "c_int int not null, c_bigint bigint, c_boolean boolean, c_real real,"
+            + " c_double double precision, c_decimal decimal(10, 2), c_varchar varchar(20),"
+            + " c_varbinary varbinary(4), c_date date, c_time time, c_timestamp timestamp(6),"
+            + " c_timestamptz timestamp(6) with time zone)");
+    template.execute(
+        "insert into t values (1, 2, true, 1.5, 2.25, 12345.67, 'héllo', X'01ff',"
+            + " DATE '2024-02-29', TIME '13:14:15', TIMESTAMP '2024-02-29 13:14:15.123456',"
+            + " TIMESTAMP WITH TIME ZONE '2024-02-29 13:14:15.123456+02:00')");
+    template.execute(
+        "insert into t values (2, null, null, null, null, null, null, null, null, null, null,"
+            + " null)");
+
+    List<GenericRecord> records = read(new AvroEncoder(), "select * from t order by c_int");
+
+    assertEquals(2, records.size());
+    GenericRecord values = records.get(0);
+    Schema schema = values.getSchema();
+    assertEquals(Schema.Type.LONG, schema.getField("c_int").schema().getType());
+    assertEquals(
+        LogicalTypes.decimal(10, 2),
+        schema.getField("c_decimal").schema().getTypes().get(1).getLogicalType());
+    assertEquals(1L, values.get("c_int"));
+    assertEquals(2L, values.get("c_bigint"));
+    assertEquals(true, values.get("c_boolean"));
+    assertEquals(1.5f, values.get("c_real"));
+    assertEquals(2.25d, values.get("c_double"));
+    assertEquals(
+        new BigDecimal("12345.67"),
+        new BigDecimal(new BigInteger(toBytes(values.get("c_decimal"))), 2));
+    assertEquals("héllo", values.get("c_varchar").toString());
+    assertArrayEquals(new byte[] {1, (byte) 0xff}, toBytes(values.get("c_varbinary")));
+    assertEquals((int) LocalDate.of(2024, 2, 29).toEpochDay(), values.get("c_date"));
+    assertEquals((13 * 3600 + 14 * 60 + 15) * 1000, values.get("c_time"));
+    assertEquals(
+        LocalDateTime.of(2024, 2, 29, 13, 14, 15).toEpochSecond(ZoneOffset.UTC) * 1_000_000L
+            + 123456,
+        values.get("c_timestamp"));
+    assertEquals(
+        OffsetDateTime.of(2024, 2, 29, 11, 14, 15, 0, ZoneOffset.UTC).toEpochSecond() * 1_000_000L
+            + 123456,
+        values.get("c_timestamptz"));
+
+    GenericRecord nulls = records.get(1);
+    for (Schema.Field field : schema.getFields()) {
+      if (!field.name().equals("c_int")) {
+        assertNull(nulls.get(field.name()), field.name());
+      }
+    }
+  }
+
+  @Test
+  public void testUnchangedPrefixEncodesToSameBytes() throws Exception {
+    template.execute("create table t (t0 int not null, t1 varchar(20))");
+    for (int i = 0; i < 1000; i++) {
+      template.update("insert into t values (?, ?)", i, "value-" + i);
+    }
+    AvroEncoder encoder = new AvroEncoder(100, 1024 * 1024);
+    byte[] before = new JdbcByteSource(encoder, ds, "select * from t order by t0").read();
+
+    for (int i = 1000; i < 1050; i++) {
+      template.update("insert into t values (?, ?)", i, "value-" + i);
+    }
+    byte[] after = new JdbcByteSource(encoder, ds, "select * from t order by t0").read();
+
+    assertTrue(after.length > before.length);
+    assertArrayEquals(before, Arrays.copyOf(after, before.length));
+    assertEquals(1050, read(encoder, "select * from t order by t0").size());
+  }
+
+  private List<GenericRecord> read(AvroEncoder encoder, String query) throws Exception {
+    byte[] data = new JdbcByteSource(encoder, ds, query).read();
+    List<GenericRecord> records = new ArrayList<>();
+    try (DataFileStream<GenericRecord> in =
+        new DataFileStream<>(new ByteArrayInputStream(data), new GenericDatumReader<>())) {
+      in.forEach(records::add);
+    }
+    return records;
+  }
+
+  private static byte[] toBytes(Object value) {
+    ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,104 @@
+package com.google.edwmigration.dbsync.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class ChunkPipeTest {
+
+  @Test
+  public void testTransfer() throws Exception {
+    byte[] data = new byte[100_000];
+    ThreadLocalRandom.current().nextBytes(data);
+    ChunkPipe pipe = new ChunkPipe(2, 1000);
+
+    CompletableFuture<Void> writer =
+        CompletableFuture.runAsync(
+            () -> {
+              try (OutputStream out = pipe.getOutputStream()) {
+                out.write(data[0]);
+                for (int i = 1; i < data.length; i += 777) {
+                  out.write(data, i, Math.min(777, data.length - i));
+                }
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            });
+
+    try (InputStream in = pipe.getInputStream()) {
+      assertArrayEquals(data, ByteStreams.toByteArray(in));
+    }
+    writer.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testWriterFailure_isThrownBeforeQueuedData() throws Exception {
+    ChunkPipe pipe = new ChunkPipe(4, 10);
+    OutputStream out = pipe.getOutputStream();
+    out.write(new byte[25]);
+    IllegalStateException failure = new IllegalStateException("encoder failed");
+
+    pipe.fail(failure);
+
+    IOException e = assertThrows(IOException.class, () -> pipe.getInputStream().read());
+    assertSame(failure, e.getCause());
+  }
+
+  @Test
+  public void testReaderClose_unblocksAndFailsWriter() throws Exception {
+    ChunkPipe pipe = new ChunkPipe(1, 10);
+    CompletableFuture<Void> writer =
+        CompletableFuture.runAsync(
+            () -> {
+              try (OutputStream out = pipe.getOutputStream()) {
+                while (true) {
+                  out.write(new byte[10]);
+                }
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    InputStream in = pipe.getInputStream();
+    assertEquals(0, in.read());
+
+    in.close();
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> writer.get(10, TimeUnit.SECONDS));
+    assertEquals("Pipe reader is closed.", e.getCause().getCause().getMessage());
+  }
+
+  @Test
+  public void testReaderClose_failsWriterWithinAWrite() throws Exception {
+    ChunkPipe pipe = new ChunkPipe(1, 10);
+    CompletableFuture<Void> writer =
+        CompletableFuture.runAsync(
+            () -> {
+              try (OutputStream out = pipe.getOutputStream()) {
+                // Spans many chunks, so the writer blocks again after the close makes room.
+                out.write(new byte[1000]);
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    InputStream in = pipe.getInputStream();
+    assertEquals(0, in.read());
+
+    in.close();
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> writer.get(10, TimeUnit.SECONDS));
+    assertEquals("Pipe reader is closed.", e.getCause().getCause().getMessage());
+  }
+}
@@ -1,5 +1,9 @@
 package com.google.edwmigration.dbsync.jdbc;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.base.Throwables;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
@@ -108,4 +112,32 @@ public class JdbcByteSourceTest {
       runner.run();
     }
   }
+
+  @Test
+  public void testEncoderFailure_isThrownByRead() throws Exception {
+    DataSource ds = new SimpleDriverDataSource(new org.h2.Driver(), URI);
+    JdbcEncoder encoder =
+        (out, rs) -> {
+          out.write(new byte[200 * 1024]);
+          throw new SQLException("encoder failed");
+        };
+    JdbcByteSource source = new JdbcByteSource(encoder, ds, "select 1", 64 * 1024);
+
+    IOException e = assertThrows(IOException.class, source::read);
+    assertEquals("encoder failed", Throwables.getRootCause(e).getMessage());
+  }
+
+  @Test
+  public void testEncoderError_isThrownByRead() throws Exception {
+    DataSource ds = new SimpleDriverDataSource(new org.h2.Driver(), URI);
+    JdbcEncoder encoder =
+        (out, rs) -> {
+          out.write(new byte[200 * 1024]);
+          throw new AssertionError("encoder error");
+        };
+    JdbcByteSource source = new JdbcByteSource(encoder, ds, "select 1", 64 * 1024);
+
+    IOException e = assertThrows(IOException.class, source::read);
+    assertEquals("encoder error", Throwables.getRootCause(e).getMessage());
+  }
 }
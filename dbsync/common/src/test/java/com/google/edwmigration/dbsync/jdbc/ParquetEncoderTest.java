@@ -0,0 +1,437 @@
+package com.google.edwmigration.dbsync.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.apache.parquet.bytes.BytesInput;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ParquetProperties.WriterVersion;
+import org.apache.parquet.column.page.DataPage;
+import org.apache.parquet.column.page.DataPageV1;
+import org.apache.parquet.column.page.DataPageV2;
+import org.apache.parquet.column.page.DictionaryPage;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.column.page.PageReader;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.ConvertedType;
+import org.apache.parquet.format.DataPageHeader;
+import org.apache.parquet.format.DataPageHeaderV2;
+import org.apache.parquet.format.Encoding;
+import org.apache.parquet.format.FieldRepetitionType;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageType;
+import org.apache.parquet.format.RowGroup;
+import org.apache.parquet.format.SchemaElement;
+import org.apache.parquet.format.Type;
+import org.apache.parquet.format.Util;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type.Repetition;
+import org.apache.parquet.schema.Types;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+public class ParquetEncoderTest {
+
+  private static final String URI = "jdbc:h2:mem:parquet;DB_CLOSE_DELAY=-1";
+  private static final String QUERY = "select * from t order by t0";
+
+  private final DataSource ds = new SimpleDriverDataSource(new org.h2.Driver(), URI);
+  private final JdbcTemplate template = new JdbcTemplate(ds);
+
+  @BeforeEach
+  public void setUp() {
+    template.execute("drop all objects");
+    template.execute(
+        "create table t (t0 int not null, t1 varchar(20), t2 decimal(12, 2), t3 timestamp)");
+  }
+
+  private void insert(int from, int to) {
+    for (int i = from; i < to; i++) {
+      template.update(
+          "insert into t values (?, ?, ?, TIMESTAMP '2024-01-01 00:00:00')",
+          i,
+          i % 10 == 0 ? null : "value-" + (i % 4),
+          i * 7);
+    }
+  }
+
+  @Test
+  public void testFileStructure() throws Exception {
+    insert(0, 250);
+
+    byte[] data = new JdbcByteSource(new ParquetEncoder(100, 1024 * 1024), ds, QUERY).read();
+    FileMetaData metaData = readFooter(data);
+
+    assertEquals(250, metaData.getNum_rows());
+    List<SchemaElement> schema = metaData.getSchema();
+    assertEquals(
+        Arrays.asList("schema", "T0", "T1", "T2", "T3"),
+        schema.stream().map(SchemaElement::getName).collect(Collectors.toList()));
+    assertEquals(Type.INT32, schema.get(1).getType());
+    assertEquals(FieldRepetitionType.REQUIRED, schema.get(1).getRepetition_type());
+    assertEquals(ConvertedType.UTF8, schema.get(2).getConverted_type());
+    assertEquals(FieldRepetitionType.OPTIONAL, schema.get(2).getRepetition_type());
+    assertEquals(Type.INT64, schema.get(3).getType());
+    assertEquals(12, schema.get(3).getPrecision());
+    assertEquals(2, schema.get(3).getScale());
+    assertTrue(schema.get(4).getLogicalType().isSetTIMESTAMP());
+
+    List<RowGroup> rowGroups = metaData.getRow_groups();
+    assertEquals(
+        Arrays.asList(100L, 100L, 50L),
+        rowGroups.stream().map(RowGroup::getNum_rows).collect(Collectors.toList()));
+    for (RowGroup rowGroup : rowGroups) {
+      ColumnMetaData strings = rowGroup.getColumns().get(1).getMeta_data();
+      assertEquals(rowGroup.getNum_rows(), strings.getNum_values());
+      assertTrue(strings.getEncodings().contains(Encoding.PLAIN_DICTIONARY), "dictionary");
+      PageHeader dictionaryPage =
+          Util.readPageHeader(
+              new ByteArrayInputStream(
+                  data, (int) strings.getDictionary_page_offset(), data.length));
+      assertEquals(PageType.DICTIONARY_PAGE, dictionaryPage.getType());
+      assertEquals(4, dictionaryPage.getDictionary_page_header().getNum_values());
+      PageHeader dataPage =
+          Util.readPageHeader(
+              new ByteArrayInputStream(data, (int) strings.getData_page_offset(), data.length));
+      assertEquals(PageType.DATA_PAGE, dataPage.getType());
+    }
+  }
+
+  @Test
+  public void testUnchangedPrefixEncodesToSameBytes() throws Exception {
+    insert(0, 1000);
+    ParquetEncoder encoder = new ParquetEncoder(100, 1024 * 1024);
+    byte[] before = new JdbcByteSource(encoder, ds, QUERY).read();
+    insert(1000, 1050);
+    byte[] after = new JdbcByteSource(encoder, ds, QUERY).read();
+
+    // The ten full row groups are unchanged; the new rows follow them.
+    assertEquals(10, readFooter(before).getRow_groups().size());
+    int footerOffset = before.length - 8 - footerLength(before);
+    assertArrayEquals(Arrays.copyOf(before, footerOffset), Arrays.copyOf(after, footerOffset));
+    assertEquals(1050, readFooter(after).getNum_rows());
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    assertRoundTrip(WriterVersion.PARQUET_1_0);
+  }
+
+  @Test
+  public void testRoundTrip_dataPageV2() throws Exception {
+    assertRoundTrip(WriterVersion.PARQUET_2_0);
+  }
+
+  private void assertRoundTrip(WriterVersion writerVersion) throws Exception {
+    template.execute(
+        "create table a ("
+            + "c_int int not null, c_smallint smallint, c_bigint bigint, c_boolean boolean,"
+            + " c_real real, c_double double precision, c_decimal9 decimal(9, 2),"
+            + " c_decimal18 decimal(18, 3), c_decimal38 decimal(38, 4), c_varchar varchar(20),"
+            + " c_varbinary varbinary(4), c_date date, c_time time, c_timestamp timestamp(6),"
+            + " c_timestamptz timestamp(6) with time zone)");
+    // The values repeat, so that the columns are dictionary encoded across several pages.
+    for (int i = 0; i < 300; i += 2) {
+      template.update(
+          "insert into a values (?, 7, 2, true, 1.5, 2.25, 1234567.89, 123456789012345.678,"
+              + " 1234567890123456789012345678901234.5678, 'héllo', X'01ff', DATE '2024-02-29',"
+              + " TIME '13:14:15', TIMESTAMP '2024-02-29 13:14:15.123456',"
+              + " TIMESTAMP WITH TIME ZONE '2024-02-29 13:14:15.123456+02:00')",
+          i);
+      template.update(
+          "insert into a values (?, null, null, null, null, null, null, null, null, null, null,"
+              + " null, null, null, null)",
+          i + 1);
+    }
+
+    List<Group> rows =
+        read(new ParquetEncoder(100, 1024 * 1024, writerVersion), "select * from a order by c_int");
+
+    assertEquals(300, rows.size());
+    for (int i = 0; i < rows.size(); i += 2) {
+      Group values = rows.get(i);
+      assertEquals(i, values.getInteger("C_INT", 0));
+      assertEquals(7, values.getInteger("C_SMALLINT", 0));
+      assertEquals(2L, values.getLong("C_BIGINT", 0));
+      assertEquals(true, values.getBoolean("C_BOOLEAN", 0));
+      assertEquals(1.5f, values.getFloat("C_REAL", 0));
+      assertEquals(2.25d, values.getDouble("C_DOUBLE", 0));
+      assertEquals(123456789, values.getInteger("C_DECIMAL9", 0));
+      assertEquals(123456789012345678L, values.getLong("C_DECIMAL18", 0));
+      assertEquals(
+          new BigDecimal("1234567890123456789012345678901234.5678"),
+          new BigDecimal(new BigInteger(values.getBinary("C_DECIMAL38", 0).getBytes()), 4));
+      assertEquals("héllo", values.getString("C_VARCHAR", 0));
+      assertArrayEquals(
+          new byte[] {1, (byte) 0xff}, values.getBinary("C_VARBINARY", 0).getBytes());
+      assertEquals((int) LocalDate.of(2024, 2, 29).toEpochDay(), values.getInteger("C_DATE", 0));
+      assertEquals((13 * 3600 + 14 * 60 + 15) * 1000, values.getInteger("C_TIME", 0));
+      assertEquals(
+          LocalDateTime.of(2024, 2, 29, 13, 14, 15).toEpochSecond(ZoneOffset.UTC) * 1_000_000L
+              + 123456,
+          values.getLong("C_TIMESTAMP", 0));
+      assertEquals(
+          OffsetDateTime.of(2024, 2, 29, 11, 14, 15, 0, ZoneOffset.UTC).toEpochSecond()
+                  * 1_000_000L
+              + 123456,
+          values.getLong("C_TIMESTAMPTZ", 0));
+
+      Group nulls = rows.get(i + 1);
+      assertEquals(i + 1, nulls.getInteger("C_INT", 0));
+      for (int field = 1; field < nulls.getType().getFieldCount(); field++) {
+        assertEquals(0, nulls.getFieldRepetitionCount(field), nulls.getType().getFieldName(field));
+      }
+    }
+  }
+
+  @Test
+  public void testNullInNonNullableColumn_throws() throws Exception {
+    insert(0, 1);
+    try (Connection connection = ds.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("select t1 from t")) {
+      SQLException e =
+          assertThrows(
+              SQLException.class,
+              () -> new ParquetEncoder().encodeTo(new ByteArrayOutputStream(), withNoNulls(rs)));
+      assertEquals("Null value in non-nullable column T1", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testLegalizedNamesAreUnique() throws Exception {
+    insert(0, 1);
+
+    byte[] data =
+        new JdbcByteSource(
+                new ParquetEncoder(),
+                ds,
+                "select t0 as \"a b\", t0 as \"a_b\", t0 as \"a-b\" from t")
+            .read();
+
+    assertEquals(
+        Arrays.asList("schema", "a_b", "a_b_2", "a_b_3"),
+        readFooter(data).getSchema().stream()
+            .map(SchemaElement::getName)
+            .collect(Collectors.toList()));
+  }
+
+  /** Reports every column as non-nullable, as a driver may for a column which holds nulls. */
+  private static ResultSet withNoNulls(ResultSet rs) throws SQLException {
+    ResultSetMetaData noNulls =
+        proxy(
+            ResultSetMetaData.class,
+            rs.getMetaData(),
+            "isNullable",
+            ResultSetMetaData.columnNoNulls);
+    return proxy(ResultSet.class, rs, "getMetaData", noNulls);
+  }
+
+  /** Delegates every method but one, which returns a fixed value. */
+  private static <T> T proxy(Class<T> type, T delegate, String methodName, Object value) {
+    return type.cast(
+        Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+              if (method.getName().equals(methodName)) {
+                return value;
+              }
+              try {
+                return method.invoke(delegate, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            }));
+  }
+
+  /** Reads the rows back with the record reader of parquet-column. */
+  private List<Group> read(ParquetEncoder encoder, String query) throws Exception {
+    byte[] data = new JdbcByteSource(encoder, ds, query).read();
+    FileMetaData metaData = readFooter(data);
+    MessageType schema = toMessageType(metaData.getSchema());
+    List<Group> rows = new ArrayList<>();
+    for (RowGroup rowGroup : metaData.getRow_groups()) {
+      RecordReader<Group> reader =
+          new ColumnIOFactory()
+              .getColumnIO(schema)
+              .getRecordReader(
+                  readRowGroup(data, rowGroup, schema), new GroupRecordConverter(schema));
+      for (long i = 0; i < rowGroup.getNum_rows(); i++) {
+        rows.add(reader.read());
+      }
+    }
+    return rows;
+  }
+
+  /** Converts the schema of the footer, without its annotations. */
+  private static MessageType toMessageType(List<SchemaElement> elements) {
+    Types.MessageTypeBuilder builder = Types.buildMessage();
+    for (SchemaElement element : elements.subList(1, elements.size())) {
+      PrimitiveTypeName type =
+          element.getType() == Type.BYTE_ARRAY
+              ? PrimitiveTypeName.BINARY
+              : PrimitiveTypeName.valueOf(element.getType().name());
+      Repetition repetition =
+          element.getRepetition_type() == FieldRepetitionType.REQUIRED
+              ? Repetition.REQUIRED
+              : Repetition.OPTIONAL;
+      builder.addField(Types.primitive(type, repetition).named(element.getName()));
+    }
+    return builder.named(elements.get(0).getName());
+  }
+
+  /** Reads the pages of a row group, as parquet-hadoop would from a file. */
+  private static PageReadStore readRowGroup(byte[] data, RowGroup rowGroup, MessageType schema)
+      throws IOException {
+    Map<ColumnDescriptor, PageReader> pageReaders = new HashMap<>();
+    List<ColumnDescriptor> columns = schema.getColumns();
+    for (int i = 0; i < columns.size(); i++) {
+      pageReaders.put(
+          columns.get(i), readColumnChunk(data, rowGroup.getColumns().get(i).getMeta_data()));
+    }
+    return new PageReadStore() {
+      @Override
+      public PageReader getPageReader(ColumnDescriptor descriptor) {
+        return pageReaders.get(descriptor);
+      }
+
+      @Override
+      public long getRowCount() {
+        return rowGroup.getNum_rows();
+      }
+    };
+  }
+
+  private static PageReader readColumnChunk(byte[] data, ColumnMetaData metaData)
+      throws IOException {
+    long start =
+        metaData.isSetDictionary_page_offset()
+            ? metaData.getDictionary_page_offset()
+            : metaData.getData_page_offset();
+    ByteArrayInputStream in =
+        new ByteArrayInputStream(data, (int) start, (int) metaData.getTotal_compressed_size());
+    DictionaryPage dictionaryPage = null;
+    Deque<DataPage> dataPages = new ArrayDeque<>();
+    long valueCount = 0;
+    while (valueCount < metaData.getNum_values()) {
+      PageHeader header = Util.readPageHeader(in);
+      byte[] page = new byte[header.getCompressed_page_size()];
+      ByteStreams.readFully(in, page);
+      switch (header.getType()) {
+        case DICTIONARY_PAGE:
+          dictionaryPage =
+              new DictionaryPage(
+                  BytesInput.from(page),
+                  header.getDictionary_page_header().getNum_values(),
+                  toEncoding(header.getDictionary_page_header().getEncoding()));
+          break;
+        case DATA_PAGE:
+          DataPageHeader v1 = header.getData_page_header();
+          dataPages.add(
+              new DataPageV1(
+                  BytesInput.from(page),
+                  v1.getNum_values(),
+                  page.length,
+                  null,
+                  toEncoding(v1.getRepetition_level_encoding()),
+                  toEncoding(v1.getDefinition_level_encoding()),
+                  toEncoding(v1.getEncoding())));
+          valueCount += v1.getNum_values();
+          break;
+        case DATA_PAGE_V2:
+          DataPageHeaderV2 v2 = header.getData_page_header_v2();
+          int rlLength = v2.getRepetition_levels_byte_length();
+          int dlLength = v2.getDefinition_levels_byte_length();
+          dataPages.add(
+              DataPageV2.uncompressed(
+                  v2.getNum_rows(),
+                  v2.getNum_nulls(),
+                  v2.getNum_values(),
+                  BytesInput.from(page, 0, rlLength),
+                  BytesInput.from(page, rlLength, dlLength),
+                  toEncoding(v2.getEncoding()),
+                  BytesInput.from(page, rlLength + dlLength, page.length - rlLength - dlLength),
+                  null));
+          valueCount += v2.getNum_values();
+          break;
+        default:
+          throw new IllegalStateException("Unexpected page type " + header.getType());
+      }
+    }
+    DictionaryPage dictionary = dictionaryPage;
+    long totalValueCount = valueCount;
+    return new PageReader() {
+      @Override
+      public DictionaryPage readDictionaryPage() {
+        return dictionary;
+      }
+
+      @Override
+      public long getTotalValueCount() {
+        return totalValueCount;
+      }
+
+      @Override
+      public DataPage readPage() {
+        return dataPages.poll();
+      }
+    };
+  }
+
+  private static org.apache.parquet.column.Encoding toEncoding(Encoding encoding) {
+    return org.apache.parquet.column.Encoding.valueOf(encoding.name());
+  }
+
+  private static int footerLength(byte[] data) {
+    return ByteBuffer.wrap(data, data.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+  }
+
+  private static FileMetaData readFooter(byte[] data) throws Exception {
+    byte[] magic = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    assertArrayEquals(magic, Arrays.copyOf(data, 4));
+    assertArrayEquals(magic, Arrays.copyOfRange(data, data.length - 4, data.length));
+    int footerOffset = data.length - 8 - footerLength(data);
+    return Util.readFileMetaData(
+        new ByteArrayInputStream(data, footerOffset, data.length - 8 - footerOffset));
+  }
+}
@@ -0,0 +1,189 @@
+package com.google.edwmigration.dbsync.gcsync;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteSink;
+import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs an operation on each file of a manifest with a bounded pool of workers, so that a single
+ * job execution handles many small files without processing them one after another.
+ *
+ * <p>The outcome of every file is written to one status object, one line per file in the order of
+ * the manifest:
+ *
+ * <pre>
+ * status TAB elapsed millis TAB message TAB file
+ * </pre>
+ */
+public class BatchJob {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchJob.class);
+
+  public enum Status {
+    /** The file was processed. */
+    DONE,
+    /** The output of an earlier execution is up to date. */
+    SKIPPED,
+    /** The file doesn't exist, e.g. it has been deleted on the target. */
+    MISSING,
+    /** The reconstructed file doesn't match the md5 of the source file. */
+    MISMATCH,
+    /** The operation threw; the message says why. */
+    FAILED
+  }
+
+  public interface FileOperation {
+
+    Status process(String file) throws Exception;
+  }
+
+  public static class Result {
+
+    private final String file;
+    private final Status status;
+    private final long elapsedMillis;
+    private final String message;
+
+    public Result(String file, Status status, long elapsedMillis, @Nullable String message) {
+      this.file = file;
+      this.status = status;
+      this.elapsedMillis = elapsedMillis;
+      this.message = message == null ? "" : message;
+    }
+
+    public String getFile() {
+      return file;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    public long getElapsedMillis() {
+      return elapsedMillis;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+  }
+
+  private final int threads;
+
+  public BatchJob(int threads) {
+    Preconditions.checkArgument(threads > 0, "Bad thread count %s", threads);
+    this.threads = threads;
+  }
+
+  /**
+   * Processes the files, writes their results to the status sink, and throws if any of them
+   * failed. A failed file doesn't stop the others.
+   */
+  public List<Result> run(List<String> files, FileOperation operation, ByteSink statusSink)
+      throws IOException, InterruptedException {
+    List<Result> results = process(files, operation);
+    writeStatus(statusSink, results);
+
+    int failed = 0;
+    for (Result result : results) {
+      if (result.getStatus() == Status.FAILED) {
+        failed++;
+      }
+    }
+    logger.info("Processed {} files, {} failed", results.size(), failed);
+    if (failed > 0) {
+      throw new IOException(String.format("%d of %d files failed", failed, results.size()));
+    }
+    return results;
+  }
+
+  private List<Result> process(List<String> files, FileOperation operation)
+      throws InterruptedException {
+    List<Result> results = new ArrayList<>(files.size());
+    if (files.isEmpty()) {
+      return results;
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(threads, files.size()),
+            new ThreadFactoryBuilder().setNameFormat("gcsync-worker-%d").setDaemon(true).build());
+    try {
+      List<Future<Result>> futures = new ArrayList<>(files.size());
+      for (String file : files) {
+        futures.add(executor.submit(() -> processFile(file, operation)));
+      }
+      for (Future<Result> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          // process() catches every Exception, so this is an Error.
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
+  }
+
+  private static Result processFile(String file, FileOperation operation) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      Status status = operation.process(file);
+      return new Result(file, status, stopwatch.elapsed(TimeUnit.MILLISECONDS), null);
+    } catch (Exception e) {
+      logger.error("Failed to process file: {}", file, e);
+      return new Result(
+          file, Status.FAILED, stopwatch.elapsed(TimeUnit.MILLISECONDS), String.valueOf(e));
+    }
+  }
+
+  public static void writeStatus(ByteSink sink, List<Result> results) throws IOException {
+    StringBuilder status = new StringBuilder();
+    for (Result result : results) {
+      status
+          .append(result.getStatus())
+          .append('\t')
+          .append(result.getElapsedMillis())
+          .append('\t')
+          .append(result.getMessage().replaceAll("[\t\r\n]+", " "))
+          .append('\t')
+          .append(result.getFile())
+          .append('\n');
+    }
+    // A single write, so that the status object is uploaded in one request.
+    sink.write(status.toString().getBytes(UTF_8));
+  }
+
+  public static List<Result> readStatus(ByteSource source) throws IOException {
+    List<Result> results = new ArrayList<>();
+    try (BufferedReader reader = source.asCharSource(UTF_8).openBufferedStream()) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t", 4);
+        if (fields.length != 4) {
+          throw new IOException("Bad status line: " + line);
+        }
+        results.add(
+            new Result(fields[3], Status.valueOf(fields[0]), Long.parseLong(fields[1]), fields[2]));
+      }
+    }
+    return results;
+  }
+}
@@ -15,11 +15,21 @@ public class Constants {
 
   public static final String TMP_FILE_SUFFIX = "updated";
 
+  public static final String RECONSTRUCT_SUFFIX = "reconstruct";
+
+  public static final String STATUS_FILE_SUFFIX = "status";
+
   public static final int BLOCK_SIZE = 4 * 4096;
 
   // 10 MiB
   public static final long RSYNC_SIZE_THRESHOLD = 10 * 1024 * 1024;
 
+  // The checksum file of a target up to this size is built in memory and uploaded in one request.
+  // 256 MiB
+  public static final long BUFFERED_CHECKSUM_TARGET_SIZE = 256 * 1024 * 1024;
+
+  public static final int DEFAULT_JOB_THREADS = 16;
+
   public static final String GENERATE_CHECK_SUM_MAIN = GenerateCheckSumMain.class.getName();
 
   public static final String RECONSTRUCT_FILE_MAIN = ReconstructFilesMain.class.getName();
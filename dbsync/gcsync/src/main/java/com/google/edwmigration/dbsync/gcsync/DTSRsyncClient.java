@@ -18,6 +18,8 @@ import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSink;
 import com.google.common.io.ByteSource;
 import com.google.edwmigration.dbsync.common.InstructionGenerator;
+import com.google.edwmigration.dbsync.common.InstructionStream;
+import com.google.edwmigration.dbsync.common.storage.MappedFileByteSource;
 import com.google.edwmigration.dbsync.storage.gcs.GcsStorage;
 import com.google.protobuf.Duration;
 import java.io.BufferedWriter;
@@ -290,19 +292,15 @@ public class DTSRsyncClient {
       Path tmpCheckSumFile = downloadChecksumFile(file);
       try (java.io.OutputStream instructionFileOutputStream =
           gcsStorage.newByteSink(instructionFile).openBufferedStream()) {
-        try (InputStream inputStream = Files.newInputStream(tmpCheckSumFile)) {
-          // The checksum file has an MD5 header that needs to be skipped
-          Util.skipMd5Header(inputStream);
-
-          List<com.google.edwmigration.dbsync.proto.Checksum> checksums =
-              getChecksumsFromFile(inputStream);
-          ByteSource fileInput = com.google.common.io.Files.asByteSource(file.toFile());
-
-          Util.writeMd5Header(instructionFileOutputStream, sourceFileMd5);
-          instructionGenerator.generate(
-              instruction -> instruction.writeDelimitedTo(instructionFileOutputStream),
-              fileInput,
-              checksums);
+        List<com.google.edwmigration.dbsync.proto.Checksum> checksums =
+            Util.readCheckSumFile(tmpCheckSumFile);
+        ByteSource fileInput = new MappedFileByteSource(file);
+
+        Util.writeMd5Header(instructionFileOutputStream, sourceFileMd5);
+        try (InstructionStream.Writer writer =
+            new InstructionStream.Writer(
+                instructionFileOutputStream, InstructionStream.Codec.LZ4)) {
+          instructionGenerator.generate(writer, fileInput, checksums);
         }
       } catch (Exception e) {
         if (!gcsStorage.delete(instructionFile)) {
@@ -330,20 +328,6 @@ public class DTSRsyncClient {
     }
   }
 
-  private static List<com.google.edwmigration.dbsync.proto.Checksum> getChecksumsFromFile(
-      InputStream inputStream) throws IOException {
-    List<com.google.edwmigration.dbsync.proto.Checksum> checksums = new ArrayList<>();
-    com.google.edwmigration.dbsync.proto.Checksum checksum;
-    while ((checksum =
-            com.google.edwmigration.dbsync.proto.Checksum.parseDelimitedFrom(inputStream))
-        != null) {
-      checksums.add(checksum);
-    }
-    inputStream.close();
-
-    return checksums;
-  }
-
   private static String generateMd5(Path file) throws IOException {
     return Base64.getEncoder()
         .encodeToString(
@@ -0,0 +1,58 @@
+package com.google.edwmigration.dbsync.gcsync;
+
+import com.google.cloud.storage.Blob;
+import com.google.common.io.ByteSink;
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.storage.gcs.GcsStorage;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/** A {@link JobStorage} on GCS; all the workers of a job share its client. */
+public class GcsJobStorage implements JobStorage {
+
+  private final GcsStorage gcsStorage;
+
+  public GcsJobStorage(GcsStorage gcsStorage) {
+    this.gcsStorage = gcsStorage;
+  }
+
+  @Override
+  public ByteSource newByteSource(URI uri) {
+    return gcsStorage.newByteSource(uri);
+  }
+
+  @Override
+  public ByteSink newByteSink(URI uri) {
+    return gcsStorage.newByteSink(uri);
+  }
+
+  @Override
+  public @Nullable FileInfo getFileInfo(URI uri) {
+    Blob blob = gcsStorage.getBlob(uri);
+    return blob == null ? null : new FileInfo(blob.getSize(), blob.getMd5());
+  }
+
+  @Override
+  public void copy(URI source, URI target) {
+    gcsStorage.copyFile(source, target);
+  }
+
+  @Override
+  public boolean delete(URI uri) {
+    return gcsStorage.delete(uri);
+  }
+
+  @Override
+  public List<URI> deleteAll(List<URI> uris) {
+    List<Boolean> deleted = gcsStorage.deleteAll(uris);
+    List<URI> undeleted = new ArrayList<>();
+    for (int i = 0; i < uris.size(); i++) {
+      if (!deleted.get(i)) {
+        undeleted.add(uris.get(i));
+      }
+    }
+    return undeleted;
+  }
+}
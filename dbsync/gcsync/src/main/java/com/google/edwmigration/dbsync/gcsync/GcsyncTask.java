@@ -18,19 +18,19 @@ import com.google.cloud.storage.Blob;
 import com.google.common.io.ByteSink;
 import com.google.common.io.ByteSource;
 import com.google.edwmigration.dbsync.common.InstructionGenerator;
+import com.google.edwmigration.dbsync.common.InstructionStream;
+import com.google.edwmigration.dbsync.common.storage.MappedFileByteSource;
 import com.google.edwmigration.dbsync.proto.Checksum;
 import com.google.edwmigration.dbsync.storage.gcs.GcsStorage;
 import com.google.protobuf.Duration;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -175,18 +175,14 @@ public class GcsyncTask implements Callable<Void> {
       Path tmpCheckSumFile = downloadChecksumFile(file);
       try (OutputStream instructionFileOutputStream =
           gcsStorage.newByteSink(instructionFile).openBufferedStream()) {
-        try (InputStream inputStream = Files.newInputStream(tmpCheckSumFile)) {
-          // The checksum file has an MD5 header that needs to be skipped
-          Util.skipMd5Header(inputStream);
-
-          List<Checksum> checksums = getChecksumsFromFile(inputStream);
-          ByteSource fileInput = com.google.common.io.Files.asByteSource(file.toFile());
-
-          Util.writeMd5Header(instructionFileOutputStream, sourceFileMd5);
-          instructionGenerator.generate(
-              instruction -> instruction.writeDelimitedTo(instructionFileOutputStream),
-              fileInput,
-              checksums);
+        List<Checksum> checksums = Util.readCheckSumFile(tmpCheckSumFile);
+        ByteSource fileInput = new MappedFileByteSource(file);
+
+        Util.writeMd5Header(instructionFileOutputStream, sourceFileMd5);
+        try (InstructionStream.Writer writer =
+            new InstructionStream.Writer(
+                instructionFileOutputStream, InstructionStream.Codec.LZ4)) {
+          instructionGenerator.generate(writer, fileInput, checksums);
         }
       } catch (Exception e) {
         if (!gcsStorage.delete(instructionFile)) {
@@ -253,14 +249,4 @@ public class GcsyncTask implements Callable<Void> {
     // Delete the job to prevent it from spamming cloud jobs list
     jobsClient.deleteJobAsync(jobName).get();
   }
-
-  private static List<Checksum> getChecksumsFromFile(InputStream inputStream) throws IOException {
-    List<Checksum> checksums = new ArrayList<>();
-    Checksum checksum;
-    while ((checksum = Checksum.parseDelimitedFrom(inputStream)) != null) {
-      checksums.add(checksum);
-    }
-
-    return checksums;
-  }
 }
@@ -1,14 +1,18 @@
 package com.google.edwmigration.dbsync.gcsync;
 
+import static com.google.edwmigration.dbsync.gcsync.Util.getCheckSumFileName;
 import static com.google.edwmigration.dbsync.gcsync.Util.getListOfFiles;
+import static com.google.edwmigration.dbsync.gcsync.Util.getStatusFileName;
 import static com.google.edwmigration.dbsync.gcsync.Util.verifyMd5Header;
 
-import com.google.cloud.storage.Blob;
 import com.google.common.io.ByteSink;
 import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.ChecksumFile;
 import com.google.edwmigration.dbsync.common.ChecksumGenerator;
 import com.google.edwmigration.dbsync.common.DefaultArguments;
 import com.google.edwmigration.dbsync.storage.gcs.GcsStorage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.List;
@@ -24,51 +28,120 @@ public class GenerateCheckSumMain {
     Arguments arguments = new Arguments(args);
     GcsStorage gcsStorage =
         new GcsStorage(arguments.getOptions().valueOf(arguments.projectOptionSpec));
-    String tmpBucket = arguments.getOptions().valueOf(arguments.tmpBucketOptionSpec);
-    String targetBucket = arguments.getOptions().valueOf(arguments.targetOptionSpec);
+    URI tmpBucket = new URI(arguments.getOptions().valueOf(arguments.tmpBucketOptionSpec));
+    URI targetBucket = new URI(arguments.getOptions().valueOf(arguments.targetOptionSpec));
     String filesToRsyncFileName = arguments.getOptions().valueOf(arguments.filesToRsyncFileName);
+    int threads = arguments.getOptions().valueOf(arguments.threadsOptionSpec);
 
+    generateCheckSums(
+        new GcsJobStorage(gcsStorage), tmpBucket, targetBucket, filesToRsyncFileName, threads);
+  }
+
+  /**
+   * Generates the checksum file of each target file in the list, with a pool of workers, and
+   * writes the outcome of every file to a single status object in the temporary bucket.
+   */
+  public static List<BatchJob.Result> generateCheckSums(
+      JobStorage storage, URI tmpBucket, URI targetBucket, String filesToRsyncFileName, int threads)
+      throws IOException, InterruptedException {
     ChecksumGenerator checksumGenerator = new ChecksumGenerator(Constants.BLOCK_SIZE);
     List<String> filesToGenerateCheckSum =
-        getListOfFiles(gcsStorage.newByteSource(new URI(tmpBucket).resolve(filesToRsyncFileName)));
-
-    for (String file : filesToGenerateCheckSum) {
-      URI targetFile = new URI(targetBucket).resolve(file);
-      ByteSource byteSource = gcsStorage.newByteSource(targetFile);
-      if (byteSource.isEmpty()) {
-        logger.log(Level.INFO, String.format("File %s has been deleted on target", file));
-        continue;
-      }
+        getListOfFiles(storage.newByteSource(tmpBucket.resolve(filesToRsyncFileName)));
+    // Each worker reuses its buffer for the checksum files of all the files it handles.
+    ThreadLocal<ByteArrayOutputStream> buffers =
+        ThreadLocal.withInitial(ByteArrayOutputStream::new);
+    ByteSink statusSink =
+        storage.newByteSink(
+            tmpBucket.resolve(
+                getStatusFileName(filesToRsyncFileName, Constants.CHECK_SUM_FILE_SUFFIX)));
 
-      String targetFileMd5 = gcsStorage.getBlob(targetFile).getMd5();
-      // Check if we already have a checksum file with a header md5 that matches with the target
-      // file's md5. Meaning the file has been changes since we generated the checksum file.
-      URI checkSumFile = new URI(tmpBucket).resolve(Util.getCheckSumFileName(file));
-      Blob blob = gcsStorage.getBlob(checkSumFile);
-      if (blob != null && verifyMd5Header(gcsStorage.newByteSource(checkSumFile), targetFileMd5)) {
-        logger.log(
-            Level.INFO,
-            String.format("Skip generating checksum for file %s which already exists", file));
-        continue;
-      }
+    return new BatchJob(threads)
+        .run(
+            filesToGenerateCheckSum,
+            file ->
+                generateCheckSum(
+                    storage,
+                    checksumGenerator,
+                    buffers.get(),
+                    targetBucket.resolve(file),
+                    tmpBucket.resolve(getCheckSumFileName(file))),
+            statusSink);
+  }
 
-      ByteSink byteSink = gcsStorage.newByteSink(checkSumFile);
+  private static BatchJob.Status generateCheckSum(
+      JobStorage storage,
+      ChecksumGenerator checksumGenerator,
+      ByteArrayOutputStream buffer,
+      URI targetFile,
+      URI checkSumFile)
+      throws IOException {
+    JobStorage.FileInfo targetFileInfo = storage.getFileInfo(targetFile);
+    if (targetFileInfo == null) {
+      logger.log(Level.INFO, String.format("File %s has been deleted on target", targetFile));
+      return BatchJob.Status.MISSING;
+    }
+
+    String targetFileMd5 = targetFileInfo.getMd5();
+    // Check if we already have a checksum file with a header md5 that matches with the target
+    // file's md5. Meaning the file has been changes since we generated the checksum file.
+    JobStorage.FileInfo checkSumFileInfo = storage.getFileInfo(checkSumFile);
+    if (checkSumFileInfo != null
+        && verifyMd5Header(
+            storage.newByteSource(checkSumFile).slice(0, checkSumFileInfo.getSize()),
+            targetFileMd5)) {
+      logger.log(
+          Level.INFO,
+          String.format("Skip generating checksum for file %s which already exists", targetFile));
+      return BatchJob.Status.SKIPPED;
+    }
+
+    // The slice has a known size, so the generator doesn't fetch the metadata again.
+    ByteSource byteSource = storage.newByteSource(targetFile).slice(0, targetFileInfo.getSize());
+    ByteSink byteSink = storage.newByteSink(checkSumFile);
+    if (targetFileInfo.getSize() <= Constants.BUFFERED_CHECKSUM_TARGET_SIZE) {
+      // Nothing is uploaded until the checksum file is complete, so a failure to generate it
+      // leaves nothing to delete.
+      buffer.reset();
+      writeCheckSumFile(buffer, checksumGenerator, targetFileMd5, byteSource);
+      try {
+        byteSink.write(buffer.toByteArray());
+      } catch (IOException | RuntimeException e) {
+        deleteCorruptedFile(storage, checkSumFile);
+        throw e;
+      }
+    } else {
       try (OutputStream bufferedOutputStream = byteSink.openBufferedStream()) {
-        // We write the md5 of the target file as a header of the checksum file
-        Util.writeMd5Header(bufferedOutputStream, targetFileMd5);
-        checksumGenerator.generate(
-            checksum -> checksum.writeDelimitedTo(bufferedOutputStream), byteSource);
-        logger.log(Level.INFO, String.format("Finished generating check sum for: %s", file));
-      } catch (Exception e) {
-        if (!gcsStorage.delete(checkSumFile)) {
-          logger.log(
-              Level.SEVERE,
-              String.format(
-                  "Failed to delete file: %s which is corrupted. Manually delete this file from GCS"));
-        }
+        writeCheckSumFile(bufferedOutputStream, checksumGenerator, targetFileMd5, byteSource);
+      } catch (IOException | RuntimeException e) {
+        deleteCorruptedFile(storage, checkSumFile);
         throw e;
       }
     }
+    logger.log(Level.INFO, String.format("Finished generating check sum for: %s", targetFile));
+    return BatchJob.Status.DONE;
+  }
+
+  private static void deleteCorruptedFile(JobStorage storage, URI checkSumFile)
+      throws IOException {
+    if (!storage.delete(checkSumFile)) {
+      logger.log(
+          Level.SEVERE,
+          String.format(
+              "Failed to delete file: %s which is corrupted. Manually delete this file from GCS",
+              checkSumFile));
+    }
+  }
+
+  private static void writeCheckSumFile(
+      OutputStream outputStream,
+      ChecksumGenerator checksumGenerator,
+      String targetFileMd5,
+      ByteSource byteSource)
+      throws IOException {
+    // We write the md5 of the target file as a header of the checksum file
+    Util.writeMd5Header(outputStream, targetFileMd5);
+    checksumGenerator.generate(
+        new ChecksumFile.Writer(outputStream, checksumGenerator.getBlockSize()), byteSource);
   }
 
   private static class Arguments extends DefaultArguments {
@@ -101,6 +174,13 @@ public class GenerateCheckSumMain {
             .ofType(String.class)
             .required();
 
+    private final OptionSpec<Integer> threadsOptionSpec =
+        parser
+            .accepts("threads", "The number of files processed concurrently")
+            .withRequiredArg()
+            .ofType(Integer.class)
+            .defaultsTo(Constants.DEFAULT_JOB_THREADS);
+
     public Arguments(String[] args) {
       super(args);
     }
@@ -0,0 +1,51 @@
+package com.google.edwmigration.dbsync.gcsync;
+
+import com.google.common.io.ByteSink;
+import com.google.common.io.ByteSource;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The storage operations of the checksum and reconstruct jobs, so that a job runs against GCS or
+ * against a local stand-in.
+ */
+public interface JobStorage {
+
+  /** The metadata of a stored file. */
+  class FileInfo {
+
+    private final long size;
+    private final String md5;
+
+    public FileInfo(long size, String md5) {
+      this.size = size;
+      this.md5 = md5;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    /** Returns the base64 encoded md5 of the file, as reported by GCS. */
+    public String getMd5() {
+      return md5;
+    }
+  }
+
+  ByteSource newByteSource(URI uri);
+
+  ByteSink newByteSink(URI uri);
+
+  /** Returns the metadata of the file, or null if it doesn't exist. */
+  @Nullable
+  FileInfo getFileInfo(URI uri) throws IOException;
+
+  void copy(URI source, URI target) throws IOException;
+
+  boolean delete(URI uri) throws IOException;
+
+  /** Deletes the files, in a single request where possible, and returns those not deleted. */
+  List<URI> deleteAll(List<URI> uris) throws IOException;
+}
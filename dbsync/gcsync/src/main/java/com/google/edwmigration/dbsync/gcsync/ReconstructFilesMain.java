@@ -3,19 +3,23 @@ package com.google.edwmigration.dbsync.gcsync;
 import static com.google.edwmigration.dbsync.gcsync.Util.getCheckSumFileName;
 import static com.google.edwmigration.dbsync.gcsync.Util.getInstructionFileName;
 import static com.google.edwmigration.dbsync.gcsync.Util.getListOfFiles;
+import static com.google.edwmigration.dbsync.gcsync.Util.getStatusFileName;
 import static com.google.edwmigration.dbsync.gcsync.Util.getTempFileName;
 import static com.google.edwmigration.dbsync.gcsync.Util.skipMd5Header;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
 import com.google.common.io.ByteSink;
 import com.google.common.io.ByteSource;
 import com.google.edwmigration.dbsync.common.DefaultArguments;
 import com.google.edwmigration.dbsync.common.InstructionReceiver;
-import com.google.edwmigration.dbsync.proto.Instruction;
+import com.google.edwmigration.dbsync.common.InstructionStream;
 import com.google.edwmigration.dbsync.storage.gcs.GcsStorage;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import joptsimple.OptionSpec;
 import org.slf4j.Logger;
@@ -29,68 +33,88 @@ public class ReconstructFilesMain {
     Arguments arguments = new Arguments(args);
     GcsStorage gcsStorage =
         new GcsStorage(arguments.getOptions().valueOf(arguments.projectOptionSpec));
-    String tmpBucket = arguments.getOptions().valueOf(arguments.tmpBucketOptionSpec);
-    String targetBucket = arguments.getOptions().valueOf(arguments.targetOptionSpec);
+    URI tmpBucket = new URI(arguments.getOptions().valueOf(arguments.tmpBucketOptionSpec));
+    URI targetBucket = new URI(arguments.getOptions().valueOf(arguments.targetOptionSpec));
     String filesToRsyncFileName = arguments.getOptions().valueOf(arguments.filesToRsyncFileName);
+    int threads = arguments.getOptions().valueOf(arguments.threadsOptionSpec);
 
-    List<String> filesToReconstruct =
-        getListOfFiles(gcsStorage.newByteSource(new URI(tmpBucket).resolve(filesToRsyncFileName)));
-
-    for (String file : filesToReconstruct) {
-
-      try (InputStream instructionsSource =
-          gcsStorage
-              .newByteSource(new URI(tmpBucket).resolve(getInstructionFileName(file)))
-              .openBufferedStream()) {
-        URI fileToBeReconstructed = new URI(targetBucket).resolve(file);
-        ByteSource baseFileSource = gcsStorage.newByteSource(fileToBeReconstructed);
-
-        // Create a new file as a temp file and then swap it
-        URI tmpFile = new URI(targetBucket).resolve(getTempFileName(file));
-        ByteSink tmpFileSink = gcsStorage.newByteSink(tmpFile);
-
-        OutputStream outputStream = tmpFileSink.openBufferedStream();
-
-        // The instruction file has a md5 header of the source file being synced from.
-        String sourceFileMd5 = skipMd5Header(instructionsSource);
-        try (InstructionReceiver instructionReceiver =
-            new InstructionReceiver(outputStream, baseFileSource)) {
-          Instruction instruction;
-          while ((instruction = Instruction.parseDelimitedFrom(instructionsSource)) != null) {
-            instructionReceiver.receive(instruction);
-          }
-        }
-
-        verifyMd5(sourceFileMd5, gcsStorage, tmpFile, fileToBeReconstructed);
-
-        // Clean up
-        gcsStorage.delete(tmpFile);
-        deleteStagingFiles(gcsStorage, tmpBucket, file);
-      }
-      gcsStorage.delete(new URI(tmpBucket).resolve(filesToRsyncFileName));
+    reconstructFiles(
+        new GcsJobStorage(gcsStorage), tmpBucket, targetBucket, filesToRsyncFileName, threads);
+  }
 
-      logger.info("Finished reconstructing file: %s", file);
-    }
+  /**
+   * Reconstructs each target file in the list from its instruction file, with a pool of workers,
+   * and writes the outcome of every file to a single status object in the temporary bucket.
+   */
+  public static List<BatchJob.Result> reconstructFiles(
+      JobStorage storage, URI tmpBucket, URI targetBucket, String filesToRsyncFileName, int threads)
+      throws IOException, InterruptedException {
+    List<String> filesToReconstruct =
+        getListOfFiles(storage.newByteSource(tmpBucket.resolve(filesToRsyncFileName)));
+    ByteSink statusSink =
+        storage.newByteSink(
+            tmpBucket.resolve(
+                getStatusFileName(filesToRsyncFileName, Constants.RECONSTRUCT_SUFFIX)));
+
+    List<BatchJob.Result> results =
+        new BatchJob(threads)
+            .run(
+                filesToReconstruct,
+                file -> reconstructFile(storage, tmpBucket, targetBucket, file),
+                statusSink);
+    storage.delete(tmpBucket.resolve(filesToRsyncFileName));
+    return results;
   }
 
-  private static void verifyMd5(
-      String sourceFileMd5, GcsStorage gcsStorage, URI tmpFile, URI fileToBeReconstructed) {
-    if (sourceFileMd5.equals(gcsStorage.getBlob(tmpFile).getMd5())) {
-      gcsStorage.copyFile(tmpFile, fileToBeReconstructed);
+  private static BatchJob.Status reconstructFile(
+      JobStorage storage, URI tmpBucket, URI targetBucket, String file) throws IOException {
+    URI instructionFile = tmpBucket.resolve(getInstructionFileName(file));
+    URI fileToBeReconstructed = targetBucket.resolve(file);
+    // Create a new file as a temp file and then swap it
+    URI tmpFile = targetBucket.resolve(getTempFileName(file));
+
+    String sourceFileMd5;
+    HashingOutputStream outputStream;
+    try (InputStream instructionsSource =
+        storage.newByteSource(instructionFile).openBufferedStream()) {
+      ByteSource baseFileSource = storage.newByteSource(fileToBeReconstructed);
+      // Hash the file as it is written, rather than fetching its md5 afterwards.
+      outputStream =
+          new HashingOutputStream(
+              Hashing.md5(), storage.newByteSink(tmpFile).openBufferedStream());
+
+      // The instruction file has a md5 header of the source file being synced from.
+      sourceFileMd5 = skipMd5Header(instructionsSource);
+      try (InstructionReceiver instructionReceiver =
+          new InstructionReceiver(outputStream, baseFileSource)) {
+        InstructionStream.read(instructionsSource, instructionReceiver::receive);
+      }
+    }
 
+    BatchJob.Status status;
+    if (sourceFileMd5.equals(Base64.getEncoder().encodeToString(outputStream.hash().asBytes()))) {
+      storage.copy(tmpFile, fileToBeReconstructed);
+      status = BatchJob.Status.DONE;
+      logger.info("Finished reconstructing file: {}", file);
     } else {
       logger.info(
           String.format(
-              "The reconstructed file of %s doesn't match the file on the source file, the file might be"
-                  + " corrupted or the source file might have been changed while the tool is running",
+              "The reconstructed file of %s doesn't match the file on the source file, the file"
+                  + " might be corrupted or the source file might have been changed while the tool"
+                  + " is running",
               fileToBeReconstructed));
+      status = BatchJob.Status.MISMATCH;
     }
-  }
 
-  private static void deleteStagingFiles(GcsStorage gcsStorage, String bucket, String file)
-      throws URISyntaxException {
-    gcsStorage.delete(new URI(bucket).resolve(getInstructionFileName(file)));
-    gcsStorage.delete(new URI(bucket).resolve(getCheckSumFileName(file)));
+    // Clean up in one batch request.
+    List<URI> undeleted =
+        storage.deleteAll(
+            Arrays.asList(
+                tmpFile, instructionFile, tmpBucket.resolve(getCheckSumFileName(file))));
+    if (!undeleted.isEmpty()) {
+      logger.warn("Failed to delete staging files: {}", undeleted);
+    }
+    return status;
   }
 
   private static class Arguments extends DefaultArguments {
@@ -123,6 +147,13 @@ public class ReconstructFilesMain {
             .ofType(String.class)
             .required();
 
+    private final OptionSpec<Integer> threadsOptionSpec =
+        parser
+            .accepts("threads", "The number of files processed concurrently")
+            .withRequiredArg()
+            .ofType(Integer.class)
+            .defaultsTo(Constants.DEFAULT_JOB_THREADS);
+
     public Arguments(String[] args) {
       super(args);
     }
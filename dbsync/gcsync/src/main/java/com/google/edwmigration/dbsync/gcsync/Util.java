@@ -1,11 +1,14 @@
 package com.google.edwmigration.dbsync.gcsync;
 
 import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.ChecksumFile;
+import com.google.edwmigration.dbsync.proto.Checksum;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +44,11 @@ public class Util {
     return String.format("%s.%s", fileName, Constants.TMP_FILE_SUFFIX);
   }
 
+  /** Returns the name of the status object of a job phase over the given list of files. */
+  public static String getStatusFileName(String filesToRsyncFileName, String phase) {
+    return String.format("%s.%s.%s", filesToRsyncFileName, phase, Constants.STATUS_FILE_SUFFIX);
+  }
+
   public static void writeMd5Header(OutputStream outputStream, String md5) throws IOException {
     outputStream.write((md5 + '\n').getBytes());
   }
@@ -73,6 +81,16 @@ public class Util {
     return md5;
   }
 
+  /** Reads a downloaded checksum file, which is mapped past its MD5 header. */
+  public static List<Checksum> readCheckSumFile(Path checkSumFile) throws IOException {
+    long md5HeaderLength;
+    try (InputStream inputStream = Files.newInputStream(checkSumFile)) {
+      // The header is the base64 MD5, one byte per character, and a newline.
+      md5HeaderLength = skipMd5Header(inputStream).length() + 1;
+    }
+    return ChecksumFile.read(checkSumFile, md5HeaderLength);
+  }
+
   public static String ensureTrailingSlash(String uri) {
     return uri.endsWith("/") ? uri : uri + "/";
   }
@@ -0,0 +1,233 @@
+package com.google.edwmigration.dbsync.gcsync;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
+import com.google.edwmigration.dbsync.common.ChecksumFile;
+import com.google.edwmigration.dbsync.common.InstructionGenerator;
+import com.google.edwmigration.dbsync.common.InstructionStream;
+import com.google.edwmigration.dbsync.proto.Checksum;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchJobTest {
+
+  private static final URI TMP_BUCKET = URI.create("gs://dummy-tmp-bucket/");
+  private static final URI TARGET_BUCKET = URI.create("gs://dummy-target-bucket/");
+  private static final String FILES_TO_RSYNC = "filesToRsync.txt";
+  private static final int THREADS = 3;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private LocalJobStorage storage;
+  private final Random random = new Random(42);
+
+  @Before
+  public void setUp() throws Exception {
+    storage = new LocalJobStorage(tempFolder.newFolder("storage"));
+  }
+
+  private byte[] newRandomData(int size) {
+    byte[] data = new byte[size];
+    random.nextBytes(data);
+    return data;
+  }
+
+  private void writeTargetFile(String file, byte[] data) throws IOException {
+    storage.newByteSink(TARGET_BUCKET.resolve(file)).write(data);
+  }
+
+  private void writeFilesToRsync(String... files) throws IOException {
+    storage
+        .newByteSink(TMP_BUCKET.resolve(FILES_TO_RSYNC))
+        .asCharSink(StandardCharsets.UTF_8)
+        .writeLines(Arrays.asList(files));
+  }
+
+  private List<BatchJob.Result> readStatus(String phase) throws IOException {
+    return BatchJob.readStatus(
+        storage.newByteSource(TMP_BUCKET.resolve(Util.getStatusFileName(FILES_TO_RSYNC, phase))));
+  }
+
+  /** Writes the instruction file of a source file, as the client does. */
+  private void writeInstructionFile(String file, byte[] source) throws IOException {
+    List<Checksum> checksums;
+    try (InputStream in =
+        storage.newByteSource(TMP_BUCKET.resolve(Util.getCheckSumFileName(file))).openStream()) {
+      Util.skipMd5Header(in);
+      checksums = ChecksumFile.read(in);
+    }
+    try (OutputStream out =
+        storage
+            .newByteSink(TMP_BUCKET.resolve(Util.getInstructionFileName(file)))
+            .openBufferedStream()) {
+      Util.writeMd5Header(
+          out, Base64.getEncoder().encodeToString(Hashing.md5().hashBytes(source).asBytes()));
+      try (InstructionStream.Writer writer =
+          new InstructionStream.Writer(out, InstructionStream.Codec.LZ4)) {
+        new InstructionGenerator(Constants.BLOCK_SIZE)
+            .generate(writer, ByteSource.wrap(source), checksums);
+      }
+    }
+  }
+
+  @Test
+  public void testGenerateCheckSumsAndReconstructFiles() throws Exception {
+    List<String> files = new ArrayList<>();
+    List<byte[]> sources = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      String file = "file" + i + ".csv";
+      byte[] target = newRandomData(Constants.BLOCK_SIZE * (i + 1) + i);
+      writeTargetFile(file, target);
+      // The source has its middle block changed.
+      byte[] source = target.clone();
+      System.arraycopy(newRandomData(100), 0, source, source.length / 2, 100);
+      files.add(file);
+      sources.add(source);
+    }
+    writeFilesToRsync(files.toArray(new String[0]));
+
+    List<BatchJob.Result> checkSumResults =
+        GenerateCheckSumMain.generateCheckSums(
+            storage, TMP_BUCKET, TARGET_BUCKET, FILES_TO_RSYNC, THREADS);
+
+    assertEquals(files.size(), checkSumResults.size());
+    for (int i = 0; i < files.size(); i++) {
+      assertEquals(files.get(i), checkSumResults.get(i).getFile());
+      assertEquals(BatchJob.Status.DONE, checkSumResults.get(i).getStatus());
+      writeInstructionFile(files.get(i), sources.get(i));
+    }
+
+    List<BatchJob.Result> reconstructResults =
+        ReconstructFilesMain.reconstructFiles(
+            storage, TMP_BUCKET, TARGET_BUCKET, FILES_TO_RSYNC, THREADS);
+
+    List<BatchJob.Result> status = readStatus(Constants.RECONSTRUCT_SUFFIX);
+    assertEquals(files.size(), status.size());
+    for (int i = 0; i < files.size(); i++) {
+      String file = files.get(i);
+      assertEquals(BatchJob.Status.DONE, reconstructResults.get(i).getStatus());
+      assertEquals(file, status.get(i).getFile());
+      assertEquals(BatchJob.Status.DONE, status.get(i).getStatus());
+      assertArrayEquals(
+          sources.get(i), Files.toByteArray(storage.getFile(TARGET_BUCKET.resolve(file))));
+      assertFalse(storage.getFile(TMP_BUCKET.resolve(Util.getCheckSumFileName(file))).exists());
+      assertFalse(
+          storage.getFile(TMP_BUCKET.resolve(Util.getInstructionFileName(file))).exists());
+      assertFalse(storage.getFile(TARGET_BUCKET.resolve(Util.getTempFileName(file))).exists());
+    }
+    assertFalse(storage.getFile(TMP_BUCKET.resolve(FILES_TO_RSYNC)).exists());
+  }
+
+  @Test
+  public void testGenerateCheckSums_skipsUpToDateAndMissingFiles() throws Exception {
+    writeTargetFile("present.csv", newRandomData(5000));
+    writeFilesToRsync("present.csv", "deleted.csv");
+
+    GenerateCheckSumMain.generateCheckSums(
+        storage, TMP_BUCKET, TARGET_BUCKET, FILES_TO_RSYNC, THREADS);
+    List<BatchJob.Result> results =
+        GenerateCheckSumMain.generateCheckSums(
+            storage, TMP_BUCKET, TARGET_BUCKET, FILES_TO_RSYNC, THREADS);
+
+    assertEquals(BatchJob.Status.SKIPPED, results.get(0).getStatus());
+    assertEquals(BatchJob.Status.MISSING, results.get(1).getStatus());
+    List<BatchJob.Result> status = readStatus(Constants.CHECK_SUM_FILE_SUFFIX);
+    assertEquals(BatchJob.Status.SKIPPED, status.get(0).getStatus());
+    assertEquals(BatchJob.Status.MISSING, status.get(1).getStatus());
+    assertFalse(
+        storage.getFile(TMP_BUCKET.resolve(Util.getCheckSumFileName("deleted.csv"))).exists());
+  }
+
+  @Test
+  public void testGenerateCheckSums_failedReadDeletesNothing() throws Exception {
+    List<URI> deleted = new ArrayList<>();
+    LocalJobStorage failingStorage =
+        new LocalJobStorage(tempFolder.newFolder("failing")) {
+          @Override
+          public ByteSource newByteSource(URI uri) {
+            if (!uri.toString().startsWith(TARGET_BUCKET.toString())) {
+              return super.newByteSource(uri);
+            }
+            return new ByteSource() {
+              @Override
+              public InputStream openStream() throws IOException {
+                throw new IOException("Broken target");
+              }
+            };
+          }
+
+          @Override
+          public boolean delete(URI uri) {
+            deleted.add(uri);
+            return super.delete(uri);
+          }
+        };
+    storage = failingStorage;
+    writeTargetFile("broken.csv", newRandomData(5000));
+    writeFilesToRsync("broken.csv");
+
+    assertThrows(
+        IOException.class,
+        () ->
+            GenerateCheckSumMain.generateCheckSums(
+                failingStorage, TMP_BUCKET, TARGET_BUCKET, FILES_TO_RSYNC, THREADS));
+
+    // The small checksum file is buffered, so nothing was uploaded and there is nothing to delete.
+    assertTrue(deleted.toString(), deleted.isEmpty());
+    assertFalse(
+        storage.getFile(TMP_BUCKET.resolve(Util.getCheckSumFileName("broken.csv"))).exists());
+    assertEquals(
+        BatchJob.Status.FAILED, readStatus(Constants.CHECK_SUM_FILE_SUFFIX).get(0).getStatus());
+  }
+
+  @Test
+  public void testRun_failureDoesNotStopOtherFiles() throws Exception {
+    List<String> files = Arrays.asList("a", "b\tc", "d", "e");
+    URI statusFile = TMP_BUCKET.resolve("status");
+
+    IOException e =
+        assertThrows(
+            IOException.class,
+            () ->
+                new BatchJob(2)
+                    .run(
+                        files,
+                        file -> {
+                          if (file.equals("d")) {
+                            throw new IOException("Broken\nfile");
+                          }
+                          return BatchJob.Status.DONE;
+                        },
+                        storage.newByteSink(statusFile)));
+
+    assertTrue(e.getMessage(), e.getMessage().startsWith("1 of 4"));
+    List<BatchJob.Result> status = BatchJob.readStatus(storage.newByteSource(statusFile));
+    assertEquals(files.size(), status.size());
+    for (int i = 0; i < files.size(); i++) {
+      assertEquals(files.get(i), status.get(i).getFile());
+    }
+    assertEquals(BatchJob.Status.DONE, status.get(1).getStatus());
+    assertEquals(BatchJob.Status.FAILED, status.get(2).getStatus());
+    assertEquals("java.io.IOException: Broken file", status.get(2).getMessage());
+    assertEquals(BatchJob.Status.DONE, status.get(3).getStatus());
+  }
+}
@@ -0,0 +1,79 @@
+package com.google.edwmigration.dbsync.gcsync;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSink;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/** A {@link JobStorage} which stores gs://bucket/object as the file root/bucket/object. */
+public class LocalJobStorage implements JobStorage {
+
+  private final File root;
+
+  public LocalJobStorage(File root) {
+    this.root = root;
+  }
+
+  public File getFile(URI uri) {
+    return new File(new File(root, uri.getHost()), uri.getPath());
+  }
+
+  @Override
+  public ByteSource newByteSource(URI uri) {
+    return Files.asByteSource(getFile(uri));
+  }
+
+  @Override
+  public ByteSink newByteSink(URI uri) {
+    File file = getFile(uri);
+    return new ByteSink() {
+      @Override
+      public OutputStream openStream() throws IOException {
+        Files.createParentDirs(file);
+        return Files.asByteSink(file).openStream();
+      }
+    };
+  }
+
+  @Override
+  public FileInfo getFileInfo(URI uri) throws IOException {
+    File file = getFile(uri);
+    if (!file.isFile()) {
+      return null;
+    }
+    return new FileInfo(
+        file.length(),
+        Base64.getEncoder()
+            .encodeToString(Files.asByteSource(file).hash(Hashing.md5()).asBytes()));
+  }
+
+  @Override
+  public void copy(URI source, URI target) throws IOException {
+    File targetFile = getFile(target);
+    Files.createParentDirs(targetFile);
+    Files.copy(getFile(source), targetFile);
+  }
+
+  @Override
+  public boolean delete(URI uri) {
+    return getFile(uri).delete();
+  }
+
+  @Override
+  public List<URI> deleteAll(List<URI> uris) {
+    List<URI> undeleted = new ArrayList<>();
+    for (URI uri : uris) {
+      if (!delete(uri)) {
+        undeleted.add(uri);
+      }
+    }
+    return undeleted;
+  }
+}
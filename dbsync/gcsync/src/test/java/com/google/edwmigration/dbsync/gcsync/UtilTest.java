@@ -0,0 +1,39 @@
+package com.google.edwmigration.dbsync.gcsync;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.ChecksumFile;
+import com.google.edwmigration.dbsync.common.ChecksumGenerator;
+import com.google.edwmigration.dbsync.proto.Checksum;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UtilTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadCheckSumFile() throws Exception {
+    byte[] data = new byte[10 * Constants.BLOCK_SIZE + 7];
+    new Random(42).nextBytes(data);
+    ChecksumGenerator generator = new ChecksumGenerator(Constants.BLOCK_SIZE);
+    List<Checksum> expected = new ArrayList<>();
+    generator.generate(expected::add, ByteSource.wrap(data));
+
+    File checkSumFile = tempFolder.newFile();
+    try (OutputStream out = new FileOutputStream(checkSumFile)) {
+      Util.writeMd5Header(out, "1B2M2Y8AsgTpgAmY7PhCfg==");
+      generator.generate(new ChecksumFile.Writer(out, Constants.BLOCK_SIZE), ByteSource.wrap(data));
+    }
+
+    assertEquals(expected, Util.readCheckSumFile(checkSumFile.toPath()));
+  }
+}
@@ -18,7 +18,7 @@ import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
-public class CloudRunServerAPI {
+public class CloudRunServerAPI implements RsyncServerAPI {
   private static final String BASE_IMAGE_ENV_VAR = "RSYNC_CLOUD_BASE_IMAGE";
   private static final String SERVER_JAR_ENV_VAR = "RSYNC_SERVER_JAR";
   private static final String RSYNC_BINARY_NAME = "rsync-binary";
@@ -116,12 +116,14 @@ public class CloudRunServerAPI {
         String.format("%s && %s", jarDownloadCommand, receiveCommand));
   }
 
+  @Override
   public void generate() throws IOException, ExecutionException, InterruptedException {
     try (JobsClient jobsClient = JobsClient.create()) {
       jobsClient.runJobAsync(JobName.of(project, location, getJobId(Mode.GENERATE))).get();
     }
   }
 
+  @Override
   public void reconstruct() throws IOException, ExecutionException, InterruptedException {
     try (JobsClient jobsClient = JobsClient.create()) {
       jobsClient.runJobAsync(JobName.of(project, location, getJobId(Mode.RECEIVE))).get();
@@ -0,0 +1,23 @@
+package com.google.edwmigration.dbsync.server;
+
+import java.io.IOException;
+
+/** Runs an {@link RsyncServer} in this process, rather than as a Cloud Run job. */
+public class LocalServerAPI implements RsyncServerAPI {
+
+  private final RsyncServer server;
+
+  public LocalServerAPI(RsyncTarget target) {
+    this.server = new RsyncServer(target);
+  }
+
+  @Override
+  public void generate() throws IOException {
+    server.generate();
+  }
+
+  @Override
+  public void reconstruct() throws IOException {
+    server.reconstruct();
+  }
+}
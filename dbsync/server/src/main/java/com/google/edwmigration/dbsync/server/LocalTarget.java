@@ -0,0 +1,69 @@
+package com.google.edwmigration.dbsync.server;
+
+import com.google.common.io.ByteSink;
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.storage.LocalStorage;
+import java.io.File;
+
+/** A target file on the local filesystem, with its working files in a staging directory. */
+public class LocalTarget implements RsyncTarget {
+
+  private final LocalStorage storage = new LocalStorage();
+  private final File targetFile;
+  private final File checksumFile;
+  private final File instructionFile;
+  private final File stagedFile;
+
+  private static final String INSTRUCTION_FILE_NAME = "instruction";
+  private static final String CHECKSUM_FILE_NAME = "checksum";
+  private static final String STAGED_FILE_NAME = "staged";
+
+  public LocalTarget(File targetFile, File stagingDirectory) {
+    this.targetFile = targetFile;
+    this.instructionFile = new File(stagingDirectory, INSTRUCTION_FILE_NAME);
+    this.checksumFile = new File(stagingDirectory, CHECKSUM_FILE_NAME);
+    this.stagedFile = new File(stagingDirectory, STAGED_FILE_NAME);
+  }
+
+  public File getChecksumFile() {
+    return checksumFile;
+  }
+
+  public File getInstructionFile() {
+    return instructionFile;
+  }
+
+  public File getStagedFile() {
+    return stagedFile;
+  }
+
+  @Override
+  public ByteSink getChecksumByteSink() {
+    return storage.newByteSink(checksumFile);
+  }
+
+  @Override
+  public ByteSource getChecksumByteSource() {
+    return storage.newByteSource(checksumFile);
+  }
+
+  @Override
+  public ByteSink getStagingByteSink() {
+    return storage.newByteSink(stagedFile);
+  }
+
+  @Override
+  public ByteSource getTargetByteSource() {
+    return storage.newByteSource(targetFile);
+  }
+
+  @Override
+  public ByteSource getInstructionsByteSource() {
+    return storage.newByteSource(instructionFile);
+  }
+
+  @Override
+  public ByteSink getInstructionsByteSink() {
+    return storage.newByteSink(instructionFile);
+  }
+}
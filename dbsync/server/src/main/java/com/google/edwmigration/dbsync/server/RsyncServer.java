@@ -2,9 +2,10 @@ package com.google.edwmigration.dbsync.server;
 
 import com.google.common.io.ByteSink;
 import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.ChecksumFile;
 import com.google.edwmigration.dbsync.common.ChecksumGenerator;
 import com.google.edwmigration.dbsync.common.InstructionReceiver;
-import com.google.edwmigration.dbsync.proto.Instruction;
+import com.google.edwmigration.dbsync.common.InstructionStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -23,15 +24,7 @@ public class RsyncServer {
     try (OutputStream checksumStream = checksumSink.openBufferedStream()) {
       ChecksumGenerator generator = new ChecksumGenerator(CHECKSUM_BLOCK_SIZE);
       generator.generate(
-          checksum -> {
-            try {
-              // TODO: Switch to simple write to save storage and read by byte size
-              checksum.writeDelimitedTo(checksumStream);
-            } catch (IOException e) {
-              throw new RuntimeException("Failed to generate checksum", e);
-            }
-          },
-          source);
+          new ChecksumFile.Writer(checksumStream, generator.getBlockSize()), source);
     }
   }
 
@@ -40,13 +33,11 @@ public class RsyncServer {
     ByteSource baseData = target.getTargetByteSource();
     ByteSink stagingsink = target.getStagingByteSink();
 
-    try (OutputStream targetStream = stagingsink.openBufferedStream();
-        InputStream instructionStream = instructionSource.openBufferedStream()) {
-      InstructionReceiver receiver = new InstructionReceiver(targetStream, baseData);
-      Instruction instruction;
-      while ((instruction = Instruction.parseDelimitedFrom(instructionStream)) != null) {
-        receiver.receive(instruction);
-      }
+    // Closing the receiver writes the trailing copy, if any.
+    try (InputStream instructionStream = instructionSource.openBufferedStream();
+        InstructionReceiver receiver =
+            new InstructionReceiver(stagingsink.openBufferedStream(), baseData)) {
+      InstructionStream.read(instructionStream, receiver::receive);
     }
   }
 }
@@ -0,0 +1,14 @@
+package com.google.edwmigration.dbsync.server;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/** Runs the phases of an {@link RsyncServer} for one target, wherever the server runs. */
+public interface RsyncServerAPI {
+
+  /** Writes the checksums of the target; see {@link RsyncServer#generate()}. */
+  void generate() throws IOException, ExecutionException, InterruptedException;
+
+  /** Applies the instructions to the target; see {@link RsyncServer#reconstruct()}. */
+  void reconstruct() throws IOException, ExecutionException, InterruptedException;
+}
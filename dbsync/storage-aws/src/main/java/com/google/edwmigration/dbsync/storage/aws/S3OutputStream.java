@@ -1,12 +1,26 @@
 package com.google.edwmigration.dbsync.storage.aws;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import org.checkerframework.checker.nullness.qual.EnsuresNonNull;
 import org.checkerframework.checker.nullness.qual.RequiresNonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.internal.util.Mimetype;
 import software.amazon.awssdk.core.sync.RequestBody;
@@ -19,6 +33,7 @@ import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
 import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 
@@ -28,30 +43,64 @@ import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 // https://stackoverflow.com/questions/60212728/how-to-create-a-java-outputstream-for-an-s3-object-and-write-value-to-it
 // With very limited help from
 // https://docs.aws.amazon.com/AmazonS3/latest/userguide/mpu-upload-object.html
-// Then mucked about and "optimized" by me, until it reached its current (probably broken) state.
+/**
+ * An OutputStream which uploads to S3 in parts, several of them concurrently.
+ *
+ * <p>The writer fills one part buffer while up to {@code concurrency} earlier parts are uploaded in
+ * the background, so at most {@code concurrency + 1} part buffers exist at a time. Buffers of
+ * completed parts are reused. Each part is retried independently; once a part has failed, the next
+ * write or close fails and the multipart upload is aborted.
+ *
+ * <p>The part size doubles every {@link #PARTS_PER_SIZE} parts, so the 10,000 part limit allows
+ * objects of several terabytes while small objects still use small buffers.
+ */
 public class S3OutputStream extends OutputStream {
 
+  private static final Logger logger = LoggerFactory.getLogger(S3OutputStream.class);
+
   /**
-   * Default chunk size is 10MB; minimum is 5Mb, maximum is large.
+   * Default initial part size is 10MB; minimum is 5Mb, maximum is 5Gb.
    * https://docs.aws.amazon.com/AmazonS3/latest/userguide/qfacts.html
    */
   private static final int BUFFER_SIZE = 10 * 1024 * 1024;
 
+  /** The largest part we buffer; a byte[] can't hold the 5Gb allowed by S3. */
+  private static final int MAX_PART_SIZE = 1024 * 1024 * 1024;
+
+  private static final int MAX_PARTS = 10_000;
+  @VisibleForTesting static final int PARTS_PER_SIZE = 1000;
+
+  private static final int DEFAULT_CONCURRENCY = 4;
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+  private static final long RETRY_DELAY_MILLIS = 200;
+
   private final S3Client s3Client;
   /** The bucket-name on Amazon S3 */
   private final String bucket;
   /** The key within the bucket */
   private final String key;
 
-  /** The temporary buffer used for storing the chunks */
-  private final byte[] buf = new byte[BUFFER_SIZE];
+  private final int basePartSize;
+  private final int maxAttempts;
+
+  /** Uploads the parts in the background. */
+  private final ExecutorService executor;
+  /** Limits the number of parts being uploaded, and so the number of part buffers. */
+  private final Semaphore uploadPermits;
+  /** Buffers of uploaded parts, for reuse. */
+  private final ConcurrentLinkedQueue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+
+  /** The buffer of the part being written */
+  private byte[] buf;
   /** The position in the buffer */
   private int position = 0;
 
   /** The unique id for this upload */
   private String uploadId;
-  /** Collection of the etags for the parts that have been uploaded */
-  private final List<String> etags = new ArrayList<>();
+  /** The uploads of the parts, in part number order. */
+  private final List<Future<CompletedPart>> parts = new ArrayList<>();
+  /** The first failure of a background upload. */
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
 
   /** Indicates whether the stream is still open / valid */
   private boolean open = true;
@@ -64,20 +113,74 @@ public class S3OutputStream extends OutputStream {
    * @param key path within the bucket
    */
   public S3OutputStream(S3Client s3Client, String bucket, String key) {
+    this(s3Client, bucket, key, BUFFER_SIZE, DEFAULT_CONCURRENCY, DEFAULT_MAX_ATTEMPTS);
+  }
+
+  /**
+   * @param basePartSize the size of the first {@link #PARTS_PER_SIZE} parts.
+   * @param concurrency the maximum number of parts uploaded at a time.
+   * @param maxAttempts the maximum number of attempts to upload each part.
+   */
+  @VisibleForTesting
+  S3OutputStream(
+      S3Client s3Client,
+      String bucket,
+      String key,
+      int basePartSize,
+      int concurrency,
+      int maxAttempts) {
+    Preconditions.checkArgument(basePartSize > 0, "Part size must be positive: %s", basePartSize);
+    Preconditions.checkArgument(concurrency > 0, "Concurrency must be positive: %s", concurrency);
+    Preconditions.checkArgument(maxAttempts > 0, "Attempts must be positive: %s", maxAttempts);
     this.s3Client = s3Client;
     this.bucket = bucket;
     this.key = key;
+    this.basePartSize = basePartSize;
+    this.maxAttempts = maxAttempts;
+    this.executor =
+        Executors.newFixedThreadPool(
+            concurrency,
+            new ThreadFactoryBuilder()
+                .setNameFormat("s3-upload-" + bucket + "-%d")
+                .setDaemon(true)
+                .build());
+    this.uploadPermits = new Semaphore(concurrency);
+    this.buf = new byte[basePartSize];
+  }
+
+  /** Returns the size of the given (1-based) part. */
+  @VisibleForTesting
+  static int getPartSize(int basePartSize, int partNumber) {
+    int doublings = Math.min(30, (partNumber - 1) / PARTS_PER_SIZE);
+    return (int) Math.min((long) basePartSize << doublings, Math.max(basePartSize, MAX_PART_SIZE));
   }
 
   private void assertOpen() throws IOException {
     if (!open) {
       throw new IOException("S3 output stream is already closed");
     }
+    checkFailure();
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable t = failure.get();
+    if (t != null) {
+      throw new IOException("Failed to upload to s3://" + bucket + "/" + key, t);
+    }
   }
 
+  /** Stops the upload, and aborts the multipart upload if one was started. */
   public void cancel() throws IOException {
+    open = false;
+    for (Future<CompletedPart> part : parts) {
+      part.cancel(true);
+    }
+    executor.shutdownNow();
+    abort();
+  }
+
+  private void abort() throws IOException {
     try {
-      open = false;
       if (uploadId != null) {
         s3Client.abortMultipartUpload(
             AbortMultipartUploadRequest.builder()
@@ -109,22 +212,11 @@ public class S3OutputStream extends OutputStream {
   public void write(byte[] b, int off, int len) throws IOException {
     assertOpen();
     int size;
+    // Data is always copied into a part buffer, which the upload owns once it is submitted.
     while (len > (size = buf.length - position)) {
-      flushHeader();
-      if (position > 0) {
-        // We might have a buffer which contains less than 5Mb (minimum part size).
-        // So we bulk it up here, so we can upload it.
-        System.arraycopy(b, off, buf, position, size);
-        position += size;
-        flushPart(buf, 0, position);
-        position = 0;
-      } else {
-        // There's no need to copy the source data into our byte array. size == BUFFER_SIZE.
-        // We might be able to push up the rest of the byte[] here and just return.
-        // The API says the minimum part size is 5Mb, so we have to copy some of it.
-        // But here, we know the 'remainder' is more than 10Mb.
-        flushPart(b, off, size);
-      }
+      System.arraycopy(b, off, buf, position, size);
+      position += size;
+      flushBufferAndRewind();
       off += size;
       len -= size;
     }
@@ -132,16 +224,10 @@ public class S3OutputStream extends OutputStream {
     position += len;
   }
 
-  // Factored out to give a choice.
   private static RequestBody newRequestBody(byte[] buf, int off, int len) {
-    if (true) {
-      // This is "faster".
-      return RequestBody.fromContentProvider(
-          () -> new ByteArrayInputStream(buf, off, len), len, Mimetype.MIMETYPE_OCTET_STREAM);
-    } else {
-      // This is "safer", but I don't think in any way that matters.
-      return RequestBody.fromInputStream(new ByteArrayInputStream(buf, off, len), len);
-    }
+    // The content provider is called again for each retry.
+    return RequestBody.fromContentProvider(
+        () -> new ByteArrayInputStream(buf, off, len), len, Mimetype.MIMETYPE_OCTET_STREAM);
   }
 
   @EnsuresNonNull("uploadId")
@@ -161,32 +247,123 @@ public class S3OutputStream extends OutputStream {
     }
   }
 
+  private static boolean isRetryable(SdkException e) {
+    if (e instanceof S3Exception) {
+      int statusCode = ((S3Exception) e).statusCode();
+      return statusCode >= 500 || statusCode == 429;
+    }
+    return e instanceof SdkClientException || e.retryable();
+  }
+
   @RequiresNonNull("uploadId")
-  private void flushPart(byte[] buf, int off, int len) throws IOException {
+  private CompletedPart uploadPart(int partNumber, byte[] buf, int len) throws IOException {
+    UploadPartRequest uploadRequest =
+        UploadPartRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .uploadId(uploadId)
+            .partNumber(partNumber)
+            .contentLength((long) len)
+            .build();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        UploadPartResponse uploadPartResponse =
+            s3Client.uploadPart(uploadRequest, newRequestBody(buf, 0, len));
+        return CompletedPart.builder()
+            .eTag(uploadPartResponse.eTag())
+            .partNumber(partNumber)
+            .build();
+      } catch (SdkException e) {
+        if (attempt >= maxAttempts || !isRetryable(e) || failure.get() != null) {
+          throw new IOException(
+              "Failed to upload part " + partNumber + " of s3://" + bucket + "/" + key, e);
+        }
+        logger.debug("Retrying part {} of s3://{}/{}: {}", partNumber, bucket, key, e.toString());
+        try {
+          Thread.sleep(RETRY_DELAY_MILLIS << (attempt - 1));
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while retrying part " + partNumber);
+        }
+      }
+    }
+  }
+
+  /** Submits the current buffer for upload, and starts a new part. */
+  private void flushBufferAndRewind() throws IOException {
+    flushHeader();
+    int partNumber = parts.size() + 1;
+    if (partNumber > MAX_PARTS) {
+      throw new IOException("Too many parts for s3://" + bucket + "/" + key);
+    }
     try {
-      UploadPartRequest uploadRequest =
-          UploadPartRequest.builder()
+      uploadPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to upload a part.");
+    }
+    byte[] partBuf = buf;
+    int partLen = position;
+    parts.add(
+        executor.submit(
+            () -> {
+              try {
+                return uploadPart(partNumber, partBuf, partLen);
+              } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+                throw e;
+              } finally {
+                freeBuffers.offer(partBuf);
+                uploadPermits.release();
+              }
+            }));
+    buf = newBuffer(getPartSize(basePartSize, partNumber + 1));
+    position = 0;
+  }
+
+  private byte[] newBuffer(int size) {
+    for (byte[] b; (b = freeBuffers.poll()) != null; ) {
+      if (b.length == size) {
+        return b;
+      }
+    }
+    return new byte[size];
+  }
+
+  private List<CompletedPart> awaitParts() throws IOException {
+    List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+    for (Future<CompletedPart> part : parts) {
+      try {
+        completedParts.add(part.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the parts to upload.");
+      } catch (ExecutionException e) {
+        checkFailure();
+        throw new IOException(e.getCause());
+      }
+    }
+    return completedParts;
+  }
+
+  @RequiresNonNull("uploadId")
+  private void completeMultipartUpload(List<CompletedPart> completedParts) throws IOException {
+    try {
+      CompletedMultipartUpload completedMultipartUpload =
+          CompletedMultipartUpload.builder().parts(completedParts).build();
+      CompleteMultipartUploadRequest completeMultipartUploadRequest =
+          CompleteMultipartUploadRequest.builder()
               .bucket(bucket)
               .key(key)
               .uploadId(uploadId)
-              .partNumber(etags.size() + 1)
-              .contentLength((long) len)
+              .multipartUpload(completedMultipartUpload)
               .build();
-      RequestBody requestBody = newRequestBody(buf, off, len);
-      UploadPartResponse uploadPartResponse = s3Client.uploadPart(uploadRequest, requestBody);
-      etags.add(uploadPartResponse.eTag());
+      s3Client.completeMultipartUpload(completeMultipartUploadRequest);
     } catch (SdkException e) {
       throw new IOException(e);
     }
   }
 
-  @EnsuresNonNull("uploadId")
-  private void flushBufferAndRewind() throws IOException {
-    flushHeader();
-    flushPart(buf, 0, position);
-    position = 0;
-  }
-
   @Override
   public void close() throws IOException {
     try {
@@ -196,25 +373,20 @@ public class S3OutputStream extends OutputStream {
       open = false;
 
       if (uploadId != null) {
-        if (position > 0) {
-          flushPart(buf, 0, position);
+        try {
+          checkFailure();
+          if (position > 0) {
+            flushBufferAndRewind();
+          }
+          completeMultipartUpload(awaitParts());
+        } catch (IOException e) {
+          try {
+            cancel();
+          } catch (IOException suppressed) {
+            e.addSuppressed(suppressed);
+          }
+          throw e;
         }
-
-        CompletedPart[] completedParts = new CompletedPart[etags.size()];
-        for (int i = 0; i < etags.size(); i++) {
-          completedParts[i] = CompletedPart.builder().eTag(etags.get(i)).partNumber(i + 1).build();
-        }
-
-        CompletedMultipartUpload completedMultipartUpload =
-            CompletedMultipartUpload.builder().parts(completedParts).build();
-        CompleteMultipartUploadRequest completeMultipartUploadRequest =
-            CompleteMultipartUploadRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .uploadId(uploadId)
-                .multipartUpload(completedMultipartUpload)
-                .build();
-        s3Client.completeMultipartUpload(completeMultipartUploadRequest);
       } else {
         PutObjectRequest putRequest =
             PutObjectRequest.builder()
@@ -230,6 +402,8 @@ public class S3OutputStream extends OutputStream {
       throw S3Utils.newFileNotFoundException("No such bucket s3://" + bucket + "/", e);
     } catch (SdkException e) {
       throw new IOException(e);
+    } finally {
+      executor.shutdown();
     }
   }
 }
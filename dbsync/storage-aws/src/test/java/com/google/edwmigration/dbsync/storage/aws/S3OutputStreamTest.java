@@ -0,0 +1,285 @@
+package com.google.edwmigration.dbsync.storage.aws;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+public class S3OutputStreamTest {
+
+  private static final String BUCKET = "bucket";
+  private static final String KEY = "dir/object";
+  private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+  /** An in-process S3 endpoint, which implements just enough of the multipart upload API. */
+  private static class FakeS3 {
+
+    private final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+    /** Status codes to fail the next attempts at uploading a part with. */
+    private final Map<Integer, List<Integer>> partFailures = new ConcurrentHashMap<>();
+
+    private final AtomicInteger partAttempts = new AtomicInteger();
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final AtomicInteger maxActiveUploads = new AtomicInteger();
+    private volatile byte[] object;
+    private volatile String completeRequest;
+    private volatile boolean aborted;
+
+    private void handle(HttpExchange exchange) throws IOException {
+      String method = exchange.getRequestMethod();
+      String query = exchange.getRequestURI().getQuery();
+      byte[] body = ByteStreams.toByteArray(exchange.getRequestBody());
+      assertEquals("/" + BUCKET + "/" + KEY, exchange.getRequestURI().getPath());
+      if (method.equals("POST") && query.startsWith("uploads")) {
+        respond(
+            exchange,
+            200,
+            "<InitiateMultipartUploadResult><Bucket>"
+                + BUCKET
+                + "</Bucket><Key>"
+                + KEY
+                + "</Key><UploadId>upload-1</UploadId></InitiateMultipartUploadResult>");
+      } else if (method.equals("PUT") && query != null && query.contains("partNumber=")) {
+        Matcher matcher = Pattern.compile("partNumber=(\\d+)").matcher(query);
+        assertTrue(matcher.find());
+        int partNumber = Integer.parseInt(matcher.group(1));
+        uploadPart(exchange, partNumber, body);
+      } else if (method.equals("POST") && query.startsWith("uploadId=")) {
+        completeRequest = new String(body, StandardCharsets.UTF_8);
+        respond(
+            exchange,
+            200,
+            "<CompleteMultipartUploadResult><Bucket>"
+                + BUCKET
+                + "</Bucket><Key>"
+                + KEY
+                + "</Key><ETag>\"object\"</ETag></CompleteMultipartUploadResult>");
+      } else if (method.equals("DELETE") && query.startsWith("uploadId=")) {
+        aborted = true;
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+      } else if (method.equals("PUT") && query == null) {
+        object = body;
+        exchange.getResponseHeaders().add("ETag", "\"object\"");
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+      } else {
+        respond(exchange, 400, "<Error><Code>InvalidRequest</Code></Error>");
+      }
+    }
+
+    private void uploadPart(HttpExchange exchange, int partNumber, byte[] body)
+        throws IOException {
+      partAttempts.incrementAndGet();
+      int active = activeUploads.incrementAndGet();
+      maxActiveUploads.accumulateAndGet(active, Math::max);
+      try {
+        // Gives the other uploads a chance to overlap with this one.
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        activeUploads.decrementAndGet();
+      }
+      List<Integer> failures = partFailures.get(partNumber);
+      if (failures != null && !failures.isEmpty()) {
+        int statusCode = failures.remove(0);
+        respond(exchange, statusCode, "<Error><Code>Injected</Code></Error>");
+        return;
+      }
+      parts.put(partNumber, body);
+      exchange.getResponseHeaders().add("ETag", "\"etag-" + partNumber + "\"");
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String xml)
+        throws IOException {
+      byte[] bytes =
+          ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/xml");
+      exchange.sendResponseHeaders(statusCode, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+
+    private byte[] getUploadedParts() {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      for (int partNumber = 1; parts.containsKey(partNumber); partNumber++) {
+        out.write(parts.get(partNumber), 0, parts.get(partNumber).length);
+      }
+      return out.toByteArray();
+    }
+
+    private List<Integer> getCompletedPartNumbers() {
+      List<Integer> partNumbers = new ArrayList<>();
+      Matcher matcher = PART_NUMBER.matcher(completeRequest);
+      while (matcher.find()) {
+        partNumbers.add(Integer.parseInt(matcher.group(1)));
+      }
+      return partNumbers;
+    }
+  }
+
+  private final FakeS3 fakeS3 = new FakeS3();
+  private ExecutorService serverExecutor;
+  private HttpServer server;
+  private S3Client s3Client;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", fakeS3::handle);
+    serverExecutor = Executors.newCachedThreadPool();
+    server.setExecutor(serverExecutor);
+    server.start();
+    s3Client =
+        S3Client.builder()
+            .endpointOverride(
+                URI.create("http://localhost:" + server.getAddress().getPort()))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+            .serviceConfiguration(
+                S3Configuration.builder()
+                    .pathStyleAccessEnabled(true)
+                    .chunkedEncodingEnabled(false)
+                    .build())
+            .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+            .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED)
+            // The retries under test are the ones of S3OutputStream.
+            .overrideConfiguration(c -> c.retryStrategy(AwsRetryStrategy.doNotRetry()))
+            .build();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    s3Client.close();
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  private static byte[] newData(int length) {
+    byte[] data = new byte[length];
+    ThreadLocalRandom.current().nextBytes(data);
+    return data;
+  }
+
+  private static void write(OutputStream out, byte[] data) throws IOException {
+    for (int off = 0; off < data.length; off += 333) {
+      out.write(data, off, Math.min(333, data.length - off));
+    }
+  }
+
+  @Test
+  public void testMultipartUpload_uploadsPartsConcurrentlyInOrder() throws Exception {
+    byte[] data = newData(10_500);
+
+    try (S3OutputStream out = new S3OutputStream(s3Client, BUCKET, KEY, 1000, 3, 1)) {
+      write(out, data);
+    }
+
+    assertArrayEquals(data, fakeS3.getUploadedParts());
+    List<Integer> expectedPartNumbers = new ArrayList<>();
+    for (int i = 1; i <= 11; i++) {
+      expectedPartNumbers.add(i);
+    }
+    assertEquals(expectedPartNumbers, fakeS3.getCompletedPartNumbers());
+    assertTrue(fakeS3.completeRequest.contains("etag-11"), fakeS3.completeRequest);
+    assertTrue(fakeS3.maxActiveUploads.get() > 1, "Parts were uploaded one at a time.");
+    assertTrue(fakeS3.maxActiveUploads.get() <= 3, "Too many concurrent uploads.");
+    assertFalse(fakeS3.aborted);
+  }
+
+  @Test
+  public void testSmallObject_usesPutObject() throws Exception {
+    byte[] data = newData(500);
+
+    try (S3OutputStream out = new S3OutputStream(s3Client, BUCKET, KEY, 1000, 3, 1)) {
+      write(out, data);
+    }
+
+    assertArrayEquals(data, fakeS3.object);
+    assertNull(fakeS3.completeRequest);
+  }
+
+  @Test
+  public void testRetryablePartFailure_isRetried() throws Exception {
+    byte[] data = newData(3000);
+    fakeS3.partFailures.put(2, new ArrayList<>(Arrays.asList(503, 500)));
+
+    try (S3OutputStream out = new S3OutputStream(s3Client, BUCKET, KEY, 1000, 2, 3)) {
+      write(out, data);
+    }
+
+    assertArrayEquals(data, fakeS3.getUploadedParts());
+    assertEquals(5, fakeS3.partAttempts.get());
+    assertFalse(fakeS3.aborted);
+  }
+
+  @Test
+  public void testPartFailure_abortsUpload() throws Exception {
+    byte[] data = newData(5000);
+    fakeS3.partFailures.put(2, new ArrayList<>(Arrays.asList(403)));
+
+    S3OutputStream out = new S3OutputStream(s3Client, BUCKET, KEY, 1000, 2, 3);
+    assertThrows(
+        IOException.class,
+        () -> {
+          try {
+            write(out, data);
+          } finally {
+            out.close();
+          }
+        });
+
+    assertTrue(fakeS3.aborted);
+    assertNull(fakeS3.completeRequest);
+  }
+
+  @Test
+  public void testGetPartSize_growsToStayUnderPartLimit() {
+    assertEquals(1000, S3OutputStream.getPartSize(1000, 1));
+    assertEquals(1000, S3OutputStream.getPartSize(1000, S3OutputStream.PARTS_PER_SIZE));
+    assertEquals(2000, S3OutputStream.getPartSize(1000, S3OutputStream.PARTS_PER_SIZE + 1));
+    assertEquals(1000 << 9, S3OutputStream.getPartSize(1000, 10_000));
+    // Capped at 1GiB, as a larger part doesn't fit in a byte[].
+    assertEquals(1 << 30, S3OutputStream.getPartSize(10 << 20, 10_000));
+  }
+}
@@ -4,6 +4,7 @@ import com.google.cloud.WriteChannel;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
 import com.google.common.io.ByteSink;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -24,4 +25,14 @@ public class GcsByteSink extends ByteSink {
     WriteChannel channel = storage.writer(BlobInfo.newBuilder(blobId).build());
     return Channels.newOutputStream(channel);
   }
+
+  /** Uploads the bytes in a single request, rather than opening a resumable upload. */
+  @Override
+  public void write(byte[] bytes) throws IOException {
+    try {
+      storage.create(BlobInfo.newBuilder(blobId).build(), bytes);
+    } catch (StorageException e) {
+      throw new IOException("Failed to write " + blobId, e);
+    }
+  }
 }
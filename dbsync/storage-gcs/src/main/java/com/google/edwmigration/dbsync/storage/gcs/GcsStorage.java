@@ -14,6 +14,8 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 // https://www.baeldung.com/java-google-cloud-storage
@@ -54,6 +56,18 @@ public class GcsStorage {
     return storage.delete(BlobId.fromGsUtilUri(file.toString()));
   }
 
+  /** Deletes the files in one batch request, and returns whether each file was deleted. */
+  public List<Boolean> deleteAll(List<URI> files) {
+    if (files.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<BlobId> blobIds = new ArrayList<>(files.size());
+    for (URI file : files) {
+      blobIds.add(BlobId.fromGsUtilUri(file.toString()));
+    }
+    return storage.delete(blobIds);
+  }
+
   public void copyFile(URI sourceUri, URI targetUri) {
     CopyWriter copyWriter =
         storage.copy(
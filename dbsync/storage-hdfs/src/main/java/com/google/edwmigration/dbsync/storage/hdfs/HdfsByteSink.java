@@ -0,0 +1,52 @@
+package com.google.edwmigration.dbsync.storage.hdfs;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSink;
+import java.io.IOException;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/** A {@link ByteSink} which (over)writes a file in HDFS, or any other Hadoop {@link FileSystem}. */
+public class HdfsByteSink extends ByteSink {
+
+  private final FileSystem fs;
+  private final Path path;
+  private final short replication;
+  private final long blockSize;
+
+  /** Creates a sink which writes with the default replication and block size of the filesystem. */
+  public HdfsByteSink(FileSystem fs, Path path) {
+    this(fs, path, fs.getDefaultReplication(path), fs.getDefaultBlockSize(path));
+  }
+
+  public HdfsByteSink(FileSystem fs, Path path, short replication, long blockSize) {
+    Preconditions.checkArgument(replication > 0, "Replication must be positive: %s", replication);
+    Preconditions.checkArgument(blockSize > 0, "Block size must be positive: %s", blockSize);
+    this.fs = fs;
+    this.path = path;
+    this.replication = replication;
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public FSDataOutputStream openStream() throws IOException {
+    int bufferSize =
+        fs.getConf()
+            .getInt(
+                CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY,
+                CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_DEFAULT);
+    return fs.create(path, true, bufferSize, replication, blockSize);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("path", path)
+        .add("replication", replication)
+        .add("blockSize", blockSize)
+        .toString();
+  }
+}
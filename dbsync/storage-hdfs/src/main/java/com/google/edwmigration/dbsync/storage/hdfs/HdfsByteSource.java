@@ -1,3 +1,186 @@
 package com.google.edwmigration.dbsync.storage.hdfs;
 
-public class HdfsByteSource {}
+import com.google.common.base.MoreObjects;
+import com.google.common.base.MoreObjects.ToStringHelper;
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.common.storage.AbstractRemoteByteSource;
+import com.google.edwmigration.dbsync.common.storage.Slice;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link ByteSource} for a file in HDFS, or any other Hadoop {@link FileSystem}.
+ *
+ * <p>This source and all its slices share one lazily opened {@link FSDataInputStream}, and read a
+ * slice by positioned reads, so copying many blocks out of a file, as the {@code
+ * InstructionReceiver} does, neither reopens the file nor seeks per block. Closing this source
+ * closes the shared stream.
+ */
+public class HdfsByteSource extends AbstractRemoteByteSource implements Closeable {
+
+  /** The largest positioned read; a datanode serves each read as one request. */
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  /** The stream shared by a source and its slices. */
+  private static class SharedStream implements Closeable {
+
+    private final FileSystem fs;
+    private final Path path;
+
+    private @Nullable FSDataInputStream stream;
+
+    private SharedStream(FileSystem fs, Path path) {
+      this.fs = fs;
+      this.path = path;
+    }
+
+    private synchronized FSDataInputStream get() throws IOException {
+      if (stream == null) {
+        stream = fs.open(path);
+      }
+      return stream;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (stream != null) {
+        stream.close();
+        stream = null;
+      }
+    }
+  }
+
+  /** Reads a range of the shared stream without moving its position. */
+  private static class PositionedInputStream extends InputStream {
+
+    private final FSDataInputStream in;
+    private long position;
+    private final long end;
+
+    private PositionedInputStream(FSDataInputStream in, long position, long end) {
+      this.in = in;
+      this.position = position;
+      this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int count = read(b, 0, 1);
+      return count == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (position >= end) {
+        return -1;
+      }
+      int count = in.read(position, b, off, (int) Math.min(len, end - position));
+      if (count > 0) {
+        position += count;
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      long count = Math.max(0, Math.min(n, end - position));
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return 0;
+    }
+
+    /** Leaves the shared stream open. */
+    @Override
+    public void close() {}
+  }
+
+  private final FileSystem fs;
+  private final Path path;
+  private final SharedStream sharedStream;
+
+  private HdfsByteSource(
+      FileSystem fs, Path path, @Nullable Slice slice, SharedStream sharedStream) {
+    super(slice);
+    this.fs = fs;
+    this.path = path;
+    this.sharedStream = sharedStream;
+  }
+
+  public HdfsByteSource(FileSystem fs, Path path) {
+    this(fs, path, null, new SharedStream(fs, path));
+  }
+
+  @Override
+  protected ByteSource slice(Slice slice) {
+    return new HdfsByteSource(fs, path, slice, sharedStream);
+  }
+
+  @Override
+  public InputStream openStream() throws IOException {
+    Slice slice = getSlice();
+    if (slice == null) {
+      // A whole-file read is sequential, so it gets its own stream and the readahead with it.
+      return fs.open(path);
+    }
+    return new PositionedInputStream(
+        sharedStream.get(), slice.getOffset(), slice.getEndExclusive());
+  }
+
+  @Override
+  public long copyTo(OutputStream out) throws IOException {
+    Slice slice = getSlice();
+    if (slice == null) {
+      return super.copyTo(out);
+    }
+    FSDataInputStream in = sharedStream.get();
+    byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, slice.getLength())];
+    long position = slice.getOffset();
+    long end = slice.getEndExclusive();
+    while (position < end) {
+      int count = in.read(position, buffer, 0, (int) Math.min(buffer.length, end - position));
+      if (count == -1) {
+        // Like the other slices, a slice past the end of the file is truncated.
+        break;
+      }
+      if (count == 0) {
+        throw new IOException("No progress reading " + path + " at offset " + position);
+      }
+      out.write(buffer, 0, count);
+      position += count;
+    }
+    return position - slice.getOffset();
+  }
+
+  @Override
+  public long size() throws IOException {
+    Slice slice = getSlice();
+    if (slice != null) {
+      return super.size();
+    }
+    return fs.getFileStatus(path).getLen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    sharedStream.close();
+  }
+
+  @Override
+  protected MoreObjects.ToStringHelper toStringHelper(ToStringHelper helper) {
+    return super.toStringHelper(helper).add("path", path);
+  }
+}
@@ -0,0 +1,41 @@
+package com.google.edwmigration.dbsync.storage.hdfs;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSink;
+import java.io.IOException;
+import java.net.URI;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+public class HdfsStorage {
+
+  public static final String SCHEME = "hdfs";
+
+  private final Configuration conf;
+
+  public HdfsStorage(Configuration conf) {
+    this.conf = conf;
+  }
+
+  private FileSystem getFileSystem(URI uri) throws IOException {
+    Preconditions.checkArgument(SCHEME.equals(uri.getScheme()));
+    // Cached by Hadoop per scheme, authority and user, so the sources and sinks share a client.
+    return FileSystem.get(uri, conf);
+  }
+
+  /** Returns a source whose slices share one stream, which is closed by closing the source. */
+  public @NonNull HdfsByteSource newByteSource(URI uri) throws IOException {
+    return new HdfsByteSource(getFileSystem(uri), new Path(uri));
+  }
+
+  public @NonNull ByteSink newByteSink(URI uri) throws IOException {
+    return new HdfsByteSink(getFileSystem(uri), new Path(uri));
+  }
+
+  public @NonNull ByteSink newByteSink(URI uri, short replication, long blockSize)
+      throws IOException {
+    return new HdfsByteSink(getFileSystem(uri), new Path(uri), replication, blockSize);
+  }
+}
@@ -0,0 +1,114 @@
+package com.google.edwmigration.dbsync.storage.hdfs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.io.ByteSource;
+import com.google.edwmigration.dbsync.test.RsyncTestRunner;
+import com.google.edwmigration.dbsync.test.StorageTestRunner;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class HdfsStorageTest {
+
+  private static final long BLOCK_SIZE = 1024 * 1024;
+
+  private static MiniDFSCluster cluster;
+
+  /** Counts the streams opened, to check that slices share one. */
+  private static class CountingFileSystem extends FilterFileSystem {
+
+    private final AtomicInteger opens = new AtomicInteger();
+
+    private CountingFileSystem(FileSystem fs) {
+      super(fs);
+    }
+
+    @Override
+    public FSDataInputStream open(Path f, int bufferSize) throws IOException {
+      opens.incrementAndGet();
+      return super.open(f, bufferSize);
+    }
+  }
+
+  @BeforeAll
+  public static void setUp() throws IOException {
+    File baseDir = Files.createTempDirectory("minidfs").toFile();
+    cluster = new MiniDFSCluster.Builder(new Configuration(), baseDir).numDataNodes(1).build();
+    cluster.waitActive();
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown(true);
+    }
+  }
+
+  @Test
+  public void testHdfsStorage() throws Exception {
+    URI uri = cluster.getURI().resolve("/storage/file");
+    HdfsStorage storage = new HdfsStorage(cluster.getConfiguration(0));
+    try (HdfsByteSource source = storage.newByteSource(uri)) {
+      StorageTestRunner runner = new StorageTestRunner(source, storage.newByteSink(uri));
+      runner.run();
+    }
+  }
+
+  @Test
+  public void testByteSink_usesReplicationAndBlockSize() throws Exception {
+    FileSystem fs = cluster.getFileSystem();
+    Path path = new Path("/sink/file");
+    ByteSource data = RsyncTestRunner.newRandomData((int) (3 * BLOCK_SIZE + 17));
+
+    data.copyTo(new HdfsByteSink(fs, path, (short) 1, BLOCK_SIZE));
+
+    FileStatus status = fs.getFileStatus(path);
+    assertEquals(data.size(), status.getLen());
+    assertEquals(1, status.getReplication());
+    assertEquals(BLOCK_SIZE, status.getBlockSize());
+    assertEquals(4, fs.getFileBlockLocations(status, 0, status.getLen()).length);
+  }
+
+  @Test
+  public void testSlices_sharePositionedReadStream() throws Exception {
+    CountingFileSystem fs = new CountingFileSystem(cluster.getFileSystem());
+    Path path = new Path("/slices/file");
+    byte[] data = RsyncTestRunner.newRandomData((int) (2 * BLOCK_SIZE + 100)).read();
+    ByteSource.wrap(data).copyTo(new HdfsByteSink(fs, path, (short) 1, BLOCK_SIZE));
+
+    try (HdfsByteSource source = new HdfsByteSource(fs, path)) {
+      // Out of order, across HDFS block boundaries, and past the end of the file.
+      long[][] slices = {
+        {BLOCK_SIZE - 10, 20}, {5, 1000}, {2 * BLOCK_SIZE, 500}, {BLOCK_SIZE, BLOCK_SIZE}
+      };
+      for (long[] slice : slices) {
+        int offset = (int) slice[0];
+        int end = (int) Math.min(data.length, slice[0] + slice[1]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = source.slice(slice[0], slice[1]).copyTo(out);
+        assertEquals(end - offset, count);
+        assertArrayEquals(Arrays.copyOfRange(data, offset, end), out.toByteArray());
+        assertArrayEquals(
+            Arrays.copyOfRange(data, offset, end), source.slice(slice[0], slice[1]).read());
+      }
+    }
+
+    assertEquals(1, fs.opens.get());
+  }
+}
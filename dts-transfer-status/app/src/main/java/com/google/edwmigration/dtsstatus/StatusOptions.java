@@ -37,6 +37,15 @@ public class StatusOptions {
       parser.accepts("config-id").withRequiredArg().ofType(String.class);
   private static final OptionSpec<String> optionDatabase =
       parser.accepts("database").withRequiredArg().ofType(String.class);
+  private static final OptionSpec<String> optionSnapshot =
+      parser.accepts("snapshot").withRequiredArg().ofType(String.class);
+  private static final OptionSpec<Void> optionWatch = parser.accepts("watch");
+  private static final OptionSpec<Integer> optionWatchIntervalSeconds =
+      parser
+          .accepts("watch-interval-seconds")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(60);
 
   private final OptionSet options;
 
@@ -87,4 +96,20 @@ public class StatusOptions {
   public String getDatabase() {
     return options.valueOf(optionDatabase);
   }
+
+  public boolean hasSnapshot() {
+    return options.has(optionSnapshot);
+  }
+
+  public String getSnapshot() {
+    return options.valueOf(optionSnapshot);
+  }
+
+  public boolean hasWatch() {
+    return options.has(optionWatch);
+  }
+
+  public int getWatchIntervalSeconds() {
+    return options.valueOf(optionWatchIntervalSeconds);
+  }
 }
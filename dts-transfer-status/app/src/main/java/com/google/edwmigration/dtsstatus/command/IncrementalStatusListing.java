@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dtsstatus.command;
+
+import com.google.edwmigration.dtsstatus.StatusOptions;
+import com.google.edwmigration.dtsstatus.model.TransferStatus;
+import com.google.edwmigration.dtsstatus.util.LatestStatuses;
+import com.google.edwmigration.dtsstatus.util.MessageHandler;
+import com.google.edwmigration.dtsstatus.util.StatusSnapshot;
+import com.google.protobuf.Timestamp;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reduces fetched statuses to the latest status of each table. The statuses can be resumed from a
+ * snapshot and then watched: each fetch is given the high-water mark of the statuses known so far
+ * and only needs to return the statuses logged since.
+ */
+class IncrementalStatusListing {
+
+  private static final Logger logger = LoggerFactory.getLogger(IncrementalStatusListing.class);
+
+  private final @Nullable StatusSnapshot snapshot;
+  private final long watchIntervalSeconds;
+  private final Consumer<TransferStatus> statusConsumer;
+  private final Runnable afterPoll;
+
+  IncrementalStatusListing(
+      StatusOptions options,
+      String scope,
+      Consumer<TransferStatus> statusConsumer,
+      Runnable afterPoll) {
+    this.snapshot =
+        options.hasSnapshot() ? new StatusSnapshot(Paths.get(options.getSnapshot()), scope) : null;
+    this.watchIntervalSeconds = options.hasWatch() ? options.getWatchIntervalSeconds() : 0;
+    this.statusConsumer = statusConsumer;
+    this.afterPoll = afterPoll;
+  }
+
+  /**
+   * Consumes the latest status of each table, then, in watch mode, polls for newer statuses and
+   * consumes the ones that changed until interrupted.
+   */
+  void run(Function<Optional<Timestamp>, Stream<Optional<TransferStatus>>> fetchSince) {
+    LatestStatuses latestStatuses = snapshot == null ? new LatestStatuses() : snapshot.load();
+    MessageHandler.updateLatestStatuses(
+        fetchSince.apply(latestStatuses.getHighWaterMark()), latestStatuses);
+    save(latestStatuses);
+    latestStatuses.stream().forEach(statusConsumer);
+    afterPoll.run();
+    while (watchIntervalSeconds > 0) {
+      try {
+        TimeUnit.SECONDS.sleep(watchIntervalSeconds);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      List<TransferStatus> updated =
+          MessageHandler.updateLatestStatuses(
+              fetchSince.apply(latestStatuses.getHighWaterMark()), latestStatuses);
+      logger.info("Found {} updated statuses", updated.size());
+      if (!updated.isEmpty()) {
+        save(latestStatuses);
+        updated.forEach(statusConsumer);
+        afterPoll.run();
+      }
+    }
+  }
+
+  private void save(LatestStatuses latestStatuses) {
+    if (snapshot != null) {
+      snapshot.save(latestStatuses);
+    }
+  }
+}
@@ -16,8 +16,6 @@
  */
 package com.google.edwmigration.dtsstatus.command;
 
-import static com.google.edwmigration.dtsstatus.util.MessageHandler.consumeLatestExistingStatuses;
-
 import com.google.cloud.bigquery.datatransfer.v1.DataTransferServiceClient;
 import com.google.cloud.bigquery.datatransfer.v1.TransferConfigName;
 import com.google.common.base.Strings;
@@ -27,6 +25,8 @@ import com.google.edwmigration.dtsstatus.exception.GcpClientException;
 import com.google.edwmigration.dtsstatus.exception.InvalidArgumentException;
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
 import com.google.edwmigration.dtsstatus.util.MessageTranslator;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.util.Timestamps;
 import java.io.IOException;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -43,21 +43,35 @@ public class ListStatusForConfig {
   private final String location;
   private final String configId;
   private final Supplier<DataTransferServiceClient> clientSupplier;
-  private final Consumer<TransferStatus> statusConsumer;
   private final MessageTranslator messageTranslator;
+  private final IncrementalStatusListing statusListing;
+
+  ListStatusForConfig(
+      StatusOptions options,
+      Supplier<DataTransferServiceClient> clientSupplier,
+      Consumer<TransferStatus> statusConsumer,
+      MessageTranslator messageTranslator) {
+    this(options, clientSupplier, statusConsumer, () -> {}, messageTranslator);
+  }
 
   ListStatusForConfig(
       StatusOptions options,
       Supplier<DataTransferServiceClient> clientSupplier,
       Consumer<TransferStatus> statusConsumer,
+      Runnable afterPoll,
       MessageTranslator messageTranslator) {
     validateOptions(options);
     this.projectId = options.getProjectId();
     this.location = options.getLocation();
     this.configId = options.getConfigId();
     this.clientSupplier = clientSupplier;
-    this.statusConsumer = statusConsumer;
     this.messageTranslator = messageTranslator;
+    this.statusListing =
+        new IncrementalStatusListing(
+            options,
+            "config:" + projectId + "/" + location + "/" + configId,
+            statusConsumer,
+            afterPoll);
   }
 
   public void run() {
@@ -65,30 +79,46 @@ public class ListStatusForConfig {
       logger.info("Listing statuses for config {}", configId);
       TransferConfigName transferConfigName =
           TransferConfigName.ofProjectLocationTransferConfigName(projectId, location, configId);
-      Stream<Optional<TransferStatus>> statuses =
-          StreamSupport.stream(
-                  client.listTransferRuns(transferConfigName).iterateAll().spliterator(), false)
-              .flatMap(
-                  run ->
-                      StreamSupport.stream(
-                          client.listTransferLogs(run.getName()).iterateAll().spliterator(), false))
-              .filter(message -> message.getMessageText().startsWith("table status: "))
-              .map(
-                  message ->
-                      messageTranslator.translateLogMessage(
-                          message.getMessageText(), message.getMessageTime()));
-      consumeLatestExistingStatuses(statuses, statusConsumer);
+      statusListing.run(since -> listStatuses(client, transferConfigName, since));
     } catch (Exception ex) {
       logger.error("Failed to list statuses for config", ex);
     }
   }
 
+  /**
+   * Lists the statuses logged since the given time, or all of them. Runs not updated since then
+   * can't hold newer logs, so their logs aren't listed.
+   */
+  private Stream<Optional<TransferStatus>> listStatuses(
+      DataTransferServiceClient client,
+      TransferConfigName transferConfigName,
+      Optional<Timestamp> since) {
+    return StreamSupport.stream(
+            client.listTransferRuns(transferConfigName).iterateAll().spliterator(), false)
+        .filter(run -> isAtOrAfter(run.getUpdateTime(), since))
+        .flatMap(
+            run ->
+                StreamSupport.stream(
+                    client.listTransferLogs(run.getName()).iterateAll().spliterator(), false))
+        .filter(message -> message.getMessageText().startsWith("table status: "))
+        .filter(message -> isAtOrAfter(message.getMessageTime(), since))
+        .map(
+            message ->
+                messageTranslator.translateLogMessage(
+                    message.getMessageText(), message.getMessageTime()));
+  }
+
+  private static boolean isAtOrAfter(Timestamp timestamp, Optional<Timestamp> since) {
+    return !since.isPresent() || Timestamps.compare(timestamp, since.get()) >= 0;
+  }
+
   public static ListStatusForConfig instance(
       StatusOptions options, TransferStatusConsumer transferStatusConsumer) {
     return new ListStatusForConfig(
         options,
         ListStatusForConfig::createClient,
         transferStatusConsumer,
+        transferStatusConsumer::flush,
         new MessageTranslator());
   }
 
@@ -16,8 +16,6 @@
  */
 package com.google.edwmigration.dtsstatus.command;
 
-import static com.google.edwmigration.dtsstatus.util.MessageHandler.consumeLatestExistingStatuses;
-
 import com.google.cloud.logging.v2.LoggingClient;
 import com.google.edwmigration.dtsstatus.StatusOptions;
 import com.google.edwmigration.dtsstatus.consumer.TransferStatusConsumer;
@@ -25,6 +23,10 @@ import com.google.edwmigration.dtsstatus.exception.InvalidArgumentException;
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
 import com.google.edwmigration.dtsstatus.util.MessageTranslator;
 import com.google.logging.v2.ListLogEntriesRequest;
+import com.google.protobuf.Duration;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.util.Durations;
+import com.google.protobuf.util.Timestamps;
 import java.text.MessageFormat;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -41,51 +43,81 @@ public class ListStatusForDatabase {
   private final String database;
   private final String logFilter;
   private final Supplier<LoggingClient> clientSupplier;
-  private final Consumer<TransferStatus> statusConsumer;
   private final MessageTranslator messageTranslator;
+  private final IncrementalStatusListing statusListing;
   private static final String LOG_FILTER_TEMPLATE =
       "jsonPayload.message:\"table status\" AND jsonPayload.message:\"\\\"database\\\":\\\"{0}\\\"\"";
+  // Entries may be ingested well after their timestamp, so listings look back this far past the
+  // high-water mark.
+  private static final Duration INGESTION_LAG = Durations.fromMinutes(10);
+
+  ListStatusForDatabase(
+      StatusOptions options,
+      Supplier<LoggingClient> clientSupplier,
+      Consumer<TransferStatus> statusConsumer,
+      MessageTranslator messageTranslator) {
+    this(options, clientSupplier, statusConsumer, () -> {}, messageTranslator);
+  }
 
   ListStatusForDatabase(
       StatusOptions options,
       Supplier<LoggingClient> clientSupplier,
       Consumer<TransferStatus> statusConsumer,
+      Runnable afterPoll,
       MessageTranslator messageTranslator) {
     validateOptions(options);
     this.projectId = options.getProjectId();
     this.database = options.getDatabase();
     this.clientSupplier = clientSupplier;
-    this.statusConsumer = statusConsumer;
     this.messageTranslator = messageTranslator;
     this.logFilter = MessageFormat.format(LOG_FILTER_TEMPLATE, database);
+    this.statusListing =
+        new IncrementalStatusListing(
+            options, "database:" + projectId + "/" + database, statusConsumer, afterPoll);
   }
 
   public void run() {
     try (LoggingClient loggingClient = clientSupplier.get()) {
       logger.info("Listing statuses for database {}", database);
-      ListLogEntriesRequest request =
-          ListLogEntriesRequest.newBuilder()
-              .addResourceNames("projects/" + projectId)
-              .setFilter(logFilter)
-              .build();
-      Stream<Optional<TransferStatus>> statuses =
-          StreamSupport.stream(
-                  loggingClient.listLogEntries(request).iterateAll().spliterator(), false)
-              .map(
-                  entry ->
-                      messageTranslator.translateLogMessage(
-                          entry.getJsonPayload().getFieldsMap().get("message").getStringValue(),
-                          entry.getTimestamp()));
-      consumeLatestExistingStatuses(statuses, statusConsumer);
+      statusListing.run(since -> listStatuses(loggingClient, since));
     }
   }
 
+  /** Lists the statuses logged since the given time, or all of them. */
+  private Stream<Optional<TransferStatus>> listStatuses(
+      LoggingClient loggingClient, Optional<Timestamp> since) {
+    // Entries logged within the ingestion lag of the high-water mark are fetched again, so that
+    // late-ingested ones are not missed; the already seen ones are deduplicated by the reduction.
+    String filter =
+        since
+            .map(
+                timestamp ->
+                    String.format(
+                        "%s AND timestamp>=\"%s\"",
+                        logFilter,
+                        Timestamps.toString(Timestamps.subtract(timestamp, INGESTION_LAG))))
+            .orElse(logFilter);
+    ListLogEntriesRequest request =
+        ListLogEntriesRequest.newBuilder()
+            .addResourceNames("projects/" + projectId)
+            .setFilter(filter)
+            .build();
+    return StreamSupport.stream(
+            loggingClient.listLogEntries(request).iterateAll().spliterator(), false)
+        .map(
+            entry ->
+                messageTranslator.translateLogMessage(
+                    entry.getJsonPayload().getFieldsMap().get("message").getStringValue(),
+                    entry.getTimestamp()));
+  }
+
   public static ListStatusForDatabase instance(
       StatusOptions options, TransferStatusConsumer transferStatusConsumer) {
     return new ListStatusForDatabase(
         options,
         ListStatusForDatabase::createClient,
         transferStatusConsumer,
+        transferStatusConsumer::flush,
         new MessageTranslator());
   }
 
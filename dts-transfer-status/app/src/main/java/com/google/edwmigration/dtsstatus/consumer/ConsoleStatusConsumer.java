@@ -52,7 +52,11 @@ public class ConsoleStatusConsumer implements TransferStatusConsumer {
     }
   }
 
-  private void flush() {
+  @Override
+  public void flush() {
+    if (data.isEmpty()) {
+      return;
+    }
     String table =
         AsciiTable.getTable(
             data,
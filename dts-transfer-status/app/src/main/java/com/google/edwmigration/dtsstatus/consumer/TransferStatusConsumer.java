@@ -19,4 +19,8 @@ package com.google.edwmigration.dtsstatus.consumer;
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
 import java.util.function.Consumer;
 
-public interface TransferStatusConsumer extends Consumer<TransferStatus>, AutoCloseable {}
+public interface TransferStatusConsumer extends Consumer<TransferStatus>, AutoCloseable {
+
+  /** Outputs the statuses consumed so far, called after each poll in watch mode. */
+  void flush();
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dtsstatus.util;
+
+import com.google.edwmigration.dtsstatus.model.TransferStatus;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.util.Timestamps;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The latest status of each table, reduced one status at a time. Only one status per table is
+ * retained, along with the high-water mark: the newest timestamp seen so far.
+ */
+public class LatestStatuses {
+
+  private final Map<String, Map<String, TransferStatus>> statusesByDatabase = new TreeMap<>();
+
+  private @Nullable Timestamp highWaterMark;
+
+  /**
+   * Records a status.
+   *
+   * @return true if the status became the latest status of its table.
+   */
+  public boolean add(TransferStatus status) {
+    if (highWaterMark == null || Timestamps.compare(status.getTimestamp(), highWaterMark) > 0) {
+      highWaterMark = status.getTimestamp();
+    }
+    Map<String, TransferStatus> statusesByTable =
+        statusesByDatabase.computeIfAbsent(status.getDatabase(), key -> new TreeMap<>());
+    TransferStatus current = statusesByTable.get(status.getTable());
+    // On a tie the status seen first wins.
+    if (current != null && status.compareTo(current) <= 0) {
+      return false;
+    }
+    statusesByTable.put(status.getTable(), status);
+    return true;
+  }
+
+  /** Returns the newest timestamp of the recorded statuses. */
+  public Optional<Timestamp> getHighWaterMark() {
+    return Optional.ofNullable(highWaterMark);
+  }
+
+  /** Returns the latest status of each table, sorted by database and table. */
+  public Stream<TransferStatus> stream() {
+    return statusesByDatabase.values().stream().flatMap(tables -> tables.values().stream());
+  }
+}
@@ -16,28 +16,32 @@
  */
 package com.google.edwmigration.dtsstatus.util;
 
-import static java.util.stream.Collectors.groupingBy;
-
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class MessageHandler {
 
-  public static void consumeLatestExistingStatuses(
-      Stream<Optional<TransferStatus>> statuses, Consumer<TransferStatus> statusConsumer) {
+  /**
+   * Reduces the existing statuses into the latest statuses in a single pass.
+   *
+   * @return the statuses that became the latest of their table, sorted.
+   */
+  public static List<TransferStatus> updateLatestStatuses(
+      Stream<Optional<TransferStatus>> statuses, LatestStatuses latestStatuses) {
+    Map<List<String>, TransferStatus> updated = new HashMap<>();
     statuses
         // filter out missing statuses
-        .filter(Optional::isPresent).map(Optional::get)
-        // group by database and table and return the latest status for each group
-        .collect(groupingBy(TransferStatus::getDatabase)).values().stream()
-        .flatMap(
-            dbGroup ->
-                dbGroup.stream().collect(groupingBy(TransferStatus::getTable)).values().stream())
-        .map(Collections::max)
-        .sorted()
-        .forEach(statusConsumer);
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .filter(latestStatuses::add)
+        .forEach(
+            status -> updated.put(Arrays.asList(status.getDatabase(), status.getTable()), status));
+    return updated.values().stream().sorted().collect(Collectors.toList());
   }
 }
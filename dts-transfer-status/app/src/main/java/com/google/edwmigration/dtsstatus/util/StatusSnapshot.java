@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dtsstatus.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.edwmigration.dtsstatus.model.TransferStatus;
+import com.google.protobuf.util.Timestamps;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local file holding the latest statuses and their high-water mark, so that a later run only
+ * needs to fetch the log entries written since. A snapshot records the scope it was taken for, a
+ * database or a transfer config, and is ignored when loaded for a different scope.
+ */
+public class StatusSnapshot {
+
+  private static final Logger logger = LoggerFactory.getLogger(StatusSnapshot.class);
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final Path file;
+  private final String scope;
+
+  public StatusSnapshot(Path file, String scope) {
+    this.file = file;
+    this.scope = scope;
+  }
+
+  /** Loads the snapshot, returns empty statuses when there is no usable snapshot. */
+  public LatestStatuses load() {
+    LatestStatuses latestStatuses = new LatestStatuses();
+    if (!Files.exists(file)) {
+      return latestStatuses;
+    }
+    try {
+      JsonNode root = objectMapper.readTree(file.toFile());
+      if (!scope.equals(root.path("scope").asText())) {
+        logger.warn("Ignoring snapshot {} taken for {}", file, root.path("scope").asText());
+        return latestStatuses;
+      }
+      for (JsonNode status : root.path("statuses")) {
+        latestStatuses.add(
+            new TransferStatus(
+                status.path("database").asText(),
+                status.path("table").asText(),
+                status.path("status").asText(),
+                Timestamps.parse(status.path("timestamp").asText())));
+      }
+      logger.info(
+          "Loaded snapshot {} up to {}",
+          file,
+          latestStatuses.getHighWaterMark().map(Timestamps::toString).orElse("the beginning"));
+      return latestStatuses;
+    } catch (IOException | ParseException e) {
+      logger.warn("Ignoring unreadable snapshot {}", file, e);
+      return new LatestStatuses();
+    }
+  }
+
+  /** Saves the statuses, replacing the previous snapshot atomically. */
+  public void save(LatestStatuses latestStatuses) {
+    ObjectNode root = objectMapper.createObjectNode();
+    root.put("scope", scope);
+    latestStatuses
+        .getHighWaterMark()
+        .ifPresent(timestamp -> root.put("highWaterMark", Timestamps.toString(timestamp)));
+    ArrayNode statuses = root.putArray("statuses");
+    latestStatuses.stream().forEach(status -> addStatus(statuses, status));
+    try {
+      Path absoluteFile = file.toAbsolutePath();
+      Path temporaryFile =
+          Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName() + ".", ".tmp");
+      objectMapper.writeValue(temporaryFile.toFile(), root);
+      Files.move(
+          temporaryFile,
+          absoluteFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to save snapshot " + file, e);
+    }
+  }
+
+  private static void addStatus(ArrayNode statuses, TransferStatus status) {
+    statuses
+        .addObject()
+        .put("database", status.getDatabase())
+        .put("table", status.getTable())
+        .put("status", status.getStatus())
+        .put("timestamp", Timestamps.toString(status.getTimestamp()));
+  }
+}
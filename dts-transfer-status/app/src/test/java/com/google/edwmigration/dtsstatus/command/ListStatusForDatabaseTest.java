@@ -20,6 +20,8 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.logging.v2.LoggingClient;
@@ -28,14 +30,18 @@ import com.google.edwmigration.dtsstatus.StatusOptions;
 import com.google.edwmigration.dtsstatus.exception.InvalidArgumentException;
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
 import com.google.edwmigration.dtsstatus.util.MessageTranslator;
+import com.google.logging.v2.ListLogEntriesRequest;
 import com.google.logging.v2.LogEntry;
 import com.google.protobuf.Struct;
 import com.google.protobuf.Timestamp;
 import com.google.protobuf.Value;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 
 class ListStatusForDatabaseTest {
 
@@ -70,6 +76,39 @@ class ListStatusForDatabaseTest {
         .isEqualTo("s3");
   }
 
+  @Test
+  void run_withSnapshot_listsOnlyStatusesSinceHighWaterMark(@TempDir Path tempDir) {
+    String snapshot = tempDir.resolve("snapshot.json").toString();
+    StatusOptions options =
+        new StatusOptions(
+            new String[] {"--project-id", "project1", "--database", "db1", "--snapshot", snapshot});
+    LoggingClient mockClient = mock(LoggingClient.class);
+    ListLogEntriesPagedResponse firstResponse = mock(ListLogEntriesPagedResponse.class);
+    when(firstResponse.iterateAll())
+        .thenReturn(Arrays.asList(logMessage("tab1", "s1", 1), logMessage("tab2", "s1", 2)));
+    ListLogEntriesPagedResponse secondResponse = mock(ListLogEntriesPagedResponse.class);
+    when(secondResponse.iterateAll())
+        .thenReturn(Arrays.asList(logMessage("tab2", "s1", 2), logMessage("tab1", "s2", 3)));
+    when(mockClient.listLogEntries(any())).thenReturn(firstResponse, secondResponse);
+    new ListStatusForDatabase(options, () -> mockClient, ignored -> {}, new MessageTranslator())
+        .run();
+
+    List<TransferStatus> result = new ArrayList<>();
+    new ListStatusForDatabase(options, () -> mockClient, result::add, new MessageTranslator())
+        .run();
+
+    ArgumentCaptor<ListLogEntriesRequest> requests =
+        ArgumentCaptor.forClass(ListLogEntriesRequest.class);
+    verify(mockClient, times(2)).listLogEntries(requests.capture());
+    assertThat(requests.getAllValues().get(0).getFilter()).doesNotContain("timestamp>=");
+    assertThat(requests.getAllValues().get(1).getFilter())
+        .endsWith(" AND timestamp>=\"1969-12-31T23:50:02Z\"");
+    assertThat(result.size()).isEqualTo(2);
+    assertThat(
+            result.stream().filter(s -> s.getTable().equals("tab1")).findFirst().get().getStatus())
+        .isEqualTo("s2");
+  }
+
   @Test
   void run_noProjectId_throwsException() {
     StatusOptions options = new StatusOptions(new String[] {"--database", "db1"});
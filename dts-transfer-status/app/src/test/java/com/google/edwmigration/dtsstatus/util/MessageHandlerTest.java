@@ -20,8 +20,6 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
 import com.google.protobuf.Timestamp;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -30,62 +28,41 @@ import org.junit.jupiter.api.Test;
 class MessageHandlerTest {
 
   @Test
-  void consumeLatestExistingStatuses_consumesTheLatestStatus() {
-    List<TransferStatus> consumedStatuses = new ArrayList<>();
-    Stream<Optional<TransferStatus>> statuses =
+  void updateLatestStatuses_returnsOnlyChangedStatuses() {
+    LatestStatuses latestStatuses = new LatestStatuses();
+    MessageHandler.updateLatestStatuses(
         Stream.of(
             Optional.of(transferStatus("db1", "table1", "status1", 1)),
-            Optional.of(transferStatus("db1", "table1", "status3", 2)),
-            Optional.of(transferStatus("db1", "table2", "status2", 3)));
-    MessageHandler.consumeLatestExistingStatuses(statuses, consumedStatuses::add);
-    assertThat(consumedStatuses.size()).isEqualTo(2);
-    assertThat(
-            consumedStatuses.stream()
-                .filter(s -> s.getTable().equals("table1"))
-                .findFirst()
-                .get()
-                .getStatus())
-        .isEqualTo("status3");
-  }
+            Optional.of(transferStatus("db1", "table2", "status2", 2))),
+        latestStatuses);
 
-  @Test
-  void consumeLatestExistingStatuses_filtersOutEmptyStatues() {
-    List<TransferStatus> consumedStatuses = new ArrayList<>();
-    Stream<Optional<TransferStatus>> statuses =
-        Stream.of(
-            Optional.empty(),
-            Optional.of(transferStatus("db1", "table1", "status1", 1)),
-            Optional.empty());
-    MessageHandler.consumeLatestExistingStatuses(statuses, consumedStatuses::add);
-    assertThat(consumedStatuses.size()).isEqualTo(1);
-    assertThat(consumedStatuses.get(0).getStatus()).isEqualTo("status1");
-  }
+    List<TransferStatus> updated =
+        MessageHandler.updateLatestStatuses(
+            Stream.of(
+                Optional.of(transferStatus("db1", "table2", "status2", 2)),
+                Optional.of(transferStatus("db1", "table1", "status3", 3)),
+                Optional.empty()),
+            latestStatuses);
 
-  @Test
-  void consumeLatestExistingStatuses_groupsTableStatuses() {
-    List<TransferStatus> consumedStatuses = new ArrayList<>();
-    Stream<Optional<TransferStatus>> statuses =
-        Stream.of(
-            Optional.of(transferStatus("db1", "table1", "status1", 1)),
-            Optional.of(transferStatus("db1", "table1", "status2", 2)),
-            Optional.of(transferStatus("db1", "table2", "status3", 3)),
-            Optional.of(transferStatus("db2", "table2", "status4", 3)));
-    MessageHandler.consumeLatestExistingStatuses(statuses, consumedStatuses::add);
-    assertThat(consumedStatuses.size()).isEqualTo(3);
+    assertThat(updated).hasSize(1);
+    assertThat(updated.get(0).getStatus()).isEqualTo("status3");
+    assertThat(latestStatuses.getHighWaterMark())
+        .hasValue(Timestamp.newBuilder().setSeconds(3).build());
   }
 
   @Test
-  void consumeLatestExistingStatuses_sortsStatuses() {
-    List<TransferStatus> consumedStatuses = new ArrayList<>();
-    Stream<Optional<TransferStatus>> statuses =
-        Stream.of(
-            Optional.of(transferStatus("db2", "table2", "status1", 1)),
-            Optional.of(transferStatus("db1", "table1", "status2", 2)),
-            Optional.of(transferStatus("db1", "table2", "status3", 3)),
-            Optional.of(transferStatus("db2", "table1", "status4", 3)));
-    MessageHandler.consumeLatestExistingStatuses(statuses, consumedStatuses::add);
+  void updateLatestStatuses_ignoresOlderStatuses() {
+    LatestStatuses latestStatuses = new LatestStatuses();
+    MessageHandler.updateLatestStatuses(
+        Stream.of(Optional.of(transferStatus("db1", "table1", "status2", 2))), latestStatuses);
+
+    List<TransferStatus> updated =
+        MessageHandler.updateLatestStatuses(
+            Stream.of(Optional.of(transferStatus("db1", "table1", "status1", 1))),
+            latestStatuses);
 
-    assertThat(consumedStatuses).isInOrder(Comparator.naturalOrder());
+    assertThat(updated).isEmpty();
+    assertThat(latestStatuses.stream().findFirst().get().getStatus()).isEqualTo("status2");
   }
 
   private static TransferStatus transferStatus(
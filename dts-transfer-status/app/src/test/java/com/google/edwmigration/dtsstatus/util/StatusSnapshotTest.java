@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dtsstatus.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.edwmigration.dtsstatus.model.TransferStatus;
+import com.google.protobuf.Timestamp;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StatusSnapshotTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void load_returnsEmptyStatusesIfFileDoesNotExist() {
+    StatusSnapshot snapshot = new StatusSnapshot(tempDir.resolve("snapshot.json"), "scope");
+
+    LatestStatuses latestStatuses = snapshot.load();
+
+    assertThat(latestStatuses.getHighWaterMark()).isEmpty();
+    assertThat(latestStatuses.stream().count()).isEqualTo(0);
+  }
+
+  @Test
+  void load_returnsSavedStatuses() {
+    StatusSnapshot snapshot = new StatusSnapshot(tempDir.resolve("snapshot.json"), "scope");
+    LatestStatuses saved = new LatestStatuses();
+    saved.add(transferStatus("db1", "table2", "status1", 1));
+    saved.add(transferStatus("db1", "table1", "status2", 5, 500));
+    snapshot.save(saved);
+
+    LatestStatuses loaded = snapshot.load();
+
+    assertThat(loaded.getHighWaterMark()).isEqualTo(saved.getHighWaterMark());
+    List<String> statuses = loaded.stream().map(this::describe).collect(Collectors.toList());
+    assertThat(statuses)
+        .containsExactly("db1\ttable1\tstatus2\t5.000000500", "db1\ttable2\tstatus1\t1.0")
+        .inOrder();
+  }
+
+  @Test
+  void load_ignoresSnapshotOfAnotherScope() {
+    Path file = tempDir.resolve("snapshot.json");
+    LatestStatuses saved = new LatestStatuses();
+    saved.add(transferStatus("db1", "table1", "status1", 1));
+    new StatusSnapshot(file, "scope1").save(saved);
+
+    LatestStatuses loaded = new StatusSnapshot(file, "scope2").load();
+
+    assertThat(loaded.getHighWaterMark()).isEmpty();
+    assertThat(loaded.stream().count()).isEqualTo(0);
+  }
+
+  @Test
+  void load_ignoresUnreadableSnapshot() throws IOException {
+    Path file = tempDir.resolve("snapshot.json");
+    Files.write(file, "not json".getBytes(StandardCharsets.UTF_8));
+
+    LatestStatuses loaded = new StatusSnapshot(file, "scope").load();
+
+    assertThat(loaded.stream().count()).isEqualTo(0);
+  }
+
+  private String describe(TransferStatus status) {
+    Timestamp timestamp = status.getTimestamp();
+    return status + "\t" + timestamp.getSeconds() + "." + timestamp.getNanos();
+  }
+
+  private static TransferStatus transferStatus(
+      String database, String table, String status, long seconds) {
+    return transferStatus(database, table, status, seconds, 0);
+  }
+
+  private static TransferStatus transferStatus(
+      String database, String table, String status, long seconds, int nanos) {
+    return new TransferStatus(
+        database,
+        table,
+        status,
+        Timestamp.newBuilder().setSeconds(seconds).setNanos(nanos).build());
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.jmh;
+
+import com.google.common.base.Strings;
+import com.google.edwmigration.dumper.application.dumper.handle.FetchSizePolicy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the fixed fetch size of 16384 with {@link FetchSizePolicy} on narrow and wide rows.
+ *
+ * <p>Runs against an in-memory SQLite database by default. Set the system property {@code
+ * fetchsize.jdbc.url} to a full JDBC URL, e.g. of a local PostgreSQL, to measure a driver with
+ * server-side cursors.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2, time = FetchSizeBenchmark.MS, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 4, time = FetchSizeBenchmark.MS, timeUnit = TimeUnit.MILLISECONDS)
+public class FetchSizeBenchmark {
+  public static final int MS = 2000;
+  private static final int FIXED_FETCH_SIZE = 16384;
+
+  @Param({"narrow", "wide"})
+  public String shape;
+
+  @Param({"fixed", "adaptive"})
+  public String strategy;
+
+  private Connection connection;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    String url = System.getProperty("fetchsize.jdbc.url", "jdbc:sqlite::memory:");
+    connection = DriverManager.getConnection(url);
+    boolean wide = "wide".equals(shape);
+    int rows = wide ? 10_000 : 200_000;
+    String text = Strings.repeat("x", wide ? 2000 : 8);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE IF EXISTS fetch_size_benchmark");
+      statement.execute(
+          "CREATE TABLE fetch_size_benchmark (id INTEGER, amount INTEGER, text VARCHAR("
+              + (wide ? 31000 : 16)
+              + "))");
+    }
+    connection.setAutoCommit(false);
+    try (PreparedStatement statement =
+        connection.prepareStatement("INSERT INTO fetch_size_benchmark VALUES (?, ?, ?)")) {
+      for (int i = 0; i < rows; i++) {
+        statement.setInt(1, i);
+        statement.setInt(2, i % 1000);
+        statement.setString(3, text);
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+    connection.commit();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  @Benchmark
+  public void select(Blackhole bh) throws Exception {
+    FetchSizePolicy policy = FetchSizePolicy.forConnection(connection);
+    boolean adaptive = "adaptive".equals(strategy);
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            "SELECT id, amount, text FROM fetch_size_benchmark",
+            ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY)) {
+      statement.setFetchSize(adaptive ? policy.getInitialFetchSize(statement) : FIXED_FETCH_SIZE);
+      try (ResultSet rs = statement.executeQuery()) {
+        if (adaptive) {
+          policy.resize(rs);
+        }
+        FetchSizePolicy.Cursor cursor = policy.newCursor(rs);
+        while (adaptive ? cursor.next() : rs.next()) {
+          long rowBytes = 0;
+          for (int i = 1; i <= 3; i++) {
+            String value = rs.getString(i);
+            rowBytes += FetchSizePolicy.estimateValueBytes(value);
+            bh.consume(value);
+          }
+          if (adaptive) {
+            cursor.onRow(rowBytes);
+          }
+        }
+      }
+    }
+    connection.commit();
+  }
+}
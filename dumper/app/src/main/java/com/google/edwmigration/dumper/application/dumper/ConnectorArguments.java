@@ -72,6 +72,8 @@ public class ConnectorArguments extends DefaultArguments {
 
   public static final String OPT_CONNECTOR = "connector";
   public static final String OPT_TELEMETRY = "telemetry";
+  public static final String OPT_PROGRESS_FILE = "progress-file";
+  public static final String OPT_METRICS_PORT = "metrics-port";
   public static final String OPT_DRIVER = "driver";
   public static final String OPT_CLASS = "jdbcDriverClass";
   public static final String OPT_URI = "url";
@@ -130,6 +132,9 @@ public class ConnectorArguments extends DefaultArguments {
   public static final String OPT_HIVE_METASTORE_DUMP_PARTITION_METADATA =
       "hive-metastore-dump-partition-metadata";
   public static final String OPT_HIVE_METASTORE_DUMP_PARTITION_METADATA_DEFAULT = "true";
+  public static final String OPT_HIVE_METASTORE_REFERENCE_STORAGE_DESCRIPTORS =
+      "hive-metastore-reference-storage-descriptors";
+  public static final String OPT_HIVE_METASTORE_REFERENCE_STORAGE_DESCRIPTORS_DEFAULT = "false";
   public static final String OPT_HIVE_KERBEROS_URL = "hive-kerberos-url";
   public static final String OPT_REQUIRED_IF_NOT_URL = "if --url is not specified";
   public static final String OPT_THREAD_POOL_SIZE = "thread-pool-size";
@@ -424,6 +429,13 @@ public class ConnectorArguments extends DefaultArguments {
           .withOptionalArg()
           .withValuesConvertedBy(BooleanValueConverter.INSTANCE)
           .defaultsTo(Boolean.parseBoolean(OPT_HIVE_METASTORE_DUMP_PARTITION_METADATA_DEFAULT));
+  public final OptionSpec<Boolean> optionHiveStorageDescriptorReferences =
+      parser
+          .accepts(OPT_HIVE_METASTORE_REFERENCE_STORAGE_DESCRIPTORS)
+          .withOptionalArg()
+          .withValuesConvertedBy(BooleanValueConverter.INSTANCE)
+          .defaultsTo(
+              Boolean.parseBoolean(OPT_HIVE_METASTORE_REFERENCE_STORAGE_DESCRIPTORS_DEFAULT));
   private final OptionSpec<String> optionHiveKerberosUrl =
       parser
           .accepts(
@@ -475,6 +487,23 @@ public class ConnectorArguments extends DefaultArguments {
           .ofType(Boolean.class)
           .defaultsTo(true);
 
+  private final OptionSpec<String> optionProgressFile =
+      parser
+          .accepts(
+              OPT_PROGRESS_FILE,
+              "Periodically append a JSON line describing the progress of the dump to this file.")
+          .withRequiredArg()
+          .ofType(String.class)
+          .describedAs("progress.jsonl");
+
+  private final OptionSpec<Integer> optionMetricsPort =
+      parser
+          .accepts(
+              OPT_METRICS_PORT,
+              "Serve the live progress of the dump as JSON on http://127.0.0.1:<port>/metrics.")
+          .withRequiredArg()
+          .ofType(Integer.class);
+
   public final OptionSpec<String> optionHadoopHdfsSiteXml =
       parser
           .accepts(
@@ -985,6 +1014,16 @@ public class ConnectorArguments extends DefaultArguments {
     return getOptions().valueOf(optionTelemetry);
   }
 
+  @CheckForNull
+  public String getProgressFile() {
+    return getOptions().valueOf(optionProgressFile);
+  }
+
+  @CheckForNull
+  public Integer getMetricsPort() {
+    return getOptions().valueOf(optionMetricsPort);
+  }
+
   public boolean isTestFlag(char c) {
     String flags = getOptions().valueOf(optionFlags);
     if (flags == null) {
@@ -1086,6 +1125,10 @@ public class ConnectorArguments extends DefaultArguments {
     return BooleanUtils.isTrue(getOptions().valueOf(optionHivePartitionMetadataCollection));
   }
 
+  public boolean isHiveMetastoreStorageDescriptorReferencingEnabled() {
+    return BooleanUtils.isTrue(getOptions().valueOf(optionHiveStorageDescriptorReferences));
+  }
+
   @CheckForNull
   public String getHiveKerberosUrl() {
     return getOptions().valueOf(optionHiveKerberosUrl);
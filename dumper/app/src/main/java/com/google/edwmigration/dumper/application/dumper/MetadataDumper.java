@@ -142,17 +142,23 @@ public class MetadataDumper {
 
         Handle handle = closer.register(connector.open(connectorArguments));
 
-        new TasksRunner(
+        TasksRunner runner =
+            new TasksRunner(
                 sinkFactory,
                 handle,
                 connectorArguments.getThreadPoolSize(),
                 state,
                 tasks,
-                connectorArguments)
-            .run();
+                connectorArguments);
+        try (ProgressReporter reporter =
+            ProgressReporter.start(connectorArguments, runner, state, handle)) {
+          runner.run();
+        }
 
         requiredTaskSucceeded = checkRequiredTaskSuccess(summaryPrinter, state, outputFileLocation);
 
+        TaskMetricsWriter.write(sinkFactory, state);
+
         telemetryProcessor.addDumperRunMetricsToPayload(
             connectorArguments, state, stopwatch, requiredTaskSucceeded);
         telemetryProcessor.processTelemetry(fileSystem);
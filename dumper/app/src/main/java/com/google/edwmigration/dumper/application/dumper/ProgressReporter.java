@@ -0,0 +1,349 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.edwmigration.dumper.application.dumper.handle.Handle;
+import com.google.edwmigration.dumper.application.dumper.handle.JdbcHandle;
+import com.google.edwmigration.dumper.application.dumper.metrics.TaskMetrics;
+import com.google.edwmigration.dumper.application.dumper.metrics.ThroughputEstimator;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState;
+import com.google.edwmigration.dumper.plugin.ext.jdk.progress.ConcurrentRecordProgressMonitor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the live progress of a dump, for runs which take hours or days.
+ *
+ * <p>A snapshot of the task states, the running tasks, the open progress monitors and the
+ * connection pool is appended as one JSON line to the {@code --progress-file} at a fixed interval,
+ * and served on demand on {@code http://127.0.0.1:<--metrics-port>/metrics}. The ETA of the dump
+ * and of each progress monitor is derived from the rate at which they progressed recently, rather
+ * than from the average over the whole run.
+ */
+public class ProgressReporter implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProgressReporter.class);
+
+  private static final long INTERVAL_SECONDS = 10;
+  private static final Duration THROUGHPUT_WINDOW = Duration.ofMinutes(10);
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+  private static class RunningTask {
+
+    @JsonProperty private final String name;
+    @JsonProperty private final long wallTimeMillis;
+    @JsonProperty private final long rowCount;
+    @JsonProperty private final long byteCount;
+
+    RunningTask(TaskMetrics metrics) {
+      this.name = metrics.getTaskName();
+      this.wallTimeMillis = metrics.getWallTimeMillis();
+      this.rowCount = metrics.getRowCount();
+      this.byteCount = metrics.getByteCount();
+    }
+  }
+
+  private static class Monitor {
+
+    @JsonProperty private final String name;
+    @JsonProperty private final long count;
+    @JsonProperty private final Long total;
+    @JsonProperty private final double ratePerSecond;
+    @JsonProperty private final Long etaSeconds;
+
+    Monitor(
+        ConcurrentRecordProgressMonitor monitor, @CheckForNull ThroughputEstimator throughput) {
+      this.name = monitor.getName();
+      this.count = monitor.getCount();
+      this.ratePerSecond = throughput == null ? 0 : throughput.getRatePerSecond();
+      long total = monitor.getTotal();
+      this.total = total > 0 ? total : null;
+      Duration eta =
+          throughput == null || total <= 0
+              ? null
+              : throughput.estimateRemaining(Math.max(0, total - count));
+      this.etaSeconds = eta == null ? null : eta.getSeconds();
+    }
+  }
+
+  private static class ConnectionPool {
+
+    @JsonProperty private final int active;
+    @JsonProperty private final int idle;
+    @JsonProperty private final int total;
+    @JsonProperty private final int maximum;
+    @JsonProperty private final int threadsAwaitingConnection;
+
+    ConnectionPool(HikariDataSource dataSource, HikariPoolMXBean pool) {
+      this.active = pool.getActiveConnections();
+      this.idle = pool.getIdleConnections();
+      this.total = pool.getTotalConnections();
+      this.maximum = dataSource.getMaximumPoolSize();
+      this.threadsAwaitingConnection = pool.getThreadsAwaitingConnection();
+    }
+  }
+
+  @VisibleForTesting
+  static class Snapshot {
+
+    @JsonProperty String timestamp;
+    @JsonProperty long elapsedMillis;
+    @JsonProperty int completedTasks;
+    @JsonProperty int totalTasks;
+    @JsonProperty Map<String, Integer> taskStates = new TreeMap<>();
+    @JsonProperty long rowCount;
+    @JsonProperty long byteCount;
+    @JsonProperty long rowsPerSecond;
+    @JsonProperty long bytesPerSecond;
+    @JsonProperty Long etaSeconds;
+    @JsonProperty List<RunningTask> runningTasks = new ArrayList<>();
+    @JsonProperty List<Monitor> progressMonitors = new ArrayList<>();
+    @JsonProperty ConnectionPool connectionPool;
+  }
+
+  private final TasksRunner runner;
+  private final TaskSetState state;
+  private final Handle handle;
+  private final Stopwatch stopwatch;
+  private final ThroughputEstimator taskThroughput = new ThroughputEstimator(THROUGHPUT_WINDOW);
+  private final ThroughputEstimator rowThroughput = new ThroughputEstimator(THROUGHPUT_WINDOW);
+  private final ThroughputEstimator byteThroughput = new ThroughputEstimator(THROUGHPUT_WINDOW);
+  // Weak keys, like the active monitors, so that the estimator of a monitor which was garbage
+  // collected without being closed is dropped too.
+  private final Map<ConcurrentRecordProgressMonitor, ThroughputEstimator> monitorThroughputs =
+      new MapMaker().weakKeys().makeMap();
+  @CheckForNull private final Path progressFile;
+  @CheckForNull private HttpServer server;
+  @CheckForNull private ScheduledExecutorService executor;
+
+  @VisibleForTesting
+  ProgressReporter(
+      @Nonnull TasksRunner runner,
+      @Nonnull TaskSetState state,
+      @Nonnull Handle handle,
+      @CheckForNull Path progressFile) {
+    this(runner, state, handle, progressFile, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  ProgressReporter(
+      @Nonnull TasksRunner runner,
+      @Nonnull TaskSetState state,
+      @Nonnull Handle handle,
+      @CheckForNull Path progressFile,
+      @Nonnull Ticker ticker) {
+    this.runner = runner;
+    this.state = state;
+    this.handle = handle;
+    this.progressFile = progressFile;
+    this.stopwatch = Stopwatch.createStarted(ticker);
+  }
+
+  /** Starts reporting if requested by the arguments, otherwise returns null. */
+  @CheckForNull
+  public static ProgressReporter start(
+      @Nonnull ConnectorArguments arguments,
+      @Nonnull TasksRunner runner,
+      @Nonnull TaskSetState state,
+      @Nonnull Handle handle)
+      throws IOException {
+    String progressFile = arguments.getProgressFile();
+    Integer metricsPort = arguments.getMetricsPort();
+    if (progressFile == null && metricsPort == null) {
+      return null;
+    }
+    ProgressReporter reporter =
+        new ProgressReporter(
+            runner, state, handle, progressFile == null ? null : Paths.get(progressFile));
+    if (metricsPort != null) {
+      reporter.startServer(metricsPort);
+    }
+    reporter.startSchedule();
+    return reporter;
+  }
+
+  private void startServer(int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/metrics", this::handleRequest);
+    server.setExecutor(null);
+    server.start();
+    logger.info("Serving progress on http://{}/metrics", server.getAddress());
+  }
+
+  private void startSchedule() {
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("progress-reporter").build());
+    // The throughput estimators are fed at a fixed rate even if nobody writes the snapshots.
+    executor.scheduleAtFixedRate(
+        this::report, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private void handleRequest(@Nonnull HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body = MAPPER.writeValueAsBytes(snapshot());
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  @VisibleForTesting
+  void report() {
+    try {
+      Snapshot snapshot = sample();
+      if (progressFile != null) {
+        byte[] line = (MAPPER.writeValueAsString(snapshot) + "\n").getBytes(StandardCharsets.UTF_8);
+        Files.write(progressFile, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      }
+    } catch (IOException | RuntimeException e) {
+      // Progress reporting must never break the dump itself.
+      logger.warn("Failed to report progress: {}", e.getMessage(), e);
+    }
+  }
+
+  /** Takes a snapshot and records it into the throughput estimators. */
+  @Nonnull
+  private synchronized Snapshot sample() {
+    ImmutableList<ConcurrentRecordProgressMonitor> monitors =
+        ConcurrentRecordProgressMonitor.getActiveMonitors();
+    long monitorsTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    monitorThroughputs.keySet().retainAll(monitors);
+    for (ConcurrentRecordProgressMonitor monitor : monitors) {
+      monitorThroughputs
+          .computeIfAbsent(monitor, m -> new ThroughputEstimator(THROUGHPUT_WINDOW))
+          .record(monitorsTime, monitor.getCount());
+    }
+    Snapshot snapshot = snapshot();
+    long now = snapshot.elapsedMillis;
+    taskThroughput.record(now, snapshot.completedTasks);
+    rowThroughput.record(now, snapshot.rowCount);
+    byteThroughput.record(now, snapshot.byteCount);
+    return withRates(snapshot);
+  }
+
+  @VisibleForTesting
+  @Nonnull
+  Snapshot snapshot() {
+    Snapshot snapshot = new Snapshot();
+    snapshot.timestamp = Instant.now().toString();
+    snapshot.elapsedMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    snapshot.completedTasks = runner.getNumberOfCompletedTasks();
+    snapshot.totalTasks = runner.getTotalNumberOfTasks();
+
+    for (TaskSetState.TaskResultSummary summary : state.getTaskResultSummaries()) {
+      snapshot.taskStates.merge(summary.getTaskState().name(), 1, Integer::sum);
+      if (summary.getMetrics().isPresent()) {
+        snapshot.rowCount += summary.getMetrics().get().getRowCount();
+        snapshot.byteCount += summary.getMetrics().get().getByteCount();
+      }
+    }
+    for (TaskMetrics metrics : runner.getRunningTaskMetrics()) {
+      snapshot.runningTasks.add(new RunningTask(metrics));
+      snapshot.rowCount += metrics.getRowCount();
+      snapshot.byteCount += metrics.getByteCount();
+    }
+    for (ConcurrentRecordProgressMonitor monitor :
+        ConcurrentRecordProgressMonitor.getActiveMonitors()) {
+      snapshot.progressMonitors.add(new Monitor(monitor, monitorThroughputs.get(monitor)));
+    }
+    snapshot.connectionPool = getConnectionPool(handle);
+    return withRates(snapshot);
+  }
+
+  @Nonnull
+  private Snapshot withRates(@Nonnull Snapshot snapshot) {
+    snapshot.rowsPerSecond = (long) rowThroughput.getRatePerSecond();
+    snapshot.bytesPerSecond = (long) byteThroughput.getRatePerSecond();
+    Duration eta =
+        taskThroughput.estimateRemaining(
+            Math.max(0, snapshot.totalTasks - snapshot.completedTasks));
+    snapshot.etaSeconds = eta == null ? null : eta.getSeconds();
+    return snapshot;
+  }
+
+  @CheckForNull
+  private static ConnectionPool getConnectionPool(@Nonnull Handle handle) {
+    if (!(handle instanceof JdbcHandle)) {
+      return null;
+    }
+    DataSource dataSource = ((JdbcHandle) handle).getDataSource();
+    if (!(dataSource instanceof HikariDataSource)) {
+      return null;
+    }
+    HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+    HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+    return pool == null ? null : new ConnectionPool(hikariDataSource, pool);
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    if (server != null) {
+      server.stop(0);
+    }
+    // Record the final state, so the file shows whether the dump finished.
+    report();
+  }
+}
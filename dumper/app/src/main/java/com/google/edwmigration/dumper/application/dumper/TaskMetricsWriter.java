@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.edwmigration.dumper.application.dumper.io.OutputHandle.WriteMode;
+import com.google.edwmigration.dumper.application.dumper.io.OutputHandleFactory;
+import com.google.edwmigration.dumper.application.dumper.metrics.TaskDetailedSummary;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the per-task performance metrics of the run into the dump, so that slow extractions can
+ * be diagnosed from the output file alone.
+ */
+public class TaskMetricsWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(TaskMetricsWriter.class);
+
+  @VisibleForTesting static final String METRICS_FILE = "metrics.json";
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper()
+          .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+          .enable(SerializationFeature.INDENT_OUTPUT);
+
+  private static class Report {
+
+    @JsonProperty private final List<TaskDetailedSummary> tasks;
+
+    Report(List<TaskDetailedSummary> tasks) {
+      this.tasks = tasks;
+    }
+  }
+
+  public static void write(@Nonnull OutputHandleFactory sinkFactory, @Nonnull TaskSetState state) {
+    try {
+      byte[] content = MAPPER.writeValueAsBytes(createReport(state));
+      sinkFactory
+          .newOutputFileHandle(METRICS_FILE)
+          .asByteSink(WriteMode.CREATE_TRUNCATE)
+          .write(content);
+    } catch (IOException e) {
+      logger.warn("Failed to write {}", METRICS_FILE, e);
+    }
+  }
+
+  private static Report createReport(@Nonnull TaskSetState state) {
+    List<TaskDetailedSummary> tasks =
+        state.getTaskResultSummaries().stream()
+            .filter(item -> item.getMetrics().isPresent())
+            .map(
+                item ->
+                    new TaskDetailedSummary(
+                        item.getTask().getName(),
+                        item.getTask().getCategory().name(),
+                        item.getTaskState().name(),
+                        item.getThrowable().map(Throwable::getMessage).orElse(null),
+                        item.getMetrics().get()))
+            .collect(Collectors.toList());
+    return new Report(tasks);
+  }
+
+  private TaskMetricsWriter() {}
+}
@@ -21,10 +21,13 @@ import static java.lang.Math.max;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandle;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandle.WriteMode;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandleFactory;
+import com.google.edwmigration.dumper.application.dumper.metrics.TaskMetrics;
+import com.google.edwmigration.dumper.application.dumper.task.Summary;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
 import com.google.edwmigration.dumper.application.dumper.task.TaskGroup;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
@@ -37,6 +40,8 @@ import java.sql.SQLException;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -56,6 +61,7 @@ public class TasksRunner implements TaskRunContextOps {
   private final TaskRunContext context;
   private final TaskSetState.Impl state;
   private final List<Task<?>> tasks;
+  private final Set<TaskMetrics> runningTaskMetrics = ConcurrentHashMap.newKeySet();
 
   public TasksRunner(
       OutputHandleFactory sinkFactory,
@@ -97,6 +103,20 @@ public class TasksRunner implements TaskRunContextOps {
     }
   }
 
+  public int getNumberOfCompletedTasks() {
+    return numberOfCompletedTasks.get();
+  }
+
+  public int getTotalNumberOfTasks() {
+    return totalNumberOfTasks;
+  }
+
+  /** Returns the live metrics of the tasks which are currently running. */
+  @Nonnull
+  public ImmutableList<TaskMetrics> getRunningTaskMetrics() {
+    return ImmutableList.copyOf(runningTaskMetrics);
+  }
+
   @CheckForNull
   private <T> T handleTask(Task<T> task) throws MetadataDumperUsageException {
     T t = runTask(task);
@@ -148,7 +168,7 @@ public class TasksRunner implements TaskRunContextOps {
 
       RUN:
       {
-        T value = task.run(context);
+        T value = runWithMetrics(task);
         state.setTaskResult(task, TaskState.SUCCEEDED, value);
         return value;
       }
@@ -183,6 +203,22 @@ public class TasksRunner implements TaskRunContextOps {
     return null;
   }
 
+  private <T> T runWithMetrics(Task<T> task) throws Exception {
+    TaskMetrics metrics = new TaskMetrics(task.getName());
+    runningTaskMetrics.add(metrics);
+    try (TaskMetrics.Scope scope = metrics.bind()) {
+      T value = task.run(context);
+      if (value instanceof Summary && metrics.getRowCount() == 0) {
+        // Tasks which don't go through AbstractJdbcTask report their rows only in the summary.
+        metrics.addRows(((Summary) value).rowCount());
+      }
+      return value;
+    } finally {
+      state.setTaskMetrics(task, metrics.finish());
+      runningTaskMetrics.remove(metrics);
+    }
+  }
+
   private int countTasks(List<Task<?>> tasks) {
     return tasks.stream()
         .mapToInt(task -> task instanceof TaskGroup ? countTasks(((TaskGroup) task).getTasks()) : 1)
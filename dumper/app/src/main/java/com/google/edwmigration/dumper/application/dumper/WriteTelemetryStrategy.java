@@ -63,7 +63,8 @@ public class WriteTelemetryStrategy implements TelemetryStrategy {
                           item.getTaskState().name(),
                           item.getThrowable().isPresent()
                               ? item.getThrowable().get().getMessage()
-                              : null))
+                              : null,
+                          item.getMetrics().orElse(null)))
               .collect(Collectors.toList());
 
       Duration elapsed = stopwatch.elapsed();
@@ -19,12 +19,15 @@ package com.google.edwmigration.dumper.application.dumper.connector.hadoop;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.ByteSink;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandle;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
 import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.nio.file.Path;
@@ -35,6 +38,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,13 +49,32 @@ public class BashTask implements Task<Void> {
 
   private static final Duration SCRIPT_TIMEOUT = Duration.ofMinutes(1);
 
+  /**
+   * How long the pumps may take to drain once the script has exited or been destroyed. A child of
+   * the script may keep its pipes open after the script itself is gone.
+   */
+  private static final Duration PUMP_GRACE_PERIOD = Duration.ofSeconds(5);
+
+  /** Drains the output and error streams of the scripts, which may run concurrently. */
+  private static final ExecutorService STREAM_PUMPS =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat("bash-stream-%d").setDaemon(true).build());
+
   private final String scriptName;
 
   private final Path scriptFile;
 
+  private final Duration timeout;
+
   public BashTask(String scriptName, Path scriptFile) {
+    this(scriptName, scriptFile, SCRIPT_TIMEOUT);
+  }
+
+  @VisibleForTesting
+  BashTask(String scriptName, Path scriptFile, Duration timeout) {
     this.scriptName = scriptName;
     this.scriptFile = scriptFile;
+    this.timeout = timeout;
   }
 
   @Override
@@ -58,54 +82,55 @@ public class BashTask implements Task<Void> {
     return scriptName + ".out";
   }
 
-  private void doRun(ByteSink outputSink, ByteSink errorSink, ByteSink exitStatusSink)
+  @VisibleForTesting
+  void doRun(ByteSink outputSink, ByteSink errorSink, ByteSink exitStatusSink)
       throws IOException, ExecutionException {
     logger.info("Running bash task '{}'", scriptName);
     Process process =
         new ProcessBuilder("/bin/bash", scriptFile.toAbsolutePath().toString()).start();
-    Future<Void> outputStreamPump;
-    Future<Void> errorStreamPump;
-    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    process.getOutputStream().close();
+    String exitStatus = "failed";
     try (OutputStream outputStream = outputSink.openBufferedStream();
         OutputStream errorStream = errorSink.openBufferedStream()) {
-      outputStreamPump =
-          executorService.submit(
-              throwing(() -> IOUtils.copy(process.getInputStream(), outputStream)));
-      errorStreamPump =
-          executorService.submit(
-              throwing(() -> IOUtils.copy(process.getErrorStream(), errorStream)));
-      boolean processFinished = process.waitFor(SCRIPT_TIMEOUT.getSeconds(), TimeUnit.SECONDS);
-      logger.info("Process finished: '{}'", processFinished);
+      StreamPump outputStreamPump = new StreamPump(process.getInputStream(), outputStream);
+      StreamPump errorStreamPump = new StreamPump(process.getErrorStream(), errorStream);
+      try {
+        outputStreamPump.start();
+        errorStreamPump.start();
+        boolean processFinished = process.waitFor(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        logger.info("Process finished: '{}'", processFinished);
+        if (!processFinished) {
+          logger.warn("Bash task '{}' timed out after {}, destroying it", scriptName, timeout);
+          process.destroyForcibly();
+        }
+        exitStatus = processFinished ? process.exitValue() + "" : "timeout";
+        awaitPump(outputStreamPump, "output");
+        awaitPump(errorStreamPump, "error");
+      } finally {
+        // The pumps write to the streams, so they are stopped before the streams are closed.
+        // Closing the pipes makes a pump blocked in a read fail, rather than outlive the task.
+        IOUtils.closeQuietly(process.getInputStream());
+        IOUtils.closeQuietly(process.getErrorStream());
+        outputStreamPump.stop();
+        errorStreamPump.stop();
+      }
     } catch (InterruptedException e) {
-      writeExitStatus(exitStatusSink, "interrupted");
+      process.destroyForcibly();
+      exitStatus = "interrupted";
       throw new RuntimeException(e);
     } finally {
-      executorService.shutdown();
+      writeExitStatus(exitStatusSink, exitStatus);
     }
-    writeExitStatusOrTimeout(exitStatusSink, process);
-    propagateException(outputStreamPump, "output");
-    propagateException(errorStreamPump, "error");
   }
 
-  private void propagateException(Future<Void> future, String streamName)
-      throws ExecutionException {
+  /** Waits for a pump to drain its stream, and abandons it if the stream stays open. */
+  private void awaitPump(StreamPump pump, String streamName)
+      throws ExecutionException, InterruptedException {
     try {
-      future.get();
-    } catch (InterruptedException ex) {
-      Thread.currentThread().interrupt();
-      throw new IllegalStateException(
-          String.format(
-              "Error while processing the '%s' stream from the bash command.", streamName),
-          ex);
-    }
-  }
-
-  private static void writeExitStatusOrTimeout(ByteSink exitStatusSink, Process process)
-      throws IOException {
-    try {
-      writeExitStatus(exitStatusSink, process.exitValue() + "");
-    } catch (Exception e) {
-      writeExitStatus(exitStatusSink, "timeout");
+      pump.await(PUMP_GRACE_PERIOD);
+    } catch (TimeoutException e) {
+      logger.warn(
+          "The '{}' stream of bash task '{}' is still open, abandoning it", streamName, scriptName);
     }
   }
 
@@ -149,4 +174,53 @@ public class BashTask implements Task<Void> {
   private interface ThrowingRunnable {
     void run() throws Exception;
   }
+
+  /**
+   * Copies a stream of the script to a sink on a pump thread. Once stopped, the pump no longer
+   * writes to the sink, even if its thread is still blocked reading a pipe held open by a child of
+   * the script.
+   */
+  private static final class StreamPump {
+
+    private final InputStream in;
+    private final OutputStream out;
+    @Nullable private Future<Void> future;
+    // Guarded by this.
+    private boolean stopped;
+
+    StreamPump(InputStream in, OutputStream out) {
+      this.in = in;
+      this.out = out;
+    }
+
+    void start() {
+      future = STREAM_PUMPS.submit(throwing(this::copy));
+    }
+
+    private void copy() throws IOException {
+      byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+      for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+        synchronized (this) {
+          if (stopped) {
+            return;
+          }
+          out.write(buffer, 0, length);
+        }
+      }
+    }
+
+    void await(Duration timeout) throws ExecutionException, InterruptedException, TimeoutException {
+      future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /** Stops the pump, waiting for a write in progress to complete. */
+    void stop() {
+      synchronized (this) {
+        stopped = true;
+      }
+      if (future != null) {
+        future.cancel(true);
+      }
+    }
+  }
 }
@@ -30,6 +30,7 @@ import com.google.edwmigration.dumper.application.dumper.connector.MetadataConne
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.task.DumpMetadataTask;
 import com.google.edwmigration.dumper.application.dumper.task.FormatTask;
+import com.google.edwmigration.dumper.application.dumper.task.ParallelTaskGroup;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
 import com.google.edwmigration.dumper.application.dumper.utils.ArchiveNameUtil;
 import com.google.edwmigration.dumper.plugin.ext.jdk.annotation.Description;
@@ -109,17 +110,21 @@ public class HadoopMetadataConnector implements MetadataConnector {
       throws Exception {
     out.add(new DumpMetadataTask(FORMAT_NAME));
     out.add(new FormatTask(FORMAT_NAME));
+    // The scripts are independent local processes, so they run concurrently on the task
+    // executor, bounded by --thread-pool-size.
+    ParallelTaskGroup.Builder scripts = new ParallelTaskGroup.Builder(getName());
     SCRIPT_NAMES.stream()
         .map(scriptName -> new BashTask(scriptName, HadoopScripts.extract(scriptName + ".sh")))
-        .forEach(out::add);
-    out.addAll(generateTasksForSingleLineScripts());
-    out.addAll(generateServiceScripts());
-    out.add(
+        .forEach(scripts::addTask);
+    generateTasksForSingleLineScripts().forEach(scripts::addTask);
+    generateServiceScripts().forEach(scripts::addTask);
+    scripts.addTask(
         new BashTask(
             "local-filesystem",
             HadoopScripts.create(
                 "local-filesystem.sh",
                 LocalFilesystemScanCommandGenerator.generate().getBytes(UTF_8))));
+    out.add(scripts.build());
   }
 
   private ImmutableList<Task<?>> generateTasksForSingleLineScripts() {
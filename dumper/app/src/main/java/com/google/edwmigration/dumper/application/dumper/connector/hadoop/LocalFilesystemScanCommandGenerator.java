@@ -41,12 +41,22 @@ public class LocalFilesystemScanCommandGenerator {
           "elasticsearch.yml",
           "ganglia.conf");
 
+  /** Pseudo filesystems which are never searched. */
+  private static final ImmutableList<String> PRUNED_PATHS =
+      ImmutableList.of("/proc", "/sys", "/dev", "/run");
+
+  /**
+   * Returns a single {@code find} walk matching all the search expressions, which skips the pseudo
+   * filesystems instead of descending into them.
+   */
   public static String generate() {
-    return "find / "
+    return "find / \\( "
+        + PRUNED_PATHS.stream().map(path -> "-path " + quote(path)).collect(joining(" -o "))
+        + " \\) -prune -o \\( "
         + SEARCH_EXPRESSIONS.stream()
             .map(searchExpression -> "-iname " + quote(searchExpression))
             .collect(joining(" -o "))
-        + " 2>/dev/null";
+        + " \\) -print 2>/dev/null";
   }
 
   private static String quote(String expression) {
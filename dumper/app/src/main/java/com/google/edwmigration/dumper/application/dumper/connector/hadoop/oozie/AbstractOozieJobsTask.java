@@ -21,17 +21,31 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteSink;
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.task.AbstractTask;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
+import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.ExecutorManager;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -53,6 +67,7 @@ public abstract class AbstractOozieJobsTask<J> extends AbstractTask<Void> {
       DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm'Z'").withZone(ZoneOffset.UTC);
   private static final int INITIAL_OOZIE_JOBS_OFFSET = 1; // starts with 1, not 0.
   private static final String SORT_BY_END_TIME = OozieClient.FILTER_SORT_BY + "=endTime;";
+  private static final int MAX_PAGES_AHEAD = 4;
 
   private final ZonedDateTime startDate;
   private final ZonedDateTime endDate;
@@ -79,25 +94,38 @@ public abstract class AbstractOozieJobsTask<J> extends AbstractTask<Void> {
       throws Exception {
     final CSVFormat csvFormat = createJobSpecificCSVFormat();
     final ImmutableList<String> csvHeader = ImmutableList.copyOf(csvFormat.getHeader());
+    final ImmutableList<MethodHandle> accessors = createAccessors(oozieJobClass, csvHeader);
 
-    try (CSVPrinter printer = csvFormat.print(sink.asCharSink(UTF_8).openBufferedStream())) {
-      XOozieClient oozieClient = ((OozieHandle) handle).getOozieClient();
-      final int batchSize = context.getArguments().getPaginationPageSize();
-      final long minJobEndTimeTimestamp = startDate.toInstant().toEpochMilli();
-      final long maxJobEndTimeTimestamp = endDate.toInstant().toEpochMilli();
+    XOozieClient oozieClient = ((OozieHandle) handle).getOozieClient();
+    final int batchSize = context.getArguments().getPaginationPageSize();
+    final int fetchThreads =
+        Math.max(1, Math.min(MAX_PAGES_AHEAD, context.getArguments().getThreadPoolSize()));
+    final long minJobEndTimeTimestamp = startDate.toInstant().toEpochMilli();
+    final long maxJobEndTimeTimestamp = endDate.toInstant().toEpochMilli();
+    final String filter = SORT_BY_END_TIME + createServerSideFilter();
 
-      int offset = INITIAL_OOZIE_JOBS_OFFSET;
+    ExecutorService executor =
+        ExecutorManager.newUnboundedExecutorService(
+            "oozie-" + oozieJobClass.getSimpleName(), fetchThreads);
+    try (CSVPrinter printer = csvFormat.print(sink.asCharSink(UTF_8).openBufferedStream());
+        PageFetcher pageFetcher =
+            new PageFetcher(executor, oozieClient, filter, batchSize, fetchThreads)) {
       long latestFetchedJobEndTimestamp = maxJobEndTimeTimestamp; // start iteration from end time
 
       logger.info(
-          "Start fetching Oozie jobs for type {} from [{}] to [{}] by {} with client side filtering",
+          "Start fetching Oozie jobs for type {} from [{}] to [{}] by {} on {} threads with filter"
+              + " [{}] and client side filtering",
           oozieJobClass.getSimpleName(),
           toISO(startDate),
           toISO(endDate),
-          batchSize);
+          batchSize,
+          fetchThreads,
+          filter);
 
+      // Jobs are sorted by end time in descending order, so once a page ends before the start date
+      // no later page can hold a job in range and the pages fetched ahead are dropped.
       while (latestFetchedJobEndTimestamp >= minJobEndTimeTimestamp) {
-        List<J> jobs = fetchJobsWithFilter(oozieClient, SORT_BY_END_TIME, offset, batchSize);
+        List<J> jobs = pageFetcher.next();
         for (J job : jobs) {
           if (!isInDateRange(job, minJobEndTimeTimestamp, maxJobEndTimeTimestamp)) {
             // It's client side filtering. It's inefficient.
@@ -107,7 +135,7 @@ public abstract class AbstractOozieJobsTask<J> extends AbstractTask<Void> {
             // So, job creation time is not what is really needed.
             continue;
           }
-          Object[] record = toCSVRecord(job, csvHeader);
+          Object[] record = toCSVRecord(job, accessors);
           printer.printRecord(record);
         }
 
@@ -121,10 +149,11 @@ public abstract class AbstractOozieJobsTask<J> extends AbstractTask<Void> {
         if (!isLastJobInProgress) {
           latestFetchedJobEndTimestamp = endTime.getTime();
         }
-        offset += jobs.size();
       }
 
       printer.println();
+    } finally {
+      executor.shutdownNow();
     }
     return null;
   }
@@ -150,14 +179,48 @@ public abstract class AbstractOozieJobsTask<J> extends AbstractTask<Void> {
   @Nullable
   abstract Date getJobEndTime(J job);
 
-  private static String toISO(ZonedDateTime dateTime) {
+  /**
+   * Returns the filter applied by the Oozie server on top of the sort order, as {@code
+   * OozieClient.FILTER_*} clauses each terminated by a semicolon. It must only drop jobs which
+   * {@link #isInDateRange} rejects.
+   */
+  String createServerSideFilter() {
+    return "";
+  }
+
+  static String toISO(ZonedDateTime dateTime) {
     return ISO8601_UTC_FORMAT.format(dateTime.toInstant());
   }
 
-  private static Object[] toCSVRecord(Object job, ImmutableList<String> header) throws Exception {
-    Object[] record = new Object[header.size()];
-    for (int i = 0; i < header.size(); i++) {
-      record[i] = PropertyUtils.getProperty(job, header.get(i));
+  /** Resolves the getter of each CSV column once, instead of looking it up for every job. */
+  private static ImmutableList<MethodHandle> createAccessors(
+      Class<?> jobClass, ImmutableList<String> header) throws IllegalAccessException {
+    Map<String, Method> getters = new HashMap<>();
+    for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(jobClass)) {
+      getters.put(descriptor.getName(), descriptor.getReadMethod());
+    }
+    MethodType getterType = MethodType.methodType(Object.class, Object.class);
+    ImmutableList.Builder<MethodHandle> accessors = ImmutableList.builder();
+    for (String property : header) {
+      Method getter = getters.get(property);
+      Preconditions.checkState(
+          getter != null, "No getter for property %s of %s.", property, jobClass.getName());
+      accessors.add(MethodHandles.publicLookup().unreflect(getter).asType(getterType));
+    }
+    return accessors.build();
+  }
+
+  private static Object[] toCSVRecord(Object job, ImmutableList<MethodHandle> accessors)
+      throws Exception {
+    Object[] record = new Object[accessors.size()];
+    for (int i = 0; i < accessors.size(); i++) {
+      try {
+        record[i] = (Object) accessors.get(i).invokeExact(job);
+      } catch (Throwable t) {
+        Throwables.throwIfInstanceOf(t, Exception.class);
+        Throwables.throwIfUnchecked(t);
+        throw new IllegalStateException(t);
+      }
       if (record[i] != null && record[i] instanceof Date) {
         // avoid date formats complexity and use milliseconds
         record[i] = ((Date) record[i]).getTime();
@@ -170,6 +233,87 @@ public abstract class AbstractOozieJobsTask<J> extends AbstractTask<Void> {
     return record;
   }
 
+  /**
+   * Fetches the pages of jobs ahead of the consumer. The pages are requested at consecutive offsets
+   * assuming that each page is full. When the server returns a short page, because it has no more
+   * jobs or caps the page size, the pages fetched ahead are dropped and the following pages are
+   * fetched one at a time, right after the short page.
+   */
+  private class PageFetcher implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final XOozieClient oozieClient;
+    private final String filter;
+    private final int batchSize;
+    private final Deque<Page<J>> pages = new ArrayDeque<>();
+    private int pagesAhead;
+    private int nextOffset = INITIAL_OOZIE_JOBS_OFFSET;
+
+    PageFetcher(
+        ExecutorService executor,
+        XOozieClient oozieClient,
+        String filter,
+        int batchSize,
+        int maxPagesAhead) {
+      this.executor = executor;
+      this.oozieClient = oozieClient;
+      this.filter = filter;
+      this.batchSize = batchSize;
+      this.pagesAhead = maxPagesAhead;
+    }
+
+    List<J> next() throws Exception {
+      while (pages.size() < pagesAhead) {
+        int offset = nextOffset;
+        pages.add(
+            new Page<>(
+                offset,
+                executor.submit(
+                    () -> fetchJobsWithFilter(oozieClient, filter, offset, batchSize))));
+        nextOffset += batchSize;
+      }
+      Page<J> page = pages.remove();
+      List<J> jobs;
+      try {
+        jobs = page.jobs.get();
+      } catch (ExecutionException e) {
+        Throwables.throwIfInstanceOf(e.getCause(), Exception.class);
+        Throwables.throwIfUnchecked(e.getCause());
+        throw e;
+      }
+      if (jobs.size() < batchSize) {
+        dropPages();
+        nextOffset = page.offset + jobs.size();
+        // The server either ran out of jobs or caps the page size, so pages ahead are wasted.
+        pagesAhead = 1;
+      }
+      return jobs;
+    }
+
+    private void dropPages() {
+      for (Page<J> page : pages) {
+        page.jobs.cancel(true);
+      }
+      pages.clear();
+    }
+
+    @Override
+    public void close() {
+      dropPages();
+    }
+  }
+
+  private static class Page<J> {
+
+    private final int offset;
+    private final Future<List<J>> jobs;
+
+    Page(int offset, Future<List<J>> jobs) {
+      this.offset = offset;
+      this.jobs = jobs;
+    }
+  }
+
   @VisibleForTesting
   ZonedDateTime getStartDate() {
     return startDate;
@@ -31,6 +31,7 @@ import com.google.edwmigration.dumper.application.dumper.connector.MetadataConne
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.task.DumpMetadataTask;
 import com.google.edwmigration.dumper.application.dumper.task.FormatTask;
+import com.google.edwmigration.dumper.application.dumper.task.ParallelTaskGroup;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
 import com.google.edwmigration.dumper.application.dumper.utils.ArchiveNameUtil;
 import com.google.edwmigration.dumper.plugin.ext.jdk.annotation.Description;
@@ -105,9 +106,12 @@ public class OozieConnector extends AbstractConnector implements MetadataConnect
       startDate = arguments.getStartDate();
       endDate = arguments.getEndDate();
     }
-    out.add(new OozieWorkflowJobsTask(startDate, endDate));
-    out.add(new OozieCoordinatorJobsTask(startDate, endDate));
-    out.add(new OozieBundleJobsTask(startDate, endDate));
+    out.add(
+        new ParallelTaskGroup.Builder(getName())
+            .addTask(new OozieWorkflowJobsTask(startDate, endDate))
+            .addTask(new OozieCoordinatorJobsTask(startDate, endDate))
+            .addTask(new OozieBundleJobsTask(startDate, endDate))
+            .build());
   }
 
   @Nonnull
@@ -120,6 +124,9 @@ public class OozieConnector extends AbstractConnector implements MetadataConnect
       password = arguments.getPasswordOrPrompt();
     }
     XOozieClient xOozieClient = OozieClientFactory.createXOozieClient(oozieUrl, user, password);
+    // The client resolves the protocol version lazily on its first call. Resolve it here, so the
+    // tasks sharing the client from several threads only read it.
+    xOozieClient.validateWSVersion();
     return new OozieHandle(xOozieClient);
   }
 }
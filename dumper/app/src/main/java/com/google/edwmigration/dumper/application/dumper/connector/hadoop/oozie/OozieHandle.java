@@ -20,6 +20,13 @@ import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import java.io.IOException;
 import org.apache.oozie.client.XOozieClient;
 
+/**
+ * Holds the Oozie client shared by the tasks of the connector, which fetch jobs from several
+ * threads at once. Each call of the client opens its own HTTP connection, so the client is safe to
+ * share as long as its state is not changed concurrently: its headers and retry count must not be
+ * changed once the handle is created, and {@link OozieConnector#open} validates the protocol
+ * version, which the client would otherwise resolve lazily on its first call.
+ */
 public class OozieHandle implements Handle {
   private final XOozieClient oozieClient;
 
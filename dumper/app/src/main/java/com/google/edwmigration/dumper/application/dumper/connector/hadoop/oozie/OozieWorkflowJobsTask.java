@@ -17,8 +17,10 @@
 package com.google.edwmigration.dumper.application.dumper.connector.hadoop.oozie;
 
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.List;
+import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.client.OozieClientException;
 import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.client.XOozieClient;
@@ -46,6 +48,18 @@ public class OozieWorkflowJobsTask extends AbstractOozieJobsTask<WorkflowJob> {
     return oozieClient.getJobsInfo(oozieFilter, start, len);
   }
 
+  @Override
+  String createServerSideFilter() {
+    // A workflow ends after it is created, so the workflows created after the end date can't end
+    // within the range. Oozie filters by the minute, so the end date is rounded up.
+    ZonedDateTime endDate = getEndDate();
+    ZonedDateTime createdTimeEnd = endDate.truncatedTo(ChronoUnit.MINUTES);
+    if (createdTimeEnd.isBefore(endDate)) {
+      createdTimeEnd = createdTimeEnd.plusMinutes(1);
+    }
+    return OozieClient.FILTER_CREATED_TIME_END + "=" + toISO(createdTimeEnd) + ";";
+  }
+
   @Override
   Date getJobEndTime(WorkflowJob job) {
     return job.getEndTime();
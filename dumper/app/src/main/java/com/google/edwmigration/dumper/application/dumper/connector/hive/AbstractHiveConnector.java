@@ -70,6 +70,14 @@ import org.slf4j.LoggerFactory;
         "Dump partition metadata; you may wish to disable this for production metastores with a"
             + " significant number of partitions due to Thrift client performance implications.",
     defaultValue = ConnectorArguments.OPT_HIVE_METASTORE_DUMP_PARTITION_METADATA_DEFAULT)
+@RespectsInput(
+    order = 402,
+    arg = ConnectorArguments.OPT_HIVE_METASTORE_REFERENCE_STORAGE_DESCRIPTORS,
+    description =
+        "Write each StorageDescriptor and SerDeInfo of a partition equal to one written before for"
+            + " the same table as {\"$ref\":id}, referring to the one written with an \"$id\""
+            + " field. Reduces the size of the partition metadata of tables with many partitions.",
+    defaultValue = ConnectorArguments.OPT_HIVE_METASTORE_REFERENCE_STORAGE_DESCRIPTORS_DEFAULT)
 @RespectsInput(
     order = 500,
     arg = ConnectorArguments.OPT_THREAD_POOL_SIZE,
@@ -19,8 +19,6 @@ package com.google.edwmigration.dumper.application.dumper.connector.hive;
 import static java.lang.String.format;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.auto.service.AutoService;
 import com.google.auto.value.AutoValue;
@@ -28,6 +26,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.io.ByteSink;
 import com.google.common.net.PercentEscaper;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
@@ -306,8 +305,6 @@ public class HiveMetadataConnector extends AbstractHiveConnector
   }
 
   private static class TablesRawJsonlTask extends AbstractHiveMetadataTask {
-    private final JsonFactory jsonFactory = new JsonFactory();
-
     private TablesRawJsonlTask(Predicate<String> databasePredicate) {
       super("tables-raw.jsonl", databasePredicate);
     }
@@ -359,21 +356,20 @@ public class HiveMetadataConnector extends AbstractHiveConnector
                       "defaultConstraints", table.getRawDefaultConstraints(),
                       "checkConstraints", table.getRawCheckConstraints(),
                       "tableStatistics", table.getRawTableStatistics());
-              ThriftJsonSerializer jsonSerializer = new ThriftJsonSerializer();
-              synchronized (writer) {
-                JsonGenerator jsonGenerator = jsonFactory.createGenerator(writer);
-                jsonGenerator.writeStartObject();
-                jsonGenerator.writeFieldName("table");
-                jsonGenerator.writeRawValue(jsonSerializer.serialize(rawTableThriftObject));
-                for (Map.Entry<String, ImmutableList<? extends TBase<?, ?>>> entry :
-                    additionalMetadata.entrySet()) {
-                  jsonGenerator.writeFieldName(entry.getKey());
-                  jsonSerializer.serialize(entry.getValue(), jsonGenerator);
-                }
-                jsonGenerator.writeEndObject();
-                jsonGenerator.flush();
-                writer.write('\n');
-              }
+              ThriftJsonSerializer jsonSerializer = ThriftJsonSerializer.forCurrentThread();
+              jsonSerializer.writeLine(
+                  writer,
+                  jsonGenerator -> {
+                    jsonGenerator.writeStartObject();
+                    jsonGenerator.writeFieldName("table");
+                    jsonSerializer.serialize(rawTableThriftObject, jsonGenerator);
+                    for (Map.Entry<String, ImmutableList<? extends TBase<?, ?>>> entry :
+                        additionalMetadata.entrySet()) {
+                      jsonGenerator.writeFieldName(entry.getKey());
+                      jsonSerializer.serialize(entry.getValue(), jsonGenerator);
+                    }
+                    jsonGenerator.writeEndObject();
+                  });
             } catch (Exception e) {
               // Failure to dump a single table should not prevent the rest of the tables from being
               // dumped.
@@ -397,10 +393,13 @@ public class HiveMetadataConnector extends AbstractHiveConnector
     private final PercentEscaper percentEscaper =
         new PercentEscaper("._,@=", /* plusForSpace= */ false);
 
-    private PartitionsJsonlTask() {
+    private final boolean referenceStorageDescriptors;
+
+    private PartitionsJsonlTask(boolean referenceStorageDescriptors) {
       super(
           "partitions.jsonl",
           TaskOptions.DEFAULT.withTargetInitialization(TargetInitialization.DO_NOT_CREATE));
+      this.referenceStorageDescriptors = referenceStorageDescriptors;
     }
 
     @Override
@@ -442,8 +441,6 @@ public class HiveMetadataConnector extends AbstractHiveConnector
               monitor.count();
               ImmutableList<? extends TBase<?, ?>> partitions =
                   thriftClient.getTable(databaseName, tableName).getRawPartitions();
-              ThriftJsonSerializer jsonSerializer = new ThriftJsonSerializer();
-
               String targetPath =
                   "partitions-"
                       + percentEscaper.escape(databaseName)
@@ -461,10 +458,8 @@ public class HiveMetadataConnector extends AbstractHiveConnector
                   sink.asTemporaryByteSink()
                       .asCharSink(StandardCharsets.UTF_8)
                       .openBufferedStream()) {
-                for (TBase<?, ?> partition : partitions) {
-                  writer.write(jsonSerializer.serialize(partition));
-                  writer.write('\n');
-                }
+                ThriftJsonSerializer.forCurrentThread()
+                    .writeLines(partitions, writer, referenceStorageDescriptors);
               }
               sink.commit();
             } catch (Exception e) {
@@ -659,12 +654,17 @@ public class HiveMetadataConnector extends AbstractHiveConnector
               thriftClientHandle.newClient(getTargetPath() + "-task-client");
           RecordProgressMonitor monitor =
               new RecordProgressMonitor("Writing to " + getTargetPath())) {
-        ThriftJsonSerializer serializer = new ThriftJsonSerializer();
-        for (TBase<?, ?> entity : retrieveEntities(client)) {
-          monitor.count();
-          writer.write(serializer.serialize(entity));
-          writer.write('\n');
-        }
+        ImmutableList<? extends TBase<?, ?>> entities = retrieveEntities(client);
+        ThriftJsonSerializer.forCurrentThread()
+            .writeLines(
+                Iterables.transform(
+                    entities,
+                    entity -> {
+                      monitor.count();
+                      return entity;
+                    }),
+                writer,
+                /* referenceStorageDescriptors= */ false);
       }
     }
 
@@ -709,7 +709,8 @@ public class HiveMetadataConnector extends AbstractHiveConnector
     out.add(new FunctionsJsonlTask());
     out.add(new ResourcePlansJsonlTask());
     out.add(new TablesRawJsonlTask(databasePredicate));
-    out.add(new PartitionsJsonlTask());
+    out.add(
+        new PartitionsJsonlTask(arguments.isHiveMetastoreStorageDescriptorReferencingEnabled()));
     out.add(new TablesJsonTask(databasePredicate, shouldDumpPartitions));
 
     if (arguments.isAssessment()) {
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.hive;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TField;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TMap;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.protocol.TSet;
+import org.apache.thrift.protocol.TSimpleJSONProtocol;
+import org.apache.thrift.protocol.TStruct;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * A Thrift protocol which writes the structs straight to a {@link JsonGenerator}, producing the
+ * same JSON as {@link TSimpleJSONProtocol} without building an intermediate string.
+ *
+ * <p>With references enabled, a {@code StorageDescriptor} or {@code SerDeInfo} equal to one written
+ * before is written as {@code {"$ref":id}} instead, where the first one was written with an
+ * additional {@code "$id":id} field. References are only resolvable within a single output, so
+ * they must be reset between outputs.
+ *
+ * <p>Only writing is supported. The protocol is not thread-safe.
+ */
+class ThriftJsonProtocol extends TSimpleJSONProtocol {
+
+  private static final ImmutableSet<String> REFERENCED_STRUCTS =
+      ImmutableSet.of("StorageDescriptor", "SerDeInfo");
+
+  private static final JsonFactory jsonFactory = new JsonFactory();
+
+  private interface GeneratorAction {
+    void apply(JsonGenerator generator) throws IOException;
+  }
+
+  /** An open struct, list, set or map. */
+  private static class Context {
+
+    private final boolean map;
+    private final boolean captured;
+    private boolean nextIsKey = true;
+
+    Context(boolean map, boolean captured) {
+      this.map = map;
+      this.captured = captured;
+    }
+  }
+
+  /**
+   * A struct which may be replaced by a reference. It is written both without references, to
+   * identify equal structs, and with references to the structs nested in it, to be written out.
+   */
+  private static class Capture {
+
+    private final StringWriter canonical = new StringWriter();
+    private final StringWriter actual = new StringWriter();
+    private final JsonGenerator canonicalGenerator;
+    private final JsonGenerator actualGenerator;
+
+    Capture() throws IOException {
+      canonicalGenerator = jsonFactory.createGenerator(canonical);
+      actualGenerator = jsonFactory.createGenerator(actual);
+    }
+  }
+
+  private final TMemoryBuffer unusedTransport;
+  private final Deque<Context> contexts = new ArrayDeque<>();
+  private final Deque<Capture> captures = new ArrayDeque<>();
+  private final Map<String, Integer> references = new HashMap<>();
+  @CheckForNull private JsonGenerator generator;
+  private boolean referencesEnabled;
+  private int unsupportedWritesLength;
+
+  ThriftJsonProtocol() throws TTransportException {
+    this(new TMemoryBuffer(0));
+  }
+
+  private ThriftJsonProtocol(TMemoryBuffer unusedTransport) {
+    super(unusedTransport);
+    this.unusedTransport = unusedTransport;
+  }
+
+  /** Sets the generator the next structs are written to. */
+  void setGenerator(@Nonnull JsonGenerator generator) {
+    Preconditions.checkState(contexts.isEmpty(), "A struct is being written.");
+    this.generator = generator;
+  }
+
+  /** Enables or disables references, forgetting the structs written before. */
+  void resetReferences(boolean enabled) {
+    Preconditions.checkState(contexts.isEmpty(), "A struct is being written.");
+    referencesEnabled = enabled;
+    references.clear();
+  }
+
+  /** Checks that no write fell through to the unsupported {@link TSimpleJSONProtocol} methods. */
+  void checkWritesSupported() {
+    int length = unusedTransport.length();
+    boolean supported = length == unsupportedWritesLength;
+    unsupportedWritesLength = length;
+    Preconditions.checkState(supported, "The Thrift object contains an unsupported type.");
+  }
+
+  /** Drops the state of a struct which failed to be written. */
+  void abort() {
+    contexts.clear();
+    captures.clear();
+  }
+
+  @Override
+  public void writeStructBegin(TStruct struct) throws TException {
+    checkNotMapKey();
+    boolean captured = referencesEnabled && REFERENCED_STRUCTS.contains(struct.name);
+    if (captured) {
+      try {
+        captures.push(new Capture());
+      } catch (IOException e) {
+        throw new TTransportException(e);
+      }
+    }
+    emit(JsonGenerator::writeStartObject);
+    contexts.push(new Context(/* map= */ false, captured));
+  }
+
+  @Override
+  public void writeStructEnd() throws TException {
+    emit(JsonGenerator::writeEndObject);
+    if (contexts.pop().captured) {
+      writeCapture(captures.pop());
+    }
+  }
+
+  @Override
+  public void writeFieldBegin(TField field) throws TException {
+    emit(g -> g.writeFieldName(field.name));
+  }
+
+  @Override
+  public void writeFieldEnd() {}
+
+  @Override
+  public void writeFieldStop() {}
+
+  @Override
+  public void writeMapBegin(TMap map) throws TException {
+    checkNotMapKey();
+    emit(JsonGenerator::writeStartObject);
+    contexts.push(new Context(/* map= */ true, /* captured= */ false));
+  }
+
+  @Override
+  public void writeMapEnd() throws TException {
+    contexts.pop();
+    emit(JsonGenerator::writeEndObject);
+  }
+
+  @Override
+  public void writeListBegin(TList list) throws TException {
+    checkNotMapKey();
+    emit(JsonGenerator::writeStartArray);
+    contexts.push(new Context(/* map= */ false, /* captured= */ false));
+  }
+
+  @Override
+  public void writeListEnd() throws TException {
+    contexts.pop();
+    emit(JsonGenerator::writeEndArray);
+  }
+
+  @Override
+  public void writeSetBegin(TSet set) throws TException {
+    checkNotMapKey();
+    emit(JsonGenerator::writeStartArray);
+    contexts.push(new Context(/* map= */ false, /* captured= */ false));
+  }
+
+  @Override
+  public void writeSetEnd() throws TException {
+    contexts.pop();
+    emit(JsonGenerator::writeEndArray);
+  }
+
+  @Override
+  public void writeBool(boolean b) throws TException {
+    // Like TSimpleJSONProtocol.
+    writeI64(b ? 1 : 0);
+  }
+
+  @Override
+  public void writeByte(byte b) throws TException {
+    writeI64(b);
+  }
+
+  @Override
+  public void writeI16(short i16) throws TException {
+    writeI64(i16);
+  }
+
+  @Override
+  public void writeI32(int i32) throws TException {
+    writeI64(i32);
+  }
+
+  @Override
+  public void writeI64(long i64) throws TException {
+    if (isMapKey()) {
+      emit(g -> g.writeFieldName(Long.toString(i64)));
+    } else {
+      emit(g -> g.writeNumber(i64));
+    }
+  }
+
+  @Override
+  public void writeDouble(double dub) throws TException {
+    if (isMapKey()) {
+      emit(g -> g.writeFieldName(Double.toString(dub)));
+    } else {
+      emit(g -> g.writeNumber(dub));
+    }
+  }
+
+  @Override
+  public void writeString(String str) throws TException {
+    if (isMapKey()) {
+      emit(g -> g.writeFieldName(str));
+    } else {
+      emit(g -> g.writeString(str));
+    }
+  }
+
+  @Override
+  public void writeBinary(ByteBuffer bin) throws TException {
+    // Like TSimpleJSONProtocol, which writes the bytes as a UTF-8 string.
+    writeString(StandardCharsets.UTF_8.decode(bin.duplicate()).toString());
+  }
+
+  /** Returns whether the value being written is the key of a map entry. */
+  private boolean isMapKey() {
+    Context context = contexts.peek();
+    if (context == null || !context.map) {
+      return false;
+    }
+    boolean isKey = context.nextIsKey;
+    context.nextIsKey = !isKey;
+    return isKey;
+  }
+
+  private void checkNotMapKey() throws TProtocolException {
+    if (isMapKey()) {
+      throw new TProtocolException(
+          TProtocolException.INVALID_DATA, "Only primitive types can be JSON map keys.");
+    }
+  }
+
+  private void emit(GeneratorAction action) throws TException {
+    try {
+      Capture capture = captures.peek();
+      if (capture == null) {
+        action.apply(Preconditions.checkNotNull(generator, "Generator was not set."));
+      } else {
+        action.apply(capture.canonicalGenerator);
+        action.apply(capture.actualGenerator);
+      }
+    } catch (IOException e) {
+      throw new TTransportException(e);
+    }
+  }
+
+  private void writeCapture(Capture capture) throws TException {
+    String canonical;
+    String actual;
+    try {
+      capture.canonicalGenerator.flush();
+      capture.actualGenerator.flush();
+      canonical = capture.canonical.toString();
+      actual = capture.actual.toString();
+    } catch (IOException e) {
+      throw new TTransportException(e);
+    }
+    Integer id = references.get(canonical);
+    Capture parent = captures.peek();
+    if (parent != null) {
+      emitCanonical(parent, canonical);
+    }
+    if (id != null) {
+      emitActual(
+          parent,
+          g -> {
+            g.writeStartObject();
+            g.writeNumberField("$ref", id);
+            g.writeEndObject();
+          });
+    } else {
+      int newId = references.size() + 1;
+      references.put(canonical, newId);
+      String fields = actual.substring(1);
+      String withId = "{\"$id\":" + newId + (fields.equals("}") ? "" : ",") + fields;
+      emitActual(parent, g -> g.writeRawValue(withId));
+    }
+  }
+
+  private static void emitCanonical(Capture parent, String canonical) throws TException {
+    try {
+      parent.canonicalGenerator.writeRawValue(canonical);
+    } catch (IOException e) {
+      throw new TTransportException(e);
+    }
+  }
+
+  private void emitActual(@CheckForNull Capture parent, GeneratorAction action)
+      throws TException {
+    try {
+      if (parent == null) {
+        action.apply(Preconditions.checkNotNull(generator, "Generator was not set."));
+      } else {
+        action.apply(parent.actualGenerator);
+      }
+    } catch (IOException e) {
+      throw new TTransportException(e);
+    }
+  }
+}
@@ -16,24 +16,72 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.hive;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.CharArrayWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
 import org.apache.thrift.TBase;
 import org.apache.thrift.TException;
-import org.apache.thrift.TSerializer;
-import org.apache.thrift.protocol.TSimpleJSONProtocol;
 import org.apache.thrift.transport.TTransportException;
 
+/**
+ * Serializes Thrift objects to the JSON of {@code TSimpleJSONProtocol}, streaming them to a {@link
+ * JsonGenerator}. A serializer is not thread-safe but is meant to be reused, see {@link
+ * #forCurrentThread()}.
+ */
 public class ThriftJsonSerializer {
-  private final TSerializer underlyingSerializer;
+
+  private static final JsonFactory jsonFactory = new JsonFactory();
+
+  private static final ThreadLocal<ThriftJsonSerializer> serializers =
+      ThreadLocal.withInitial(
+          () -> {
+            try {
+              return new ThriftJsonSerializer();
+            } catch (TTransportException e) {
+              throw new IllegalStateException("Failed to create a Thrift JSON serializer.", e);
+            }
+          });
+
+  private final ThriftJsonProtocol protocol;
+  private final CharArrayWriter lineBuffer = new CharArrayWriter();
+
+  public interface JsonLineWriter {
+    void write(JsonGenerator jsonGenerator) throws IOException, TException;
+  }
 
   public ThriftJsonSerializer() throws TTransportException {
-    this.underlyingSerializer = new TSerializer(new TSimpleJSONProtocol.Factory());
+    this.protocol = new ThriftJsonProtocol();
+  }
+
+  /** Returns the serializer of the current thread. */
+  public static ThriftJsonSerializer forCurrentThread() {
+    return serializers.get();
   }
 
   public String serialize(TBase<?, ?> thriftObject) throws TException {
-    return underlyingSerializer.toString(thriftObject);
+    StringWriter writer = new StringWriter();
+    try (JsonGenerator jsonGenerator = jsonFactory.createGenerator(writer)) {
+      serialize(thriftObject, jsonGenerator);
+    } catch (IOException e) {
+      throw new TTransportException(e);
+    }
+    return writer.toString();
+  }
+
+  /** Writes the Thrift object as a JSON object to the JsonGenerator. */
+  public void serialize(TBase<?, ?> thriftObject, JsonGenerator jsonGenerator) throws TException {
+    protocol.setGenerator(jsonGenerator);
+    try {
+      thriftObject.write(protocol);
+    } catch (TException | RuntimeException e) {
+      protocol.abort();
+      throw e;
+    }
+    protocol.checkWritesSupported();
   }
 
   /**
@@ -44,8 +92,50 @@ public class ThriftJsonSerializer {
       throws IOException, TException {
     jsonGenerator.writeStartArray();
     for (TBase<?, ?> thriftObject : thriftObjects) {
-      jsonGenerator.writeRawValue(underlyingSerializer.toString(thriftObject));
+      serialize(thriftObject, jsonGenerator);
     }
     jsonGenerator.writeEndArray();
   }
+
+  /**
+   * Writes a JSON line to a writer shared with other threads. The line is written to a buffer of
+   * this serializer first, so the writer is only locked to copy the complete line.
+   */
+  public void writeLine(Writer writer, JsonLineWriter lineWriter) throws IOException, TException {
+    lineBuffer.reset();
+    try (JsonGenerator jsonGenerator = jsonFactory.createGenerator(lineBuffer)) {
+      lineWriter.write(jsonGenerator);
+    }
+    synchronized (writer) {
+      lineBuffer.writeTo(writer);
+      writer.write('\n');
+    }
+  }
+
+  /**
+   * Writes each Thrift object as a JSON line to a writer owned by the caller.
+   *
+   * @param referenceStorageDescriptors whether to write each {@code StorageDescriptor} and {@code
+   *     SerDeInfo} equal to one written before as a reference to it, see {@link
+   *     ThriftJsonProtocol}
+   */
+  public void writeLines(
+      Iterable<? extends TBase<?, ?>> thriftObjects,
+      Writer writer,
+      boolean referenceStorageDescriptors)
+      throws IOException, TException {
+    protocol.resetReferences(referenceStorageDescriptors);
+    try (JsonGenerator jsonGenerator =
+        jsonFactory
+            .createGenerator(writer)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .setRootValueSeparator(null)) {
+      for (TBase<?, ?> thriftObject : thriftObjects) {
+        serialize(thriftObject, jsonGenerator);
+        jsonGenerator.writeRaw('\n');
+      }
+    } finally {
+      protocol.resetReferences(false);
+    }
+  }
 }
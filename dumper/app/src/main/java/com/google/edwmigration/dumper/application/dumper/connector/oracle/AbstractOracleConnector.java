@@ -40,6 +40,7 @@ import com.google.edwmigration.dumper.application.dumper.handle.JdbcHandle;
 import com.google.edwmigration.dumper.application.dumper.utils.PropertyParser;
 import java.io.IOException;
 import java.sql.Driver;
+import java.sql.SQLException;
 import java.sql.SQLRecoverableException;
 import java.time.Clock;
 import java.util.Optional;
@@ -161,7 +162,7 @@ public abstract class AbstractOracleConnector extends AbstractJdbcConnector {
     String url = buildUrl(arguments);
     DataSource dataSource = new SimpleDriverDataSource(driver, url, buildProperties(arguments));
     try {
-      return new JdbcHandle(dataSource);
+      return newJdbcHandle(dataSource, arguments);
     } catch (SQLRecoverableException e) {
       throw new IOException(
           String.format(
@@ -174,6 +175,12 @@ public abstract class AbstractOracleConnector extends AbstractJdbcConnector {
     }
   }
 
+  @Nonnull
+  JdbcHandle newJdbcHandle(@Nonnull DataSource dataSource, @Nonnull ConnectorArguments arguments)
+      throws SQLException {
+    return new JdbcHandle(dataSource);
+  }
+
   @Nonnull
   OracleConnectorScope getConnectorScope() {
     return connectorScope;
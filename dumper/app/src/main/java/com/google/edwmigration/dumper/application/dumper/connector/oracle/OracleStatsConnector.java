@@ -23,11 +23,15 @@ import com.google.common.collect.Range;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
 import com.google.edwmigration.dumper.application.dumper.connector.Connector;
+import com.google.edwmigration.dumper.application.dumper.handle.JdbcHandle;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
 import com.google.edwmigration.dumper.plugin.ext.jdk.annotation.Description;
+import java.sql.SQLException;
 import java.time.Duration;
 import java.util.List;
+import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
+import javax.sql.DataSource;
 
 @AutoService(Connector.class)
 @Description("Dumps aggregated statistics from Oracle")
@@ -48,6 +52,17 @@ public class OracleStatsConnector extends AbstractOracleConnector {
     out.addAll(taskListGenerator.createTasks(arguments, queriedDuration));
   }
 
+  /**
+   * Returns a pooled handle, so that the queries which run in parallel reuse their connections and
+   * the session setup is not repeated for every query.
+   */
+  @Nonnull
+  @Override
+  JdbcHandle newJdbcHandle(DataSource dataSource, ConnectorArguments arguments)
+      throws SQLException {
+    return JdbcHandle.newPooledJdbcHandle(dataSource, arguments.getThreadPoolSize());
+  }
+
   static Duration getQueriedDuration(ConnectorArguments arguments) {
     Duration queriedDuration = extractFromArgs(arguments);
     if (Range.closed(ofDays(1), MAX_DURATION).contains(queriedDuration)) {
@@ -28,12 +28,23 @@ import com.google.edwmigration.dumper.application.dumper.connector.oracle.task.R
 import com.google.edwmigration.dumper.application.dumper.connector.oracle.task.StatsJdbcTask;
 import com.google.edwmigration.dumper.application.dumper.task.DumpMetadataTask;
 import com.google.edwmigration.dumper.application.dumper.task.FormatTask;
+import com.google.edwmigration.dumper.application.dumper.task.ParallelTaskGroup;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
 
+/**
+ * Creates the tasks of the Oracle stats connector.
+ *
+ * <p>Most queries exist in a CDB and a DBA version. Whether the CDB views can be used is decided
+ * once per stats source by a probe query which runs first. The remaining queries then run
+ * concurrently in the version chosen by the probe, with the longest running queries started first.
+ * A CDB query which fails although the probe succeeded is retried in its DBA version afterwards.
+ */
 @ParametersAreNonnullByDefault
 class StatsTaskListGenerator {
 
@@ -77,13 +88,76 @@ class StatsTaskListGenerator {
   private static final ImmutableList<String> STATSPACK_NAMES =
       ImmutableList.of("hist-cmd-types-statspack", "sql-stats-statspack");
 
+  /** Cheap queries on a single CDB view, used to decide between the CDB and DBA versions. */
+  private static final String AWR_PROBE_NAME = "sys-metric-history";
+
+  private static final String NATIVE_PROBE_NAME = "db-features";
+
+  /**
+   * Queries which are expected to run longest, slowest first. They are started before all other
+   * queries so that they don't end up as the tail of the parallel group.
+   */
+  private static final ImmutableList<String> LONG_RUNNING_NAMES =
+      ImmutableList.of(
+          "sql-stats-awr",
+          "segment-stats",
+          "hist-cmd-types-awr",
+          "source-conn-latest",
+          "sql-stats-statspack",
+          "hist-cmd-types-statspack",
+          "dtl-source-code",
+          "db-objects",
+          "table-types-dtl",
+          "app-schemas-pdbs",
+          "used-space-details");
+
   @Nonnull
   ImmutableList<Task<?>> createTasks(ConnectorArguments arguments, Duration queriedDuration) {
     ImmutableList.Builder<Task<?>> builder = ImmutableList.builder();
     builder.add(new DumpMetadataTask(arguments, scope.formatName()));
     builder.add(new FormatTask(scope.formatName()));
-    List<StatsJdbcTask> jdbcTasks = createJdbcTasks(queriedDuration);
-    builder.addAll(jdbcTasks);
+
+    List<StatsJdbcTask> jdbcTasks = new ArrayList<>();
+    List<StatsJdbcTask> parallelTasks = new ArrayList<>();
+    List<StatsJdbcTask> retryTasks = new ArrayList<>();
+
+    QueryGroup awr = QueryGroup.create(/* required= */ false, AWR, SINGLE_TENANT);
+    StatsJdbcTask awrProbe = addProbe(builder, jdbcTasks, AWR_PROBE_NAME, awr, queriedDuration);
+    for (String name : awrNames()) {
+      if (!name.equals(AWR_PROBE_NAME)) {
+        addProbedTasks(parallelTasks, retryTasks, awrProbe, name, awr, queriedDuration);
+      }
+    }
+
+    QueryGroup nativeOptional = QueryGroup.create(/* required= */ false, NATIVE, SINGLE_TENANT);
+    QueryGroup nativeRequired = QueryGroup.create(/* required= */ true, NATIVE, SINGLE_TENANT);
+    StatsJdbcTask nativeProbe =
+        addProbe(builder, jdbcTasks, NATIVE_PROBE_NAME, nativeOptional, queriedDuration);
+    for (String name : NATIVE_NAMES_OPTIONAL) {
+      if (!name.equals(NATIVE_PROBE_NAME)) {
+        addProbedTasks(
+            parallelTasks, retryTasks, nativeProbe, name, nativeOptional, queriedDuration);
+      }
+    }
+    for (String name : NATIVE_NAMES_REQUIRED) {
+      addProbedTasks(parallelTasks, retryTasks, nativeProbe, name, nativeRequired, queriedDuration);
+    }
+
+    for (String name : statspackNames()) {
+      QueryGroup statspack = QueryGroup.create(/* required= */ false, STATSPACK, MULTI_TENANT);
+      OracleStatsQuery query = OracleStatsQuery.create(name, statspack, queriedDuration);
+      parallelTasks.add(StatsJdbcTask.fromQuery(query));
+    }
+
+    parallelTasks.sort(Comparator.comparingInt(task -> expectedRank(task.query().name())));
+    ParallelTaskGroup.Builder parallelGroup = new ParallelTaskGroup.Builder(scope.connectorName());
+    for (StatsJdbcTask task : parallelTasks) {
+      parallelGroup.addConditionalTask(task);
+    }
+    builder.add(parallelGroup.build());
+    builder.addAll(retryTasks);
+    jdbcTasks.addAll(parallelTasks);
+    jdbcTasks.addAll(retryTasks);
 
     QueryGroup awrAndCdb = QueryGroup.create(/* required= */ false, AWR, MULTI_TENANT);
     QueryGroup awrAndNotCdb = QueryGroup.create(/* required= */ false, AWR, SINGLE_TENANT);
@@ -99,29 +173,46 @@ class StatsTaskListGenerator {
     return builder.build();
   }
 
-  private List<StatsJdbcTask> createJdbcTasks(Duration queriedDuration) {
-    ImmutableList.Builder<StatsJdbcTask> builder = ImmutableList.builder();
-    for (String name : awrNames()) {
-      QueryGroup awr = QueryGroup.create(/* required= */ false, AWR, SINGLE_TENANT);
-      builder.addAll(createTaskWithAlternative(name, awr, queriedDuration));
-    }
-    for (String name : statspackNames()) {
-      QueryGroup statspack = QueryGroup.create(/* required= */ false, STATSPACK, MULTI_TENANT);
-      OracleStatsQuery query = OracleStatsQuery.create(name, statspack, queriedDuration);
-      builder.add(StatsJdbcTask.fromQuery(query));
-    }
-    for (String name : NATIVE_NAMES_OPTIONAL) {
-      QueryGroup group = QueryGroup.create(/* required= */ false, NATIVE, SINGLE_TENANT);
-      builder.addAll(createTaskWithAlternative(name, group, queriedDuration));
-    }
-    for (String name : NATIVE_NAMES_REQUIRED) {
-      QueryGroup group = QueryGroup.create(/* required= */ true, NATIVE, SINGLE_TENANT);
-      builder.addAll(createTaskWithAlternative(name, group, queriedDuration));
-    }
-    return builder.build();
+  /**
+   * Adds the probe of a stats source, which runs the CDB version of a query and falls back to the
+   * DBA version if it fails.
+   *
+   * @return the task running the CDB version, whose state decides the version of the other queries
+   */
+  private static StatsJdbcTask addProbe(
+      ImmutableList.Builder<Task<?>> out,
+      List<StatsJdbcTask> jdbcTasks,
+      String name,
+      QueryGroup group,
+      Duration queriedDuration) {
+    List<StatsJdbcTask> probe = createTaskWithAlternative(name, group, queriedDuration);
+    out.addAll(probe);
+    jdbcTasks.addAll(probe);
+    return probe.get(0);
+  }
+
+  private static void addProbedTasks(
+      List<StatsJdbcTask> parallelTasks,
+      List<StatsJdbcTask> retryTasks,
+      StatsJdbcTask probe,
+      String name,
+      QueryGroup group,
+      Duration queriedDuration) {
+    QueryGroup cdbGroup = group.toCdbVersion();
+    OracleStatsQuery cdbQuery = OracleStatsQuery.create(name, cdbGroup, queriedDuration);
+    OracleStatsQuery dbaQuery = OracleStatsQuery.create(name, group, queriedDuration);
+    StatsJdbcTask cdbTask = StatsJdbcTask.fromQuery(cdbQuery).onlyIfSucceeded(probe);
+    parallelTasks.add(cdbTask);
+    parallelTasks.add(StatsJdbcTask.fromQuery(dbaQuery).onlyIfFailed(probe));
+    retryTasks.add(StatsJdbcTask.fromQuery(dbaQuery).onlyIfFailed(cdbTask));
+  }
+
+  private static int expectedRank(String name) {
+    int index = LONG_RUNNING_NAMES.indexOf(name);
+    return index < 0 ? LONG_RUNNING_NAMES.size() : index;
   }
 
-  List<StatsJdbcTask> createTaskWithAlternative(
+  static List<StatsJdbcTask> createTaskWithAlternative(
       String name, QueryGroup group, Duration queriedDuration) {
     OracleStatsQuery primary = OracleStatsQuery.create(name, group.toCdbVersion(), queriedDuration);
     StatsJdbcTask primaryTask = StatsJdbcTask.fromQuery(primary);
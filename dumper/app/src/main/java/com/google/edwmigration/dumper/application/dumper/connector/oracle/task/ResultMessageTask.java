@@ -19,13 +19,19 @@ package com.google.edwmigration.dumper.application.dumper.connector.oracle.task;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.edwmigration.dumper.application.dumper.task.TaskCategory.OPTIONAL;
 import static com.google.edwmigration.dumper.application.dumper.task.TaskState.SUCCEEDED;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
 
+import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.edwmigration.dumper.application.dumper.connector.oracle.QueryGroup;
 import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
 import com.google.edwmigration.dumper.application.dumper.task.TaskSetState;
 import com.google.edwmigration.dumper.application.dumper.task.TaskState;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -77,15 +83,60 @@ public class ResultMessageTask extends NoResultTask {
   @Override
   void doRun(TaskRunContext context) {}
 
+  /**
+   * Requires every query of the tasks to reach the state. A query may be run by more than one task,
+   * e.g. a retry of the DBA version after the CDB version failed, and then it is enough for one of
+   * its tasks to reach the state.
+   */
   private static Condition onAllTasks(List<StatsJdbcTask> tasks, TaskState requiredState) {
     if (tasks.isEmpty()) {
       return EMPTY_GROUP_FAILED_CONDITION;
     }
+    Collection<List<StatsJdbcTask>> tasksByQuery =
+        tasks.stream()
+            .collect(groupingBy(item -> item.query().name(), LinkedHashMap::new, toList()))
+            .values();
+    ImmutableList<Condition> conditions =
+        tasksByQuery.stream()
+            .map(queryTasks -> onAnyTask(queryTasks, requiredState))
+            .collect(toImmutableList());
+    return new AndCondition(conditions);
+  }
+
+  private static Condition onAnyTask(List<StatsJdbcTask> tasks, TaskState requiredState) {
+    if (tasks.size() == 1) {
+      return new StateCondition(tasks.get(0), requiredState);
+    }
     ImmutableList<Condition> conditions =
         tasks.stream()
             .map(item -> new StateCondition(item, requiredState))
             .collect(toImmutableList());
-    return new AndCondition(conditions);
+    return new AnyCondition(conditions);
+  }
+
+  private static final class AnyCondition implements Condition {
+
+    private final ImmutableList<Condition> conditions;
+
+    AnyCondition(ImmutableList<Condition> conditions) {
+      this.conditions = conditions;
+    }
+
+    @Override
+    public boolean evaluate(@Nonnull TaskSetState state) {
+      return conditions.stream().anyMatch(condition -> condition.evaluate(state));
+    }
+
+    @Override
+    @Nonnull
+    public String toSkipReason() {
+      return "none of " + Lists.transform(conditions, Condition::toSkipReason);
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this).add("conditions", conditions).toString();
+    }
   }
 
   private static final class EmptyGroupFailedCondition implements Condition {
@@ -47,18 +47,18 @@ import org.springframework.jdbc.core.ResultSetExtractor;
 public class StatsJdbcTask extends AbstractJdbcTask<Summary> {
 
   private static final Logger logger = LoggerFactory.getLogger(StatsJdbcTask.class);
-  private final Condition condition;
+  private final Condition[] conditions;
   private final OracleStatsQuery query;
 
-  private StatsJdbcTask(OracleStatsQuery query, Condition condition) {
+  private StatsJdbcTask(OracleStatsQuery query, Condition... conditions) {
     super(query.name() + ".csv");
-    this.condition = condition;
+    this.conditions = conditions;
     this.query = query;
   }
 
   @Nonnull
   public static StatsJdbcTask fromQuery(OracleStatsQuery query) {
-    return new StatsJdbcTask(query, Condition.alwaysTrue());
+    return new StatsJdbcTask(query);
   }
 
   @CheckReturnValue
@@ -69,6 +69,13 @@ public class StatsJdbcTask extends AbstractJdbcTask<Summary> {
     return new StatsJdbcTask(query, failureCondition);
   }
 
+  @CheckReturnValue
+  @Nonnull
+  public StatsJdbcTask onlyIfSucceeded(Task<?> prerequisite) {
+    StateCondition successCondition = new StateCondition(prerequisite, TaskState.SUCCEEDED);
+    return new StatsJdbcTask(query, successCondition);
+  }
+
   @Deprecated // use onlyIfFailed
   @Override
   @Nonnull
@@ -78,7 +85,7 @@ public class StatsJdbcTask extends AbstractJdbcTask<Summary> {
 
   @Override
   public Condition[] getConditions() {
-    return new Condition[] {condition};
+    return conditions;
   }
 
   @Nonnull
@@ -120,7 +127,7 @@ public class StatsJdbcTask extends AbstractJdbcTask<Summary> {
   }
 
   @Nonnull
-  OracleStatsQuery query() {
+  public OracleStatsQuery query() {
     return query;
   }
 
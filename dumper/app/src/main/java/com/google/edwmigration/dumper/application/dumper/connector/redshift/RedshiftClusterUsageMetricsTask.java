@@ -16,23 +16,28 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.redshift;
 
-import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.edwmigration.dumper.application.dumper.SummaryPrinter.joinSummaryDoubleLine;
 
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
-import com.amazonaws.services.cloudwatch.model.Datapoint;
 import com.amazonaws.services.cloudwatch.model.Dimension;
-import com.amazonaws.services.cloudwatch.model.GetMetricStatisticsRequest;
-import com.amazonaws.services.cloudwatch.model.GetMetricStatisticsResult;
+import com.amazonaws.services.cloudwatch.model.GetMetricDataRequest;
+import com.amazonaws.services.cloudwatch.model.GetMetricDataResult;
+import com.amazonaws.services.cloudwatch.model.Metric;
+import com.amazonaws.services.cloudwatch.model.MetricDataQuery;
+import com.amazonaws.services.cloudwatch.model.MetricDataResult;
+import com.amazonaws.services.cloudwatch.model.MetricStat;
+import com.amazonaws.services.cloudwatch.model.ScanBy;
 import com.amazonaws.services.redshift.AmazonRedshift;
 import com.amazonaws.services.redshift.model.Cluster;
 import com.amazonaws.services.redshift.model.DescribeClustersRequest;
+import com.amazonaws.services.redshift.model.DescribeClustersResult;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.io.ByteSink;
 import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval;
-import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricDataPoint;
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
 import com.google.edwmigration.dumper.plugin.lib.dumper.spi.RedshiftRawLogsDumpFormat;
@@ -42,13 +47,23 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.apache.commons.csv.CSVFormat;
 
-/** Extraction task to get Redshift time series metrics from AWS CloudWatch API. */
+/**
+ * Extraction task to get Redshift time series metrics from AWS CloudWatch API.
+ *
+ * <p>Metrics are fetched with {@code GetMetricData}, which accepts up to {@link
+ * #MAX_QUERIES_PER_REQUEST} metric queries per call. Clusters are processed in batches that fill
+ * one request, each batch is paged through completely, and the joined series of the batch are
+ * written out before the next batch is requested.
+ */
 public class RedshiftClusterUsageMetricsTask extends AbstractAwsApiTask {
 
   protected static enum MetricName {
@@ -72,20 +87,14 @@ public class RedshiftClusterUsageMetricsTask extends AbstractAwsApiTask {
     }
   }
 
-  @AutoValue
-  protected abstract static class MetricDataPoint {
-
-    public abstract Instant instant();
+  /** The metrics to extract, in the order of their columns in the output. */
+  protected static final ImmutableList<MetricConfig> METRICS =
+      ImmutableList.of(
+          MetricConfig.create(MetricName.CPUUtilization, MetricType.Average),
+          MetricConfig.create(MetricName.PercentageDiskSpaceUsed, MetricType.Average));
 
-    public abstract Double value();
-
-    public abstract MetricConfig metricConfig();
-
-    public static MetricDataPoint create(Instant instant, Double value, MetricConfig metricConfig) {
-      return new AutoValue_RedshiftClusterUsageMetricsTask_MetricDataPoint(
-          instant, value, metricConfig);
-    }
-  }
+  /** The limit of metric queries in a single GetMetricData request. */
+  protected static final int MAX_QUERIES_PER_REQUEST = 500;
 
   private static final String REDSHIFT_NAMESPACE = "AWS/Redshift";
   private static final DateTimeFormatter DATE_FORMAT =
@@ -114,78 +123,116 @@ public class RedshiftClusterUsageMetricsTask extends AbstractAwsApiTask {
       throws IOException {
     CSVFormat format = FORMAT.builder().setHeader(headerEnum).build();
     try (CsvRecordWriter writer = new CsvRecordWriter(sink, format, getName())) {
-      AmazonRedshift client = redshiftApiClient();
-      List<Cluster> clusters = client.describeClusters(new DescribeClustersRequest()).getClusters();
-      for (Cluster item : clusters) {
-        writeCluster(writer, item.getClusterIdentifier());
+      AmazonCloudWatch client = cloudWatchApiClient();
+      int clustersPerRequest = MAX_QUERIES_PER_REQUEST / METRICS.size();
+      for (List<String> batch : Lists.partition(listClusterIds(), clustersPerRequest)) {
+        writeClusters(writer, client, batch);
       }
     }
     return null;
   }
 
-  private void writeCluster(CsvRecordWriter writer, String clusterId) throws IOException {
-    TreeMap<Instant, String> cpuPoints = new TreeMap<>();
-    TreeMap<Instant, String> diskPoints = new TreeMap<>();
+  private ImmutableList<String> listClusterIds() {
+    AmazonRedshift client = redshiftApiClient();
+    ImmutableList.Builder<String> out = ImmutableList.builder();
+    String marker = null;
+    do {
+      DescribeClustersResult result =
+          client.describeClusters(new DescribeClustersRequest().withMarker(marker));
+      for (Cluster item : result.getClusters()) {
+        out.add(item.getClusterIdentifier());
+      }
+      marker = result.getMarker();
+    } while (marker != null);
+    return out.build();
+  }
 
-    for (MetricDataPoint dataPoint : getCpuMetrics(clusterId)) {
-      cpuPoints.put(dataPoint.instant(), dataPoint.value().toString());
-      diskPoints.putIfAbsent(dataPoint.instant(), "");
+  /**
+   * Fetches all metrics of the given clusters and writes the joined series.
+   *
+   * <p>Query ids are the position of the query in the request, so that a result can be mapped back
+   * to its cluster and metric without parsing.
+   */
+  private void writeClusters(
+      CsvRecordWriter writer, AmazonCloudWatch client, List<String> clusterIds)
+      throws IOException {
+    List<MetricDataQuery> queries = new ArrayList<>();
+    ImmutableMap.Builder<String, Integer> queryIndexBuilder = ImmutableMap.builder();
+    for (String clusterId : clusterIds) {
+      for (MetricConfig metricConfig : METRICS) {
+        String queryId = "q" + queries.size();
+        queryIndexBuilder.put(queryId, queries.size());
+        queries.add(createQuery(queryId, clusterId, metricConfig));
+      }
     }
+    ImmutableMap<String, Integer> queryIndex = queryIndexBuilder.build();
 
-    for (MetricDataPoint dataPoint : getDiskMetrics(clusterId)) {
-      cpuPoints.putIfAbsent(dataPoint.instant(), "");
-      diskPoints.put(dataPoint.instant(), dataPoint.value().toString());
+    List<TreeMap<Instant, Double[]>> series = new ArrayList<>(clusterIds.size());
+    for (int i = 0; i < clusterIds.size(); i++) {
+      series.add(new TreeMap<>());
     }
 
-    for (Instant key : cpuPoints.keySet()) {
-      String cpuValue = cpuPoints.get(key);
-      String diskValue = diskPoints.get(key);
-      writer.handleRecord(clusterId, DATE_FORMAT.format(key), cpuValue, diskValue);
+    String nextToken = null;
+    do {
+      GetMetricDataResult result = client.getMetricData(createRequest(queries, nextToken));
+      for (MetricDataResult dataResult : result.getMetricDataResults()) {
+        Integer index = queryIndex.get(dataResult.getId());
+        if (index == null) {
+          continue;
+        }
+        TreeMap<Instant, Double[]> points = series.get(index / METRICS.size());
+        int column = index % METRICS.size();
+        List<Date> timestamps = dataResult.getTimestamps();
+        List<Double> values = dataResult.getValues();
+        for (int i = 0; i < timestamps.size(); i++) {
+          Double[] row =
+              points.computeIfAbsent(
+                  timestamps.get(i).toInstant(), key -> new Double[METRICS.size()]);
+          row[column] = values.get(i);
+        }
+      }
+      nextToken = result.getNextToken();
+    } while (nextToken != null);
+
+    for (int i = 0; i < clusterIds.size(); i++) {
+      String clusterId = clusterIds.get(i);
+      for (Map.Entry<Instant, Double[]> point : series.get(i).entrySet()) {
+        Object[] record = new Object[2 + METRICS.size()];
+        record[0] = clusterId;
+        record[1] = DATE_FORMAT.format(point.getKey());
+        Double[] values = point.getValue();
+        for (int j = 0; j < values.length; j++) {
+          record[2 + j] = values[j] == null ? "" : values[j].toString();
+        }
+        writer.handleRecord(record);
+      }
+      // Release the cluster's points as soon as they are written.
+      series.set(i, null);
     }
   }
 
-  private ImmutableList<MetricDataPoint> getMetricDataPoints(
-      String clusterId, MetricConfig metricConfig) {
-    AmazonCloudWatch client = cloudWatchApiClient();
-    GetMetricStatisticsRequest request =
-        new GetMetricStatisticsRequest()
-            .withMetricName(metricConfig.name().name())
-            .withStatistics(metricConfig.type().name())
+  private MetricDataQuery createQuery(String queryId, String clusterId, MetricConfig metricConfig) {
+    Metric metric =
+        new Metric()
             .withNamespace(REDSHIFT_NAMESPACE)
-            .withDimensions(new Dimension().withName("ClusterIdentifier").withValue(clusterId))
-            .withStartTime(Date.from(interval.getStartUTC().toInstant()))
-            .withEndTime(Date.from(interval.getEndExclusiveUTC().toInstant()))
+            .withMetricName(metricConfig.name().name())
+            .withDimensions(new Dimension().withName("ClusterIdentifier").withValue(clusterId));
+    MetricStat metricStat =
+        new MetricStat()
+            .withMetric(metric)
+            .withStat(metricConfig.type().name())
             .withPeriod((int) metricDataPeriod().getSeconds());
-
-    GetMetricStatisticsResult result = client.getMetricStatistics(request);
-    return result.getDatapoints().stream()
-        .map(
-            datapoint ->
-                MetricDataPoint.create(
-                    datapoint.getTimestamp().toInstant(),
-                    getDatapointValue(metricConfig, datapoint),
-                    metricConfig))
-        .collect(toImmutableList());
-  }
-
-  private Double getDatapointValue(MetricConfig metricConfig, Datapoint datapoint) {
-    switch (metricConfig.type()) {
-      case Average:
-        return datapoint.getAverage();
-      default:
-        return null;
-    }
-  }
-
-  private ImmutableList<MetricDataPoint> getDiskMetrics(String clusterId) {
-    MetricConfig config =
-        MetricConfig.create(MetricName.PercentageDiskSpaceUsed, MetricType.Average);
-    return getMetricDataPoints(clusterId, config);
+    return new MetricDataQuery().withId(queryId).withMetricStat(metricStat).withReturnData(true);
   }
 
-  private ImmutableList<MetricDataPoint> getCpuMetrics(String clusterId) {
-    MetricConfig config = MetricConfig.create(MetricName.CPUUtilization, MetricType.Average);
-    return getMetricDataPoints(clusterId, config);
+  private GetMetricDataRequest createRequest(
+      List<MetricDataQuery> queries, @CheckForNull String nextToken) {
+    return new GetMetricDataRequest()
+        .withMetricDataQueries(queries)
+        .withStartTime(Date.from(interval.getStartUTC().toInstant()))
+        .withEndTime(Date.from(interval.getEndExclusiveUTC().toInstant()))
+        .withScanBy(ScanBy.TimestampAscending)
+        .withNextToken(nextToken);
   }
 
   /**
@@ -204,7 +251,7 @@ public class RedshiftClusterUsageMetricsTask extends AbstractAwsApiTask {
   }
 
   private String toCallDescription() {
-    return "AmazonRedshift.describeClusters, AmazonCloudWatch.getMetricStatistics";
+    return "AmazonRedshift.describeClusters, AmazonCloudWatch.getMetricData";
   }
 
   @Override
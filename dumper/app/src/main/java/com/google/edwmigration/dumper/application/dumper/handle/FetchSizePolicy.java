@@ -0,0 +1,426 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.handle;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.primitives.Ints;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the JDBC fetch size of bulk selects.
+ *
+ * <p>A single fetch size does not fit all result sets: wide rows such as Teradata's SQLTextInfo
+ * can exhaust the heap at a size which under-fetches narrow rows. The fetch size is instead derived
+ * from a memory budget per result set, divided by the width of a row. The width is first estimated
+ * from the result set metadata, and later from the rows actually read, while batches which take too
+ * long to fetch cap the size.
+ */
+@ParametersAreNonnullByDefault
+public class FetchSizePolicy {
+
+  private static final Logger logger = LoggerFactory.getLogger(FetchSizePolicy.class);
+
+  /** The fetch size used where nothing is known about the rows. */
+  public static final int DEFAULT_FETCH_SIZE = 1024;
+
+  /** The memory budget for the rows buffered by the driver for one result set. */
+  public static final long DEFAULT_BUFFER_BYTES = 16L * 1024 * 1024;
+
+  /** The fetch size is halved while fetching a batch takes longer than this. */
+  private static final long MAX_BATCH_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  // Rough in-heap sizes of column values once materialized by the driver.
+  private static final int VALUE_OVERHEAD_BYTES = 16;
+  private static final int FIXED_WIDTH_BYTES = 8;
+  private static final int UNBOUNDED_COLUMN_BYTES = 4096;
+  private static final int MAX_COLUMN_BYTES = 64 * 1024;
+
+  /**
+   * The policies of open physical connections, so that the database product name is looked up once
+   * per connection rather than for every statement and result set. A pool hands out a new proxy on
+   * every borrow, so the policies are keyed by the connection behind the proxy. Weak keys compare
+   * by identity.
+   */
+  private static final Cache<Connection, FetchSizePolicy> POLICIES =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  /** The cursor behaviour of a JDBC driver, identified by the database product name. */
+  public enum Profile {
+    // The driver honours ResultSet.setFetchSize() for the following round trips.
+    POSTGRESQL(100, 65536, true, true),
+    REDSHIFT(100, 65536, true, false),
+    ORACLE(100, 16384, true, true),
+    // The driver limits each response to the response buffer size, so a larger fetch size has no
+    // effect; Snowflake downloads result chunks regardless of the fetch size.
+    TERADATA(1, 16384, false, true),
+    SNOWFLAKE(1, 16384, false, false),
+    DEFAULT(100, 16384, true, false);
+
+    private final int minFetchSize;
+    private final int maxFetchSize;
+    private final boolean adaptive;
+    private final boolean describeBeforeExecute;
+
+    Profile(
+        int minFetchSize, int maxFetchSize, boolean adaptive, boolean describeBeforeExecute) {
+      this.minFetchSize = minFetchSize;
+      this.maxFetchSize = maxFetchSize;
+      this.adaptive = adaptive;
+      this.describeBeforeExecute = describeBeforeExecute;
+    }
+
+    /** Whether the fetch size may be changed while reading the result set. */
+    public boolean isAdaptive() {
+      return adaptive;
+    }
+
+    /**
+     * Whether the statement metadata is available before execution without running the query, so
+     * that the first batch can already be sized.
+     */
+    public boolean isDescribeBeforeExecute() {
+      return describeBeforeExecute;
+    }
+
+    private int clamp(long fetchSize) {
+      return Ints.constrainToRange(Ints.saturatedCast(fetchSize), minFetchSize, maxFetchSize);
+    }
+
+    @Nonnull
+    public static Profile forProductName(@CheckForNull String productName) {
+      if (productName == null) {
+        return DEFAULT;
+      }
+      String name = productName.toLowerCase(Locale.ROOT);
+      // Check Redshift first, some drivers report it as PostgreSQL-compatible.
+      if (name.contains("redshift")) {
+        return REDSHIFT;
+      } else if (name.contains("postgres")) {
+        return POSTGRESQL;
+      } else if (name.contains("oracle")) {
+        return ORACLE;
+      } else if (name.contains("teradata")) {
+        return TERADATA;
+      } else if (name.contains("snowflake")) {
+        return SNOWFLAKE;
+      }
+      return DEFAULT;
+    }
+  }
+
+  /**
+   * Follows the rows read from one result set and adjusts its fetch size.
+   *
+   * <p>Only the call to {@code ResultSet.next()} which starts a batch is timed, as that is where
+   * the driver makes its round trip; the other rows are already buffered.
+   */
+  public class Cursor {
+
+    private final ResultSet resultSet;
+    private int fetchSize;
+    private int maxFetchSize;
+    private boolean adaptive;
+    private long rowCount;
+    private long byteCount;
+    private int rowsInBatch;
+    private long batchNanos;
+    private LongConsumer fetchListener = nanos -> {};
+    private LongConsumer rowListener = rows -> {};
+
+    private Cursor(ResultSet resultSet, int fetchSize, boolean adaptive) {
+      this.resultSet = resultSet;
+      this.fetchSize = fetchSize;
+      this.maxFetchSize = profile.maxFetchSize;
+      this.adaptive = adaptive;
+    }
+
+    public int getFetchSize() {
+      return fetchSize;
+    }
+
+    /** Sets the listener of the time spent in each call to {@link #next()} which starts a batch. */
+    @Nonnull
+    public Cursor onFetch(LongConsumer fetchListener) {
+      this.fetchListener = fetchListener;
+      return this;
+    }
+
+    /**
+     * Sets the listener of the rows recorded by {@link #onRow}, which is called once per batch and
+     * once at the end of the result set, rather than once per row.
+     */
+    @Nonnull
+    public Cursor onRows(LongConsumer rowListener) {
+      this.rowListener = rowListener;
+      return this;
+    }
+
+    /** Advances the result set, as {@code ResultSet.next()}. */
+    public boolean next() throws SQLException {
+      if (rowsInBatch > 0) {
+        if (resultSet.next()) {
+          return true;
+        }
+        rowListener.accept(rowsInBatch);
+        rowsInBatch = 0;
+        return false;
+      }
+      long start = ticker.read();
+      boolean hasNext = resultSet.next();
+      batchNanos = ticker.read() - start;
+      fetchListener.accept(batchNanos);
+      return hasNext;
+    }
+
+    /**
+     * Records the row read by the last call to {@link #next()}.
+     *
+     * @param rowBytes The size of the row, as estimated by {@link #estimateValueBytes}.
+     */
+    public void onRow(@Nonnegative long rowBytes) {
+      rowCount++;
+      byteCount += rowBytes;
+      if (++rowsInBatch < fetchSize) {
+        return;
+      }
+      rowListener.accept(rowsInBatch);
+      rowsInBatch = 0;
+      if (!adaptive) {
+        return;
+      }
+      if (batchNanos > MAX_BATCH_NANOS) {
+        maxFetchSize = profile.clamp(fetchSize / 2);
+      }
+      int target = Math.min(maxFetchSize, FetchSizePolicy.this.getFetchSize(byteCount / rowCount));
+      // Ignore small changes, to avoid resizing on every batch.
+      if (Math.abs(target - fetchSize) * 4L > fetchSize) {
+        setFetchSize(target);
+      }
+    }
+
+    private void setFetchSize(int target) {
+      if (!isOpen(resultSet)) {
+        adaptive = false;
+        return;
+      }
+      try {
+        resultSet.setFetchSize(target);
+        logger.debug("Changed fetch size from {} to {}.", fetchSize, target);
+        fetchSize = target;
+      } catch (SQLException e) {
+        logger.debug("Driver does not support changing the fetch size: {}", e.getMessage());
+        adaptive = false;
+      }
+    }
+  }
+
+  private final Profile profile;
+  private final long bufferBytes;
+  private final Ticker ticker;
+
+  public FetchSizePolicy(Profile profile, @Nonnegative long bufferBytes) {
+    this(profile, bufferBytes, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  FetchSizePolicy(Profile profile, @Nonnegative long bufferBytes, Ticker ticker) {
+    this.profile = profile;
+    this.bufferBytes = bufferBytes;
+    this.ticker = ticker;
+  }
+
+  /** Returns the policy of the connection, which is looked up once per physical connection. */
+  @Nonnull
+  public static FetchSizePolicy forConnection(Connection connection) throws SQLException {
+    Connection physicalConnection = unwrap(connection);
+    FetchSizePolicy policy = POLICIES.getIfPresent(physicalConnection);
+    if (policy == null) {
+      String productName = connection.getMetaData().getDatabaseProductName();
+      policy = new FetchSizePolicy(Profile.forProductName(productName), DEFAULT_BUFFER_BYTES);
+      POLICIES.put(physicalConnection, policy);
+    }
+    return policy;
+  }
+
+  /** Returns the connection behind a pool proxy, or the connection itself. */
+  @Nonnull
+  private static Connection unwrap(Connection connection) {
+    try {
+      Connection unwrapped = connection.unwrap(Connection.class);
+      return unwrapped == null ? connection : unwrapped;
+    } catch (SQLException e) {
+      return connection;
+    }
+  }
+
+  @Nonnull
+  public Profile getProfile() {
+    return profile;
+  }
+
+  /** Returns the fetch size for rows of the given estimated size. */
+  public int getFetchSize(@Nonnegative long rowBytes) {
+    return profile.clamp(bufferBytes / Math.max(1, rowBytes));
+  }
+
+  /** Returns the fetch size to set on the statement before it is executed. */
+  public int getInitialFetchSize(PreparedStatement statement) {
+    if (profile.describeBeforeExecute) {
+      try {
+        ResultSetMetaData metaData = statement.getMetaData();
+        if (metaData != null) {
+          return getFetchSize(estimateRowBytes(metaData));
+        }
+      } catch (SQLException e) {
+        logger.debug("Failed to describe statement: {}", e.getMessage());
+      }
+    }
+    return profile.clamp(DEFAULT_FETCH_SIZE);
+  }
+
+  /**
+   * Sizes the following fetches of the executed result set from its metadata. Does nothing if the
+   * statement returned no result set, or it is already closed.
+   */
+  public void resize(@CheckForNull ResultSet resultSet) throws SQLException {
+    if (!profile.adaptive || !isOpen(resultSet)) {
+      return;
+    }
+    int fetchSize = getFetchSize(estimateRowBytes(resultSet.getMetaData()));
+    if (fetchSize != resultSet.getFetchSize()) {
+      try {
+        resultSet.setFetchSize(fetchSize);
+      } catch (SQLException e) {
+        logger.debug("Driver does not support changing the fetch size: {}", e.getMessage());
+      }
+    }
+  }
+
+  @Nonnull
+  public Cursor newCursor(ResultSet resultSet) throws SQLException {
+    if (!isOpen(resultSet)) {
+      return new Cursor(resultSet, profile.clamp(DEFAULT_FETCH_SIZE), false);
+    }
+    return new Cursor(resultSet, Math.max(1, resultSet.getFetchSize()), profile.adaptive);
+  }
+
+  /** Returns a cursor for a result set of unknown origin, e.g. one passed to an extractor. */
+  @Nonnull
+  public static Cursor newCursorFor(ResultSet resultSet) throws SQLException {
+    Statement statement = resultSet.getStatement();
+    FetchSizePolicy policy =
+        statement == null
+            ? new FetchSizePolicy(Profile.DEFAULT, DEFAULT_BUFFER_BYTES)
+            : forConnection(statement.getConnection());
+    return policy.newCursor(resultSet);
+  }
+
+  private static boolean isOpen(@CheckForNull ResultSet resultSet) {
+    if (resultSet == null) {
+      return false;
+    }
+    try {
+      return !resultSet.isClosed();
+    } catch (SQLException e) {
+      // The driver doesn't support isClosed(); assume that the result set is open.
+      return true;
+    }
+  }
+
+  /** Estimates the in-heap size of a row from the declared types of its columns. */
+  public static long estimateRowBytes(ResultSetMetaData metaData) throws SQLException {
+    long bytes = 0;
+    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+      bytes += VALUE_OVERHEAD_BYTES + estimateColumnBytes(metaData, i);
+    }
+    return bytes;
+  }
+
+  private static int estimateColumnBytes(ResultSetMetaData metaData, int column)
+      throws SQLException {
+    switch (metaData.getColumnType(column)) {
+      case Types.BIT:
+      case Types.BOOLEAN:
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return FIXED_WIDTH_BYTES;
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+      case Types.DATE:
+      case Types.TIME:
+      case Types.TIMESTAMP:
+      case Types.TIME_WITH_TIMEZONE:
+      case Types.TIMESTAMP_WITH_TIMEZONE:
+        return 2 * FIXED_WIDTH_BYTES;
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return estimateVariableBytes(metaData, column, 2);
+      case Types.BINARY:
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+        return estimateVariableBytes(metaData, column, 1);
+      default:
+        // LOBs, arrays and vendor types.
+        return UNBOUNDED_COLUMN_BYTES;
+    }
+  }
+
+  private static int estimateVariableBytes(
+      ResultSetMetaData metaData, int column, int bytesPerUnit) throws SQLException {
+    int width = metaData.getPrecision(column);
+    if (width <= 0) {
+      width = metaData.getColumnDisplaySize(column);
+    }
+    // Unbounded types such as PostgreSQL's text report 0 or Integer.MAX_VALUE.
+    if (width <= 0 || width == Integer.MAX_VALUE) {
+      return UNBOUNDED_COLUMN_BYTES;
+    }
+    return (int) Math.min(MAX_COLUMN_BYTES, (long) width * bytesPerUnit);
+  }
+
+  /** Estimates the in-heap size of a value read from a result set, for {@link Cursor#onRow}. */
+  public static long estimateValueBytes(@CheckForNull String value) {
+    return VALUE_OVERHEAD_BYTES + (value == null ? 0 : 2L * value.length());
+  }
+}
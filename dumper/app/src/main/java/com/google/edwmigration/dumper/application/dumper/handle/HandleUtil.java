@@ -32,7 +32,7 @@ public class HandleUtil {
 
   public static JdbcTemplate createJdbcTemplate(DataSource dataSource) {
     JdbcTemplate template = new JdbcTemplate(dataSource);
-    template.setFetchSize(1024);
+    template.setFetchSize(FetchSizePolicy.DEFAULT_FETCH_SIZE);
     return template;
   }
 
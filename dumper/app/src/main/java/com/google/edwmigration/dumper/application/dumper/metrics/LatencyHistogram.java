@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.metrics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A histogram of latencies with power-of-two buckets.
+ *
+ * <p>Bucket 0 counts latencies below 1us and bucket i counts latencies in [2^(i-1), 2^i) us, so
+ * that recording is a few arithmetic operations and the histogram has a fixed size.
+ */
+@ThreadSafe
+public class LatencyHistogram {
+
+  private static final int BUCKET_COUNT = 40;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public void record(long nanos) {
+    nanos = Math.max(nanos, 0);
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    int bucket = Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+    buckets.incrementAndGet(bucket);
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  @JsonProperty
+  public long getCount() {
+    return count.sum();
+  }
+
+  @JsonProperty
+  public long getTotalMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(totalNanos.sum());
+  }
+
+  @JsonProperty
+  public long getMaxMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+  }
+
+  @JsonProperty
+  public long getP50Micros() {
+    return getPercentileMicros(50);
+  }
+
+  @JsonProperty
+  public long getP90Micros() {
+    return getPercentileMicros(90);
+  }
+
+  @JsonProperty
+  public long getP99Micros() {
+    return getPercentileMicros(99);
+  }
+
+  /** Returns the non-empty buckets, keyed by their exclusive upper bound. */
+  @JsonProperty
+  public Map<String, Long> getBuckets() {
+    Map<String, Long> out = new LinkedHashMap<>();
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      long value = buckets.get(i);
+      if (value > 0) {
+        out.put("<" + upperBoundMicros(i) + "us", value);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Returns an upper estimate of the given percentile, which is the upper bound of the bucket which
+   * contains it.
+   */
+  public long getPercentileMicros(double percentile) {
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      total += buckets.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBoundMicros(i), getMaxMicros());
+      }
+    }
+    return getMaxMicros();
+  }
+
+  private static long upperBoundMicros(int bucket) {
+    return 1L << bucket;
+  }
+}
@@ -21,12 +21,19 @@ public class TaskDetailedSummary {
   private String type;
   private String status;
   private String error;
+  private TaskMetrics metrics;
 
   public TaskDetailedSummary(String name, String type, String status, String error) {
+    this(name, type, status, error, null);
+  }
+
+  public TaskDetailedSummary(
+      String name, String type, String status, String error, TaskMetrics metrics) {
     this.name = name;
     this.type = type;
     this.status = status;
     this.error = error;
+    this.metrics = metrics;
   }
 
   public String getName() {
@@ -60,4 +67,12 @@ public class TaskDetailedSummary {
   public void setError(String error) {
     this.error = error;
   }
+
+  public TaskMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void setMetrics(TaskMetrics metrics) {
+    this.metrics = metrics;
+  }
 }
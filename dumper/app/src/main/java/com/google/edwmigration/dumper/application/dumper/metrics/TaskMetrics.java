@@ -0,0 +1,222 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.metrics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteSink;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Performance measurements of a single task run.
+ *
+ * <p>The metrics of the running task are bound to the current thread by the tasks runner, so that
+ * shared code such as {@code AbstractJdbcTask.doSelect} can record into them via {@link
+ * #current()} without every task threading them through.
+ */
+@ThreadSafe
+public class TaskMetrics {
+
+  private static final ThreadLocal<TaskMetrics> CURRENT = new ThreadLocal<>();
+
+  /** Restores the previously bound metrics when closed. */
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private final String taskName;
+  private final Stopwatch stopwatch = Stopwatch.createStarted();
+  private volatile long wallTimeMillis = -1;
+
+  private final LongAdder prepareNanos = new LongAdder();
+  private final LongAdder executeNanos = new LongAdder();
+  private final LongAdder fetchNanos = new LongAdder();
+  private final LongAdder extractNanos = new LongAdder();
+  private final LongAdder rowCount = new LongAdder();
+  private final LongAdder byteCount = new LongAdder();
+  private final LatencyHistogram executeLatency = new LatencyHistogram();
+  private final LatencyHistogram fetchLatency = new LatencyHistogram();
+
+  public TaskMetrics(@Nonnull String taskName) {
+    this.taskName = taskName;
+  }
+
+  /** Returns the metrics of the task running on this thread, if any. */
+  @CheckForNull
+  public static TaskMetrics current() {
+    return CURRENT.get();
+  }
+
+  @Nonnull
+  public Scope bind() {
+    TaskMetrics previous = CURRENT.get();
+    CURRENT.set(this);
+    return () -> {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  /** Stops the wall clock of the task. */
+  @Nonnull
+  public TaskMetrics finish() {
+    wallTimeMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    return this;
+  }
+
+  public void addPrepareTime(long nanos) {
+    prepareNanos.add(nanos);
+  }
+
+  /** Records the time spent in one {@code Statement.execute()} call. */
+  public void addExecuteTime(long nanos) {
+    executeNanos.add(nanos);
+    executeLatency.record(nanos);
+  }
+
+  /**
+   * Records the time spent in one {@code ResultSet.next()} call which fetched a batch of rows from
+   * the server. The calls which return buffered rows are not timed.
+   */
+  public void addFetchTime(long nanos) {
+    fetchNanos.add(nanos);
+    fetchLatency.record(nanos);
+  }
+
+  /** Records the time spent extracting a result set, including fetching and writing. */
+  public void addExtractTime(long nanos) {
+    extractNanos.add(nanos);
+  }
+
+  public void addRows(long rows) {
+    rowCount.add(rows);
+  }
+
+  /** Returns a sink which counts the bytes written to the given sink. */
+  @Nonnull
+  public ByteSink countBytes(@Nonnull ByteSink sink) {
+    return new CountingByteSink(sink, byteCount);
+  }
+
+  @JsonProperty
+  public String getTaskName() {
+    return taskName;
+  }
+
+  @JsonProperty
+  public long getWallTimeMillis() {
+    long value = wallTimeMillis;
+    return value < 0 ? stopwatch.elapsed(TimeUnit.MILLISECONDS) : value;
+  }
+
+  @JsonProperty
+  public long getPrepareMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(prepareNanos.sum());
+  }
+
+  @JsonProperty
+  public long getExecuteMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(executeNanos.sum());
+  }
+
+  @JsonProperty
+  public long getFetchMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(fetchNanos.sum());
+  }
+
+  @JsonProperty
+  public long getExtractMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(extractNanos.sum());
+  }
+
+  @JsonProperty
+  public long getRowCount() {
+    return rowCount.sum();
+  }
+
+  @JsonProperty
+  public long getByteCount() {
+    return byteCount.sum();
+  }
+
+  @JsonProperty
+  public long getRowsPerSecond() {
+    long millis = getWallTimeMillis();
+    return millis == 0 ? 0 : getRowCount() * 1000 / millis;
+  }
+
+  @JsonProperty
+  public LatencyHistogram getExecuteLatency() {
+    return executeLatency;
+  }
+
+  @JsonProperty
+  public LatencyHistogram getFetchLatency() {
+    return fetchLatency;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "TaskMetrics(%s: %d ms, %d rows, %d bytes)",
+        taskName, getWallTimeMillis(), getRowCount(), getByteCount());
+  }
+
+  private static class CountingByteSink extends ByteSink {
+
+    private final ByteSink delegate;
+    private final LongAdder byteCount;
+
+    CountingByteSink(ByteSink delegate, LongAdder byteCount) {
+      this.delegate = delegate;
+      this.byteCount = byteCount;
+    }
+
+    @Override
+    public OutputStream openStream() throws IOException {
+      return new FilterOutputStream(delegate.openStream()) {
+        @Override
+        public void write(int b) throws IOException {
+          out.write(b);
+          byteCount.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          out.write(b, off, len);
+          byteCount.add(len);
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return delegate.toString();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.metrics;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Estimates the remaining time of a monotonic counter from its recent rate of change.
+ *
+ * <p>Long dumps tend to front-load many cheap tasks and end with few expensive ones, so the
+ * average over the whole run is a poor predictor. This only considers the samples taken within a
+ * sliding window.
+ */
+@ThreadSafe
+public class ThroughputEstimator {
+
+  private static class Sample {
+
+    private final long timeMillis;
+    private final long value;
+
+    Sample(long timeMillis, long value) {
+      this.timeMillis = timeMillis;
+      this.value = value;
+    }
+  }
+
+  private final long windowMillis;
+  private final Deque<Sample> samples = new ArrayDeque<>();
+
+  public ThroughputEstimator(@Nonnull Duration window) {
+    this.windowMillis = window.toMillis();
+  }
+
+  public synchronized void record(long timeMillis, @Nonnegative long value) {
+    samples.addLast(new Sample(timeMillis, value));
+    // Always keep the newest sample before the window, so the rate spans the whole window.
+    while (samples.size() > 2) {
+      Sample oldest = samples.removeFirst();
+      if (timeMillis - samples.getFirst().timeMillis < windowMillis) {
+        samples.addFirst(oldest);
+        break;
+      }
+    }
+  }
+
+  /** Returns the rate of change per second over the window, or 0 if not yet known. */
+  public synchronized double getRatePerSecond() {
+    if (samples.size() < 2) {
+      return 0;
+    }
+    Sample first = samples.getFirst();
+    Sample last = samples.getLast();
+    long elapsedMillis = last.timeMillis - first.timeMillis;
+    if (elapsedMillis <= 0) {
+      return 0;
+    }
+    return (last.value - first.value) * 1000d / elapsedMillis;
+  }
+
+  /** Returns the time to count the given remaining amount at the current rate, if known. */
+  @CheckForNull
+  public Duration estimateRemaining(@Nonnegative long remaining) {
+    if (remaining == 0) {
+      return Duration.ZERO;
+    }
+    double rate = getRatePerSecond();
+    if (rate <= 0) {
+      return null;
+    }
+    return Duration.ofMillis((long) (remaining * 1000d / rate));
+  }
+}
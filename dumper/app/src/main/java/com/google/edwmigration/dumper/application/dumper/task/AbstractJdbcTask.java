@@ -23,9 +23,11 @@ import com.google.common.io.ByteSink;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
 import com.google.edwmigration.dumper.application.dumper.connector.ResultSetTransformer;
 import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval;
+import com.google.edwmigration.dumper.application.dumper.handle.FetchSizePolicy;
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.handle.JdbcHandle;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandle.WriteMode;
+import com.google.edwmigration.dumper.application.dumper.metrics.TaskMetrics;
 import com.google.edwmigration.dumper.plugin.ext.jdk.progress.RecordProgressMonitor;
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,6 +42,7 @@ import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -151,11 +154,17 @@ public abstract class AbstractJdbcTask<T> extends AbstractTask<T> {
   private void printAllResults(ByteSink sink, ResultSet resultSet, RecordProgressMonitor monitor)
       throws IOException, SQLException {
     CSVFormat format = newCsvFormat(resultSet);
+    TaskMetrics metrics = TaskMetrics.current();
+    FetchSizePolicy.Cursor cursor = FetchSizePolicy.newCursorFor(resultSet);
+    if (metrics != null) {
+      cursor.onFetch(metrics::addFetchTime).onRows(metrics::addRows);
+    }
     try (Writer writer = sink.asCharSink(UTF_8).openBufferedStream();
         CSVPrinter printer = format.print(writer)) {
       int columnCount = resultSet.getMetaData().getColumnCount();
-      while (resultSet.next()) {
+      while (cursor.next()) {
         monitor.count();
+        long rowBytes = 0;
         for (int i = 1; i <= columnCount; i++) {
           Object resultItem = resultSet.getObject(i);
           String csvItemCandidate = fromByteBufferOrClob(resultItem);
@@ -163,16 +172,20 @@ public abstract class AbstractJdbcTask<T> extends AbstractTask<T> {
           if (csvItemCandidate != null || resultItem == null) {
             // Item was recognized by the helper method or it was null.
             printer.print(csvItemCandidate);
+            rowBytes += FetchSizePolicy.estimateValueBytes(csvItemCandidate);
           } else if ((itemString = resultItem.toString()) == null) {
             // Item violated usual toStringRules
             Class<?> itemClass = resultItem.getClass();
             logger.warn("Unexpected toString result for class {} - null", itemClass);
             printer.print(null);
+            rowBytes += FetchSizePolicy.estimateValueBytes(null);
           } else {
             printer.print(itemString);
+            rowBytes += FetchSizePolicy.estimateValueBytes(itemString);
           }
         }
         printer.println();
+        cursor.onRow(rowBytes);
       }
     }
   }
@@ -235,6 +248,8 @@ public abstract class AbstractJdbcTask<T> extends AbstractTask<T> {
       @Nonnull String sql,
       @Nonnull Object... arguments)
       throws SQLException {
+    TaskMetrics metrics = TaskMetrics.current();
+    FetchSizePolicy fetchSizePolicy = FetchSizePolicy.forConnection(connection);
     PreparedStatement statement = null;
     try {
       logger.debug("Preparing statement...");
@@ -256,8 +271,11 @@ public abstract class AbstractJdbcTask<T> extends AbstractTask<T> {
         // Teradata prefer this. However, it is the default, and sqlite throws.
         // Enables cursors in PostgreSQL.
         // Teradata says that this can reduce the fetch size below 1Mb, but not increase it.
-        statement.setFetchSize(16384);
+        statement.setFetchSize(fetchSizePolicy.getInitialFetchSize(statement));
         logger.debug("Statement preparation took {}. Executing...", stopwatch);
+        if (metrics != null) {
+          metrics.addPrepareTime(stopwatch.elapsed(TimeUnit.NANOSECONDS));
+        }
       }
 
       EXECUTE:
@@ -267,6 +285,9 @@ public abstract class AbstractJdbcTask<T> extends AbstractTask<T> {
         statement.execute(); // Must return true to indicate a ResultSet object.
         logger.debug("Statement execution took {}. Extracting results...", stopwatch);
         // debug(statement);
+        if (metrics != null) {
+          metrics.addExecuteTime(stopwatch.elapsed(TimeUnit.NANOSECONDS));
+        }
       }
 
       T result = null;
@@ -274,8 +295,12 @@ public abstract class AbstractJdbcTask<T> extends AbstractTask<T> {
       try {
         Stopwatch stopwatch = Stopwatch.createStarted();
         rs = statement.getResultSet();
+        fetchSizePolicy.resize(rs);
         result = resultSetExtractor.extractData(rs);
         logger.debug("Result set extraction took {}.", stopwatch);
+        if (metrics != null) {
+          metrics.addExtractTime(stopwatch.elapsed(TimeUnit.NANOSECONDS));
+        }
       } finally {
         JdbcUtils.closeResultSet(rs);
       }
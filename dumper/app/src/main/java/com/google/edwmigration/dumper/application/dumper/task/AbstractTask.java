@@ -26,6 +26,7 @@ import com.google.edwmigration.dumper.application.dumper.connector.Connector;
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandle;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandle.WriteMode;
+import com.google.edwmigration.dumper.application.dumper.metrics.TaskMetrics;
 import com.google.errorprone.annotations.ForOverride;
 import java.beans.PropertyDescriptor;
 import java.io.OutputStream;
@@ -124,7 +125,12 @@ public abstract class AbstractTask<T> implements Task<T> {
       logger.info("Skipping {}: {} already exists.", getName(), sink);
       return null;
     }
-    T result = doRun(context, sink.asTemporaryByteSink(options.writeMode()), context.getHandle());
+    ByteSink target = sink.asTemporaryByteSink(options.writeMode());
+    TaskMetrics metrics = TaskMetrics.current();
+    if (metrics != null) {
+      target = metrics.countBytes(target);
+    }
+    T result = doRun(context, target, context.getHandle());
     sink.commit();
     return result;
   }
@@ -91,18 +91,38 @@ public class ParallelTaskGroup extends TaskGroup {
       this.name = name;
     }
 
+    /**
+     * Adds a task which runs concurrently with the other children. The children share the handle
+     * of the connector, so it must support concurrent use, as a pooled JDBC handle does.
+     */
     @CanIgnoreReturnValue
     public Builder addTask(Task<?> task) {
       Preconditions.checkState(
           task.getConditions().length == 0, "Tasks in a parallel task should not have conditions");
-      Preconditions.checkState(
-          task instanceof AbstractJdbcTask || task instanceof FormatTask,
-          "Parallel task only supports JdbcSelectTask and FormatTask sub tasks. Trying to add %s.",
-          task.getClass().getSimpleName());
+      checkTaskType(task);
       taskList.add(task);
       return this;
     }
 
+    /**
+     * Adds a task which is skipped unless its conditions hold. The children of a parallel group
+     * run in no particular order, so the conditions must only depend on tasks which completed
+     * before this group started.
+     */
+    @CanIgnoreReturnValue
+    public Builder addConditionalTask(Task<?> task) {
+      checkTaskType(task);
+      taskList.add(task);
+      return this;
+    }
+
+    private static void checkTaskType(Task<?> task) {
+      Preconditions.checkState(
+          !(task instanceof TaskGroup),
+          "Parallel task does not support nested task groups. Trying to add %s.",
+          task.getClass().getSimpleName());
+    }
+
     public ParallelTaskGroup build() {
       return new ParallelTaskGroup(name, taskList);
     }
@@ -24,6 +24,8 @@ import static java.util.stream.Collectors.groupingBy;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.dumper.application.dumper.metrics.TaskMetrics;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -45,10 +47,14 @@ public interface TaskSetState {
 
     abstract TaskState state();
 
+    abstract Optional<TaskMetrics> metrics();
+
     @Nonnull
-    static TaskResultSummary create(Task<?> task, TaskResult<?> result) {
+    static TaskResultSummary create(
+        Task<?> task, TaskResult<?> result, @CheckForNull TaskMetrics metrics) {
       Optional<Throwable> throwable = Optional.ofNullable(result.getException());
-      return new AutoValue_TaskSetState_TaskResultSummary(throwable, task, result.getState());
+      return new AutoValue_TaskSetState_TaskResultSummary(
+          throwable, task, result.getState(), Optional.ofNullable(metrics));
     }
 
     @Nonnull
@@ -73,6 +79,10 @@ public interface TaskSetState {
     public Optional<Throwable> getThrowable() {
       return throwable();
     }
+
+    public Optional<TaskMetrics> getMetrics() {
+      return metrics();
+    }
   }
 
   @AutoValue
@@ -96,6 +106,9 @@ public interface TaskSetState {
     @GuardedBy("this")
     private final Map<Task<?>, TaskResult<?>> resultMap = new LinkedHashMap<>();
 
+    @GuardedBy("this")
+    private final Map<Task<?>, TaskMetrics> metricsMap = new HashMap<>();
+
     @Deprecated // Use TaskSetState instead of TaskSetState.Impl
     @Override
     public synchronized long getFailedRequiredTaskCount() {
@@ -114,7 +127,10 @@ public interface TaskSetState {
     @Override
     public synchronized ImmutableList<TaskResultSummary> getTaskResultSummaries() {
       return resultMap.entrySet().stream()
-          .map(entry -> TaskResultSummary.create(entry.getKey(), entry.getValue()))
+          .map(
+              entry ->
+                  TaskResultSummary.create(
+                      entry.getKey(), entry.getValue(), metricsMap.get(entry.getKey())))
           .collect(toImmutableList());
     }
 
@@ -146,6 +162,10 @@ public interface TaskSetState {
         @Nonnull Task<?> task, @Nonnull TaskState state, @CheckForNull Exception exception) {
       resultMap.put(task, new TaskResult<>(state, exception));
     }
+
+    public synchronized void setTaskMetrics(@Nonnull Task<?> task, @Nonnull TaskMetrics metrics) {
+      metricsMap.put(task, metrics);
+    }
   }
 
   long getFailedRequiredTaskCount();
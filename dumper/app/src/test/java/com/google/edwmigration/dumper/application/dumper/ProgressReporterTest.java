@@ -0,0 +1,192 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.edwmigration.dumper.application.dumper.handle.Handle;
+import com.google.edwmigration.dumper.application.dumper.metrics.TaskMetrics;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState.TaskResultSummary;
+import com.google.edwmigration.dumper.application.dumper.task.TaskState;
+import com.google.edwmigration.dumper.plugin.ext.jdk.progress.ConcurrentRecordProgressMonitor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProgressReporterTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private TasksRunner runner;
+  @Mock private TaskSetState state;
+  @Mock private Handle handle;
+
+  private final TaskMetrics runningMetrics = new TaskMetrics("running-task");
+
+  @Before
+  public void setUp() {
+    TaskMetrics finishedMetrics = new TaskMetrics("finished-task");
+    finishedMetrics.addRows(10);
+    runningMetrics.addRows(3);
+
+    when(runner.getNumberOfCompletedTasks()).thenReturn(2);
+    when(runner.getTotalNumberOfTasks()).thenReturn(5);
+    when(runner.getRunningTaskMetrics()).thenReturn(ImmutableList.of(runningMetrics));
+    ImmutableList<TaskResultSummary> summaries =
+        ImmutableList.of(
+            newSummary(TaskState.SUCCEEDED, finishedMetrics), newSummary(TaskState.FAILED, null));
+    when(state.getTaskResultSummaries()).thenReturn(summaries);
+  }
+
+  private static TaskResultSummary newSummary(
+      TaskState taskState, @CheckForNull TaskMetrics metrics) {
+    TaskResultSummary summary = mock(TaskResultSummary.class);
+    when(summary.getTaskState()).thenReturn(taskState);
+    when(summary.getMetrics()).thenReturn(Optional.ofNullable(metrics));
+    return summary;
+  }
+
+  @Test
+  public void snapshot_summarizesTasksRunningTasksAndMonitors() {
+    ProgressReporter reporter = new ProgressReporter(runner, state, handle, null);
+
+    ProgressReporter.Snapshot snapshot;
+    try (ConcurrentRecordProgressMonitor monitor =
+        new ConcurrentRecordProgressMonitor("test-monitor", 100)) {
+      monitor.count(40);
+      snapshot = reporter.snapshot();
+    }
+
+    assertEquals(2, snapshot.completedTasks);
+    assertEquals(5, snapshot.totalTasks);
+    assertEquals(ImmutableMap.of("FAILED", 1, "SUCCEEDED", 1), snapshot.taskStates);
+    // The finished and the running tasks are both counted.
+    assertEquals(13, snapshot.rowCount);
+    // Nothing has been sampled yet, so there is no estimate.
+    assertNull(snapshot.etaSeconds);
+    // The handle is not a JDBC handle.
+    assertNull(snapshot.connectionPool);
+
+    JsonNode json = MAPPER.valueToTree(snapshot);
+    assertEquals(1, json.get("runningTasks").size());
+    assertEquals("running-task", json.get("runningTasks").get(0).get("name").asText());
+    assertEquals(3, json.get("runningTasks").get(0).get("rowCount").asLong());
+    JsonNode monitor = findMonitor(json, "test-monitor");
+    assertEquals(40, monitor.get("count").asLong());
+    assertEquals(100, monitor.get("total").asLong());
+  }
+
+  @Test
+  public void snapshot_excludesClosedMonitors() {
+    ProgressReporter reporter = new ProgressReporter(runner, state, handle, null);
+    new ConcurrentRecordProgressMonitor("closed-monitor").close();
+
+    JsonNode json = MAPPER.valueToTree(reporter.snapshot());
+
+    assertNull(findMonitor(json, "closed-monitor"));
+  }
+
+  @Test
+  public void report_appendsOneJsonLinePerReport() throws Exception {
+    Path progressFile = tempFolder.getRoot().toPath().resolve("progress.jsonl");
+    ProgressReporter reporter = new ProgressReporter(runner, state, handle, progressFile);
+
+    reporter.report();
+    runningMetrics.addRows(7);
+    reporter.report();
+    // Closing records the final state.
+    reporter.close();
+
+    List<String> lines = Files.readAllLines(progressFile, StandardCharsets.UTF_8);
+    assertEquals(3, lines.size());
+    long[] rowCounts = new long[lines.size()];
+    for (int i = 0; i < lines.size(); i++) {
+      JsonNode json = MAPPER.readTree(lines.get(i));
+      assertEquals(5, json.get("totalTasks").asInt());
+      assertEquals(1, json.get("taskStates").get("SUCCEEDED").asInt());
+      // Absent values are left out rather than written as null.
+      assertFalse(json.has("connectionPool"));
+      rowCounts[i] = json.get("rowCount").asLong();
+    }
+    assertEquals(13, rowCounts[0]);
+    assertEquals(20, rowCounts[1]);
+    assertEquals(20, rowCounts[2]);
+  }
+
+  @Test
+  public void report_estimatesMonitorEtaFromRecentRate() {
+    AtomicLong nanos = new AtomicLong();
+    Ticker ticker =
+        new Ticker() {
+          @Override
+          public long read() {
+            return nanos.get();
+          }
+        };
+    ProgressReporter reporter = new ProgressReporter(runner, state, handle, null, ticker);
+
+    JsonNode monitor;
+    try (ConcurrentRecordProgressMonitor progress =
+        new ConcurrentRecordProgressMonitor("slow-monitor", 100)) {
+      progress.count(40);
+      reporter.report();
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+      progress.count(5);
+      reporter.report();
+      monitor = findMonitor(MAPPER.valueToTree(reporter.snapshot()), "slow-monitor");
+    }
+
+    // Slower than one item per second, so the rate is fractional.
+    assertEquals(0.5, monitor.get("ratePerSecond").asDouble(), 1e-9);
+    assertEquals(110, monitor.get("etaSeconds").asLong());
+  }
+
+  @CheckForNull
+  private static JsonNode findMonitor(JsonNode json, String name) {
+    for (JsonNode monitor : json.get("progressMonitors")) {
+      if (name.equals(monitor.get("name").asText())) {
+        return monitor;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.dumper.application.dumper.io.FileSystemOutputHandleFactory;
+import com.google.edwmigration.dumper.application.dumper.metrics.TaskMetrics;
+import com.google.edwmigration.dumper.application.dumper.task.Task;
+import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState.TaskResultSummary;
+import com.google.edwmigration.dumper.application.dumper.task.TaskState;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskMetricsWriterTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private TaskSetState state;
+
+  @Before
+  public void setUp() {
+    TaskMetrics succeededMetrics = new TaskMetrics("succeeded-task");
+    succeededMetrics.addRows(5);
+    TaskMetrics failedMetrics = new TaskMetrics("failed-task");
+    Throwable failure = new IllegalStateException("boom");
+    ImmutableList<TaskResultSummary> summaries =
+        ImmutableList.of(
+            newSummary("succeeded-task", TaskState.SUCCEEDED, null, succeededMetrics),
+            newSummary("failed-task", TaskState.FAILED, failure, failedMetrics),
+            newSummary("skipped-task", TaskState.SKIPPED, null, null));
+    when(state.getTaskResultSummaries()).thenReturn(summaries);
+  }
+
+  private static TaskResultSummary newSummary(
+      String name,
+      TaskState taskState,
+      @CheckForNull Throwable throwable,
+      @CheckForNull TaskMetrics metrics) {
+    Task<?> task = mock(Task.class);
+    when(task.getName()).thenReturn(name);
+    when(task.getCategory()).thenReturn(TaskCategory.REQUIRED);
+    TaskResultSummary summary = mock(TaskResultSummary.class);
+    when(summary.getTask()).thenAnswer(invocation -> task);
+    when(summary.getTaskState()).thenReturn(taskState);
+    when(summary.getThrowable()).thenReturn(Optional.ofNullable(throwable));
+    when(summary.getMetrics()).thenReturn(Optional.ofNullable(metrics));
+    return summary;
+  }
+
+  @Test
+  public void write_reportsTasksWithMetrics() throws Exception {
+    Path root = tempFolder.getRoot().toPath();
+
+    TaskMetricsWriter.write(new FileSystemOutputHandleFactory(root), state);
+
+    JsonNode tasks =
+        new ObjectMapper()
+            .readTree(Files.readAllBytes(root.resolve(TaskMetricsWriter.METRICS_FILE)))
+            .get("tasks");
+    // The skipped task has no metrics, and is left out.
+    assertEquals(2, tasks.size());
+    JsonNode succeeded = tasks.get(0);
+    assertEquals("succeeded-task", succeeded.get("name").asText());
+    assertEquals("REQUIRED", succeeded.get("type").asText());
+    assertEquals("SUCCEEDED", succeeded.get("status").asText());
+    assertFalse(succeeded.has("error"));
+    assertEquals(5, succeeded.get("metrics").get("rowCount").asLong());
+    JsonNode failed = tasks.get(1);
+    assertEquals("FAILED", failed.get("status").asText());
+    assertEquals("boom", failed.get("error").asText());
+    assertEquals(0, failed.get("metrics").get("rowCount").asLong());
+  }
+
+  @Test
+  public void write_unwritableTarget_doesNotThrow() throws Exception {
+    // A file where the output directory should be makes the write fail.
+    Path root = tempFolder.newFile("not-a-directory").toPath();
+
+    TaskMetricsWriter.write(new FileSystemOutputHandleFactory(root), state);
+
+    assertFalse(Files.exists(root.resolve(TaskMetricsWriter.METRICS_FILE)));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.hadoop;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteSink;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BashTaskTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private String run(String script, Duration timeout, File output) throws Exception {
+    File scriptFile = tempFolder.newFile("script.sh");
+    Files.asCharSink(scriptFile, UTF_8).write(script);
+    File exitStatus = tempFolder.newFile("exit-status");
+    new BashTask("script", scriptFile.toPath(), timeout)
+        .doRun(
+            Files.asByteSink(output),
+            Files.asByteSink(tempFolder.newFile("err")),
+            Files.asByteSink(exitStatus));
+    return Files.asCharSource(exitStatus, UTF_8).read();
+  }
+
+  @Test
+  public void doRun_exits_writesOutputAndExitStatus() throws Exception {
+    File output = tempFolder.newFile("out");
+
+    String exitStatus = run("echo hello\nexit 3\n", Duration.ofMinutes(1), output);
+
+    assertEquals("3", exitStatus);
+    assertEquals("hello\n", Files.asCharSource(output, UTF_8).read());
+  }
+
+  @Test
+  public void doRun_sleepsPastTimeout_isDestroyed() throws Exception {
+    File output = tempFolder.newFile("out");
+    Stopwatch stopwatch = Stopwatch.createStarted();
+
+    // The sleep is a child of the script, which keeps the output pipe open after bash is killed.
+    String exitStatus =
+        run("echo started\nsleep 60\necho finished\n", Duration.ofSeconds(1), output);
+
+    assertEquals("timeout", exitStatus);
+    assertEquals("started\n", Files.asCharSource(output, UTF_8).read());
+    long elapsed = stopwatch.elapsed(TimeUnit.SECONDS);
+    assertTrue("Took " + elapsed + "s", elapsed < 30);
+  }
+
+  @Test
+  public void doRun_outputFails_writesExitStatus() throws Exception {
+    File scriptFile = tempFolder.newFile("script.sh");
+    // More than the buffer of the sink, which fits in the pipe, so the script exits.
+    Files.asCharSink(scriptFile, UTF_8).write("head -c 20000 /dev/zero >&2\nexit 2\n");
+    File exitStatus = tempFolder.newFile("exit-status");
+    ByteSink fullDisk =
+        new ByteSink() {
+          @Override
+          public OutputStream openStream() {
+            return new OutputStream() {
+              @Override
+              public void write(int b) throws IOException {
+                throw new IOException("No space left on device");
+              }
+            };
+          }
+        };
+
+    assertThrows(
+        ExecutionException.class,
+        () ->
+            new BashTask("script", scriptFile.toPath(), Duration.ofMinutes(1))
+                .doRun(
+                    Files.asByteSink(tempFolder.newFile("out")),
+                    fullDisk,
+                    Files.asByteSink(exitStatus)));
+
+    assertEquals("2", Files.asCharSource(exitStatus, UTF_8).read());
+  }
+}
@@ -16,11 +16,20 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.hadoop;
 
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
+import com.google.edwmigration.dumper.application.dumper.task.ParallelTaskGroup;
+import com.google.edwmigration.dumper.application.dumper.task.Task;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.BeforeClass;
+import org.junit.Test;
 import org.junit.experimental.theories.DataPoints;
 import org.junit.experimental.theories.FromDataPoints;
 import org.junit.experimental.theories.Theories;
@@ -44,4 +53,26 @@ public class HadoopMetadataConnectorTest {
     String scriptBody = new String(HadoopScripts.read(scriptName + ".sh"));
     assertTrue(scriptBody.startsWith("#!/bin/bash"));
   }
+
+  @Test
+  public void addTasksTo_scriptsRunInParallel() throws Exception {
+    List<Task<?>> tasks = new ArrayList<>();
+
+    new HadoopMetadataConnector()
+        .addTasksTo(tasks, new ConnectorArguments("--connector", "hadoop"));
+
+    assertEquals(
+        ImmutableList.of(
+            "compilerworks-metadata.yaml", "compilerworks-format.txt", "parallel-task-hadoop"),
+        tasks.stream().map(Task::getTargetPath).collect(toList()));
+    ParallelTaskGroup scripts = (ParallelTaskGroup) Iterables.getLast(tasks);
+    assertTrue(scripts.getTasks().stream().allMatch(task -> task instanceof BashTask));
+    assertTrue(
+        scripts.getTasks().stream()
+            .map(Task::getTargetPath)
+            .collect(toList())
+            .containsAll(
+                ImmutableList.of(
+                    "hadoop-version.out", "crond-systemctl-status.out", "local-filesystem.out")));
+  }
 }
@@ -29,7 +29,7 @@ public class LocalFilesystemScanCommandGeneratorTest {
   public void generate_success() {
     String command = LocalFilesystemScanCommandGenerator.generate();
     assertEquals(
-        "find / -iname 'phoenix*.jar' -o -iname '*coprocessor*.jar' -o -iname '*jdbc*.jar' -o -iname '*odbc*.jar' -o -iname 'salesforce' -o -iname 'ngdbc.jar' -o -iname '*connector*.jar' -o -iname 'oozie-site.xml' -o -iname 'splunk' -o -iname 'newrelic-infra.yml' -o -iname 'elasticsearch.yml' -o -iname 'ganglia.conf' 2>/dev/null",
+        "find / \\( -path '/proc' -o -path '/sys' -o -path '/dev' -o -path '/run' \\) -prune -o \\( -iname 'phoenix*.jar' -o -iname '*coprocessor*.jar' -o -iname '*jdbc*.jar' -o -iname '*odbc*.jar' -o -iname 'salesforce' -o -iname 'ngdbc.jar' -o -iname '*connector*.jar' -o -iname 'oozie-site.xml' -o -iname 'splunk' -o -iname 'newrelic-infra.yml' -o -iname 'elasticsearch.yml' -o -iname 'ganglia.conf' \\) -print 2>/dev/null",
         command);
   }
 }
@@ -18,8 +18,10 @@ package com.google.edwmigration.dumper.application.dumper.connector.hadoop.oozie
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
@@ -28,13 +30,16 @@ import com.google.edwmigration.dumper.application.dumper.ZonedParser.DayOffset;
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.task.DumpMetadataTask;
 import com.google.edwmigration.dumper.application.dumper.task.FormatTask;
+import com.google.edwmigration.dumper.application.dumper.task.ParallelTaskGroup;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
 import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
+import com.google.edwmigration.dumper.application.dumper.task.TaskGroup;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.oozie.client.XOozieClient;
 import org.junit.Test;
 import org.mockito.MockedStatic;
@@ -112,11 +117,11 @@ public class OozieConnectorTest {
             "oozie_coord_jobs.csv", TaskCategory.OPTIONAL,
             "oozie_bundle_jobs.csv", TaskCategory.OPTIONAL,
             "oozie_servers.csv", TaskCategory.REQUIRED,
-            "oozie_workflow_jobs.csv", TaskCategory.REQUIRED);
-    List<Task<?>> tasks = new ArrayList<>();
+            "oozie_workflow_jobs.csv", TaskCategory.REQUIRED,
+            "parallel-task-oozie", TaskCategory.REQUIRED);
 
     // Act
-    connector.addTasksTo(tasks, toArgs("--connector oozie"));
+    List<Task<?>> tasks = addTasksTo("--connector oozie");
 
     // Assert
     Map<String, TaskCategory> filesToCategory =
@@ -126,10 +131,8 @@ public class OozieConnectorTest {
 
   @Test
   public void addTasksTo_containsRequiredTasks() throws Exception {
-    List<Task<?>> tasks = new ArrayList<>();
-
     // Act
-    connector.addTasksTo(tasks, toArgs("--connector oozie"));
+    List<Task<?>> tasks = addTasksTo("--connector oozie");
 
     // Assert
     long dumpMetadataCount = tasks.stream().filter(t -> t instanceof DumpMetadataTask).count();
@@ -141,11 +144,10 @@ public class OozieConnectorTest {
 
   @Test
   public void addTasksTo_dateRangeSpecified() throws Exception {
-    List<Task<?>> tasks = new ArrayList<>();
     String argsStr = validRequiredArgs + " --start-date=2001-02-20 --end-date=2001-02-21";
 
     // Act
-    connector.addTasksTo(tasks, toArgs(argsStr));
+    List<Task<?>> tasks = addTasksTo(argsStr);
 
     // Assert
     OozieWorkflowJobsTask workflowJobsTask =
@@ -173,10 +175,8 @@ public class OozieConnectorTest {
 
   @Test
   public void addTasksTo_dateRangeDefault() throws Exception {
-    List<Task<?>> tasks = new ArrayList<>();
-
     // Act
-    connector.addTasksTo(tasks, toArgs(validRequiredArgs));
+    List<Task<?>> tasks = addTasksTo(validRequiredArgs);
 
     // Assert
     OozieWorkflowJobsTask workflowJobsTask =
@@ -213,6 +213,7 @@ public class OozieConnectorTest {
 
       assertEquals(OozieHandle.class, handle.getClass());
       assertEquals(oozieClient, ((OozieHandle) handle).getOozieClient());
+      verify(oozieClient).validateWSVersion();
     }
   }
 
@@ -253,6 +254,34 @@ public class OozieConnectorTest {
     }
   }
 
+  @Test
+  public void addTasksTo_jobsTasksRunInParallel() throws Exception {
+    List<Task<?>> tasks = new ArrayList<>();
+
+    // Act
+    connector.addTasksTo(tasks, toArgs(validRequiredArgs));
+
+    // Assert
+    ParallelTaskGroup group =
+        (ParallelTaskGroup)
+            tasks.stream().filter(t -> t instanceof ParallelTaskGroup).findAny().get();
+    assertEquals(3, group.getTasks().size());
+    assertTrue(group.getTasks().stream().allMatch(t -> t instanceof AbstractOozieJobsTask));
+  }
+
+  /** Adds the tasks of the connector, followed by the sub tasks of each task group. */
+  private List<Task<?>> addTasksTo(String args) throws Exception {
+    List<Task<?>> tasks = new ArrayList<>();
+    connector.addTasksTo(tasks, toArgs(args));
+    return tasks.stream()
+        .flatMap(
+            t ->
+                t instanceof TaskGroup
+                    ? Stream.concat(Stream.of(t), ((TaskGroup) t).getTasks().stream())
+                    : Stream.of(t))
+        .collect(Collectors.toList());
+  }
+
   private static ConnectorArguments toArgs(String args) throws Exception {
     return new ConnectorArguments(args.split(" "));
   }
@@ -17,6 +17,7 @@
 package com.google.edwmigration.dumper.application.dumper.connector.hadoop.oozie;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.ok;
 import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.options;
@@ -72,6 +73,9 @@ public class OozieWorkflowJobsTaskTest {
   private static final ZoneId UTC = ZoneId.of("UTC");
   private static final DateTimeFormatter ISO8601_UTC_FORMAT =
       DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm'Z'").withZone(ZoneOffset.UTC);
+  // sorted by end time and created before the end of the range, 2025-03-17T15:01Z
+  private static final String JOBS_FILTER =
+      "sortby%3DendTime%3Bendcreatedtime%3D2025-03-17T15%3A01Z%3B";
   private static WireMockServer server;
 
   @Mock private TaskRunContext context;
@@ -109,17 +113,17 @@ public class OozieWorkflowJobsTaskTest {
     MemoryByteSink sink = new MemoryByteSink();
     stubOozieVersionsCall();
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=1&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=1&len=1000"))
             .willReturn(okJsonWithBodyFile("oozie/jobs-batch1.json")));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=4&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=4&len=1000"))
             .willReturn(
                 okJsonWithBodyFile("oozie/jobs-one-item-template.json")
                     .withTransformers("response-template")
                     .withTransformerParameter(
                         "endTime", JsonUtils.formatDateRfc822(lastCapturedDate))));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=5&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=5&len=1000"))
             .willReturn(okJson("{}")));
 
     OozieWorkflowJobsTask task = new OozieWorkflowJobsTask(startTime, endTime);
@@ -144,7 +148,7 @@ public class OozieWorkflowJobsTaskTest {
     MemoryByteSink sink = new MemoryByteSink();
     stubOozieVersionsCall();
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=1&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=1&len=1000"))
             .willReturn(
                 okJsonWithBodyFile("oozie/jobs-one-item-template.json")
                     .withTransformers("response-template")
@@ -154,7 +158,7 @@ public class OozieWorkflowJobsTaskTest {
                         JsonUtils.formatDateRfc822(
                             Date.from(endTime.plusSeconds(1).toInstant())))));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=2&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=2&len=1000"))
             .willReturn(
                 okJsonWithBodyFile("oozie/jobs-one-item-template.json")
                     .withTransformers("response-template")
@@ -162,17 +166,17 @@ public class OozieWorkflowJobsTaskTest {
                         // filter out this job because equals endTime
                         "endTime", JsonUtils.formatDateRfc822(Date.from(endTime.toInstant())))));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=3&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=3&len=1000"))
             .willReturn(okJsonWithBodyFile("oozie/jobs-batch1.json")));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=6&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=6&len=1000"))
             .willReturn(
                 okJsonWithBodyFile("oozie/jobs-one-item-template.json")
                     .withTransformers("response-template")
                     .withTransformerParameter(
                         "endTime", JsonUtils.formatDateRfc822(lastCapturedDate))));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=7&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=7&len=1000"))
             .willReturn(
                 okJsonWithBodyFile("oozie/jobs-one-item-template.json")
                     .withTransformers("response-template")
@@ -204,7 +208,7 @@ public class OozieWorkflowJobsTaskTest {
     MemoryByteSink sink = new MemoryByteSink();
     stubOozieVersionsCall();
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=1&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=1&len=1000"))
             .willReturn(
                 okJsonWithBodyFile("oozie/jobs-one-item-template.json")
                     .withTransformers("response-template")
@@ -212,7 +216,7 @@ public class OozieWorkflowJobsTaskTest {
                         // filter out this job because endTime is null (job is in progress)
                         "endTime", null)));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=2&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=2&len=1000"))
             .willReturn(
                 okJsonWithBodyFile("oozie/jobs-one-item-template.json")
                     .withTransformers("response-template")
@@ -220,7 +224,7 @@ public class OozieWorkflowJobsTaskTest {
                         // include this job
                         "endTime", JsonUtils.formatDateRfc822(lastCapturedDate))));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=3&len=1000"))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=3&len=1000"))
             .willReturn(
                 okJsonWithBodyFile("oozie/jobs-one-item-template.json")
                     .withTransformers("response-template")
@@ -314,13 +318,13 @@ public class OozieWorkflowJobsTaskTest {
     MemoryByteSink sink = new MemoryByteSink();
     stubOozieVersionsCall();
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=1&len=" + batchSize))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=1&len=" + batchSize))
             .willReturn(okJsonWithBodyFile("oozie/jobs-batch1.json")));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=4&len=" + batchSize))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=4&len=" + batchSize))
             .willReturn(okJsonWithBodyFile("oozie/jobs-batch2.json")));
     server.stubFor(
-        get(urlEqualTo("/v2/jobs?filter=sortby%3DendTime%3B&jobtype=wf&offset=5&len=" + batchSize))
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=5&len=" + batchSize))
             .willReturn(okJson("{}")));
 
     OozieWorkflowJobsTask task = new OozieWorkflowJobsTask(startTime, endTime);
@@ -334,6 +338,95 @@ public class OozieWorkflowJobsTaskTest {
     assertEquals(expected, actual);
   }
 
+  @Test
+  public void doRun_fullPagesFetchedAhead_stopsAfterStartDate() throws Exception {
+    final ZonedDateTime endTime =
+        ZonedDateTime.ofInstant(Instant.ofEpochMilli(timestampInMockResponses), UTC).plusHours(1);
+    final ZonedDateTime startTime = endTime.minusDays(7);
+    Date lastCapturedDate = Date.from(startTime.toInstant());
+    ConnectorArguments arguments =
+        new ConnectorArguments("--connector", "oozie", "--pagination-page-size", "1");
+    when(context.getArguments()).thenReturn(arguments);
+    MemoryByteSink sink = new MemoryByteSink();
+    stubOozieVersionsCall();
+    for (int offset = 1; offset <= 3; offset++) {
+      server.stubFor(
+          get(
+                  urlEqualTo(
+                      "/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=" + offset + "&len=1"))
+              .willReturn(
+                  okJsonWithBodyFile("oozie/jobs-one-item-template.json")
+                      .withTransformers("response-template")
+                      .withTransformerParameter(
+                          "endTime", JsonUtils.formatDateRfc822(lastCapturedDate))));
+    }
+    server.stubFor(
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=4&len=1"))
+            .willReturn(
+                okJsonWithBodyFile("oozie/jobs-one-item-template.json")
+                    .withTransformers("response-template")
+                    .withTransformerParameter(
+                        // the page ends before startTime, so the pages after it are not needed
+                        "endTime",
+                        JsonUtils.formatDateRfc822(
+                            Date.from(startTime.minusSeconds(1).toInstant())))));
+
+    OozieWorkflowJobsTask task = new OozieWorkflowJobsTask(startTime, endTime);
+
+    // Act
+    task.doRun(context, sink, new OozieHandle(oozieClient));
+
+    // Assert
+    String[] oneJob =
+        readFileAsString("/oozie/expected-jobs-one-job-from-template.csv").split("\n");
+    String expected = String.join("\n", oneJob[0], oneJob[1], oneJob[1], oneJob[1], "", "");
+    assertEquals(expected, sink.getContent());
+  }
+
+  @Test
+  public void doRun_shortPage_stopsFetchingAhead() throws Exception {
+    final ZonedDateTime endTime =
+        ZonedDateTime.ofInstant(Instant.ofEpochMilli(timestampInMockResponses), UTC).plusHours(1);
+    final ZonedDateTime startTime = endTime.minusDays(7);
+    Date lastCapturedDate = Date.from(startTime.toInstant());
+    ConnectorArguments arguments =
+        new ConnectorArguments("--connector", "oozie", "--pagination-page-size", "2");
+    when(context.getArguments()).thenReturn(arguments);
+    MemoryByteSink sink = new MemoryByteSink();
+    stubOozieVersionsCall();
+    server.stubFor(
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=1&len=2"))
+            .willReturn(
+                okJsonWithBodyFile("oozie/jobs-one-item-template.json")
+                    .withTransformers("response-template")
+                    .withTransformerParameter(
+                        "endTime", JsonUtils.formatDateRfc822(lastCapturedDate))));
+    server.stubFor(
+        get(urlEqualTo("/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf&offset=2&len=2"))
+            .willReturn(okJson("{}")));
+
+    OozieWorkflowJobsTask task = new OozieWorkflowJobsTask(startTime, endTime);
+
+    // Act
+    task.doRun(context, sink, new OozieHandle(oozieClient));
+
+    // Assert
+    assertEquals(
+        readFileAsString("/oozie/expected-jobs-one-job-from-template.csv"), sink.getContent());
+    // Only the page right after the short one is fetched, not a new set of pages ahead.
+    String jobsUrl = "/v2/jobs?filter=" + JOBS_FILTER + "&jobtype=wf";
+    server.verify(1, getRequestedFor(urlEqualTo(jobsUrl + "&offset=2&len=2")));
+    server.verify(0, getRequestedFor(urlEqualTo(jobsUrl + "&offset=4&len=2")));
+  }
+
+  @Test
+  public void createServerSideFilter_roundsEndDateUpToMinute() {
+    ZonedDateTime endDate = ZonedDateTime.of(2000, 1, 4, 4, 59, 47, 0, UTC);
+    OozieWorkflowJobsTask task = new OozieWorkflowJobsTask(endDate.minusDays(1), endDate);
+
+    assertEquals("endcreatedtime=2000-01-04T05:00Z;", task.createServerSideFilter());
+  }
+
   @Test
   public void create_invalidDateRange_throwsException() throws Exception {
     assertThrows(
@@ -18,9 +18,20 @@ package com.google.edwmigration.dumper.application.dumper.connector.hive;
 
 import static org.junit.Assert.assertEquals;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.edwmigration.dumper.ext.hive.metastore.thrift.api.v2_3_6.Database;
+import com.google.edwmigration.dumper.ext.hive.metastore.thrift.api.v2_3_6.FieldSchema;
+import com.google.edwmigration.dumper.ext.hive.metastore.thrift.api.v2_3_6.Order;
+import com.google.edwmigration.dumper.ext.hive.metastore.thrift.api.v2_3_6.Partition;
+import com.google.edwmigration.dumper.ext.hive.metastore.thrift.api.v2_3_6.SerDeInfo;
+import com.google.edwmigration.dumper.ext.hive.metastore.thrift.api.v2_3_6.StorageDescriptor;
+import java.io.StringWriter;
 import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TSimpleJSONProtocol;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -49,4 +60,99 @@ public class ThriftJsonSerializerTest {
             + "\"parameters\":{\"sampleParam1\":\"value456\"}}",
         thriftObjectJson);
   }
+
+  @Test
+  public void serialize_writesSameJsonAsSimpleJsonProtocol() throws Exception {
+    Partition partition = partition("p=1", "serde1");
+    TSerializer simpleJsonSerializer = new TSerializer(new TSimpleJSONProtocol.Factory());
+
+    // Act
+    String thriftObjectJson = new ThriftJsonSerializer().serialize(partition);
+
+    // Assert
+    assertEquals(simpleJsonSerializer.toString(partition), thriftObjectJson);
+  }
+
+  @Test
+  public void writeLines_withoutReferences_writesEachObject() throws Exception {
+    ThriftJsonSerializer serializer = new ThriftJsonSerializer();
+    StringWriter writer = new StringWriter();
+
+    // Act
+    serializer.writeLines(
+        ImmutableList.of(partition("p=1", "serde1"), partition("p=2", "serde1")), writer, false);
+
+    // Assert
+    String[] lines = writer.toString().split("\n");
+    assertEquals(2, lines.length);
+    assertEquals(serializer.serialize(partition("p=1", "serde1")), lines[0]);
+    assertEquals(serializer.serialize(partition("p=2", "serde1")), lines[1]);
+  }
+
+  @Test
+  public void writeLines_withReferences_referencesEqualStructs() throws Exception {
+    ThriftJsonSerializer serializer = new ThriftJsonSerializer();
+    StringWriter writer = new StringWriter();
+
+    // Act
+    serializer.writeLines(
+        ImmutableList.of(
+            partition("p=1", "serde1"), partition("p=2", "serde1"), partition("p=3", "serde2")),
+        writer,
+        true);
+
+    // Assert
+    ObjectMapper objectMapper = new ObjectMapper();
+    String[] lines = writer.toString().split("\n");
+    JsonNode first = objectMapper.readTree(lines[0]).get("sd");
+    JsonNode second = objectMapper.readTree(lines[1]).get("sd");
+    JsonNode third = objectMapper.readTree(lines[2]).get("sd");
+    assertEquals(1, first.get("serdeInfo").get("$id").asInt());
+    assertEquals(2, first.get("$id").asInt());
+    assertEquals(objectMapper.readTree("{\"$ref\":2}"), second);
+    assertEquals(3, third.get("serdeInfo").get("$id").asInt());
+    assertEquals(4, third.get("$id").asInt());
+  }
+
+  @Test
+  public void writeLines_withReferences_referencesEqualNestedStructs() throws Exception {
+    ThriftJsonSerializer serializer = new ThriftJsonSerializer();
+    StringWriter writer = new StringWriter();
+    Partition first = partition("p=1", "serde1");
+    Partition second = partition("p=2", "serde1");
+    second.getSd().setLocation("hdfs://warehouse/t/p=2");
+
+    // Act
+    serializer.writeLines(ImmutableList.of(first, second), writer, true);
+
+    // Assert
+    ObjectMapper objectMapper = new ObjectMapper();
+    String[] lines = writer.toString().split("\n");
+    JsonNode secondSd = objectMapper.readTree(lines[1]).get("sd");
+    assertEquals(3, secondSd.get("$id").asInt());
+    assertEquals("hdfs://warehouse/t/p=2", secondSd.get("location").asText());
+    assertEquals(objectMapper.readTree("{\"$ref\":1}"), secondSd.get("serdeInfo"));
+  }
+
+  private static Partition partition(String value, String serdeName) {
+    StorageDescriptor sd =
+        new StorageDescriptor(
+            ImmutableList.of(
+                new FieldSchema("id", "bigint", "the \"id\"\n"),
+                new FieldSchema("name", "string", null)),
+            "hdfs://warehouse/t",
+            "org.apache.hadoop.mapred.TextInputFormat",
+            "org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat",
+            false,
+            -1,
+            new SerDeInfo(
+                serdeName,
+                "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe",
+                ImmutableMap.of("field.delim", "\t")),
+            ImmutableList.of("id"),
+            ImmutableList.of(new Order("id", 1)),
+            ImmutableMap.of());
+    return new Partition(
+        ImmutableList.of(value), "db", "t", 1700000000, 0, sd, ImmutableMap.of("k", "v"));
+  }
 }
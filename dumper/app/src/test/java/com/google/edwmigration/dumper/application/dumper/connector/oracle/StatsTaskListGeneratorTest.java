@@ -16,9 +16,28 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.oracle;
 
+import static com.google.edwmigration.dumper.application.dumper.connector.oracle.QueryGroup.StatsSource.AWR;
+import static com.google.edwmigration.dumper.application.dumper.connector.oracle.QueryGroup.TenantSetup.SINGLE_TENANT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
+import com.google.edwmigration.dumper.application.dumper.connector.oracle.task.ResultMessageTask;
+import com.google.edwmigration.dumper.application.dumper.connector.oracle.task.StatsJdbcTask;
+import com.google.edwmigration.dumper.application.dumper.task.ParallelTaskGroup;
+import com.google.edwmigration.dumper.application.dumper.task.Task;
+import com.google.edwmigration.dumper.application.dumper.task.Task.Condition;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState;
+import com.google.edwmigration.dumper.application.dumper.task.TaskState;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
 import org.junit.experimental.theories.DataPoints;
 import org.junit.experimental.theories.FromDataPoints;
 import org.junit.experimental.theories.Theories;
@@ -47,4 +66,93 @@ public class StatsTaskListGeneratorTest {
       throws IOException {
     OracleStatsQuery.createStatspack(name, Duration.ofDays(7));
   }
+
+  @Test
+  public void createTasks_probesRunBeforeParallelGroup() throws IOException {
+    ImmutableList<Task<?>> tasks = createTasks();
+
+    int parallelGroupIndex = indexOfParallelGroup(tasks);
+    int awrProbeIndex = indexOfName(tasks, "sys-metric-history.csv");
+    int nativeProbeIndex = indexOfName(tasks, "db-features.csv");
+
+    assertTrue(awrProbeIndex < parallelGroupIndex);
+    assertTrue(nativeProbeIndex < parallelGroupIndex);
+  }
+
+  @Test
+  public void createTasks_parallelGroupStartsWithLongestQuery() throws IOException {
+    ImmutableList<Task<?>> tasks = createTasks();
+
+    ParallelTaskGroup group = (ParallelTaskGroup) tasks.get(indexOfParallelGroup(tasks));
+
+    assertEquals("sql-stats-awr.csv", group.getTasks().get(0).getName());
+  }
+
+  @Test
+  public void createTasks_notCdbMessage_skippedRetriesDoNotBlockIt() throws IOException {
+    ImmutableList<Task<?>> tasks = createTasks();
+    int parallelGroupIndex = indexOfParallelGroup(tasks);
+    ParallelTaskGroup group = (ParallelTaskGroup) tasks.get(parallelGroupIndex);
+    // The CDB probe failed, so the DBA versions ran in the parallel group, and the retries of
+    // the DBA versions were skipped.
+    Map<Task<?>, TaskState> states = new HashMap<>();
+    for (int i = 0; i < tasks.size(); i++) {
+      if (tasks.get(i) instanceof StatsJdbcTask) {
+        boolean dba = isDbaVersion(tasks.get(i));
+        boolean retry = i > parallelGroupIndex;
+        states.put(
+            tasks.get(i),
+            dba ? (retry ? TaskState.SKIPPED : TaskState.SUCCEEDED) : TaskState.FAILED);
+      }
+    }
+    for (Task<?> task : group.getTasks()) {
+      states.put(task, isDbaVersion(task) ? TaskState.SUCCEEDED : TaskState.SKIPPED);
+    }
+    TaskSetState state = mock(TaskSetState.class);
+    when(state.getTaskState(any())).thenAnswer(invocation -> states.get(invocation.getArgument(0)));
+
+    QueryGroup awr = QueryGroup.create(/* required= */ false, AWR, SINGLE_TENANT);
+    Task<?> message = findTask(tasks, "loading of group " + awr);
+
+    for (Condition condition : message.getConditions()) {
+      assertTrue(condition.toSkipReason(), condition.evaluate(state));
+    }
+  }
+
+  private static boolean isDbaVersion(Task<?> task) {
+    QueryGroup group = ((StatsJdbcTask) task).query().queryGroup();
+    return group.tenantSetup() == SINGLE_TENANT;
+  }
+
+  private static Task<?> findTask(ImmutableList<Task<?>> tasks, String targetPath) {
+    for (Task<?> task : tasks) {
+      if (task instanceof ResultMessageTask && task.getTargetPath().equals(targetPath)) {
+        return task;
+      }
+    }
+    throw new AssertionError("No task with target " + targetPath);
+  }
+
+  private static ImmutableList<Task<?>> createTasks() throws IOException {
+    ConnectorArguments arguments = new ConnectorArguments("--connector", "oracle-stats");
+    return generator.createTasks(arguments, Duration.ofDays(7));
+  }
+
+  private static int indexOfParallelGroup(ImmutableList<Task<?>> tasks) {
+    for (int i = 0; i < tasks.size(); i++) {
+      if (tasks.get(i) instanceof ParallelTaskGroup) {
+        return i;
+      }
+    }
+    throw new AssertionError("No parallel group in " + tasks);
+  }
+
+  private static int indexOfName(ImmutableList<Task<?>> tasks, String name) {
+    for (int i = 0; i < tasks.size(); i++) {
+      if (tasks.get(i).getName().equals(name)) {
+        return i;
+      }
+    }
+    throw new AssertionError("No task named " + name);
+  }
 }
@@ -16,35 +16,35 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.redshift;
 
-import static com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricConfig;
-import static com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricName;
-import static com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricType;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
-import com.amazonaws.services.cloudwatch.model.Datapoint;
 import com.amazonaws.services.cloudwatch.model.Dimension;
-import com.amazonaws.services.cloudwatch.model.GetMetricStatisticsRequest;
-import com.amazonaws.services.cloudwatch.model.GetMetricStatisticsResult;
+import com.amazonaws.services.cloudwatch.model.GetMetricDataRequest;
+import com.amazonaws.services.cloudwatch.model.GetMetricDataResult;
+import com.amazonaws.services.cloudwatch.model.MetricDataQuery;
+import com.amazonaws.services.cloudwatch.model.MetricDataResult;
 import com.amazonaws.services.redshift.AmazonRedshift;
 import com.amazonaws.services.redshift.model.Cluster;
 import com.amazonaws.services.redshift.model.DescribeClustersResult;
 import com.google.common.collect.ImmutableList;
 import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval;
-import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricConfig;
-import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricName;
-import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricType;
 import com.google.edwmigration.dumper.application.dumper.task.AbstractTaskTest;
-import com.google.edwmigration.dumper.plugin.lib.dumper.spi.RedshiftRawLogsDumpFormat;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
@@ -73,51 +73,35 @@ public class RedshiftClusterUsageMetricsTaskTest extends AbstractTaskTest {
 
   @Test
   public void doRun_success() throws Exception {
-    ImmutableList<MetricConfig> testMetrics =
-        ImmutableList.of(
-            MetricConfig.create(MetricName.CPUUtilization, MetricType.Average),
-            MetricConfig.create(MetricName.PercentageDiskSpaceUsed, MetricType.Average));
-    Class<? extends Enum<?>> testHeader =
-        RedshiftRawLogsDumpFormat.ClusterUsageMetrics.Header.class;
     Date metricDate1 = Date.from(TEST_INTERVAL.getStartUTC().toInstant());
     Date metricDate2 = Date.from(TEST_INTERVAL.getStartUTC().plusMinutes(1).toInstant());
     Date metricDate3 = Date.from(TEST_INTERVAL.getStartUTC().plusMinutes(2).toInstant());
     Date metricDate4 = Date.from(TEST_INTERVAL.getStartUTC().plusMinutes(3).toInstant());
     Date metricDate5 = Date.from(TEST_INTERVAL.getStartUTC().plusMinutes(4).toInstant());
-    GetMetricStatisticsRequest expectedRequestCpu1 =
-        createExpectedRequest("CPUUtilization", "Average", "clId1");
-    GetMetricStatisticsRequest expectedRequestCpu2 =
-        createExpectedRequest("CPUUtilization", "Average", "clId2");
-    GetMetricStatisticsRequest expectedRequestStorage1 =
-        createExpectedRequest("PercentageDiskSpaceUsed", "Average", "clId1");
-    GetMetricStatisticsRequest expectedRequestStorage2 =
-        createExpectedRequest("PercentageDiskSpaceUsed", "Average", "clId2");
-    GetMetricStatisticsResult resultCpu1 =
-        createCloudWatchResult(
-            new Datapoint().withTimestamp(metricDate1).withAverage(10.5),
-            new Datapoint().withTimestamp(metricDate2).withAverage(11.5));
-    GetMetricStatisticsResult resultCpu2 =
-        createCloudWatchResult(
-            new Datapoint().withTimestamp(metricDate3).withAverage(12.5),
-            new Datapoint().withTimestamp(metricDate4).withAverage(13.5));
-    GetMetricStatisticsResult resultStorage1 =
-        createCloudWatchResult(
-            new Datapoint().withTimestamp(metricDate1).withAverage(14.5),
-            new Datapoint().withTimestamp(metricDate2).withAverage(15.5));
-    GetMetricStatisticsResult resultStorage2 =
-        createCloudWatchResult(
-            new Datapoint().withTimestamp(metricDate3).withAverage(16.5),
-            new Datapoint().withTimestamp(metricDate4).withAverage(17.5),
-            new Datapoint().withTimestamp(metricDate5).withAverage(18.5));
+    // Queries are ordered by cluster, then by metric: q0 = clId1 cpu, q1 = clId1 storage, ...
+    GetMetricDataResult firstPage =
+        new GetMetricDataResult()
+            .withMetricDataResults(
+                createDataResult("q0", new Date[] {metricDate1}, 10.5),
+                createDataResult("q1", new Date[] {metricDate1, metricDate2}, 14.5, 15.5),
+                createDataResult("q2", new Date[] {metricDate3}, 12.5),
+                createDataResult("q3", new Date[] {metricDate3, metricDate4}, 16.5, 17.5))
+            .withNextToken("token1");
+    GetMetricDataResult secondPage =
+        new GetMetricDataResult()
+            .withMetricDataResults(
+                createDataResult("q0", new Date[] {metricDate2}, 11.5),
+                createDataResult("q2", new Date[] {metricDate4}, 13.5),
+                createDataResult("q3", new Date[] {metricDate5}, 18.5));
 
     when(redshiftClientMock.describeClusters(any()))
         .thenReturn(new DescribeClustersResult().withClusters(TEST_CLUSTERS));
-    when(cloudWatchClientMock.getMetricStatistics(expectedRequestCpu1)).thenReturn(resultCpu1);
-    when(cloudWatchClientMock.getMetricStatistics(expectedRequestCpu2)).thenReturn(resultCpu2);
-    when(cloudWatchClientMock.getMetricStatistics(expectedRequestStorage1))
-        .thenReturn(resultStorage1);
-    when(cloudWatchClientMock.getMetricStatistics(expectedRequestStorage2))
-        .thenReturn(resultStorage2);
+    when(cloudWatchClientMock.getMetricData(any()))
+        .thenAnswer(
+            invocation -> {
+              GetMetricDataRequest request = invocation.getArgument(0);
+              return request.getNextToken() == null ? firstPage : secondPage;
+            });
 
     MemoryByteSink sink = new MemoryByteSink();
 
@@ -141,19 +125,72 @@ public class RedshiftClusterUsageMetricsTaskTest extends AbstractTaskTest {
         actualOutput);
   }
 
-  private GetMetricStatisticsRequest createExpectedRequest(
-      String metricName, String metricType, String clusterId) {
-    return new GetMetricStatisticsRequest()
-        .withMetricName(metricName)
-        .withStatistics(metricType)
-        .withNamespace("AWS/Redshift")
-        .withDimensions(new Dimension().withName("ClusterIdentifier").withValue(clusterId))
-        .withStartTime(Date.from(TEST_INTERVAL.getStartUTC().toInstant()))
-        .withEndTime(Date.from(TEST_INTERVAL.getEndExclusiveUTC().toInstant()))
-        .withPeriod(60);
+  @Test
+  public void doRun_requestsContainExpectedQueries() throws Exception {
+    when(redshiftClientMock.describeClusters(any()))
+        .thenReturn(new DescribeClustersResult().withClusters(TEST_CLUSTERS));
+    when(cloudWatchClientMock.getMetricData(any())).thenReturn(new GetMetricDataResult());
+
+    RedshiftClusterUsageMetricsTask task =
+        new RedshiftClusterUsageMetricsTask(
+            null, CURR_DATE_TIME, TEST_INTERVAL, TEST_ZIP_ENTRY_NAME);
+    task.withRedshiftApiClient(redshiftClientMock);
+    task.withCloudWatchApiClient(cloudWatchClientMock);
+
+    task.doRun(null, new MemoryByteSink(), null);
+
+    ArgumentCaptor<GetMetricDataRequest> captor =
+        ArgumentCaptor.forClass(GetMetricDataRequest.class);
+    verify(cloudWatchClientMock).getMetricData(captor.capture());
+    GetMetricDataRequest request = captor.getValue();
+    assertEquals(Date.from(TEST_INTERVAL.getStartUTC().toInstant()), request.getStartTime());
+    assertEquals(
+        Date.from(TEST_INTERVAL.getEndExclusiveUTC().toInstant()), request.getEndTime());
+    assertNull(request.getNextToken());
+    List<MetricDataQuery> queries = request.getMetricDataQueries();
+    assertEquals(4, queries.size());
+    MetricDataQuery query = queries.get(1);
+    assertEquals("q1", query.getId());
+    assertEquals("AWS/Redshift", query.getMetricStat().getMetric().getNamespace());
+    assertEquals("PercentageDiskSpaceUsed", query.getMetricStat().getMetric().getMetricName());
+    assertEquals(
+        ImmutableList.of(new Dimension().withName("ClusterIdentifier").withValue("clId1")),
+        query.getMetricStat().getMetric().getDimensions());
+    assertEquals("Average", query.getMetricStat().getStat());
+    assertEquals(Integer.valueOf(60), query.getMetricStat().getPeriod());
+  }
+
+  @Test
+  public void doRun_manyClusters_batchesQueries() throws Exception {
+    List<Cluster> clusters = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      clusters.add(new Cluster().withClusterIdentifier("cl" + i));
+    }
+    when(redshiftClientMock.describeClusters(any()))
+        .thenReturn(new DescribeClustersResult().withClusters(clusters));
+    when(cloudWatchClientMock.getMetricData(any())).thenReturn(new GetMetricDataResult());
+
+    RedshiftClusterUsageMetricsTask task =
+        new RedshiftClusterUsageMetricsTask(
+            null, CURR_DATE_TIME, TEST_INTERVAL, TEST_ZIP_ENTRY_NAME);
+    task.withRedshiftApiClient(redshiftClientMock);
+    task.withCloudWatchApiClient(cloudWatchClientMock);
+
+    task.doRun(null, new MemoryByteSink(), null);
+
+    ArgumentCaptor<GetMetricDataRequest> captor =
+        ArgumentCaptor.forClass(GetMetricDataRequest.class);
+    verify(cloudWatchClientMock, times(2)).getMetricData(captor.capture());
+    assertEquals(500, captor.getAllValues().get(0).getMetricDataQueries().size());
+    assertEquals(100, captor.getAllValues().get(1).getMetricDataQueries().size());
   }
 
-  private GetMetricStatisticsResult createCloudWatchResult(Datapoint... datapoints) {
-    return new GetMetricStatisticsResult().withDatapoints(datapoints);
+  private static MetricDataResult createDataResult(
+      String queryId, Date[] timestamps, Double... values) {
+    return new MetricDataResult()
+        .withId(queryId)
+        .withTimestamps(timestamps)
+        .withValues(values)
+        .withStatusCode("Complete");
   }
 }
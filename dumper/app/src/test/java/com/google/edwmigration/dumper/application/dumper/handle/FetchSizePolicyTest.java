@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.handle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Ticker;
+import com.google.edwmigration.dumper.application.dumper.handle.FetchSizePolicy.Profile;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FetchSizePolicyTest {
+
+  private static final long BUFFER_BYTES = 16L * 1024 * 1024;
+
+  @Test
+  public void forProductName_matchesKnownDrivers() {
+    assertEquals(Profile.POSTGRESQL, Profile.forProductName("PostgreSQL"));
+    assertEquals(Profile.REDSHIFT, Profile.forProductName("Redshift"));
+    assertEquals(Profile.TERADATA, Profile.forProductName("Teradata"));
+    assertEquals(Profile.DEFAULT, Profile.forProductName("SQLite"));
+    assertEquals(Profile.DEFAULT, Profile.forProductName(null));
+  }
+
+  @Test
+  public void estimateRowBytes_wideVarchar_limitsFetchSize() throws SQLException {
+    ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    when(metaData.getColumnCount()).thenReturn(2);
+    when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(metaData.getPrecision(2)).thenReturn(31000);
+
+    long rowBytes = FetchSizePolicy.estimateRowBytes(metaData);
+
+    assertEquals((16 + 8) + (16 + 62000), rowBytes);
+    assertEquals(270, new FetchSizePolicy(Profile.POSTGRESQL, BUFFER_BYTES).getFetchSize(rowBytes));
+  }
+
+  @Test
+  public void estimateRowBytes_unboundedText_usesDefaultWidth() throws SQLException {
+    ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    when(metaData.getColumnCount()).thenReturn(1);
+    when(metaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(metaData.getPrecision(1)).thenReturn(Integer.MAX_VALUE);
+
+    assertEquals(16 + 4096, FetchSizePolicy.estimateRowBytes(metaData));
+  }
+
+  @Test
+  public void cursor_narrowRows_growsFetchSize() throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getFetchSize()).thenReturn(1000);
+    FetchSizePolicy.Cursor cursor =
+        new FetchSizePolicy(Profile.POSTGRESQL, BUFFER_BYTES).newCursor(resultSet);
+
+    for (int i = 0; i < 1000; i++) {
+      cursor.onRow(100);
+    }
+
+    verify(resultSet).setFetchSize(65536);
+    assertEquals(65536, cursor.getFetchSize());
+  }
+
+  @Test
+  public void cursor_slowBatch_shrinksFetchSize() throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getFetchSize()).thenReturn(1000);
+    when(resultSet.next()).thenReturn(true);
+    Ticker ticker = mock(Ticker.class);
+    when(ticker.read()).thenReturn(0L, TimeUnit.SECONDS.toNanos(10));
+    List<Long> fetches = new ArrayList<>();
+    FetchSizePolicy.Cursor cursor =
+        new FetchSizePolicy(Profile.POSTGRESQL, BUFFER_BYTES, ticker)
+            .newCursor(resultSet)
+            .onFetch(fetches::add);
+
+    for (int i = 0; i < 1000; i++) {
+      cursor.next();
+      cursor.onRow(100);
+    }
+
+    // Only the first row of the batch is timed.
+    verify(ticker, times(2)).read();
+    verify(resultSet).setFetchSize(500);
+    assertEquals(500, cursor.getFetchSize());
+    assertEquals(Collections.singletonList(TimeUnit.SECONDS.toNanos(10)), fetches);
+  }
+
+  @Test
+  public void cursor_teradata_keepsFetchSize() throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getFetchSize()).thenReturn(1000);
+    FetchSizePolicy.Cursor cursor =
+        new FetchSizePolicy(Profile.TERADATA, BUFFER_BYTES).newCursor(resultSet);
+
+    for (int i = 0; i < 1000; i++) {
+      cursor.onRow(100);
+    }
+
+    verify(resultSet, never()).setFetchSize(anyInt());
+    assertEquals(1000, cursor.getFetchSize());
+  }
+
+  @Test
+  public void cursor_reportsRowsOncePerBatch() throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getFetchSize()).thenReturn(1000);
+    when(resultSet.next()).thenReturn(true);
+    List<Long> rows = new ArrayList<>();
+    FetchSizePolicy.Cursor cursor =
+        new FetchSizePolicy(Profile.TERADATA, BUFFER_BYTES).newCursor(resultSet).onRows(rows::add);
+
+    for (int i = 0; i < 2500; i++) {
+      cursor.next();
+      cursor.onRow(100);
+    }
+    when(resultSet.next()).thenReturn(false);
+    cursor.next();
+
+    // The last, partial batch is reported at the end of the result set.
+    assertEquals(Arrays.asList(1000L, 1000L, 500L), rows);
+  }
+
+  @Test
+  public void cursor_closedResultSet_keepsFetchSize() throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.isClosed()).thenReturn(true);
+    FetchSizePolicy.Cursor cursor =
+        new FetchSizePolicy(Profile.POSTGRESQL, BUFFER_BYTES).newCursor(resultSet);
+
+    for (int i = 0; i < 1024; i++) {
+      cursor.onRow(100);
+    }
+
+    verify(resultSet, never()).getFetchSize();
+    verify(resultSet, never()).setFetchSize(anyInt());
+    assertEquals(FetchSizePolicy.DEFAULT_FETCH_SIZE, cursor.getFetchSize());
+  }
+
+  @Test
+  public void resize_missingOrClosedResultSet_doesNothing() throws SQLException {
+    FetchSizePolicy policy = new FetchSizePolicy(Profile.POSTGRESQL, BUFFER_BYTES);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.isClosed()).thenReturn(true);
+
+    policy.resize(null);
+    policy.resize(resultSet);
+
+    verify(resultSet, never()).getMetaData();
+    verify(resultSet, never()).setFetchSize(anyInt());
+  }
+
+  @Test
+  public void forConnection_looksUpProductNameOnce() throws SQLException {
+    Connection connection = mock(Connection.class);
+    DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+    when(connection.getMetaData()).thenReturn(metaData);
+    when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+
+    FetchSizePolicy policy = FetchSizePolicy.forConnection(connection);
+
+    assertEquals(Profile.POSTGRESQL, policy.getProfile());
+    assertSame(policy, FetchSizePolicy.forConnection(connection));
+    verify(connection).getMetaData();
+  }
+
+  @Test
+  public void forConnection_pooledProxies_looksUpProductNameOncePerPhysicalConnection()
+      throws SQLException {
+    Connection physicalConnection = mock(Connection.class);
+    Connection firstProxy = mock(Connection.class);
+    Connection secondProxy = mock(Connection.class);
+    DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+    when(firstProxy.unwrap(Connection.class)).thenReturn(physicalConnection);
+    when(secondProxy.unwrap(Connection.class)).thenReturn(physicalConnection);
+    when(firstProxy.getMetaData()).thenReturn(metaData);
+    when(metaData.getDatabaseProductName()).thenReturn("Teradata");
+
+    FetchSizePolicy policy = FetchSizePolicy.forConnection(firstProxy);
+
+    assertEquals(Profile.TERADATA, policy.getProfile());
+    assertSame(policy, FetchSizePolicy.forConnection(secondProxy));
+    verify(secondProxy, never()).getMetaData();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSink;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TaskMetricsTest {
+
+  @Test
+  public void latencyHistogram_recordsIntoPowerOfTwoBuckets() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    histogram.record(500);
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(1000));
+
+    assertEquals(3, histogram.getCount());
+    assertEquals(ImmutableMap.of("<1us", 1L, "<4us", 1L, "<1024us", 1L), histogram.getBuckets());
+    assertEquals(1000, histogram.getMaxMicros());
+  }
+
+  @Test
+  public void latencyHistogram_percentileIsUpperBoundOfBucket() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+    }
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+    assertEquals(16, histogram.getP50Micros());
+    assertEquals(16, histogram.getP99Micros());
+    assertEquals(5000, histogram.getPercentileMicros(100));
+  }
+
+  @Test
+  public void latencyHistogram_emptyPercentileIsZero() {
+    assertEquals(0, new LatencyHistogram().getP90Micros());
+  }
+
+  @Test
+  public void bind_restoresPreviousMetrics() {
+    TaskMetrics outer = new TaskMetrics("outer");
+    TaskMetrics inner = new TaskMetrics("inner");
+
+    try (TaskMetrics.Scope outerScope = outer.bind()) {
+      try (TaskMetrics.Scope innerScope = inner.bind()) {
+        assertSame(inner, TaskMetrics.current());
+      }
+      assertSame(outer, TaskMetrics.current());
+    }
+    assertNull(TaskMetrics.current());
+  }
+
+  @Test
+  public void countBytes_countsWrittenBytes() throws Exception {
+    TaskMetrics metrics = new TaskMetrics("task");
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    ByteSink sink =
+        new ByteSink() {
+          @Override
+          public OutputStream openStream() {
+            return buffer;
+          }
+        };
+
+    try (OutputStream out = metrics.countBytes(sink).openStream()) {
+      out.write(new byte[] {1, 2, 3});
+      out.write(4);
+    }
+
+    assertEquals(4, metrics.getByteCount());
+    assertEquals(4, buffer.size());
+  }
+
+  @Test
+  public void addFetchTime_updatesPhaseAndHistogram() {
+    TaskMetrics metrics = new TaskMetrics("task");
+
+    metrics.addFetchTime(TimeUnit.MILLISECONDS.toNanos(2));
+    metrics.addFetchTime(TimeUnit.MILLISECONDS.toNanos(3));
+    metrics.addRows(2);
+
+    assertEquals(5, metrics.getFetchMillis());
+    assertEquals(2, metrics.getFetchLatency().getCount());
+    assertEquals(2, metrics.getRowCount());
+  }
+}
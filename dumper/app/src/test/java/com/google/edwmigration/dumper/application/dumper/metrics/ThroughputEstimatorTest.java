@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ThroughputEstimatorTest {
+
+  @Test
+  public void estimateRemaining_unknownWithoutTwoSamples() {
+    ThroughputEstimator estimator = new ThroughputEstimator(Duration.ofMinutes(1));
+
+    estimator.record(0, 10);
+
+    assertNull(estimator.estimateRemaining(5));
+    assertEquals(Duration.ZERO, estimator.estimateRemaining(0));
+  }
+
+  @Test
+  public void estimateRemaining_usesRateWithinWindow() {
+    ThroughputEstimator estimator = new ThroughputEstimator(Duration.ofSeconds(10));
+
+    // 100 per second for the first 20 seconds, then 1 per second.
+    estimator.record(0, 0);
+    estimator.record(10_000, 1000);
+    estimator.record(20_000, 2000);
+    estimator.record(30_000, 2010);
+
+    assertEquals(1, estimator.getRatePerSecond(), 0.001);
+    assertEquals(Duration.ofSeconds(60), estimator.estimateRemaining(60));
+  }
+
+  @Test
+  public void getRatePerSecond_zeroWhenStalled() {
+    ThroughputEstimator estimator = new ThroughputEstimator(Duration.ofSeconds(10));
+
+    estimator.record(0, 5);
+    estimator.record(20_000, 5);
+
+    assertEquals(0, estimator.getRatePerSecond(), 0);
+    assertNull(estimator.estimateRemaining(1));
+  }
+}
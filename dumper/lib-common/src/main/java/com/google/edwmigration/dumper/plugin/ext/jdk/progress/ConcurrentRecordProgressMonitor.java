@@ -17,9 +17,13 @@
 package com.google.edwmigration.dumper.plugin.ext.jdk.progress;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -58,6 +62,10 @@ public class ConcurrentRecordProgressMonitor extends AbstractConcurrentProgressM
   private static final Logger logger =
       LoggerFactory.getLogger(ConcurrentRecordProgressMonitor.class);
 
+  /** The monitors which have not been closed yet, for live progress reporting. */
+  private static final Set<ConcurrentRecordProgressMonitor> ACTIVE_MONITORS =
+      Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+
   private static final long DELAY = 6;
   private final String name;
   private final long total;
@@ -72,6 +80,7 @@ public class ConcurrentRecordProgressMonitor extends AbstractConcurrentProgressM
     this.future =
         ExecutorHolder.EXECUTOR_SERVICE.scheduleWithFixedDelay(
             new Update(this, name), DELAY, DELAY, TimeUnit.SECONDS);
+    ACTIVE_MONITORS.add(this);
   }
 
   public ConcurrentRecordProgressMonitor(@Nonnull String name) {
@@ -81,6 +90,23 @@ public class ConcurrentRecordProgressMonitor extends AbstractConcurrentProgressM
     this.future =
         ExecutorHolder.EXECUTOR_SERVICE.scheduleWithFixedDelay(
             new Update(this, name), DELAY, DELAY, TimeUnit.SECONDS);
+    ACTIVE_MONITORS.add(this);
+  }
+
+  /** Returns the monitors which have been created but not yet closed. */
+  @Nonnull
+  public static ImmutableList<ConcurrentRecordProgressMonitor> getActiveMonitors() {
+    return ImmutableList.copyOf(ACTIVE_MONITORS);
+  }
+
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the time elapsed since creation of this monitor. */
+  public long timeElapsed(@Nonnull TimeUnit desiredUnit) {
+    return stopwatch.elapsed(desiredUnit);
   }
 
   @Nonnegative
@@ -161,6 +187,7 @@ public class ConcurrentRecordProgressMonitor extends AbstractConcurrentProgressM
 
   @Override
   public void close() {
+    ACTIVE_MONITORS.remove(this);
     if (!future.isDone()) {
       future.cancel(false);
       update("Completed");
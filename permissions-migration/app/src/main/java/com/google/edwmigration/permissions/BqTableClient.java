@@ -17,7 +17,6 @@
 package com.google.edwmigration.permissions;
 
 import com.google.cloud.Identity;
-import com.google.cloud.Policy;
 import com.google.cloud.Role;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryOptions;
@@ -26,16 +25,14 @@ import com.google.edwmigration.permissions.models.TableIdParser;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /** Handles calls to BigQuery tables API. */
 public class BqTableClient implements IamClient {
 
-  private static final Logger LOG = LoggerFactory.getLogger(BqTableClient.class);
-
   private final BigQuery bigQuery;
 
+  private final IamPolicyUpdater policyUpdater = new IamPolicyUpdater();
+
   private BqTableClient(BigQuery bigQuery) {
     this.bigQuery = bigQuery;
   }
@@ -48,19 +45,12 @@ public class BqTableClient implements IamClient {
   public void addIamPolicyBindings(
       String bqPath, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions) {
     TableId tableId = TableIdParser.parseTranslationId(bqPath);
-    Policy.Builder policyBuilder =
-        extraPermissions == ExtraPermissions.KEEP
-            ? bigQuery.getIamPolicy(tableId).toBuilder()
-            : createEmptyPolicyBuilder();
-    bindings.forEach(
-        (role, identities) ->
-            identities.forEach((identity) -> policyBuilder.addIdentity(role, identity)));
-    LOG.info("Apply policy {} to table {}", bindings, tableId.getIAMResourceName());
-    bigQuery.setIamPolicy(tableId, policyBuilder.build());
-  }
-
-  private Policy.Builder createEmptyPolicyBuilder() {
-    return Policy.newBuilder().setVersion(1);
+    policyUpdater.update(
+        "table " + tableId.getIAMResourceName(),
+        () -> bigQuery.getIamPolicy(tableId),
+        policy -> bigQuery.setIamPolicy(tableId, policy),
+        bindings,
+        extraPermissions);
   }
 
   @Override
@@ -30,6 +30,7 @@ import com.google.storage.control.v2.StorageControlClient;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +40,7 @@ public class GcsManagedFoldersClient implements IamClient {
   private final Storage storage;
   private final StorageControlClient storageControlClient;
   private static final Logger LOG = LoggerFactory.getLogger(GcsManagedFoldersClient.class);
+  private final IamPolicyUpdater policyUpdater = new IamPolicyUpdater();
 
   // Alias for global namespace which can be used in place of `{project}` in
   // bucket resource name in some RPCs.
@@ -61,8 +63,8 @@ public class GcsManagedFoldersClient implements IamClient {
     return new GcsManagedFoldersClient(storage, storageControlClient);
   }
 
-  /** Creates a new managed folder. */
-  public void createManagedFolderIfDoesntExist(GcsPath path) throws IOException {
+  /** Creates a new managed folder, returns false if the folder already exists. */
+  public boolean createManagedFolderIfDoesntExist(GcsPath path) throws IOException {
     CreateManagedFolderRequest request =
         CreateManagedFolderRequest.newBuilder()
             .setParent(BucketName.of(GLOBAL_NAMESPACE_ALIAS, path.bucketName()).toString())
@@ -72,40 +74,33 @@ public class GcsManagedFoldersClient implements IamClient {
     try {
       ManagedFolder createdManagedFolder = storageControlClient.createManagedFolder(request);
       LOG.info("Created Managed Folder: {}", createdManagedFolder.getName());
+      return true;
     } catch (FailedPreconditionException | AlreadyExistsException e) {
       LOG.debug("The Managed Folder already exists: {}", path);
+      return false;
     }
   }
 
-  private void addIdentityToIamPolicy(GcsPath path, Role role, Identity identity) {
-    String managedFolderNameForIamCall = getManagedFolderNameForIamCall(path);
-
-    Policy policy =
-        createBuilderFromExistingPolicy(managedFolderNameForIamCall, path)
-            .addIdentity(role, identity)
-            .build();
-    storage.setIamPolicy(managedFolderNameForIamCall, policy);
-  }
-
   public void addIamPolicyBindings(
       String path, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions)
       throws IOException {
     GcsPath gcsPath = GcsPath.parse(path);
-    createManagedFolderIfDoesntExist(gcsPath);
     String managedFolderNameForIamCall = getManagedFolderNameForIamCall(gcsPath);
-    Policy.Builder policyBuilder =
-        extraPermissions == ExtraPermissions.KEEP
-            ? createBuilderFromExistingPolicy(managedFolderNameForIamCall, gcsPath)
-            : createEmptyPolicyBuilder();
-    bindings.forEach(
-        (role, identities) ->
-            identities.forEach((identity) -> policyBuilder.addIdentity(role, identity)));
-    LOG.info("Apply policy {} to folder {}", bindings, gcsPath.toString());
-    storage.setIamPolicy(managedFolderNameForIamCall, policyBuilder.build());
+    // A folder we just created has no policy yet, so the first read can be skipped. Retries after
+    // a concurrent modification always read the policy.
+    AtomicBoolean readPolicy = new AtomicBoolean(!createManagedFolderIfDoesntExist(gcsPath));
+    policyUpdater.update(
+        "folder " + gcsPath,
+        () ->
+            readPolicy.getAndSet(true)
+                ? getExistingPolicy(managedFolderNameForIamCall, gcsPath)
+                : IamPolicyUpdater.emptyPolicy(),
+        policy -> storage.setIamPolicy(managedFolderNameForIamCall, policy),
+        bindings,
+        extraPermissions);
   }
 
-  private Policy.Builder createBuilderFromExistingPolicy(
-      String managedFolderNameForIamCall, GcsPath path) {
+  private Policy getExistingPolicy(String managedFolderNameForIamCall, GcsPath path) {
     try {
       // We abuse the API here - storage.getIamPolicy should be used for buckets but we use it for
       // managed folder here.
@@ -114,17 +109,13 @@ public class GcsManagedFoldersClient implements IamClient {
       // I am not happy with this solution - it would be best to replace it with some dedicated API
       // for managed folders.
       LOG.debug("Retrieved an existing policy for path: {}", path);
-      return storage.getIamPolicy(managedFolderNameForIamCall).toBuilder();
+      return storage.getIamPolicy(managedFolderNameForIamCall);
     } catch (NullPointerException expected) {
       LOG.debug("Could not get an existing policy for path: {}", path);
-      return createEmptyPolicyBuilder();
+      return IamPolicyUpdater.emptyPolicy();
     }
   }
 
-  private Policy.Builder createEmptyPolicyBuilder() {
-    return Policy.newBuilder().setVersion(1);
-  }
-
   /**
    * Creates a string that can be used in `Storage.getIamPolicy` and `Storage.setIamPolicy` to
    * operate on managed folders instead of buckets. We should find w better way to handle that
@@ -16,81 +16,263 @@
  */
 package com.google.edwmigration.permissions;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.cloud.BaseServiceException;
 import com.google.cloud.storage.Blob;
-import com.google.cloud.storage.Bucket;
 import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.Storage.BlobListOption;
 import com.google.cloud.storage.StorageOptions;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Applies a consumer to every object below a GCS path in parallel.
+ *
+ * <p>Listing and processing form a producer-consumer pipeline. The prefixes directly below the
+ * source path are listed concurrently, and listing blocks while a bounded number of objects is
+ * queued or being processed, so memory doesn't grow with the size of the bucket. Objects failing
+ * with a transient error are retried. The first permanent failure stops the listing and is rethrown
+ * by {@link #Run}, as is running out of time.
+ */
 public class GcsParallelObjectsProcessor {
   private static final Logger LOG = LoggerFactory.getLogger(GcsParallelObjectsProcessor.class);
+
+  /** The number of objects queued or being processed, per thread. */
+  private static final int IN_FLIGHT_PER_THREAD = 4;
+
+  private static final int MAX_LISTING_THREADS = 8;
+
+  @VisibleForTesting static final int MAX_ATTEMPTS = 3;
+
+  private static final long INITIAL_BACKOFF_MILLIS = 500;
+
+  private final Storage storage;
   private final GcsPath sourcePath;
   private final int numThreads;
   private final int timeoutSeconds;
+  private final long initialBackoffMillis;
 
   public GcsParallelObjectsProcessor(GcsPath sourcePath, int numThreads, int timeoutSeconds) {
+    this(
+        StorageOptions.getDefaultInstance().getService(),
+        sourcePath,
+        numThreads,
+        timeoutSeconds,
+        INITIAL_BACKOFF_MILLIS);
+  }
 
+  @VisibleForTesting
+  GcsParallelObjectsProcessor(
+      Storage storage,
+      GcsPath sourcePath,
+      int numThreads,
+      int timeoutSeconds,
+      long initialBackoffMillis) {
+    this.storage = storage;
     this.sourcePath = sourcePath.normalizePathSuffix();
     this.numThreads = numThreads;
     this.timeoutSeconds = timeoutSeconds;
+    this.initialBackoffMillis = initialBackoffMillis;
   }
 
   public void Run(Consumer<Blob> consumer) {
-    Storage storage = StorageOptions.getDefaultInstance().getService();
-    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-    AtomicInteger blobsCounter = new AtomicInteger(0);
-    List<Future<?>> futures = new ArrayList<>();
-
+    Pipeline pipeline = new Pipeline(consumer);
     try {
-      Bucket bucket = storage.get(sourcePath.bucketName());
-      bucket
-          .list(Storage.BlobListOption.prefix(sourcePath.objectName()))
-          .iterateAll()
-          .forEach(
-              blob ->
-                  futures.add(
-                      executor.submit(
-                          () -> {
-                            consumer.accept(blob);
-                            blobsCounter.incrementAndGet();
-                          })));
-    } catch (Exception e) {
-      LOG.error("Error processing bucket", e);
+      pipeline.run();
     } finally {
-      executor.shutdown();
+      pipeline.shutdown();
+    }
+    LOG.info("Processed: {} items.", pipeline.processedCount.get());
+
+    Throwable failure = pipeline.failure.get();
+    if (failure != null) {
+      Throwables.throwIfUnchecked(failure);
+      throw new ProcessingException("Parallel processing of GCS objects failed", failure);
+    }
+  }
+
+  /** The state of a single run. */
+  private class Pipeline {
+
+    private final Consumer<Blob> consumer;
+    private final long deadlineNanos = System.nanoTime() + SECONDS.toNanos(timeoutSeconds);
+    private final int maxInFlight = numThreads * IN_FLIGHT_PER_THREAD;
+    private final Semaphore inFlight = new Semaphore(maxInFlight);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicInteger processedCount = new AtomicInteger();
+    private final ExecutorService workers =
+        Executors.newFixedThreadPool(
+            numThreads, new ThreadFactoryBuilder().setNameFormat("gcs-objects-%d").build());
+    private final ExecutorService listers =
+        Executors.newFixedThreadPool(
+            Math.min(numThreads, MAX_LISTING_THREADS),
+            new ThreadFactoryBuilder().setNameFormat("gcs-list-%d").build());
+
+    Pipeline(Consumer<Blob> consumer) {
+      this.consumer = consumer;
+    }
+
+    void run() {
       try {
-        if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
-          executor.shutdownNow();
+        // List the first level only, then list each prefix below it in parallel.
+        List<String> prefixes = new ArrayList<>();
+        for (Blob blob :
+            storage
+                .list(
+                    sourcePath.bucketName(),
+                    BlobListOption.prefix(sourcePath.objectName()),
+                    BlobListOption.currentDirectory())
+                .iterateAll()) {
+          if (failure.get() != null) {
+            return;
+          }
+          if (blob.isDirectory()) {
+            prefixes.add(blob.getName());
+          } else {
+            submit(blob);
+          }
+        }
+        List<Future<?>> listings = new ArrayList<>();
+        for (String prefix : prefixes) {
+          listings.add(listers.submit(() -> listPrefix(prefix)));
+        }
+        for (Future<?> listing : listings) {
+          listing.get(remainingNanos(), NANOSECONDS);
+        }
+        // Wait for the objects still being processed.
+        if (!inFlight.tryAcquire(maxInFlight, remainingNanos(), NANOSECONDS)) {
+          throw new TimeoutException();
+        }
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof TimeoutException) {
+          failTimeout();
+        } else {
+          fail(e.getCause());
         }
+      } catch (TimeoutException e) {
+        failTimeout();
       } catch (InterruptedException e) {
-        executor.shutdownNow();
+        Thread.currentThread().interrupt();
+        fail(new ProcessingException("Parallel processing of GCS objects has been interrupted"));
+      } catch (RuntimeException e) {
+        fail(e);
       }
     }
 
-    LOG.info("Processed: {} items.", blobsCounter.get());
+    private Void listPrefix(String prefix) throws InterruptedException, TimeoutException {
+      for (Blob blob :
+          storage.list(sourcePath.bucketName(), BlobListOption.prefix(prefix)).iterateAll()) {
+        if (failure.get() != null) {
+          break;
+        }
+        submit(blob);
+      }
+      return null;
+    }
 
-    // If any action ended up with an exception, it will be wrapped in an ExecutionException.
-    // Rethrow the first one if it occurred.
-    for (Future<?> future : futures) {
-      if (future.isDone()) {
+    /** Queues a blob for processing, blocking while too many blobs are in flight. */
+    private void submit(Blob blob) throws InterruptedException, TimeoutException {
+      if (!inFlight.tryAcquire(remainingNanos(), NANOSECONDS)) {
+        throw new TimeoutException();
+      }
+      try {
+        workers.execute(
+            () -> {
+              try {
+                if (failure.get() == null) {
+                  process(blob);
+                  processedCount.incrementAndGet();
+                }
+              } catch (RuntimeException e) {
+                LOG.error("Error processing blob {}", blob.getName(), e);
+                fail(e);
+              } finally {
+                inFlight.release();
+              }
+            });
+      } catch (RejectedExecutionException e) {
+        inFlight.release();
+        throw e;
+      }
+    }
+
+    private void process(Blob blob) {
+      for (int attempt = 1; ; attempt++) {
         try {
-          future.get();
-        } catch (InterruptedException e) {
-          throw new RuntimeException("Parallel processing of GCS objects has been interrupted");
-        } catch (ExecutionException e) {
-          throw new RuntimeException(e.getCause());
+          consumer.accept(blob);
+          return;
+        } catch (RuntimeException e) {
+          if (attempt >= MAX_ATTEMPTS || !isTransient(e)) {
+            throw e;
+          }
+          long backoffMillis = initialBackoffMillis << (attempt - 1);
+          LOG.warn(
+              "Transient error processing blob {}, retrying in {}ms",
+              blob.getName(),
+              backoffMillis);
+          try {
+            Thread.sleep(backoffMillis);
+          } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw e;
+          }
         }
       }
     }
+
+    private void fail(Throwable e) {
+      failure.compareAndSet(null, e);
+    }
+
+    private void failTimeout() {
+      fail(
+          new ProcessingException(
+              String.format(
+                  "Processing of %s did not complete within %d seconds",
+                  sourcePath, timeoutSeconds)));
+    }
+
+    private long remainingNanos() {
+      return deadlineNanos - System.nanoTime();
+    }
+
+    void shutdown() {
+      listers.shutdownNow();
+      workers.shutdownNow();
+    }
+  }
+
+  private static boolean isTransient(Throwable e) {
+    for (Throwable cause : Throwables.getCausalChain(e)) {
+      if (cause instanceof BaseServiceException) {
+        return ((BaseServiceException) cause).isRetryable();
+      }
+      if (cause instanceof JsonProcessingException) {
+        return false;
+      }
+      if (cause instanceof IOException) {
+        return true;
+      }
+    }
+    return false;
   }
 }
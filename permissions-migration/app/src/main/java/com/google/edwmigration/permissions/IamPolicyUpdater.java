@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions;
+
+import com.google.cloud.BaseServiceException;
+import com.google.cloud.Identity;
+import com.google.cloud.Policy;
+import com.google.cloud.Role;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-modify-write of an IAM policy. The update is skipped when the policy already holds the
+ * requested bindings, and retried with a fresh policy when the write fails because the policy
+ * changed since it was read.
+ */
+class IamPolicyUpdater {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IamPolicyUpdater.class);
+
+  @VisibleForTesting static final int MAX_ATTEMPTS = 5;
+
+  private static final long INITIAL_BACKOFF_MILLIS = 200;
+
+  // Status codes returned when the etag of the policy being written doesn't match the current one.
+  private static final int HTTP_CONFLICT = 409;
+  private static final int HTTP_PRECONDITION_FAILED = 412;
+
+  private final long initialBackoffMillis;
+
+  IamPolicyUpdater() {
+    this(INITIAL_BACKOFF_MILLIS);
+  }
+
+  @VisibleForTesting
+  IamPolicyUpdater(long initialBackoffMillis) {
+    this.initialBackoffMillis = initialBackoffMillis;
+  }
+
+  static Policy emptyPolicy() {
+    return Policy.newBuilder().setVersion(1).build();
+  }
+
+  /**
+   * Applies the bindings to the policy of a resource.
+   *
+   * @param resource the resource name, used for logging.
+   * @param getPolicy reads the current policy; the etag of the returned policy is sent back on
+   *     write.
+   * @param setPolicy writes the updated policy.
+   * @return false if the policy already held the bindings and no write was issued.
+   */
+  boolean update(
+      String resource,
+      Supplier<Policy> getPolicy,
+      Consumer<Policy> setPolicy,
+      Map<Role, Set<Identity>> bindings,
+      ExtraPermissions extraPermissions) {
+    for (int attempt = 1; ; attempt++) {
+      Policy current = getPolicy.get();
+      Policy updated = applyBindings(current, bindings, extraPermissions);
+      if (updated.getBindings().equals(current.getBindings())) {
+        LOG.debug("Policy of {} already up to date", resource);
+        return false;
+      }
+      try {
+        LOG.info("Apply policy {} to {}", bindings, resource);
+        setPolicy.accept(updated);
+        return true;
+      } catch (BaseServiceException e) {
+        if (!isConcurrentModification(e) || attempt >= MAX_ATTEMPTS) {
+          throw e;
+        }
+        long backoffMillis = initialBackoffMillis << (attempt - 1);
+        LOG.warn(
+            "Policy of {} changed concurrently, retrying in {}ms (attempt {} of {})",
+            resource,
+            backoffMillis,
+            attempt,
+            MAX_ATTEMPTS);
+        sleep(backoffMillis);
+      }
+    }
+  }
+
+  private static Policy applyBindings(
+      Policy current, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions) {
+    // Start from the current policy in both cases, so that its etag is sent back on write.
+    Policy.Builder builder = current.toBuilder();
+    if (extraPermissions == ExtraPermissions.PURGE) {
+      current.getBindings().keySet().forEach(builder::removeRole);
+    }
+    bindings.forEach(
+        (role, identities) -> identities.forEach(identity -> builder.addIdentity(role, identity)));
+    return builder.build();
+  }
+
+  private static boolean isConcurrentModification(BaseServiceException e) {
+    return e.getCode() == HTTP_CONFLICT || e.getCode() == HTTP_PRECONDITION_FAILED;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessingException("Interrupted while retrying a policy update", e);
+    }
+  }
+}
@@ -48,8 +48,11 @@ public class ApplyCommand {
       PermissionsApplier permissionsApplier =
           new PermissionsApplier(
               ImmutableMap.of(
-                  ResourceType.GCS_MANAGED_FOLDER, GcsManagedFoldersClient.create(),
-                  ResourceType.BQ_TABLE, BqTableClient.create()));
+                  ResourceType.GCS_MANAGED_FOLDER, managedFoldersClient,
+                  ResourceType.BQ_TABLE, bqTableClient),
+              applyOptions.getNumThreads(),
+              applyOptions.getMaxResourcesPerSecond(),
+              applyOptions.getCheckpointFile());
       PermissionsParser permissionsParser = new PermissionsParser();
 
       FileProcessor.applyConsumer(
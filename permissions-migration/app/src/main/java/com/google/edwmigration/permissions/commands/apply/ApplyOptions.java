@@ -19,6 +19,9 @@ package com.google.edwmigration.permissions.commands.apply;
 import com.google.edwmigration.permissions.ExtraPermissions;
 import com.google.edwmigration.permissions.commands.CommandArgsHelp;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.annotation.Nullable;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
@@ -46,6 +49,32 @@ public class ApplyOptions {
           .ofType(ExtraPermissions.class)
           .defaultsTo(ExtraPermissions.KEEP);
 
+  private static final OptionSpec<Integer> optionNumThreads =
+      parser
+          .accepts("num-threads", "Number of resources whose policy is updated in parallel.")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(16);
+
+  private static final OptionSpec<Double> optionMaxResourcesPerSecond =
+      parser
+          .accepts(
+              "max-resources-per-second",
+              "Maximum number of resources whose policy is updated per second, to stay within the"
+                  + " IAM API quotas.")
+          .withRequiredArg()
+          .ofType(Double.class)
+          .defaultsTo(10.0);
+
+  private static final OptionSpec<String> optionCheckpoint =
+      parser
+          .accepts(
+              "checkpoint",
+              "Local file recording the resources already updated. A run with the same file"
+                  + " skips them, resuming an interrupted run.")
+          .withRequiredArg()
+          .describedAs("apply-checkpoint.txt");
+
   private static final CommandArgsHelp help = new CommandArgsHelp(parser);
 
   public ApplyOptions(String[] args) {
@@ -63,4 +92,18 @@ public class ApplyOptions {
   public ExtraPermissions getExtraPermissions() {
     return options.valueOf(optionExtraPermissions);
   }
+
+  public int getNumThreads() {
+    return options.valueOf(optionNumThreads);
+  }
+
+  public double getMaxResourcesPerSecond() {
+    return options.valueOf(optionMaxResourcesPerSecond);
+  }
+
+  @Nullable
+  public Path getCheckpointFile() {
+    String checkpoint = options.valueOf(optionCheckpoint);
+    return checkpoint == null ? null : Paths.get(checkpoint);
+  }
 }
@@ -16,26 +16,78 @@
  */
 package com.google.edwmigration.permissions.commands.apply;
 
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import com.google.cloud.Identity;
 import com.google.cloud.Role;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.edwmigration.permissions.ExtraPermissions;
 import com.google.edwmigration.permissions.IamClient;
 import com.google.edwmigration.permissions.IamClient.GcpResource;
+import com.google.edwmigration.permissions.ProcessingException;
 import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
 import com.google.edwmigration.permissions.models.Permissions;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-/** Applies a list of permissions to GCP resources. */
+/**
+ * Applies a list of permissions to GCP resources. Resources are updated concurrently, at most
+ * {@code maxResourcesPerSecond} per second. When a checkpoint file is given, every resource
+ * successfully updated is appended to it and skipped by later runs using the same file.
+ */
 public class PermissionsApplier {
 
+  private static final Logger LOG = LoggerFactory.getLogger(PermissionsApplier.class);
+
+  private static final int PROGRESS_INTERVAL = 1000;
+
   private final ImmutableMap<ResourceType, IamClient> iamClients;
 
+  private final int threads;
+
+  private final double maxResourcesPerSecond;
+
+  @Nullable private final Path checkpointFile;
+
   public PermissionsApplier(ImmutableMap<ResourceType, IamClient> iamClients) {
+    this(iamClients, /* threads= */ 1, Double.MAX_VALUE, /* checkpointFile= */ null);
+  }
+
+  public PermissionsApplier(
+      ImmutableMap<ResourceType, IamClient> iamClients,
+      int threads,
+      double maxResourcesPerSecond,
+      @Nullable Path checkpointFile) {
+    Preconditions.checkArgument(threads > 0, "The number of threads must be positive");
+    Preconditions.checkArgument(
+        maxResourcesPerSecond > 0, "The maximum resources per second must be positive");
     this.iamClients = iamClients;
+    this.threads = threads;
+    this.maxResourcesPerSecond = maxResourcesPerSecond;
+    this.checkpointFile = checkpointFile;
   }
 
   /** Applies a list of permissions to GCS managed folders. */
@@ -51,16 +103,108 @@ public class PermissionsApplier {
                         Collectors.mapping(
                             iamBinding -> Identity.valueOf(iamBinding.principal()),
                             Collectors.toSet()))));
-
-    for (Map.Entry<GcpResource, Map<Role, Set<Identity>>> entry :
-        pathToBindingsMapping.entrySet()) {
-      GcpResource resource = entry.getKey();
-      Map<Role, Set<Identity>> bindings = entry.getValue();
-      IamClient iamClient = iamClients.get(resource.type());
-      if (iamClient == null) {
+    for (GcpResource resource : pathToBindingsMapping.keySet()) {
+      if (!iamClients.containsKey(resource.type())) {
         throw new IllegalArgumentException("Invalid resource type " + resource.type());
       }
-      iamClient.addIamPolicyBindings(resource.path(), bindings, keep);
     }
+
+    Set<String> completed = readCheckpoint();
+    RateLimiter rateLimiter = RateLimiter.create(maxResourcesPerSecond);
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads, new ThreadFactoryBuilder().setNameFormat("permissions-apply-%d").build());
+    AtomicInteger appliedCount = new AtomicInteger();
+    int total = pathToBindingsMapping.size();
+    try (Writer checkpoint = openCheckpoint()) {
+      Map<GcpResource, Future<?>> futures = new LinkedHashMap<>();
+      for (Map.Entry<GcpResource, Map<Role, Set<Identity>>> entry :
+          pathToBindingsMapping.entrySet()) {
+        GcpResource resource = entry.getKey();
+        Map<Role, Set<Identity>> bindings = entry.getValue();
+        if (completed.contains(toCheckpointEntry(resource))) {
+          continue;
+        }
+        IamClient iamClient = iamClients.get(resource.type());
+        futures.put(
+            resource,
+            executor.submit(
+                () -> {
+                  rateLimiter.acquire();
+                  iamClient.addIamPolicyBindings(resource.path(), bindings, keep);
+                  writeCheckpoint(checkpoint, resource);
+                  int applied = appliedCount.incrementAndGet();
+                  if (applied % PROGRESS_INTERVAL == 0) {
+                    LOG.info("Applied permissions to {} of {} resources", applied, total);
+                  }
+                  return null;
+                }));
+      }
+      LOG.info(
+          "Applying permissions to {} resources, {} already applied",
+          futures.size(),
+          total - futures.size());
+      awaitAll(futures);
+    } finally {
+      executor.shutdownNow();
+    }
+    LOG.info("Applied permissions to {} resources", appliedCount.get());
+  }
+
+  private static void awaitAll(Map<GcpResource, Future<?>> futures) throws IOException {
+    Throwable firstFailure = null;
+    int failures = 0;
+    for (Map.Entry<GcpResource, Future<?>> entry : futures.entrySet()) {
+      try {
+        entry.getValue().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ProcessingException("Interrupted while applying permissions", e);
+      } catch (ExecutionException e) {
+        LOG.error("Failed to apply permissions to {}", entry.getKey(), e.getCause());
+        if (firstFailure == null) {
+          firstFailure = e.getCause();
+        }
+        failures++;
+      }
+    }
+    if (firstFailure != null) {
+      if (firstFailure instanceof IOException) {
+        throw (IOException) firstFailure;
+      }
+      Throwables.throwIfUnchecked(firstFailure);
+      throw new ProcessingException(
+          String.format("Failed to apply permissions to %d resources", failures), firstFailure);
+    }
+  }
+
+  private Set<String> readCheckpoint() throws IOException {
+    if (checkpointFile == null || !Files.exists(checkpointFile)) {
+      return ImmutableSet.of();
+    }
+    try (Stream<String> lines = Files.lines(checkpointFile, UTF_8)) {
+      return lines.collect(toImmutableSet());
+    }
+  }
+
+  private Writer openCheckpoint() throws IOException {
+    if (checkpointFile == null) {
+      return CharStreams.nullWriter();
+    }
+    return Files.newBufferedWriter(
+        checkpointFile, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  private static void writeCheckpoint(Writer checkpoint, GcpResource resource) throws IOException {
+    synchronized (checkpoint) {
+      checkpoint.write(toCheckpointEntry(resource));
+      checkpoint.write('\n');
+      // Flush each entry, so that a killed run doesn't lose completed resources.
+      checkpoint.flush();
+    }
+  }
+
+  private static String toCheckpointEntry(GcpResource resource) {
+    return resource.type() + "\t" + resource.path();
   }
 }
@@ -45,18 +45,19 @@ public class Batcher {
     gcsParallelObjectsProcessor.Run(this::copyBlobIfMatchesPattern);
   }
 
+  /**
+   * Copies a blob when it matches the pattern. Failures are left to the processor, which retries
+   * transient ones and stops the batch on the others.
+   */
   private void copyBlobIfMatchesPattern(Blob blob) {
-    try {
-      String blobName = blob.getName();
-      LOG.info("Processing file {}", blobName);
+    String blobName = blob.getName();
+    LOG.info("Processing file {}", blobName);
 
-      if (pattern.matcher(blobName).matches()) {
-        String targetBlobName = getTargetName(blobName);
-        blob.copyTo(targetPath.bucketName(), targetBlobName);
-        LOG.info("File {} matched and copied to {}", blobName, targetBlobName);
-      }
-    } catch (Exception e) {
-      LOG.error("Error processing blob {}", blob.getName(), e);
+    if (pattern.matcher(blobName).matches()) {
+      String targetBlobName = getTargetName(blobName);
+      // Large objects are copied with several rewrite calls, getResult() completes them all.
+      blob.copyTo(targetPath.bucketName(), targetBlobName).getResult();
+      LOG.info("File {} matched and copied to {}", blobName, targetBlobName);
     }
   }
 
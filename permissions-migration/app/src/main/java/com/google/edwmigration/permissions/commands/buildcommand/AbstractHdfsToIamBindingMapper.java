@@ -31,12 +31,17 @@ import com.google.edwmigration.permissions.models.IamBinding;
 import com.google.edwmigration.permissions.models.Principal;
 import com.google.edwmigration.permissions.models.Rule;
 import com.google.edwmigration.permissions.models.Table;
+import com.google.edwmigration.permissions.utils.ExternalSorter;
+import com.google.edwmigration.permissions.utils.ExternalSorter.Codec;
 import com.google.edwmigration.permissions.utils.SimpleStreamProcessor;
 import com.google.errorprone.annotations.ForOverride;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.Optional;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -59,6 +64,68 @@ public abstract class AbstractHdfsToIamBindingMapper
 
   private static final int HDFS_DEFAULT_PRIORITY = 10;
 
+  private static final Codec<HdfsPermission> PERMISSION_CODEC =
+      new Codec<HdfsPermission>() {
+        @Override
+        public void write(DataOutput out, HdfsPermission value) throws IOException {
+          Codec.writeString(out, value.path());
+          Codec.writeString(out, value.fileType());
+          Codec.writeLong(out, value.fileSize());
+          Codec.writeString(out, value.owner());
+          Codec.writeString(out, value.group());
+          Codec.writeString(out, value.permission());
+          LocalDateTime modificationTime = value.modificationTime();
+          Codec.writeString(out, modificationTime == null ? null : modificationTime.toString());
+          Codec.writeLong(out, value.fileCount());
+          Codec.writeLong(out, value.dirCount());
+          Codec.writeString(out, value.storagePolicy());
+        }
+
+        @Override
+        public HdfsPermission read(DataInput in) throws IOException {
+          String path = Codec.readString(in);
+          String fileType = Codec.readString(in);
+          Long fileSize = Codec.readLong(in);
+          String owner = Codec.readString(in);
+          String group = Codec.readString(in);
+          String permission = Codec.readString(in);
+          String modificationTime = Codec.readString(in);
+          return HdfsPermission.create(
+              path,
+              fileType,
+              fileSize,
+              owner,
+              group,
+              permission,
+              modificationTime == null ? null : LocalDateTime.parse(modificationTime),
+              Codec.readLong(in),
+              Codec.readLong(in),
+              Codec.readString(in));
+        }
+      };
+
+  private static final Codec<Table> TABLE_CODEC =
+      new Codec<Table>() {
+        @Override
+        public void write(DataOutput out, Table value) throws IOException {
+          Codec.writeString(out, value.name());
+          Codec.writeString(out, value.schemaName());
+          Codec.writeString(out, value.hdfsPath());
+          Codec.writeString(out, value.gcsPath());
+          Codec.writeString(out, value.bqTable());
+        }
+
+        @Override
+        public Table read(DataInput in) throws IOException {
+          return Table.create(
+              Codec.readString(in),
+              Codec.readString(in),
+              Codec.readString(in),
+              Codec.readString(in),
+              Codec.readString(in));
+        }
+      };
+
   public enum HdfsPrincipalType {
     USER,
     GROUP,
@@ -127,16 +194,21 @@ public abstract class AbstractHdfsToIamBindingMapper
 
   private final String iamWriteRole;
 
+  /** The number of records of each input held in memory while sorting, the rest is spilled. */
+  private final int sortBufferRecords;
+
   AbstractHdfsToIamBindingMapper(
       ImmutableList<Rule> rules,
       StreamProcessor<Table> tableReader,
       StreamProcessor<Principal> principalReader,
       StreamProcessor<HdfsPermission> permissionReader,
       String iamReadRole,
-      String iamWriteRole) {
+      String iamWriteRole,
+      int sortBufferRecords) {
     super(IamBinding.class, "HDFS", RULE_SET_COMPILER, rules);
     this.iamReadRole = iamReadRole;
     this.iamWriteRole = iamWriteRole;
+    this.sortBufferRecords = sortBufferRecords;
     this.tableReader = tableReader;
     this.permissionReader = permissionReader;
 
@@ -198,17 +270,27 @@ public abstract class AbstractHdfsToIamBindingMapper
             permissionStream ->
                 tableReader.process(
                     tableStream -> {
-                      // TODO(aleofreddi) Here we order the streams in memory and implement a
-                      // basic form of merge join. If this proves to be too memory-intensive,
-                      // we might want to perform an external sort on permissions and tables.
-                      Iterator<HdfsPermission> permissionIterator =
-                          permissionStream
-                              .sorted(Comparator.comparing(HdfsPermission::path))
-                              .iterator();
-                      Iterator<Table> tableIterator =
-                          tableStream.sorted(Comparator.comparing(Table::hdfsPath)).iterator();
+                      // Both inputs are sorted by path with an external sort, which drains the
+                      // readers here and spills to disk, and are then merge joined lazily.
+                      Stream<HdfsPermission> sortedPermissions =
+                          new ExternalSorter<>(
+                                  Comparator.comparing(HdfsPermission::path),
+                                  PERMISSION_CODEC,
+                                  sortBufferRecords)
+                              .sort(permissionStream);
+                      Stream<Table> sortedTables =
+                          new ExternalSorter<>(
+                                  Comparator.comparing(
+                                      AbstractHdfsToIamBindingMapper::getTablePath),
+                                  TABLE_CODEC,
+                                  sortBufferRecords)
+                              .sort(tableStream);
                       return MatchingIterator.mergeJoinStream(
-                              tableIterator, permissionIterator, this::compareTablePermissionPath)
+                              sortedTables.iterator(),
+                              sortedPermissions.iterator(),
+                              this::compareTablePermissionPath)
+                          .onClose(sortedTables::close)
+                          .onClose(sortedPermissions::close)
                           .flatMap(
                               tablePermissionEntry ->
                                   // Cross product with permission principals.
@@ -291,8 +373,11 @@ public abstract class AbstractHdfsToIamBindingMapper
   }
 
   private int compareTablePermissionPath(Table table, HdfsPermission permission) {
-    String tablePath = URI.create(table.hdfsPath()).getPath();
-    return tablePath.compareTo(permission.path());
+    return getTablePath(table).compareTo(permission.path());
+  }
+
+  private static String getTablePath(Table table) {
+    return URI.create(table.hdfsPath()).getPath();
   }
 
   private static HdfsPrincipalType hdfsSourceToType(String rangerSource) {
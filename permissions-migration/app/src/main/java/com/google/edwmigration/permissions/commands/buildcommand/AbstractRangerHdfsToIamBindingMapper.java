@@ -18,6 +18,8 @@ package com.google.edwmigration.permissions.commands.buildcommand;
 
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.edwmigration.permissions.commands.expand.StreamProcessor;
@@ -51,6 +53,10 @@ public abstract class AbstractRangerHdfsToIamBindingMapper extends AbstractRange
 
   private final String writeIamRole;
 
+  // Compiled on first use, so that a policy without a path only fails if there are tables.
+  private final Supplier<RangerPathMatcher<Policy>> pathMatcher =
+      Suppliers.memoize(this::compilePathMatcher);
+
   AbstractRangerHdfsToIamBindingMapper(
       ImmutableList<Rule> rules,
       StreamProcessor<Table> tableReader,
@@ -71,26 +77,48 @@ public abstract class AbstractRangerHdfsToIamBindingMapper extends AbstractRange
     this.writeIamRole = writeIamRole;
   }
 
+  @Override
+  protected List<Policy> matchingPolicies(Table table) {
+    String tablePath = URI.create(table.hdfsPath()).getPath();
+    ImmutableList<Policy> matchingPolicies = pathMatcher.get().match(tablePath);
+    if (matchingPolicies.isEmpty()) {
+      LOG.debug(
+          "Table '{}'.'{}' does not match any HDFS policy path resource",
+          table.schemaName(),
+          table.fullName());
+    }
+    return matchingPolicies;
+  }
+
+  // Matches one policy without the matcher of all policies, which is for matchingPolicies().
   @Override
   protected boolean policyMatchesTable(Policy policy, Table table) {
+    String tablePath = URI.create(table.hdfsPath()).getPath();
+    PolicyResource pathResource = getPathResource(policy);
+    boolean recursive = toBooleanOrFalse(pathResource.isRecursive());
+    return pathResource.values().stream()
+        .anyMatch(path -> new RangerPathPattern(path, recursive).compile().matches(tablePath));
+  }
+
+  private RangerPathMatcher<Policy> compilePathMatcher() {
+    RangerPathMatcher.Builder<Policy> builder = RangerPathMatcher.builder();
+    for (Policy policy : policies) {
+      PolicyResource pathResource = getPathResource(policy);
+      boolean recursive = toBooleanOrFalse(pathResource.isRecursive());
+      for (String path : pathResource.values()) {
+        builder.add(new RangerPathPattern(path, recursive), policy);
+      }
+    }
+    return builder.build();
+  }
+
+  private static PolicyResource getPathResource(Policy policy) {
     PolicyResource pathResource = policy.resources().get(RANGER_PATH_RESOURCE);
     if (pathResource == null) {
       throw new IllegalStateException(
           "Ranger HDFS policy " + policy.name() + " has no path resource");
     }
-    if (pathResource.values().stream()
-        .noneMatch(
-            path ->
-                policyHdfsPathMatchesTable(
-                    path, toBooleanOrFalse(pathResource.isRecursive()), table))) {
-      LOG.debug(
-          "Table '{}'.'{}' does not match HDFS policy '{}' path resource",
-          table.schemaName(),
-          table.fullName(),
-          policy.name());
-      return false;
-    }
-    return true;
+    return pathResource;
   }
 
   @Override
@@ -109,11 +137,6 @@ public abstract class AbstractRangerHdfsToIamBindingMapper extends AbstractRange
     return Optional.empty();
   }
 
-  private boolean policyHdfsPathMatchesTable(String path, boolean recursive, Table table) {
-    String tablePath = URI.create(table.hdfsPath()).getPath();
-    return new RangerPathPattern(path, recursive).compile().matches(tablePath);
-  }
-
   private boolean toBooleanOrFalse(Boolean value) {
     return value != null && value;
   }
@@ -21,6 +21,7 @@ import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.edwmigration.permissions.commands.expand.StreamProcessor;
+import com.google.edwmigration.permissions.models.IamBinding;
 import com.google.edwmigration.permissions.models.Principal;
 import com.google.edwmigration.permissions.models.Rule;
 import com.google.edwmigration.permissions.models.Table;
@@ -28,6 +29,7 @@ import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy
 import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy.PolicyItemAccess;
 import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy.PolicyResource;
 import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Service;
+import com.google.edwmigration.permissions.utils.RuleSetMapper;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -58,6 +60,8 @@ public abstract class AbstractRangerHiveToIamBindingMapper extends AbstractRange
 
   private final String writeIamRole;
 
+  private final RangerHiveResourceIndex<Policy> policyIndex;
+
   AbstractRangerHiveToIamBindingMapper(
       ImmutableList<Rule> rules,
       StreamProcessor<Table> tableReader,
@@ -76,10 +80,42 @@ public abstract class AbstractRangerHiveToIamBindingMapper extends AbstractRange
         RANGER_HIVE_SERVICE);
     this.readIamRole = readIamRole;
     this.writeIamRole = writeIamRole;
+    this.policyIndex = createPolicyIndex();
+  }
+
+  private RangerHiveResourceIndex<Policy> createPolicyIndex() {
+    RangerHiveResourceIndex.Builder<Policy> builder = RangerHiveResourceIndex.builder();
+    for (Policy policy : policies) {
+      if (!isAccessPolicyWithResources(policy)) {
+        continue;
+      }
+      PolicyResource databaseResource = policy.resources().get(RANGER_DATABASE_RESOURCE);
+      if (databaseResource == null) {
+        LOG.debug("Policy {} has no database resource, skipping", policy.name());
+        continue;
+      }
+      PolicyResource tableResource =
+          policy.resources().getOrDefault(RANGER_TABLE_RESOURCE, ANY_RESOURCE);
+      builder.add(policy, databaseResource.values(), tableResource.values());
+    }
+    RangerHiveResourceIndex<Policy> index = builder.build();
+    LOG.info("Indexed {} of {} Ranger Hive policies", index.size(), policies.size());
+    return index;
   }
 
   @Override
-  protected boolean policyMatchesTable(Policy policy, Table table) {
+  public ImmutableList<RuleSetMapper.Result<IamBinding>> run() {
+    ImmutableList<RuleSetMapper.Result<IamBinding>> result = super.run();
+    LOG.info("Ranger Hive policy index: {}", policyIndex);
+    return result;
+  }
+
+  @Override
+  protected List<Policy> matchingPolicies(Table table) {
+    return policyIndex.match(table.schemaName(), table.name());
+  }
+
+  private boolean isAccessPolicyWithResources(Policy policy) {
     if (!Objects.equals(policy.serviceType(), RANGER_HIVE_SERVICE)) {
       LOG.warn(
           "Policy {} is not a hive service policy but a {} policy",
@@ -91,11 +127,19 @@ public abstract class AbstractRangerHiveToIamBindingMapper extends AbstractRange
       LOG.debug("Policy {} is not an access policy, skipping", policy.name());
       return false;
     }
-    Map<String, PolicyResource> resources = policy.resources();
-    if (resources == null) {
+    if (policy.resources() == null) {
       LOG.warn("Policy {} has no resources", policy.name());
       return false;
     }
+    return true;
+  }
+
+  @Override
+  protected boolean policyMatchesTable(Policy policy, Table table) {
+    if (!isAccessPolicyWithResources(policy)) {
+      return false;
+    }
+    Map<String, PolicyResource> resources = policy.resources();
     // TODO(aleofreddi): it's unclear to me if Ranger supports just '*' as a placeholder
     // for any value or it has a complete support for wildcard expansion (like `*sales`,
     //  `sales*`, or even `*some*thing*`). If that's the case, we should take care of
@@ -43,6 +43,7 @@ import com.google.edwmigration.permissions.utils.SimpleStreamProcessor;
 import com.google.errorprone.annotations.ForOverride;
 import java.util.*;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -121,7 +122,7 @@ public abstract class AbstractRangerPermissionMapper
 
   private static class PolicyState {
 
-    private boolean validated;
+    private volatile boolean validated;
 
     public PolicyState() {
       this.validated = false;
@@ -234,7 +235,7 @@ public abstract class AbstractRangerPermissionMapper
 
   @Override
   protected StreamProcessor<Context> newStream() {
-    Map<Policy, PolicyState> policyStats = new HashMap<>();
+    Map<Policy, PolicyState> policyStats = new ConcurrentHashMap<>();
 
     // Table's cardinality might be high, so we iterate it as a stream.
     Stream<Context> permissionContextes =
@@ -243,8 +244,7 @@ public abstract class AbstractRangerPermissionMapper
                 tableStream.flatMap(
                     table ->
                         // Cross product with matching policies.
-                        policies.stream()
-                            .filter(policy -> policyMatchesTable(policy, table))
+                        matchingPolicies(table).stream()
                             .flatMap(
                                 policy -> {
                                   // Cross product with policy items.
@@ -374,6 +374,19 @@ public abstract class AbstractRangerPermissionMapper
         .flatMap(stream -> stream);
   }
 
+  /**
+   * Returns the policies matching the table, in the order of {@link #policies}.
+   *
+   * <p>The default implementation tests every policy; mappers with many policies should override
+   * it with an index.
+   */
+  @ForOverride
+  protected List<Policy> matchingPolicies(Table table) {
+    return policies.stream()
+        .filter(policy -> policyMatchesTable(policy, table))
+        .collect(toImmutableList());
+  }
+
   @ForOverride
   protected abstract boolean policyMatchesTable(Policy policy, Table table);
 
@@ -25,6 +25,7 @@ import com.google.edwmigration.permissions.models.Permissions;
 import com.google.edwmigration.permissions.models.PermissionsRuleset;
 import com.google.edwmigration.permissions.models.PermissionsRuleset.BqPermissionsRuleset;
 import com.google.edwmigration.permissions.models.PermissionsRuleset.GcsPermissionsRuleset;
+import com.google.edwmigration.permissions.utils.AbstractRuleSetMapper;
 import com.google.edwmigration.permissions.utils.RuleSetMapper;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -107,7 +108,8 @@ public class BuildCommand {
                                 rules,
                                 tableReaderFactory.getInstance(options),
                                 principalReaderFactory.getInstance(options),
-                                new HdfsPermissionReader(options.getDumperHdfs()));
+                                new HdfsPermissionReader(options.getDumperHdfs()),
+                                options.getSortBufferRecords());
                           }))
               .filter(Optional::isPresent)
               .map(Optional::get)
@@ -149,7 +151,8 @@ public class BuildCommand {
                                 rules,
                                 tableReaderFactory.getInstance(options),
                                 principalReaderFactory.getInstance(options),
-                                new HdfsPermissionReader(options.getDumperHdfs()));
+                                new HdfsPermissionReader(options.getDumperHdfs()),
+                                options.getSortBufferRecords());
                           }))
               .filter(Optional::isPresent)
               .map(Optional::get)
@@ -158,7 +161,8 @@ public class BuildCommand {
 
     PermissionMerge merge =
         PermissionMerge.newInstance(ImmutableList.copyOf(mappers), config.roleMappings());
-    ImmutableList<IamBinding> iamBindings = merge.run();
+    ImmutableList<IamBinding> iamBindings =
+        AbstractRuleSetMapper.runWithParallelism(options.getMappingThreads(), merge::run);
     FileProcessor.applyConsumer(
         options.getOutputPermissions(),
         path ->
@@ -92,6 +92,13 @@ public class BuildOptions {
           .ofType(Integer.class)
           .defaultsTo(256);
 
+  private static final OptionSpec<Integer> optionMappingThreads =
+      parser
+          .accepts("mapping-threads", "Number of threads evaluating the permission rules.")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(Runtime.getRuntime().availableProcessors());
+
   private static final OptionSpec<Integer> optionTimeoutSeconds =
       parser
           .accepts("timeout-seconds", "Timeout in seconds after which the command is interrupted.")
@@ -99,6 +106,15 @@ public class BuildOptions {
           .ofType(Integer.class)
           .defaultsTo(24 * 60 * 60);
 
+  private static final OptionSpec<Integer> optionSortBufferRecords =
+      parser
+          .accepts(
+              "sort-buffer-records",
+              "Number of records of each HDFS input sorted in memory before spilling to disk.")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(500_000);
+
   private static final CommandArgsHelp help = new CommandArgsHelp(parser);
 
   private final OptionSet options;
@@ -144,7 +160,15 @@ public class BuildOptions {
     return options.valueOf(optionNumThreads);
   }
 
+  public int getMappingThreads() {
+    return options.valueOf(optionMappingThreads);
+  }
+
   public int getTimeoutSeconds() {
     return options.valueOf(optionTimeoutSeconds);
   }
+
+  public int getSortBufferRecords() {
+    return options.valueOf(optionSortBufferRecords);
+  }
 }
@@ -35,9 +35,16 @@ public class HdfsToBqTableIamBindingMapper extends AbstractHdfsToIamBindingMappe
       ImmutableList<Rule> rules,
       StreamProcessor<Table> tableReader,
       StreamProcessor<Principal> principalReader,
-      StreamProcessor<HdfsPermission> permissionReader) {
+      StreamProcessor<HdfsPermission> permissionReader,
+      int sortBufferRecords) {
     super(
-        rules, tableReader, principalReader, permissionReader, BQ_READ_IAM_ROLE, BQ_WRITE_IAM_ROLE);
+        rules,
+        tableReader,
+        principalReader,
+        permissionReader,
+        BQ_READ_IAM_ROLE,
+        BQ_WRITE_IAM_ROLE,
+        sortBufferRecords);
   }
 
   @Override
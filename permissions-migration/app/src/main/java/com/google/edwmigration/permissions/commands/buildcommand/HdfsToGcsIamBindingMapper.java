@@ -34,14 +34,16 @@ public class HdfsToGcsIamBindingMapper extends AbstractHdfsToIamBindingMapper {
       ImmutableList<Rule> rules,
       StreamProcessor<Table> tableReader,
       StreamProcessor<Principal> principalReader,
-      StreamProcessor<HdfsPermission> permissionReader) {
+      StreamProcessor<HdfsPermission> permissionReader,
+      int sortBufferRecords) {
     super(
         rules,
         tableReader,
         principalReader,
         permissionReader,
         GCS_READ_IAM_ROLE,
-        GCS_WRITE_IAM_ROLE);
+        GCS_WRITE_IAM_ROLE,
+        sortBufferRecords);
   }
 
   @Override
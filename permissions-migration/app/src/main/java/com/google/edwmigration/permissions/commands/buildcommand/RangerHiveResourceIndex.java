@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the Ranger Hive policies whose database and table resources match a table.
+ *
+ * <p>Policies are bucketed by (database, table) value, where a value is either an exact name or
+ * the '*' wildcard. A table then only looks up the four buckets which can match it, instead of
+ * testing every policy.
+ *
+ * @param <T> The type of the indexed policies.
+ */
+public class RangerHiveResourceIndex<T> {
+
+  static final String ANY = "*";
+
+  public static class Builder<T> {
+
+    private final Map<String, Map<String, List<Integer>>> buckets = new HashMap<>();
+    private final List<T> values = new ArrayList<>();
+
+    private Builder() {}
+
+    /** Adds a policy; policies are returned by {@link #match} in the order they were added. */
+    public Builder<T> add(T value, List<String> databases, List<String> tables) {
+      int index = values.size();
+      values.add(value);
+      for (String database : databases) {
+        Map<String, List<Integer>> tableBuckets =
+            buckets.computeIfAbsent(database, key -> new HashMap<>());
+        for (String table : tables) {
+          tableBuckets.computeIfAbsent(table, key -> new ArrayList<>()).add(index);
+        }
+      }
+      return this;
+    }
+
+    public RangerHiveResourceIndex<T> build() {
+      return new RangerHiveResourceIndex<>(buckets, ImmutableList.copyOf(values));
+    }
+  }
+
+  public static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  private final Map<String, Map<String, List<Integer>>> buckets;
+  private final ImmutableList<T> values;
+  private final LongAdder lookupCount = new LongAdder();
+  private final LongAdder exactHitCount = new LongAdder();
+  private final LongAdder wildcardHitCount = new LongAdder();
+  private final LongAdder matchCount = new LongAdder();
+
+  private RangerHiveResourceIndex(
+      Map<String, Map<String, List<Integer>>> buckets, ImmutableList<T> values) {
+    this.buckets = buckets;
+    this.values = values;
+  }
+
+  /** Returns the policies matching the given table, in the order they were added. */
+  public ImmutableList<T> match(String database, String table) {
+    lookupCount.increment();
+    BitSet matches = new BitSet();
+    if (collect(matches, database, table)) {
+      exactHitCount.increment();
+    }
+    boolean wildcardHit = false;
+    if (!ANY.equals(table)) {
+      wildcardHit |= collect(matches, database, ANY);
+    }
+    if (!ANY.equals(database)) {
+      wildcardHit |= collect(matches, ANY, table);
+      if (!ANY.equals(table)) {
+        wildcardHit |= collect(matches, ANY, ANY);
+      }
+    }
+    if (wildcardHit) {
+      wildcardHitCount.increment();
+    }
+    ImmutableList.Builder<T> result = ImmutableList.builder();
+    for (int index = matches.nextSetBit(0); index >= 0; index = matches.nextSetBit(index + 1)) {
+      result.add(values.get(index));
+    }
+    matchCount.add(matches.cardinality());
+    return result.build();
+  }
+
+  private boolean collect(BitSet matches, String database, String table) {
+    Map<String, List<Integer>> tableBuckets = buckets.get(database);
+    if (tableBuckets == null) {
+      return false;
+    }
+    List<Integer> indexes = tableBuckets.get(table);
+    if (indexes == null) {
+      return false;
+    }
+    for (int index : indexes) {
+      matches.set(index);
+    }
+    return true;
+  }
+
+  public int size() {
+    return values.size();
+  }
+
+  @Override
+  public String toString() {
+    long lookups = lookupCount.sum();
+    return String.format(
+        Locale.ROOT,
+        "%d policies, %d lookups, %d exact hits, %d wildcard hits, %.1f matches per lookup",
+        values.size(),
+        lookups,
+        exactHitCount.sum(),
+        wildcardHitCount.sum(),
+        lookups == 0 ? 0d : (double) matchCount.sum() / lookups);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches a path against many {@link RangerPathPattern}s at once.
+ *
+ * <p>All patterns are compiled into a single character trie, where '?' and '*' are wildcard
+ * nodes, and a path is matched by walking the trie with the set of nodes reachable so far. The
+ * cost of a match therefore depends on the path and on how many patterns share its prefixes,
+ * rather than on the total number of patterns.
+ *
+ * @param <T> The type of the values associated with the patterns.
+ */
+public class RangerPathMatcher<T> {
+
+  private static class Node {
+
+    private final Map<Character, Node> children = new HashMap<>();
+    // The node reached through '?'.
+    private Node any;
+    // The node reached through '*', which consumes any number of characters.
+    private Node star;
+    private final boolean loop;
+    private final List<Integer> values = new ArrayList<>();
+
+    Node(boolean loop) {
+      this.loop = loop;
+    }
+  }
+
+  public static class Builder<T> {
+
+    private final Node root = new Node(false);
+    private final List<T> values = new ArrayList<>();
+
+    private Builder() {}
+
+    /** Adds a pattern; values are returned by {@link #match} in the order they were added. */
+    public Builder<T> add(RangerPathPattern pattern, T value) {
+      int index = values.size();
+      values.add(value);
+      for (String wildcardPattern : pattern.expand()) {
+        insert(wildcardPattern).values.add(index);
+      }
+      return this;
+    }
+
+    private Node insert(String wildcardPattern) {
+      Node node = root;
+      for (char c : wildcardPattern.toCharArray()) {
+        if (c == '*') {
+          if (node.loop) {
+            // '**' is equivalent to '*'.
+            continue;
+          }
+          if (node.star == null) {
+            node.star = new Node(true);
+          }
+          node = node.star;
+        } else if (c == '?') {
+          if (node.any == null) {
+            node.any = new Node(false);
+          }
+          node = node.any;
+        } else {
+          node = node.children.computeIfAbsent(c, key -> new Node(false));
+        }
+      }
+      return node;
+    }
+
+    public RangerPathMatcher<T> build() {
+      return new RangerPathMatcher<>(root, ImmutableList.copyOf(values));
+    }
+  }
+
+  public static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  private final Node root;
+  private final ImmutableList<T> values;
+
+  private RangerPathMatcher(Node root, ImmutableList<T> values) {
+    this.root = root;
+    this.values = values;
+  }
+
+  /** Returns the values of all patterns matching the whole path, in the order they were added. */
+  public ImmutableList<T> match(String path) {
+    Set<Node> current = new LinkedHashSet<>();
+    addWithStars(current, root);
+    for (int i = 0; i < path.length() && !current.isEmpty(); i++) {
+      char c = path.charAt(i);
+      Set<Node> next = new LinkedHashSet<>();
+      for (Node node : current) {
+        if (node.loop) {
+          next.add(node);
+        }
+        Node child = node.children.get(c);
+        if (child != null) {
+          addWithStars(next, child);
+        }
+        if (node.any != null) {
+          addWithStars(next, node.any);
+        }
+      }
+      current = next;
+    }
+    BitSet matches = new BitSet();
+    for (Node node : current) {
+      for (int index : node.values) {
+        matches.set(index);
+      }
+    }
+    ImmutableList.Builder<T> result = ImmutableList.builder();
+    for (int index = matches.nextSetBit(0); index >= 0; index = matches.nextSetBit(index + 1)) {
+      result.add(values.get(index));
+    }
+    return result.build();
+  }
+
+  // A '*' may match the empty string, so its node is reachable wherever its parent is.
+  private static void addWithStars(Set<Node> nodes, Node node) {
+    while (node != null && nodes.add(node)) {
+      node = node.star;
+    }
+  }
+}
@@ -18,6 +18,7 @@ package com.google.edwmigration.permissions.commands.buildcommand;
 
 import com.google.re2j.Pattern;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 public class RangerPathPattern {
@@ -33,6 +34,14 @@ public class RangerPathPattern {
 
   /** Convert a Ranger wildcard pattern into a compiled regex. */
   public Pattern compile() {
+    return Pattern.compile(
+        expand().stream()
+            .map(this::convertWildcardPatternToRegex)
+            .collect(Collectors.joining("|")));
+  }
+
+  /** Returns the non-recursive wildcard patterns which together are equivalent to this one. */
+  public List<String> expand() {
     ArrayList<String> patterns = new ArrayList<>();
     if (recursive) {
       if (pattern.endsWith("/")) {
@@ -50,10 +59,7 @@ public class RangerPathPattern {
       // Non-recursive pattern.
       patterns.add(pattern);
     }
-    return Pattern.compile(
-        patterns.stream()
-            .map(this::convertWildcardPatternToRegex)
-            .collect(Collectors.joining("|")));
+    return patterns;
   }
 
   private String convertWildcardPatternToRegex(String pattern) {
@@ -21,8 +21,13 @@ import com.google.edwmigration.permissions.models.Rule;
 import com.google.edwmigration.permissions.models.Rule.RuleMapField;
 import dev.cel.runtime.CelEvaluationException;
 import dev.cel.runtime.CelRuntime;
+import dev.cel.runtime.CelVariableResolver;
 import java.util.Optional;
 
+/**
+ * A rule with its CEL programs. Programs are immutable and can be evaluated concurrently, so a
+ * compiled rule is shared by all the threads mapping a stream.
+ */
 public class CompiledRule {
 
   public static class CompiledRuleMapField {
@@ -41,7 +46,7 @@ public class CompiledRule {
     }
 
     /** Evaluate the field value for the given context. */
-    public Object eval(ImmutableMap<String, Object> context) throws CelEvaluationException {
+    public Object eval(CelVariableResolver context) throws CelEvaluationException {
       if (expression.isPresent()) {
         return expression.get().eval(context);
       }
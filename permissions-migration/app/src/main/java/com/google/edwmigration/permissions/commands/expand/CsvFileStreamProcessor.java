@@ -21,13 +21,23 @@ import static com.google.common.base.Verify.verifyNotNull;
 import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.google.common.collect.Streams;
+import com.google.edwmigration.permissions.ProcessingException;
 import com.google.edwmigration.permissions.files.FileProcessor;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.List;
+import java.nio.file.Path;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
+/**
+ * Streams the records of a CSV file without loading the file in memory.
+ *
+ * <p>The stream reads the file lazily and owns it. If the operator returns a stream, such as the
+ * record stream itself, the returned stream keeps the file open and the caller must close it;
+ * otherwise the file is closed when the operator returns.
+ */
 public class CsvFileStreamProcessor<T> implements StreamProcessor<T> {
 
   private final CsvMapper csvMapper;
@@ -48,18 +58,41 @@ public class CsvFileStreamProcessor<T> implements StreamProcessor<T> {
 
   @Override
   public <R> R process(Function<Stream<T>, R> operator) {
-    return FileProcessor.apply(
-        path,
-        directory -> {
-          List<T> entries;
-          CsvSchema schema =
-              csvMapper.typedSchemaFor(this.recordClass).withHeader().withColumnReordering(true);
-          try (InputStream is = Files.newInputStream(directory.resolve(file));
-              MappingIterator<T> iterator =
-                  csvMapper.readerFor(this.recordClass).with(schema).readValues(is)) {
-            entries = iterator.readAll();
-          }
-          return operator.apply(entries.stream());
-        });
+    Stream<T> records = FileProcessor.stream(path, this::openRecords);
+    R result;
+    try {
+      result = operator.apply(records);
+    } catch (RuntimeException e) {
+      records.close();
+      throw e;
+    }
+    if (!(result instanceof Stream)) {
+      records.close();
+    }
+    return result;
+  }
+
+  private Stream<T> openRecords(Path directory) throws IOException {
+    CsvSchema schema =
+        csvMapper.typedSchemaFor(this.recordClass).withHeader().withColumnReordering(true);
+    InputStream is = Files.newInputStream(directory.resolve(file));
+    MappingIterator<T> iterator;
+    try {
+      iterator = csvMapper.readerFor(this.recordClass).with(schema).readValues(is);
+    } catch (IOException | RuntimeException e) {
+      is.close();
+      throw e;
+    }
+    // Closing the iterator closes the input stream.
+    return Streams.stream(iterator)
+        .onClose(
+            () -> {
+              try {
+                iterator.close();
+              } catch (IOException e) {
+                throw new ProcessingException(
+                    String.format("Error closing file: '%s'", directory.resolve(file)), e);
+              }
+            });
   }
 }
@@ -25,6 +25,7 @@ import com.google.edwmigration.permissions.models.PrincipalRuleset;
 import com.google.edwmigration.permissions.models.PrincipalRuleset.HdfsPrincipalRuleset;
 import com.google.edwmigration.permissions.models.PrincipalRuleset.RangerPrincipalRuleset;
 import com.google.edwmigration.permissions.models.Principals;
+import com.google.edwmigration.permissions.utils.AbstractRuleSetMapper;
 import com.google.edwmigration.permissions.utils.RuleSetMapper;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -95,7 +96,8 @@ public class ExpandCommand {
               .collect(toImmutableList()));
     }
     PrincipalMerge principalMerge = new PrincipalMerge(mappers);
-    ImmutableList<Principal> principals = principalMerge.run();
+    ImmutableList<Principal> principals =
+        AbstractRuleSetMapper.runWithParallelism(options.getMappingThreads(), principalMerge::run);
     FileProcessor.applyConsumer(
         options.getOutputPrincipals(),
         path ->
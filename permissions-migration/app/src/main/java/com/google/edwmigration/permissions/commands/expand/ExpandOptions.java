@@ -64,6 +64,13 @@ public class ExpandOptions {
           .defaultsTo("principals.yaml")
           .describedAs("/path/to/principals.yaml");
 
+  private static final OptionSpec<Integer> optionMappingThreads =
+      parser
+          .accepts("mapping-threads", "Number of threads evaluating the principal rules.")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(Runtime.getRuntime().availableProcessors());
+
   private static final CommandArgsHelp help = new CommandArgsHelp(parser);
 
   private final OptionSet options;
@@ -103,4 +110,8 @@ public class ExpandOptions {
   public String getOutputPrincipals() {
     return options.valueOf(optionOutputPrincipals);
   }
+
+  public int getMappingThreads() {
+    return options.valueOf(optionMappingThreads);
+  }
 }
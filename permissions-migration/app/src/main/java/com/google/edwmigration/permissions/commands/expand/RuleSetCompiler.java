@@ -35,6 +35,7 @@ import dev.cel.compiler.CelCompilerFactory;
 import dev.cel.runtime.CelEvaluationException;
 import dev.cel.runtime.CelRuntime;
 import dev.cel.runtime.CelRuntimeFactory;
+import dev.cel.runtime.CelVariableResolver;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -116,10 +117,14 @@ public class RuleSetCompiler {
             key ->
                 new IllegalStateException(
                     String.format("Default key '%s' is reserved and cannot be overridden", key)));
-    EvalOutcome evalOutcome = EvalOutcome.create(Action.NO_MATCH, objectMap);
+    // Resolve variables straight from the context, rather than copying it into a new activation
+    // for each program evaluated.
+    CelVariableResolver resolver =
+        name -> Optional.ofNullable(context.get(name)).map(RuleSetCompiler::adaptPrimitive);
     for (CompiledRule compiledRule : compiledRules) {
-      boolean log = evalRuleLog(compiledRule, context);
-      evalOutcome = evalRule(compiledRule, context, baseObjectMapValues, defaultObjectMapValues);
+      boolean log = evalRuleLog(compiledRule, resolver);
+      EvalOutcome evalOutcome =
+          evalRule(compiledRule, resolver, baseObjectMapValues, defaultObjectMapValues, objectMap);
       if (evalOutcome.action() == Action.MAP || evalOutcome.action() == Action.SKIP) {
         // Stop processing and return the current outcome.
         if (log) {
@@ -135,7 +140,7 @@ public class RuleSetCompiler {
         LOG.info("Evaluated rule {} with context {}, no match", compiledRule.source, context);
       }
     }
-    return evalOutcome;
+    return EvalOutcome.create(Action.NO_MATCH, objectMap);
   }
 
   private CompiledRule compileRule(
@@ -164,25 +169,21 @@ public class RuleSetCompiler {
   /**
    * Evaluates the rule with a given context. The fields from baseObjectMapValues are returned in
    * the resulting object as-is, while defaultObjectMapValues are applied only when not overridden
-   * by the evaluated map.
+   * by the evaluated map. When the rule doesn't map the object, the precomputed merge of base and
+   * default values is returned.
    */
   private static EvalOutcome evalRule(
       CompiledRule compiledRule,
-      ImmutableMap<String, Object> context,
+      CelVariableResolver context,
       ImmutableMap<String, Object> baseObjectMapValues,
-      ImmutableMap<String, Object> defaultObjectMapValues)
+      ImmutableMap<String, Object> defaultObjectMapValues,
+      ImmutableMap<String, Object> unmappedObjectMap)
       throws CelEvaluationException {
     if (compiledRule.when.eval(context) != Boolean.TRUE) {
-      return EvalOutcome.create(
-          Action.NO_MATCH,
-          mergeMaps(
-              baseObjectMapValues, defaultObjectMapValues, /* duplicateKeyToException= */ null));
+      return EvalOutcome.create(Action.NO_MATCH, unmappedObjectMap);
     }
     if (compiledRule.skip.isPresent()) {
-      return EvalOutcome.create(
-          Action.SKIP,
-          mergeMaps(
-              baseObjectMapValues, defaultObjectMapValues, /* duplicateKeyToException= */ null));
+      return EvalOutcome.create(Action.SKIP, unmappedObjectMap);
     }
     ImmutableMap<String, Object> objectMap =
         mergeMaps(
@@ -202,15 +203,14 @@ public class RuleSetCompiler {
   }
 
   /** Evaluates if a rule should be logged for a given context. */
-  private static boolean evalRuleLog(
-      CompiledRule compiledRule, ImmutableMap<String, Object> context)
+  private static boolean evalRuleLog(CompiledRule compiledRule, CelVariableResolver context)
       throws CelEvaluationException {
     return compiledRule.log.eval(context) == Boolean.TRUE;
   }
 
   /** Evaluates the map action fields. */
   private static ImmutableMap<String, Object> evalMap(
-      CompiledRule compiledRule, ImmutableMap<String, Object> context) {
+      CompiledRule compiledRule, CelVariableResolver context) {
     return compiledRule.mapFields
         .orElseThrow(
             () -> new IllegalStateException("Invoked evalMap on a rule without map action"))
@@ -260,9 +260,25 @@ public class RuleSetCompiler {
     return builder;
   }
 
+  /**
+   * Widens a context value as an activation would, since CEL only has 64-bit integers and doubles.
+   */
+  private static Object adaptPrimitive(Object value) {
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    if (value instanceof Float) {
+      return ((Float) value).doubleValue();
+    }
+    return value;
+  }
+
   /** Merge the given maps preserving values from the leftmost map on conflict. */
   private static <K, V, E extends Exception> ImmutableMap<K, V> mergeMaps(
       Map<K, V> base, Map<K, V> patch, Function<K, ? extends E> duplicateKeyToException) throws E {
+    if (patch.isEmpty()) {
+      return ImmutableMap.copyOf(base);
+    }
     HashMap<K, V> result = new HashMap<>(base);
     for (Map.Entry<K, V> entry : patch.entrySet()) {
       if (result.containsKey(entry.getKey())) {
@@ -72,6 +72,47 @@ public class FileProcessor {
         });
   }
 
+  /**
+   * Opens a stream on a path, handling GCS and local files.
+   *
+   * <p>Unlike {@link #apply}, the file systems of the path stay open until the returned stream is
+   * closed, so the stream can read the path lazily.
+   *
+   * @param filePath The path to the file.
+   * @param open The function opening the stream on the path.
+   * @param <T> The element type of the stream.
+   * @return The stream, which closes the file systems of the path when closed.
+   */
+  public static <T> Stream<T> stream(String filePath, ThrowingFunction<Path, Stream<T>> open) {
+    ResolvedPath resolvedPath = findPathResolver(filePath).resolve(filePath);
+    try {
+      return open.apply(resolvedPath.getPath())
+          .onClose(
+              () -> {
+                try {
+                  resolvedPath.close();
+                } catch (IOException e) {
+                  throw new ProcessingException(
+                      String.format("Error closing file: '%s'", filePath), e);
+                }
+              });
+    } catch (IOException e) {
+      closeSuppressed(resolvedPath, e);
+      throw new ProcessingException(String.format("Error processing file: '%s'", filePath), e);
+    } catch (RuntimeException e) {
+      closeSuppressed(resolvedPath, e);
+      throw e;
+    }
+  }
+
+  private static void closeSuppressed(ResolvedPath resolvedPath, Exception e) {
+    try {
+      resolvedPath.close();
+    } catch (IOException suppressed) {
+      e.addSuppressed(suppressed);
+    }
+  }
+
   /**
    * Applies a consumer to a path, handling GCS and local files.
    *
@@ -88,14 +129,16 @@ public class FileProcessor {
   }
 
   private static <T> T applyFunction(String filePath, Function<Path, T> process) {
-    PathResolver pathResolver =
-        pathResolvers.stream()
-            .filter(pathProcessor -> pathProcessor.canSupport(filePath))
-            .findFirst()
-            .orElseThrow(
-                () ->
-                    new ProcessingException(
-                        String.format("No PathResolver match for file: '%s'", filePath)));
-    return pathResolver.apply(filePath, process);
+    return findPathResolver(filePath).apply(filePath, process);
+  }
+
+  private static PathResolver findPathResolver(String filePath) {
+    return pathResolvers.stream()
+        .filter(pathProcessor -> pathProcessor.canSupport(filePath))
+        .findFirst()
+        .orElseThrow(
+            () ->
+                new ProcessingException(
+                    String.format("No PathResolver match for file: '%s'", filePath)));
   }
 }
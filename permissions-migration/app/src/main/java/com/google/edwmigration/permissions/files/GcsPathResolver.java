@@ -18,11 +18,7 @@ package com.google.edwmigration.permissions.files;
 
 import com.google.cloud.storage.contrib.nio.CloudStorageFileSystem;
 import com.google.edwmigration.permissions.GcsPath;
-import com.google.edwmigration.permissions.ProcessingException;
-import java.io.IOException;
 import java.nio.file.FileSystem;
-import java.nio.file.Path;
-import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,15 +31,10 @@ public class GcsPathResolver implements PathResolver {
   }
 
   @Override
-  public <T> T apply(String filePath, Function<Path, T> process) {
+  public ResolvedPath resolve(String filePath) {
     GcsPath gcsPath = GcsPath.parse(filePath);
     LOG.info("Creating path using Cloud Storage FileSystem: '{}'", gcsPath);
-    try (FileSystem fs = CloudStorageFileSystem.forBucket(gcsPath.bucketName())) {
-      Path gcsFilePath = fs.getPath(gcsPath.objectName());
-      return process.apply(gcsFilePath);
-    } catch (IOException e) {
-      throw new ProcessingException(
-          String.format("Error occurred when processing GCS file: '%s'", gcsPath), e);
-    }
+    FileSystem fs = CloudStorageFileSystem.forBucket(gcsPath.bucketName());
+    return new ResolvedPath(fs.getPath(gcsPath.objectName()), fs);
   }
 }
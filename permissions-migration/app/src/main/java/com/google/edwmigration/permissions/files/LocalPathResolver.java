@@ -16,9 +16,7 @@
  */
 package com.google.edwmigration.permissions.files;
 
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,8 +30,8 @@ public class LocalPathResolver implements PathResolver {
   }
 
   @Override
-  public <T> T apply(String filePath, Function<Path, T> process) {
+  public ResolvedPath resolve(String filePath) {
     LOG.info("Creating path on local file system: '{}'", filePath);
-    return process.apply(Paths.get(filePath));
+    return new ResolvedPath(Paths.get(filePath), () -> {});
   }
 }
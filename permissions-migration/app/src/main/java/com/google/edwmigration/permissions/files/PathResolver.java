@@ -16,11 +16,23 @@
  */
 package com.google.edwmigration.permissions.files;
 
+import com.google.edwmigration.permissions.ProcessingException;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.function.Function;
 
 public interface PathResolver {
   boolean canSupport(String filePath);
 
-  <T> T apply(String filePath, Function<Path, T> process);
+  /** Resolves the path; the caller owns the returned path and must close it. */
+  ResolvedPath resolve(String filePath);
+
+  default <T> T apply(String filePath, Function<Path, T> process) {
+    try (ResolvedPath resolvedPath = resolve(filePath)) {
+      return process.apply(resolvedPath.getPath());
+    } catch (IOException e) {
+      throw new ProcessingException(
+          String.format("Error occurred when closing file: '%s'", filePath), e);
+    }
+  }
 }
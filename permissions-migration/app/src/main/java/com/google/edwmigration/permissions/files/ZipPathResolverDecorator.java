@@ -16,12 +16,12 @@
  */
 package com.google.edwmigration.permissions.files;
 
+import com.google.common.io.Closer;
 import com.google.edwmigration.permissions.ProcessingException;
 import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
-import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,23 +44,34 @@ public class ZipPathResolverDecorator implements PathResolver {
   }
 
   @Override
-  public <T> T apply(String filePath, Function<Path, T> process) {
-    return innerResolver.apply(filePath, processWithZipFileSystem(process));
+  public ResolvedPath resolve(String filePath) {
+    ResolvedPath resolvedPath = innerResolver.resolve(filePath);
+    Path path = resolvedPath.getPath();
+    if (!path.toString().toLowerCase().endsWith(ZIP_SUFFIX)) {
+      return resolvedPath;
+    }
+    LOG.trace("Creating path for ZIP file system: '{}'", path);
+    // The zip file system is closed before the file system holding the archive.
+    Closer closer = Closer.create();
+    closer.register(resolvedPath);
+    try {
+      FileSystem fs = closer.register(FileSystems.newFileSystem(path, (ClassLoader) null));
+      return new ResolvedPath(fs.getPath("/"), closer);
+    } catch (IOException e) {
+      closeSuppressed(closer, e);
+      throw new ProcessingException(
+          String.format("Error occurred when processing zip file: %s", path), e);
+    } catch (RuntimeException e) {
+      closeSuppressed(closer, e);
+      throw e;
+    }
   }
 
-  private static <T> Function<Path, T> processWithZipFileSystem(Function<Path, T> process) {
-    return path -> {
-      if (!path.toString().toLowerCase().endsWith(ZIP_SUFFIX)) {
-        return process.apply(path);
-      }
-      LOG.trace("Creating path for ZIP file system: '{}'", path);
-      try (FileSystem fs = FileSystems.newFileSystem(path, (ClassLoader) null)) {
-        Path rootDir = fs.getPath("/");
-        return process.apply(rootDir);
-      } catch (IOException e) {
-        throw new ProcessingException(
-            String.format("Error occurred when processing zip file: %s", path), e);
-      }
-    };
+  private static void closeSuppressed(Closer closer, Exception e) {
+    try {
+      closer.close();
+    } catch (IOException suppressed) {
+      e.addSuppressed(suppressed);
+    }
   }
 }
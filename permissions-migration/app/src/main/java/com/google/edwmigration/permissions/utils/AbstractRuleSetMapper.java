@@ -17,14 +17,13 @@
 package com.google.edwmigration.permissions.utils;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.primitives.Primitives;
+import com.google.common.collect.Maps;
 import com.google.edwmigration.permissions.ProcessingException;
 import com.google.edwmigration.permissions.commands.expand.CompiledRule;
 import com.google.edwmigration.permissions.commands.expand.RuleSetCompiler;
@@ -33,10 +32,9 @@ import com.google.edwmigration.permissions.commands.expand.StreamProcessor;
 import com.google.edwmigration.permissions.models.Rule;
 import com.google.errorprone.annotations.ForOverride;
 import dev.cel.runtime.CelEvaluationException;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +75,20 @@ public abstract class AbstractRuleSetMapper<T, R> implements RuleSetMapper<R> {
     return newStream().process(this::map);
   }
 
+  /**
+   * Calls the given action, which runs one or more mappers, on a dedicated pool of {@code
+   * numThreads} threads. The mappers evaluate their items on the pool of the calling thread, which
+   * would otherwise be the common pool shared with the rest of the JVM.
+   */
+  public static <V> V runWithParallelism(int numThreads, Supplier<V> action) {
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try {
+      return pool.submit(action::get).join();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   /** Retrieve the CEL context for a given source. */
   protected abstract ImmutableMap<String, Object> toContext(T source);
 
@@ -93,19 +105,28 @@ public abstract class AbstractRuleSetMapper<T, R> implements RuleSetMapper<R> {
     return mappedObject;
   }
 
+  /**
+   * Maps and closes the source stream. Items are evaluated in parallel on the pool of the calling
+   * thread, as set by {@link #runWithParallelism}, while the result preserves the order of the
+   * source stream; overrides of the context and object map methods must be thread-safe.
+   */
   private ImmutableList<RuleSetMapper.Result<R>> map(Stream<T> sourceStream) {
-    ImmutableList<RuleSetMapper.Result<R>> result =
-        sourceStream
-            .map(
-                source -> {
-                  try {
-                    return map(source);
-                  } catch (CelEvaluationException e) {
-                    throw new ProcessingException(
-                        String.format("Failed to map %s item: %s", sourceName, source), e);
-                  }
-                })
-            .collect(toImmutableList());
+    ImmutableList<RuleSetMapper.Result<R>> result;
+    try (Stream<T> stream = sourceStream) {
+      result =
+          stream
+              .parallel()
+              .map(
+                  source -> {
+                    try {
+                      return map(source);
+                    } catch (CelEvaluationException e) {
+                      throw new ProcessingException(
+                          String.format("Failed to map %s item: %s", sourceName, source), e);
+                    }
+                  })
+              .collect(toImmutableList());
+    }
     LOG.info("Mapped {} {} items", result.size(), sourceName);
     return result;
   }
@@ -115,13 +136,10 @@ public abstract class AbstractRuleSetMapper<T, R> implements RuleSetMapper<R> {
     EvalOutcome evalOutcome =
         ruleSetCompiler.eval(
             compiledRules,
-            /* context= */ toContext(source).entrySet().stream()
-                .collect(
-                    toImmutableMap(
-                        Map.Entry::getKey, entry -> convertContextValue(entry.getValue()))),
+            /* context= */ ImmutableMap.copyOf(
+                Maps.transformValues(toContext(source), MAP_CONVERTER::convertToValue)),
             /* baseObjectMapValues= */ toBaseObjectMap(source),
             /* defaultObjectMapValues= */ toDefaultObjectMap(source));
-    HashMap<String, Object> mappedObject = new HashMap<>(evalOutcome.mappedObject());
     if (evalOutcome.action() == Action.NO_MATCH) {
       throw new IllegalArgumentException(
           String.format("No rule matches %s item: %s", sourceName, source));
@@ -129,18 +147,7 @@ public abstract class AbstractRuleSetMapper<T, R> implements RuleSetMapper<R> {
     return RuleSetMapper.Result.create(
         evalOutcome.action(),
         MAP_CONVERTER.convertFromMap(
-            toOutputObjectMap(source, ImmutableMap.copyOf(mappedObject), evalOutcome.action()),
+            toOutputObjectMap(source, evalOutcome.mappedObject(), evalOutcome.action()),
             resultClass));
   }
-
-  private Object convertContextValue(Object source) {
-    // Do not serialize primitive types and Strings.
-    if (source instanceof String || Primitives.isWrapperType(source.getClass())) {
-      return source;
-    }
-    if (source instanceof Collection) {
-      return ((Collection<?>) source).stream().map(MAP_CONVERTER::convertToMap);
-    }
-    return MAP_CONVERTER.convertToMap(source);
-  }
 }
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+import com.google.edwmigration.permissions.ProcessingException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorts a stream which may not fit in memory.
+ *
+ * <p>The input is read in chunks of at most {@code maxRecordsInMemory} records. Each chunk is
+ * sorted and written to a temporary run file, and the runs are then merged lazily with a k-way
+ * merge. An input which fits in a single chunk is sorted in memory without touching the disk.
+ *
+ * <p>The input is fully consumed and closed by {@link #sort}, while the returned stream reads the
+ * runs and must be closed to delete them.
+ */
+public class ExternalSorter<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExternalSorter.class);
+
+  /** The maximum number of runs merged at once; more runs are merged in several passes. */
+  private static final int MAX_MERGE_FAN_IN = 128;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Writes and reads the records of a run file. */
+  public interface Codec<T> {
+
+    void write(DataOutput out, T value) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    static void writeString(DataOutput out, @Nullable String value) throws IOException {
+      out.writeBoolean(value != null);
+      if (value != null) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+
+    @Nullable
+    static String readString(DataInput in) throws IOException {
+      if (!in.readBoolean()) {
+        return null;
+      }
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeLong(DataOutput out, @Nullable Long value) throws IOException {
+      out.writeBoolean(value != null);
+      if (value != null) {
+        out.writeLong(value);
+      }
+    }
+
+    @Nullable
+    static Long readLong(DataInput in) throws IOException {
+      return in.readBoolean() ? in.readLong() : null;
+    }
+  }
+
+  private final Comparator<? super T> comparator;
+
+  private final Codec<T> codec;
+
+  private final int maxRecordsInMemory;
+
+  /** The directory of the run files, or null for the default temporary directory. */
+  @Nullable private final Path runDirectory;
+
+  public ExternalSorter(Comparator<? super T> comparator, Codec<T> codec, int maxRecordsInMemory) {
+    this(comparator, codec, maxRecordsInMemory, null);
+  }
+
+  @VisibleForTesting
+  ExternalSorter(
+      Comparator<? super T> comparator,
+      Codec<T> codec,
+      int maxRecordsInMemory,
+      @Nullable Path runDirectory) {
+    Preconditions.checkArgument(
+        maxRecordsInMemory > 0, "Bad number of records in memory: %s", maxRecordsInMemory);
+    this.comparator = comparator;
+    this.codec = codec;
+    this.maxRecordsInMemory = maxRecordsInMemory;
+    this.runDirectory = runDirectory;
+  }
+
+  public Stream<T> sort(Stream<T> input) {
+    List<Path> runs = new ArrayList<>();
+    List<T> chunk = new ArrayList<>();
+    try (Stream<T> source = input) {
+      for (Iterator<T> iterator = source.iterator(); iterator.hasNext(); ) {
+        chunk.add(iterator.next());
+        if (chunk.size() >= maxRecordsInMemory) {
+          runs.add(writeRun(chunk));
+          chunk.clear();
+        }
+      }
+      if (runs.isEmpty()) {
+        chunk.sort(comparator);
+        return chunk.stream();
+      }
+      if (!chunk.isEmpty()) {
+        runs.add(writeRun(chunk));
+        chunk.clear();
+      }
+      LOG.info("Sorted {} runs of up to {} records on disk", runs.size(), maxRecordsInMemory);
+      while (runs.size() > MAX_MERGE_FAN_IN) {
+        List<Path> merged = new ArrayList<>(runs.subList(0, MAX_MERGE_FAN_IN));
+        runs.subList(0, MAX_MERGE_FAN_IN).clear();
+        runs.add(mergeRuns(merged));
+      }
+      MergeIterator merge = new MergeIterator(runs);
+      return Streams.stream(merge).onClose(merge::close);
+    } catch (IOException e) {
+      deleteRuns(runs);
+      throw new ProcessingException("Failed to sort records on disk", e);
+    } catch (RuntimeException e) {
+      deleteRuns(runs);
+      throw e;
+    }
+  }
+
+  private Path writeRun(List<T> chunk) throws IOException {
+    chunk.sort(comparator);
+    return writeRun(chunk.iterator());
+  }
+
+  private Path mergeRuns(List<Path> runs) throws IOException {
+    try (MergeIterator merge = new MergeIterator(runs)) {
+      return writeRun(merge);
+    }
+  }
+
+  private Path writeRun(Iterator<T> sorted) throws IOException {
+    Path run =
+        runDirectory == null
+            ? Files.createTempFile("sort-run-", ".bin")
+            : Files.createTempFile(runDirectory, "sort-run-", ".bin");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+      while (sorted.hasNext()) {
+        out.writeBoolean(true);
+        codec.write(out, sorted.next());
+      }
+      out.writeBoolean(false);
+    } catch (IOException | RuntimeException e) {
+      deleteRuns(Collections.singletonList(run));
+      throw e;
+    }
+    return run;
+  }
+
+  private static void deleteRuns(List<Path> runs) {
+    for (Path run : runs) {
+      try {
+        Files.deleteIfExists(run);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete sort run {}", run, e);
+      }
+    }
+  }
+
+  private class RunReader implements Closeable {
+
+    private final DataInputStream in;
+    @CheckForNull private T head;
+
+    RunReader(Path run) throws IOException {
+      this.in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+    }
+
+    /** Reads the next record into head, returns false at the end of the run. */
+    boolean advance() throws IOException {
+      head = in.readBoolean() ? codec.read(in) : null;
+      return head != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  private class MergeIterator extends AbstractIterator<T> implements Closeable {
+
+    private final List<Path> runs;
+    private final List<RunReader> readers = new ArrayList<>();
+    private final PriorityQueue<RunReader> queue;
+
+    MergeIterator(List<Path> runs) throws IOException {
+      this.runs = runs;
+      this.queue = new PriorityQueue<>(runs.size(), (a, b) -> comparator.compare(a.head, b.head));
+      try {
+        for (Path run : runs) {
+          RunReader reader = new RunReader(run);
+          readers.add(reader);
+          if (reader.advance()) {
+            queue.add(reader);
+          }
+        }
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @CheckForNull
+    @Override
+    protected T computeNext() {
+      RunReader reader = queue.poll();
+      if (reader == null) {
+        close();
+        return endOfData();
+      }
+      T value = reader.head;
+      try {
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      } catch (IOException e) {
+        close();
+        throw new ProcessingException("Failed to read sorted run", e);
+      }
+      return value;
+    }
+
+    @Override
+    public void close() {
+      for (RunReader reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close sort run", e);
+        }
+      }
+      readers.clear();
+      deleteRuns(runs);
+    }
+  }
+}
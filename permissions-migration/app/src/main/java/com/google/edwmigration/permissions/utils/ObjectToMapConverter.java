@@ -16,14 +16,37 @@
  */
 package com.google.edwmigration.permissions.utils;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.primitives.Primitives;
+import com.google.edwmigration.permissions.ProcessingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 
 public class ObjectToMapConverter {
 
   private final ObjectMapper objectMapper;
 
+  private final Map<Class<?>, Optional<BeanSerializer>> beanSerializers = new ConcurrentHashMap<>();
+
+  private final Map<Enum<?>, Object> enumValues = new ConcurrentHashMap<>();
+
   public ObjectToMapConverter(ObjectMapper objectMapper) {
     this.objectMapper = objectMapper;
   }
@@ -35,4 +58,89 @@ public class ObjectToMapConverter {
   public <T> T convertFromMap(Map<String, Object> map, Class<T> targetClass) {
     return objectMapper.convertValue(map, targetClass);
   }
+
+  /**
+   * Converts an object to the value Jackson would produce for it, without a serialization round
+   * trip for bean-like objects. Strings and primitive wrappers are returned as-is, beans become
+   * maps keyed by their Jackson property names and collections become lists. Any other value, as
+   * well as properties with a custom format or serializer, is converted through Jackson.
+   *
+   * <p>This method is thread-safe.
+   */
+  @Nullable
+  public Object convertToValue(@Nullable Object object) {
+    return convertToValue(object, objectMapper.getSerializerProviderInstance());
+  }
+
+  @Nullable
+  private Object convertToValue(@Nullable Object object, SerializerProvider provider) {
+    if (object == null || object instanceof String || Primitives.isWrapperType(object.getClass())) {
+      return object;
+    }
+    if (object instanceof Enum) {
+      return enumValues.computeIfAbsent(
+          (Enum<?>) object, value -> objectMapper.convertValue(value, Object.class));
+    }
+    if (object instanceof Collection) {
+      Collection<?> collection = (Collection<?>) object;
+      List<Object> result = new ArrayList<>(collection.size());
+      for (Object element : collection) {
+        result.add(convertToValue(element, provider));
+      }
+      return result;
+    }
+    Optional<BeanSerializer> beanSerializer =
+        beanSerializers.computeIfAbsent(
+            object.getClass(), type -> findBeanSerializer(type, provider));
+    if (!beanSerializer.isPresent()) {
+      return objectMapper.convertValue(object, Object.class);
+    }
+    Map<String, Object> result = new LinkedHashMap<>();
+    for (Iterator<PropertyWriter> it = beanSerializer.get().properties(); it.hasNext(); ) {
+      BeanPropertyWriter writer = (BeanPropertyWriter) it.next();
+      try {
+        Object value = writer.get(object);
+        if (value == null && writer.willSuppressNulls()) {
+          continue;
+        }
+        if (writer.getAnnotation(JsonFormat.class) != null
+            || writer.getAnnotation(JsonSerialize.class) != null) {
+          result.put(writer.getName(), convertPropertyValue(object, writer, provider));
+        } else {
+          result.put(writer.getName(), convertToValue(value, provider));
+        }
+      } catch (Exception e) {
+        throw new ProcessingException(
+            String.format(
+                "Failed to convert property '%s' of %s", writer.getName(), object.getClass()),
+            e);
+      }
+    }
+    return result;
+  }
+
+  /** Converts a single property through Jackson, honouring its annotations. */
+  @Nullable
+  private Object convertPropertyValue(
+      Object object, BeanPropertyWriter writer, SerializerProvider provider) throws Exception {
+    TokenBuffer buffer = new TokenBuffer(objectMapper, false);
+    buffer.writeStartObject();
+    writer.serializeAsField(object, buffer, provider);
+    buffer.writeEndObject();
+    Map<String, Object> field =
+        objectMapper.readValue(buffer.asParser(), new TypeReference<Map<String, Object>>() {});
+    return field.get(writer.getName());
+  }
+
+  private static Optional<BeanSerializer> findBeanSerializer(
+      Class<?> type, SerializerProvider provider) {
+    try {
+      JsonSerializer<Object> serializer = provider.findValueSerializer(type);
+      return serializer instanceof BeanSerializer
+          ? Optional.of((BeanSerializer) serializer)
+          : Optional.empty();
+    } catch (JsonMappingException e) {
+      return Optional.empty();
+    }
+  }
 }
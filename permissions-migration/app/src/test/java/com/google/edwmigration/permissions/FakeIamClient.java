@@ -42,7 +42,7 @@ public class FakeIamClient implements IamClient {
   private final Map<String, Set<Permission>> objectPermissions = new HashMap<>();
 
   @Override
-  public void addIamPolicyBindings(
+  public synchronized void addIamPolicyBindings(
       String path, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions) {
     if (extraPermissions == ExtraPermissions.PURGE) {
       objectPermissions.get(path).clear();
@@ -52,24 +52,29 @@ public class FakeIamClient implements IamClient {
             identities.forEach((identity) -> addIdentityToIamPolicy(path, role, identity)));
   }
 
-  public void addIdentityToIamPolicy(String path, Role role, Identity identity) {
+  public synchronized void addIdentityToIamPolicy(String path, Role role, Identity identity) {
     objectPermissions
         .computeIfAbsent(path, key -> new HashSet<>())
         .add(Permission.create(role, identity));
   }
 
   /** Returns true only if a folder with given path has been created before. */
-  public boolean checkPathExists(String path) {
+  public synchronized boolean checkPathExists(String path) {
     return objectPermissions.containsKey(path);
   }
 
   /** Returns true only if a permission with the given role and identity has been added before. */
-  public boolean checkPermissionExists(String path, Role role, Identity identity) {
+  public synchronized boolean checkPermissionExists(String path, Role role, Identity identity) {
     Permission expectedPermission = Permission.create(role, identity);
     return objectPermissions.containsKey(path)
         && objectPermissions.get(path).contains(expectedPermission);
   }
 
+  /** Returns the number of paths with permissions. */
+  public synchronized int getPathCount() {
+    return objectPermissions.size();
+  }
+
   @Override
   public void close() {}
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import com.google.cloud.storage.contrib.nio.testing.LocalStorageHelper;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GcsParallelObjectsProcessorTest {
+
+  private static final String BUCKET = "bucket";
+
+  private Storage storage;
+
+  @BeforeEach
+  public void setUp() {
+    storage = LocalStorageHelper.getOptions().getService();
+    for (String name :
+        new String[] {
+          "source/a.yaml", "source/d1/b.yaml", "source/d1/d2/c.yaml", "source/d3/d.yaml", "other/e"
+        }) {
+      storage.create(BlobInfo.newBuilder(BUCKET, name).build(), new byte[] {1});
+    }
+  }
+
+  @Test
+  public void run_processesAllObjectsBelowPath() {
+    Set<String> processed = ConcurrentHashMap.newKeySet();
+
+    newProcessor().Run(blob -> processed.add(blob.getName()));
+
+    assertThat(processed)
+        .containsExactly(
+            "source/a.yaml", "source/d1/b.yaml", "source/d1/d2/c.yaml", "source/d3/d.yaml");
+  }
+
+  @Test
+  public void run_retriesTransientFailures() {
+    Set<String> processed = ConcurrentHashMap.newKeySet();
+    AtomicInteger failures = new AtomicInteger();
+
+    newProcessor()
+        .Run(
+            blob -> {
+              if (blob.getName().equals("source/d1/b.yaml") && failures.getAndIncrement() == 0) {
+                throw new StorageException(503, "Service unavailable");
+              }
+              processed.add(blob.getName());
+            });
+
+    assertThat(failures.get()).isEqualTo(2);
+    assertThat(processed).contains("source/d1/b.yaml");
+  }
+
+  @Test
+  public void run_propagatesPermanentFailures() {
+    IllegalStateException actual =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                newProcessor()
+                    .Run(
+                        blob -> {
+                          if (blob.getName().equals("source/d3/d.yaml")) {
+                            throw new IllegalStateException("broken " + blob.getName());
+                          }
+                        }));
+    assertThat(actual).hasMessageThat().contains("source/d3/d.yaml");
+  }
+
+  private GcsParallelObjectsProcessor newProcessor() {
+    return new GcsParallelObjectsProcessor(
+        storage,
+        GcsPath.create(BUCKET, "source"),
+        /* numThreads= */ 2,
+        /* timeoutSeconds= */ 60,
+        /* initialBackoffMillis= */ 0);
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.cloud.Identity;
+import com.google.cloud.Policy;
+import com.google.cloud.Role;
+import com.google.cloud.storage.StorageException;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class IamPolicyUpdaterTest {
+
+  private static final Role ROLE = Role.of("roles/storage.objectUser");
+
+  private static final Identity USER1 = Identity.valueOf("user:user1@example.com");
+
+  private static final Identity USER2 = Identity.valueOf("user:user2@example.com");
+
+  private final IamPolicyUpdater updater = new IamPolicyUpdater(/* initialBackoffMillis= */ 0);
+
+  @Test
+  public void update_addsBindingsToExistingPolicy() {
+    Policy existing = Policy.newBuilder().addIdentity(ROLE, USER1).build();
+    List<Policy> written = new ArrayList<>();
+
+    boolean updated =
+        updater.update(
+            "folder",
+            () -> existing,
+            written::add,
+            ImmutableMap.of(ROLE, ImmutableSet.of(USER2)),
+            ExtraPermissions.KEEP);
+
+    assertThat(updated).isTrue();
+    assertThat(written).hasSize(1);
+    assertThat(written.get(0).getBindings()).containsExactly(ROLE, ImmutableSet.of(USER1, USER2));
+  }
+
+  @Test
+  public void update_skipsWriteWhenPolicyIsUpToDate() {
+    Policy existing = Policy.newBuilder().addIdentity(ROLE, USER1).build();
+    List<Policy> written = new ArrayList<>();
+
+    boolean updated =
+        updater.update(
+            "folder",
+            () -> existing,
+            written::add,
+            ImmutableMap.of(ROLE, ImmutableSet.of(USER1)),
+            ExtraPermissions.KEEP);
+
+    assertThat(updated).isFalse();
+    assertThat(written).isEmpty();
+  }
+
+  @Test
+  public void update_purgeRemovesExistingBindings() {
+    Policy existing = Policy.newBuilder().addIdentity(ROLE, USER1).build();
+    List<Policy> written = new ArrayList<>();
+
+    updater.update(
+        "folder",
+        () -> existing,
+        written::add,
+        ImmutableMap.of(ROLE, ImmutableSet.of(USER2)),
+        ExtraPermissions.PURGE);
+
+    assertThat(written.get(0).getBindings()).containsExactly(ROLE, ImmutableSet.of(USER2));
+  }
+
+  @Test
+  public void update_retriesOnConcurrentModification() {
+    AtomicInteger reads = new AtomicInteger();
+    List<Policy> written = new ArrayList<>();
+
+    updater.update(
+        "folder",
+        () -> {
+          reads.incrementAndGet();
+          return IamPolicyUpdater.emptyPolicy();
+        },
+        policy -> {
+          if (written.isEmpty()) {
+            written.add(policy);
+            throw new StorageException(412, "Precondition failed");
+          }
+          written.add(policy);
+        },
+        ImmutableMap.of(ROLE, ImmutableSet.of(USER1)),
+        ExtraPermissions.KEEP);
+
+    assertThat(reads.get()).isEqualTo(2);
+    assertThat(written).hasSize(2);
+  }
+
+  @Test
+  public void update_givesUpAfterMaxAttempts() {
+    AtomicInteger writes = new AtomicInteger();
+
+    assertThrows(
+        StorageException.class,
+        () ->
+            updater.update(
+                "folder",
+                IamPolicyUpdater::emptyPolicy,
+                policy -> {
+                  writes.incrementAndGet();
+                  throw new StorageException(409, "Conflict");
+                },
+                ImmutableMap.of(ROLE, ImmutableSet.of(USER1)),
+                ExtraPermissions.KEEP));
+    assertThat(writes.get()).isEqualTo(IamPolicyUpdater.MAX_ATTEMPTS);
+  }
+}
@@ -108,7 +108,9 @@ public class HdfsToGcsIamBindingMapperTest {
             MATCH_ALL_RULE_SET,
             new CollectionStreamProcessor<>(tables),
             new CollectionStreamProcessor<>(principals),
-            new CollectionStreamProcessor<>(permissions));
+            new CollectionStreamProcessor<>(permissions),
+            // Spill every record, so that the join reads the inputs back from disk.
+            /* sortBufferRecords= */ 1);
     ImmutableList<IamBinding> actual =
         mapper.run().stream().map(RuleSetMapper.Result::value).collect(toImmutableList());
 
@@ -16,7 +16,9 @@
  */
 package com.google.edwmigration.permissions.commands.buildcommand;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.cloud.Identity;
 import com.google.cloud.Role;
@@ -29,7 +31,11 @@ import com.google.edwmigration.permissions.models.IamBinding;
 import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
 import com.google.edwmigration.permissions.models.Permissions;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class PermissionsApplierTest {
 
@@ -189,4 +195,64 @@ public class PermissionsApplierTest {
                 Identity.valueOf("user:old-user@example.com")))
         .isFalse();
   }
+
+  @Test
+  public void apply_appliesResourcesConcurrently() throws IOException {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    PermissionsApplier applier =
+        new PermissionsApplier(
+            ImmutableMap.of(ResourceType.GCS_MANAGED_FOLDER, fakeIamClient),
+            /* threads= */ 8,
+            /* maxResourcesPerSecond= */ 1000,
+            /* checkpointFile= */ null);
+
+    Permissions permissions =
+        Permissions.create(
+            IntStream.range(0, 100)
+                .mapToObj(i -> createBinding("gs://cluster-1-bucket/table-" + i))
+                .collect(toImmutableList()));
+    applier.apply(permissions, ExtraPermissions.KEEP);
+
+    assertThat(fakeIamClient.getPathCount()).isEqualTo(100);
+  }
+
+  @Test
+  public void apply_skipsResourcesInCheckpoint(@TempDir Path tempDir) throws IOException {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    Path checkpointFile = tempDir.resolve("checkpoint.txt");
+    Files.write(
+        checkpointFile,
+        ImmutableList.of(ResourceType.GCS_MANAGED_FOLDER + "\tgs://cluster-1-bucket/table-a"),
+        UTF_8);
+    PermissionsApplier applier =
+        new PermissionsApplier(
+            ImmutableMap.of(ResourceType.GCS_MANAGED_FOLDER, fakeIamClient),
+            /* threads= */ 2,
+            /* maxResourcesPerSecond= */ 1000,
+            checkpointFile);
+
+    Permissions permissions =
+        Permissions.create(
+            ImmutableList.of(
+                createBinding("gs://cluster-1-bucket/table-a"),
+                createBinding("gs://cluster-1-bucket/table-b")));
+    applier.apply(permissions, ExtraPermissions.KEEP);
+
+    assertThat(fakeIamClient.checkPathExists("gs://cluster-1-bucket/table-a")).isFalse();
+    assertThat(fakeIamClient.checkPathExists("gs://cluster-1-bucket/table-b")).isTrue();
+    assertThat(Files.readAllLines(checkpointFile, UTF_8))
+        .containsExactly(
+            ResourceType.GCS_MANAGED_FOLDER + "\tgs://cluster-1-bucket/table-a",
+            ResourceType.GCS_MANAGED_FOLDER + "\tgs://cluster-1-bucket/table-b");
+  }
+
+  private static IamBinding createBinding(String resourcePath) {
+    return IamBinding.builder()
+        .resourceType(ResourceType.GCS_MANAGED_FOLDER)
+        .resourcePath(resourcePath)
+        .principal("user:user1@example.com")
+        .role("roles/storage.objectUser")
+        .priority(10)
+        .build();
+  }
 }
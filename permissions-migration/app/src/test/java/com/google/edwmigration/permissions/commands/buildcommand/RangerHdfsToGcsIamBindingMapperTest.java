@@ -114,4 +114,36 @@ public class RangerHdfsToGcsIamBindingMapperTest {
                 .build());
     assertThat(actual).containsExactlyElementsIn(expected);
   }
+
+  @Test
+  public void policyMatchesTable_matchesOnlyThatPolicyPath() {
+    Table table =
+        Table.create(
+            "table1", "schema", "hdfs://cluster-m/schema/table1", "gs://test/schema/table1", null);
+    Policy matchingPolicy = newPathPolicy(1, "/schema/table*");
+    Policy otherPolicy = newPathPolicy(2, "/other");
+    RangerHdfsToGcsIamBindingMapper mapper =
+        new RangerHdfsToGcsIamBindingMapper(
+            MATCH_ALL_RULE_SET,
+            new CollectionStreamProcessor<>(ImmutableList.of(table)),
+            new CollectionStreamProcessor<>(ImmutableList.of()),
+            new CollectionStreamProcessor<>(ImmutableList.of(matchingPolicy, otherPolicy)),
+            new CollectionStreamProcessor<>(
+                ImmutableList.of(Service.builder().id(1L).name("hdfs").type("hdfs").build())));
+
+    assertThat(mapper.policyMatchesTable(matchingPolicy, table)).isTrue();
+    assertThat(mapper.policyMatchesTable(otherPolicy, table)).isFalse();
+    assertThat(mapper.matchingPolicies(table)).containsExactly(matchingPolicy);
+  }
+
+  private static Policy newPathPolicy(int id, String path) {
+    return Policy.builder()
+        .id(id)
+        .name("policy" + id)
+        .service("hdfs")
+        .resources(
+            ImmutableMap.of("path", PolicyResource.create(ImmutableList.of(path), false, false)))
+        .policyItems(ImmutableList.of())
+        .build();
+  }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+public class RangerHiveResourceIndexTest {
+
+  private final RangerHiveResourceIndex<String> index =
+      RangerHiveResourceIndex.<String>builder()
+          .add("all", ImmutableList.of("*"), ImmutableList.of("*"))
+          .add("sales", ImmutableList.of("sales"), ImmutableList.of("*"))
+          .add("orders", ImmutableList.of("sales", "hr"), ImmutableList.of("orders"))
+          .add("anyOrders", ImmutableList.of("*"), ImmutableList.of("orders"))
+          .build();
+
+  @Test
+  public void match_returnsExactAndWildcardPoliciesInOrder() {
+    assertThat(index.match("sales", "orders"))
+        .containsExactly("all", "sales", "orders", "anyOrders")
+        .inOrder();
+    assertThat(index.match("hr", "orders")).containsExactly("all", "orders", "anyOrders").inOrder();
+    assertThat(index.match("hr", "people")).containsExactly("all");
+  }
+
+  @Test
+  public void match_noPolicies_returnsEmpty() {
+    RangerHiveResourceIndex<String> empty = RangerHiveResourceIndex.<String>builder().build();
+
+    assertThat(empty.match("sales", "orders")).isEmpty();
+  }
+
+  @Test
+  public void toString_reportsHitStatistics() {
+    index.match("sales", "orders");
+    index.match("hr", "people");
+
+    assertThat(index.toString())
+        .isEqualTo(
+            "4 policies, 2 lookups, 1 exact hits, 2 wildcard hits, 2.5 matches per lookup");
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+public class RangerPathMatcherTest {
+
+  @Test
+  public void match_returnsAllMatchingValuesInInsertionOrder() {
+    RangerPathMatcher<String> matcher =
+        RangerPathMatcher.<String>builder()
+            .add(new RangerPathPattern("/path/folder/table", false), "exact")
+            .add(new RangerPathPattern("/path/folder", true), "recursive")
+            .add(new RangerPathPattern("/path/*/table", false), "wildcard")
+            .add(new RangerPathPattern("/other", true), "other")
+            .build();
+
+    assertThat(matcher.match("/path/folder/table"))
+        .containsExactly("exact", "recursive", "wildcard")
+        .inOrder();
+    assertThat(matcher.match("/path/folder/table2")).containsExactly("recursive");
+    assertThat(matcher.match("/path")).isEmpty();
+  }
+
+  @Test
+  public void match_questionMarkMatchesSingleCharacter() {
+    RangerPathMatcher<String> matcher =
+        RangerPathMatcher.<String>builder()
+            .add(new RangerPathPattern("/data/t?ble", false), "value")
+            .build();
+
+    assertThat(matcher.match("/data/table")).containsExactly("value");
+    assertThat(matcher.match("/data/tble")).isEmpty();
+    assertThat(matcher.match("/data/taable")).isEmpty();
+  }
+
+  @Test
+  public void match_doubleStar_sameAsSingleStar() {
+    RangerPathMatcher<String> matcher =
+        RangerPathMatcher.<String>builder()
+            .add(new RangerPathPattern("/data/*", false), "value")
+            .add(new RangerPathPattern("/data/**", false), "value")
+            .build();
+
+    assertThat(matcher.match("/data/x")).containsExactly("value", "value");
+    assertThat(matcher.match("/data/")).containsExactly("value", "value");
+  }
+
+  @Test
+  public void match_agreesWithCompiledRegex() {
+    ImmutableList<RangerPathPattern> patterns =
+        ImmutableList.of(
+            new RangerPathPattern("/path/folder/table", false),
+            new RangerPathPattern("/path/folder/table", true),
+            new RangerPathPattern("/path/folder/", true),
+            new RangerPathPattern("/path/folder/table*", false),
+            new RangerPathPattern("/path/*/table?", true),
+            new RangerPathPattern("*table*", false));
+    ImmutableList<String> paths =
+        ImmutableList.of(
+            "/path/folder/table",
+            "/path/folder/table/partition1",
+            "/path/folder/table2",
+            "/path/folder2/table3",
+            "/path/folder",
+            "/path/folder/",
+            "/table",
+            "");
+
+    for (RangerPathPattern pattern : patterns) {
+      RangerPathMatcher<Boolean> matcher =
+          RangerPathMatcher.<Boolean>builder().add(pattern, true).build();
+      for (String path : paths) {
+        assertWithMessage("Pattern %s on %s", pattern.expand(), path)
+            .that(!matcher.match(path).isEmpty())
+            .isEqualTo(pattern.compile().matches(path));
+      }
+    }
+  }
+}
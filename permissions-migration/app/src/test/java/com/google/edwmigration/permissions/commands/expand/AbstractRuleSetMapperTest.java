@@ -32,6 +32,9 @@ import com.google.edwmigration.permissions.utils.AbstractRuleSetMapper;
 import com.google.edwmigration.permissions.utils.CollectionStreamProcessor;
 import com.google.edwmigration.permissions.utils.RuleSetMapper.Action;
 import com.google.edwmigration.permissions.utils.RuleSetMapper.Result;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import org.junit.jupiter.api.Test;
 
@@ -141,6 +144,60 @@ public class AbstractRuleSetMapperTest {
     assertThat(principals).containsExactlyElementsIn(expected);
   }
 
+  @Test
+  public void run_preservesSourceOrder() {
+    ImmutableList<Rule> rules =
+        ImmutableList.of(
+            createRule(
+                /* when= */ "true",
+                /* stringExpression= */ "user + '@google.com'",
+                /* intValue= */ 42));
+    ImmutableList<String> users =
+        IntStream.range(0, 10_000).mapToObj(i -> "user" + i).collect(toImmutableList());
+    TestUserTestObjectMapper<String> expander =
+        new TestUserTestObjectMapper<>("user", rules, new CollectionStreamProcessor<>(users));
+
+    ImmutableList<TestObject> principals = getResults(expander.run());
+
+    ImmutableList<TestObject> expected =
+        users.stream()
+            .map(user -> TestObject.create(user + "@google.com", 42))
+            .collect(toImmutableList());
+    assertThat(principals).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test
+  public void runWithParallelism_evaluatesOnTheDedicatedPool() {
+    ImmutableList<Rule> rules =
+        ImmutableList.of(
+            createRule(
+                /* when= */ "true",
+                /* stringExpression= */ "user + '@google.com'",
+                /* intValue= */ 42));
+    ImmutableList<String> users =
+        IntStream.range(0, 10_000).mapToObj(i -> "user" + i).collect(toImmutableList());
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    TestUserTestObjectMapper<String> expander =
+        new TestUserTestObjectMapper<String>(
+            "user", rules, new CollectionStreamProcessor<>(users)) {
+          @Override
+          protected ImmutableMap<String, Object> toContext(String source) {
+            threadNames.add(Thread.currentThread().getName());
+            return super.toContext(source);
+          }
+        };
+
+    ImmutableList<Result<TestObject>> principals =
+        AbstractRuleSetMapper.runWithParallelism(2, expander::run);
+
+    assertThat(principals).hasSize(users.size());
+    assertThat(threadNames.size()).isAtMost(2);
+    for (String threadName : threadNames) {
+      // Not the common pool, nor the calling thread.
+      assertThat(threadName).matches("ForkJoinPool-\\d+-worker-\\d+");
+    }
+  }
+
   @Test
   public void run_throwsWhenNoRuleMatches() {
     ImmutableList<Rule> rules = ImmutableList.of();
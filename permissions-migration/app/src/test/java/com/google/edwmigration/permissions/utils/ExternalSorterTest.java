@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.utils;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.permissions.utils.ExternalSorter.Codec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ExternalSorterTest {
+
+  private static final Codec<String> STRING_CODEC =
+      new Codec<String>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+          Codec.writeString(out, value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+          return Codec.readString(in);
+        }
+      };
+
+  @Test
+  public void sort_fitsInMemory_sortsInput() {
+    ExternalSorter<String> sorter =
+        new ExternalSorter<>(Comparator.naturalOrder(), STRING_CODEC, 10);
+
+    try (Stream<String> sorted = sorter.sort(Stream.of("c", "a", "b"))) {
+      assertThat(sorted.collect(toImmutableList())).containsExactly("a", "b", "c").inOrder();
+    }
+  }
+
+  @Test
+  public void sort_spillsToDisk_sortsInput() {
+    ImmutableList<String> input =
+        new Random(42)
+            .ints(5_000, 0, 1_000)
+            .mapToObj(i -> String.format("%04d", i))
+            .collect(toImmutableList());
+    ExternalSorter<String> sorter =
+        new ExternalSorter<>(Comparator.naturalOrder(), STRING_CODEC, 7);
+
+    try (Stream<String> sorted = sorter.sort(input.stream())) {
+      assertThat(sorted.collect(toImmutableList()))
+          .containsExactlyElementsIn(input.stream().sorted().collect(toImmutableList()))
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void sort_closeBeforeEnd_deletesRuns(@TempDir Path runDirectory) throws IOException {
+    ExternalSorter<String> sorter =
+        new ExternalSorter<>(Comparator.naturalOrder(), STRING_CODEC, 2, runDirectory);
+    boolean[] inputClosed = {false};
+
+    Stream<String> sorted =
+        sorter.sort(Stream.of("e", "d", "c", "b", "a").onClose(() -> inputClosed[0] = true));
+    Iterator<String> iterator = sorted.iterator();
+    assertThat(iterator.next()).isEqualTo("a");
+
+    assertThat(inputClosed[0]).isTrue();
+    try (Stream<Path> runs = Files.list(runDirectory)) {
+      assertThat(runs.count()).isEqualTo(3);
+    }
+    sorted.close();
+    try (Stream<Path> runs = Files.list(runDirectory)) {
+      assertThat(runs.count()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void sort_emptyInput_returnsEmptyStream() {
+    ExternalSorter<String> sorter =
+        new ExternalSorter<>(Comparator.naturalOrder(), STRING_CODEC, 2);
+
+    try (Stream<String> sorted = sorter.sort(Stream.empty())) {
+      assertThat(sorted.count()).isEqualTo(0);
+    }
+  }
+}
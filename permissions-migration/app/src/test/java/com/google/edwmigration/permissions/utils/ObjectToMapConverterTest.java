@@ -23,6 +23,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -58,6 +59,39 @@ public class ObjectToMapConverterTest {
         .containsExactlyEntriesIn(ImmutableMap.of("string_field", "value", "int_field", 42));
   }
 
+  @Test
+  public void convertToValue_convertsObjectLikeConvertToMap() {
+    ObjectToMapConverter converter = new ObjectToMapConverter(new ObjectMapper());
+    TestObject testObject = TestObject.create("value", 42);
+
+    Object actual = converter.convertToValue(testObject);
+
+    assertThat(actual).isEqualTo(converter.convertToMap(testObject));
+  }
+
+  @Test
+  public void convertToValue_convertsCollectionElements() {
+    ObjectToMapConverter converter = new ObjectToMapConverter(new ObjectMapper());
+
+    Object actual =
+        converter.convertToValue(
+            ImmutableList.of(TestObject.create("first", 1), TestObject.create("second", 2)));
+
+    assertThat(actual)
+        .isEqualTo(
+            ImmutableList.of(
+                ImmutableMap.of("string_field", "first", "int_field", 1),
+                ImmutableMap.of("string_field", "second", "int_field", 2)));
+  }
+
+  @Test
+  public void convertToValue_returnsStringsAndWrappersAsIs() {
+    ObjectToMapConverter converter = new ObjectToMapConverter(new ObjectMapper());
+
+    assertThat(converter.convertToValue("value")).isEqualTo("value");
+    assertThat(converter.convertToValue(42L)).isEqualTo(42L);
+  }
+
   @Test
   public void convertFromMap_convertsMapToObject() {
     ObjectToMapConverter converter = new ObjectToMapConverter(new ObjectMapper());